@@ -90,6 +90,7 @@ CREATE TABLE IF NOT EXISTS `chapters` (
   `content` LONGTEXT,
   `word_count` INT,
   `summary` MEDIUMTEXT,
+  `analysis_json` LONGTEXT,
   `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
@@ -203,6 +204,40 @@ CREATE TABLE IF NOT EXISTS `character_dialogues` (
     ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 小说分析文档表
+CREATE TABLE IF NOT EXISTS `novel_analysis_documents` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `novel_id` BIGINT NOT NULL,
+  `content_fingerprint` VARCHAR(64),
+  `data_json` LONGTEXT,
+  `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE INDEX `idx_novel_analysis_documents_novel_id` (`novel_id` ASC),
+  CONSTRAINT `fk_novel_analysis_documents_novel_id`
+    FOREIGN KEY (`novel_id`)
+    REFERENCES `novels` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 小说人名词典表（人名 -> 权重的JSON，写入依赖novel_id唯一键做INSERT ... ON DUPLICATE KEY UPDATE）
+CREATE TABLE IF NOT EXISTS `novel_gazetteers` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `novel_id` BIGINT NOT NULL,
+  `name_count` INT DEFAULT 0,
+  `names_json` LONGTEXT,
+  `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  UNIQUE INDEX `idx_novel_gazetteers_novel_id` (`novel_id` ASC),
+  CONSTRAINT `fk_novel_gazetteers_novel_id`
+    FOREIGN KEY (`novel_id`)
+    REFERENCES `novels` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- -----------------------------------------------------
 -- 可视化相关表
 -- -----------------------------------------------------
@@ -217,6 +252,7 @@ CREATE TABLE IF NOT EXISTS `visualization_cache` (
   `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   `expires_at` TIMESTAMP NOT NULL,
   PRIMARY KEY (`id`),
+  UNIQUE INDEX `novel_vis_type_idx` (`novel_id` ASC, `visualization_type` ASC),
   INDEX `idx_visualization_cache_novel_id` (`novel_id` ASC),
   INDEX `idx_visualization_cache_type` (`visualization_type` ASC),
   INDEX `idx_visualization_cache_expires` (`expires_at` ASC),
@@ -348,4 +384,36 @@ CREATE TABLE IF NOT EXISTS `system_logs` (
     REFERENCES `users` (`id`)
     ON DELETE SET NULL
     ON UPDATE CASCADE
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; 
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; 
+-- ID生成表（章节、情感数据、标签使用表生成器分配ID，以支持JDBC批量插入）
+CREATE TABLE IF NOT EXISTS `id_generators` (
+  `gen_name` VARCHAR(255) NOT NULL,
+  `gen_value` BIGINT,
+  PRIMARY KEY (`gen_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 小说导入任务表（持久化任务队列，支持租约、重试和章节检查点）
+CREATE TABLE IF NOT EXISTS `ingest_jobs` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `novel_id` BIGINT NOT NULL,
+  `user_id` BIGINT,
+  `file_path` VARCHAR(500) NOT NULL,
+  `status` VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+  `priority` INT NOT NULL DEFAULT 0,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `max_attempts` INT NOT NULL DEFAULT 3,
+  `checkpoint_chapter` INT NOT NULL DEFAULT 0,
+  `lease_owner` VARCHAR(100),
+  `lease_expires_at` DATETIME,
+  `next_run_at` DATETIME NOT NULL,
+  `last_error` TEXT,
+  `started_at` DATETIME,
+  `finished_at` DATETIME,
+  `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  INDEX `idx_ingest_jobs_status_next_run` (`status`, `next_run_at`),
+  INDEX `idx_ingest_jobs_user_id` (`user_id`),
+  INDEX `idx_ingest_jobs_novel_id` (`novel_id`),
+  CONSTRAINT `fk_ingest_jobs_novel` FOREIGN KEY (`novel_id`) REFERENCES `novels` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,70 @@
+USE novel_assistant;
+
+-- -----------------------------------------------------
+-- 06_system_logs_partitions.sql - 系统日志表按月分区（一次性迁移）
+-- 把system_logs转换为按created_at的月度RANGE分区（分区名p+年月，另有MAXVALUE分区pmax），
+-- 分区从最早日志所在月份到当前月份之后3个月；应用运行时只从pmax拆分后续月份的分区，
+-- 清理日志时整个删除过期的月分区。
+-- 转换会重建整张表，请在维护窗口执行；表已分区时脚本不做任何修改。
+-- -----------------------------------------------------
+
+DROP PROCEDURE IF EXISTS partition_system_logs;
+
+DELIMITER //
+CREATE PROCEDURE partition_system_logs(IN months_ahead INT)
+BEGIN
+    DECLARE first_month DATE;
+    DECLARE last_month DATE;
+    DECLARE month_start DATE;
+    DECLARE definitions TEXT DEFAULT '';
+
+    IF EXISTS (SELECT 1 FROM information_schema.PARTITIONS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'system_logs' AND PARTITION_NAME IS NOT NULL) THEN
+        SELECT 'system_logs is already partitioned' AS Message;
+    ELSE
+        -- 分区表不支持外键
+        IF EXISTS (SELECT 1 FROM information_schema.TABLE_CONSTRAINTS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'system_logs'
+                   AND CONSTRAINT_NAME = 'fk_system_logs_user_id' AND CONSTRAINT_TYPE = 'FOREIGN KEY') THEN
+            ALTER TABLE system_logs DROP FOREIGN KEY fk_system_logs_user_id;
+        END IF;
+
+        -- TIMESTAMP列只能用UNIX_TIMESTAMP分区，按TO_DAYS分区需要DATETIME
+        IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'system_logs'
+                   AND COLUMN_NAME = 'created_at' AND DATA_TYPE = 'timestamp') THEN
+            ALTER TABLE system_logs MODIFY created_at DATETIME(6) NOT NULL;
+        END IF;
+
+        -- 分区键必须包含在主键中
+        IF NOT EXISTS (SELECT 1 FROM information_schema.KEY_COLUMN_USAGE
+                       WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'system_logs'
+                       AND CONSTRAINT_NAME = 'PRIMARY' AND COLUMN_NAME = 'created_at') THEN
+            ALTER TABLE system_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+        END IF;
+
+        SELECT DATE_FORMAT(LEAST(COALESCE(MIN(created_at), NOW()), NOW()), '%Y-%m-01')
+        INTO first_month FROM system_logs;
+        SET last_month = DATE_FORMAT(DATE_ADD(CURDATE(), INTERVAL months_ahead MONTH), '%Y-%m-01');
+
+        SET month_start = first_month;
+        WHILE month_start <= last_month DO
+            SET definitions = CONCAT(definitions, 'PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+                ' VALUES LESS THAN (TO_DAYS(''', DATE_ADD(month_start, INTERVAL 1 MONTH), ''')), ');
+            SET month_start = DATE_ADD(month_start, INTERVAL 1 MONTH);
+        END WHILE;
+
+        SET @partition_sql = CONCAT('ALTER TABLE system_logs PARTITION BY RANGE (TO_DAYS(created_at)) (',
+            definitions, 'PARTITION pmax VALUES LESS THAN MAXVALUE)');
+        PREPARE statement FROM @partition_sql;
+        EXECUTE statement;
+        DEALLOCATE PREPARE statement;
+
+        SELECT 'system_logs partitioned by month' AS Message;
+    END IF;
+END //
+DELIMITER ;
+
+CALL partition_system_logs(3);
+
+DROP PROCEDURE partition_system_logs;
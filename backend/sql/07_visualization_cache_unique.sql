@@ -0,0 +1,35 @@
+USE novel_assistant;
+
+-- -----------------------------------------------------
+-- 07_visualization_cache_unique.sql - 可视化缓存表唯一键（一次性迁移）
+-- 缓存写入使用INSERT ... ON DUPLICATE KEY UPDATE，依赖(novel_id, visualization_type)唯一键。
+-- 先删除同一小说同一类型的重复缓存（保留id最大的一条），再添加唯一键；唯一键已存在时不做修改。
+-- -----------------------------------------------------
+
+DROP PROCEDURE IF EXISTS add_visualization_cache_unique_key;
+
+DELIMITER //
+CREATE PROCEDURE add_visualization_cache_unique_key()
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'visualization_cache'
+               AND INDEX_NAME = 'novel_vis_type_idx') THEN
+        SELECT 'visualization_cache already has novel_vis_type_idx' AS Message;
+    ELSE
+        DELETE older FROM visualization_cache older
+        JOIN visualization_cache newer
+          ON newer.novel_id = older.novel_id
+         AND newer.visualization_type = older.visualization_type
+         AND newer.id > older.id;
+
+        ALTER TABLE visualization_cache
+            ADD UNIQUE INDEX novel_vis_type_idx (novel_id, visualization_type);
+
+        SELECT 'visualization_cache unique key added' AS Message;
+    END IF;
+END //
+DELIMITER ;
+
+CALL add_visualization_cache_unique_key();
+
+DROP PROCEDURE add_visualization_cache_unique_key;
@@ -0,0 +1,27 @@
+USE novel_assistant;
+
+-- -----------------------------------------------------
+-- 08_chapters_analysis_json.sql - 章节分析结果列（一次性迁移）
+-- 流式导入时把每章的人物、对话和人物关系计数以JSON保存在chapters.analysis_json，
+-- 重新同步跳过已保存的章节时直接合并这些结果；列已存在时脚本不做任何修改。
+-- -----------------------------------------------------
+
+DROP PROCEDURE IF EXISTS add_chapters_analysis_json;
+
+DELIMITER //
+CREATE PROCEDURE add_chapters_analysis_json()
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'chapters'
+               AND COLUMN_NAME = 'analysis_json') THEN
+        SELECT 'chapters.analysis_json already exists' AS Message;
+    ELSE
+        ALTER TABLE chapters ADD COLUMN analysis_json LONGTEXT AFTER summary;
+        SELECT 'chapters.analysis_json added' AS Message;
+    END IF;
+END //
+DELIMITER ;
+
+CALL add_chapters_analysis_json();
+
+DROP PROCEDURE add_chapters_analysis_json;
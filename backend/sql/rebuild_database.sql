@@ -20,5 +20,14 @@ SOURCE 04_stored_procedures.sql;
 -- 执行索引创建脚本
 SOURCE 05_indexes.sql;
 
+-- 执行系统日志分区脚本
+SOURCE 06_system_logs_partitions.sql;
+
+-- 执行可视化缓存唯一键脚本
+SOURCE 07_visualization_cache_unique.sql;
+
+-- 执行章节分析结果列脚本
+SOURCE 08_chapters_analysis_json.sql;
+
 -- 完成后打印提示信息
 SELECT 'Database rebuild completed successfully!' AS Message; 
\ No newline at end of file
@@ -1,10 +1,14 @@
 package com.novelassistant.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 应用程序配置类
@@ -17,8 +21,115 @@ public class ApplicationConfig {
      * 用于异步处理小说相关任务
      */
     @Bean
+    @Primary
     public ExecutorService executorService() {
         // 创建一个固定大小的线程池，用于异步处理任务
         return Executors.newFixedThreadPool(5);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 章节NLP处理线程池
+     * 用于并行处理章节摘要、关键词和情感分析，线程数为0时使用CPU核数
+     */
+    @Bean
+    public ExecutorService chapterProcessingExecutor(
+            @Value("${novelassistant.ingest.chapter-threads:0}") int chapterThreads) {
+        int threads = chapterThreads > 0 ? chapterThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chapter-nlp-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 小说导入任务工作线程池
+     * 用于执行从导入任务队列领取的任务，线程数即本节点同时处理的小说数
+     */
+    @Bean
+    public ExecutorService ingestJobExecutor(
+            @Value("${novelassistant.ingest.workers:2}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "ingest-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 导入任务续约调度线程
+     * 续约不与其他定时任务共用Spring的调度线程，其他定时任务执行缓慢时不会拖延续约导致租约过期、任务被重复处理
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService leaseRenewalScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 章节爬取线程池
+     * 线程大部分时间阻塞在网络读写上，实际请求速率由每个主机的令牌桶限制
+     */
+    @Bean
+    public ExecutorService crawlerExecutor(
+            @Value("${novelassistant.crawler.threads:16}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "chapter-crawler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 章节抓取协调线程池
+     * 每个URL导入任务占用一个线程，把章节提交给章节爬取线程池并按顺序放入处理队列；
+     * 与章节爬取线程池分开，协调线程等待章节时不会占满爬取线程导致导入互相等待。
+     * 线程数与导入任务工作线程数相同
+     */
+    @Bean
+    public ExecutorService crawlCoordinatorExecutor(
+            @Value("${novelassistant.ingest.workers:2}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "chapter-crawl-coordinator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 流式响应线程池
+     * 用于执行StreamingResponseBody（如PDF报告导出），线程数即同时生成的报告数，多余的请求排队等待
+     */
+    @Bean
+    public ExecutorService streamingResponseExecutor(
+            @Value("${novelassistant.export.stream-threads:4}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "streaming-response-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 导出任务线程池
+     * 用于后台渲染导出任务，线程数即同时渲染的导出数，多余的任务排队等待
+     */
+    @Bean
+    public ExecutorService exportJobExecutor(
+            @Value("${novelassistant.export.job-threads:2}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "export-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
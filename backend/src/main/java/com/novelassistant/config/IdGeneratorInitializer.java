@@ -0,0 +1,70 @@
+package com.novelassistant.config;
+
+import com.novelassistant.util.LogUtil;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ID生成表初始化类
+ * 章节、情感数据和标签使用id_generators表分配ID（以支持批量插入），
+ * 启动时保证生成表中的值大于各表现有的最大ID，避免与原自增ID冲突
+ */
+@Component
+public class IdGeneratorInitializer implements CommandLineRunner {
+    
+    private static final Logger logger = LogUtil.getLogger(IdGeneratorInitializer.class);
+    
+    // 与实体上@TableGenerator的allocationSize保持一致
+    private static final int ALLOCATION_SIZE = 50;
+    
+    // 生成器名称 -> 表名
+    private static final Map<String, String> GENERATED_TABLES = new LinkedHashMap<>();
+    
+    static {
+        GENERATED_TABLES.put("chapters", "chapters");
+        GENERATED_TABLES.put("emotional_data", "emotional_data");
+        GENERATED_TABLES.put("tags", "tags");
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void run(String... args) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_generators ("
+                + "gen_name VARCHAR(255) NOT NULL PRIMARY KEY, gen_value BIGINT)");
+        
+        for (Map.Entry<String, String> entry : GENERATED_TABLES.entrySet()) {
+            try {
+                syncGenerator(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                logger.warn("初始化ID生成器 {} 失败: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 生成器当前值不足以越过表中最大ID时，将其调整为 最大ID + 分配步长
+     */
+    private void syncGenerator(String generatorName, String tableName) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tableName, Long.class);
+        long required = (maxId != null ? maxId : 0) + ALLOCATION_SIZE;
+        
+        Long current = jdbcTemplate.query("SELECT gen_value FROM id_generators WHERE gen_name = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, generatorName);
+        
+        if (current == null) {
+            jdbcTemplate.update("INSERT INTO id_generators (gen_name, gen_value) VALUES (?, ?)", generatorName, required);
+            logger.info("创建ID生成器 {}，初始值: {}", generatorName, required);
+        } else if (current < required) {
+            jdbcTemplate.update("UPDATE id_generators SET gen_value = ? WHERE gen_name = ?", required, generatorName);
+            logger.info("调整ID生成器 {}: {} -> {}", generatorName, current, required);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.novelassistant.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Web配置类
@@ -22,6 +27,14 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private RequestLoggingInterceptor requestLoggingInterceptor;
 
+    @Autowired
+    @Qualifier("streamingResponseExecutor")
+    private ExecutorService streamingResponseExecutor;
+
+    // 异步请求（流式响应）的超时时间（毫秒）
+    @Value("${novelassistant.export.stream-timeout-ms:600000}")
+    private long streamTimeoutMs = 600000;
+
     /**
      * 配置CORS
      */
@@ -45,4 +58,14 @@ public class WebConfig implements WebMvcConfigurer {
                 .addPathPatterns("/**") // 拦截所有请求
                 .excludePathPatterns("/static/**", "/error"); // 排除静态资源和错误页面
     }
-} 
\ No newline at end of file
+
+    /**
+     * 配置异步请求
+     * 流式响应在固定大小的线程池中执行，不占用Tomcat请求线程
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new ConcurrentTaskExecutor(streamingResponseExecutor));
+        configurer.setDefaultTimeout(streamTimeoutMs);
+    }
+}
@@ -9,12 +9,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 
+import com.novelassistant.entity.IngestJob;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.entity.User;
 import com.novelassistant.service.AdminService;
+import com.novelassistant.service.ChapterIndexService;
+import com.novelassistant.service.IngestJobService;
+import com.novelassistant.service.NameGazetteerService;
+import com.novelassistant.service.impl.IngestJobWorker;
 import com.novelassistant.service.NovelService;
+import com.novelassistant.service.crawler.NovelCrawlerService;
 import com.novelassistant.repository.UserRepository;
 import com.novelassistant.repository.NovelRepository;
+import com.novelassistant.security.services.UserPrincipalCache;
 
 import java.util.*;
 
@@ -44,6 +51,24 @@ public class AdminController {
     @Autowired
     private NovelRepository novelRepository;
     
+    @Autowired
+    private IngestJobService ingestJobService;
+    
+    @Autowired
+    private ChapterIndexService chapterIndexService;
+    
+    @Autowired
+    private NovelCrawlerService novelCrawlerService;
+    
+    @Autowired
+    private IngestJobWorker ingestJobWorker;
+    
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
+    @Autowired
+    private NameGazetteerService nameGazetteerService;
+    
     /**
      * 获取系统统计信息
      */
@@ -347,5 +372,151 @@ public class AdminController {
             return ResponseEntity.badRequest().body(Map.of("message", "更新用户信息失败: " + e.getMessage()));
         }
     }
+    
+    /**
+     * 获取小说导入任务列表
+     */
+    @GetMapping("/ingest-jobs")
+    public ResponseEntity<?> getIngestJobs(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(ingestJobService.listJobs(status, limit));
+        } catch (Exception e) {
+            logger.error("获取导入任务列表失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取小说导入队列统计信息
+     */
+    @GetMapping("/ingest-jobs/stats")
+    public ResponseEntity<?> getIngestJobStats() {
+        try {
+            Map<String, Object> stats = new HashMap<>(ingestJobService.getQueueStats());
+            stats.put("nodeId", ingestJobWorker.getNodeId());
+            stats.put("localRunningJobs", ingestJobWorker.getRunningJobIds());
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            logger.error("获取导入队列统计信息失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取章节向量索引统计信息
+     */
+    @GetMapping("/chapter-index/stats")
+    public ResponseEntity<?> getChapterIndexStats() {
+        try {
+            return ResponseEntity.ok(chapterIndexService.getIndexStats());
+        } catch (Exception e) {
+            logger.error("获取章节向量索引统计信息失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取认证用户缓存统计信息
+     */
+    @GetMapping("/auth/cache-stats")
+    public ResponseEntity<?> getAuthCacheStats() {
+        try {
+            return ResponseEntity.ok(userPrincipalCache.getStats());
+        } catch (Exception e) {
+            logger.error("获取认证用户缓存统计信息失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取人名词典缓存统计信息
+     */
+    @GetMapping("/gazetteer/stats")
+    public ResponseEntity<?> getGazetteerStats() {
+        try {
+            return ResponseEntity.ok(nameGazetteerService.getStats());
+        } catch (Exception e) {
+            logger.error("获取人名词典缓存统计信息失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取章节页面缓存统计信息
+     */
+    @GetMapping("/crawler/cache-stats")
+    public ResponseEntity<?> getCrawlerCacheStats() {
+        try {
+            return ResponseEntity.ok(novelCrawlerService.getCacheStats());
+        } catch (Exception e) {
+            logger.error("获取章节页面缓存统计信息失败", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 重建小说的章节向量索引
+     */
+    @PostMapping("/chapter-index/novels/{novelId}")
+    public ResponseEntity<?> reindexNovelChapters(@PathVariable Long novelId) {
+        try {
+            int indexed = chapterIndexService.indexNovel(novelId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("novelId", novelId);
+            response.put("indexedChapters", indexed);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("重建小说 {} 的章节向量索引失败", novelId, e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 重试已失败或已取消的导入任务
+     */
+    @PostMapping("/ingest-jobs/{id}/retry")
+    public ResponseEntity<?> retryIngestJob(@PathVariable("id") Long id) {
+        logger.info("接收到重试导入任务请求, 任务ID: {}", id);
+        try {
+            IngestJob job = ingestJobService.retry(id);
+            return ResponseEntity.ok(job);
+        } catch (Exception e) {
+            logger.error("重试导入任务失败, 任务ID: " + id, e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 取消排队中或运行中的导入任务
+     */
+    @PostMapping("/ingest-jobs/{id}/cancel")
+    public ResponseEntity<?> cancelIngestJob(@PathVariable("id") Long id) {
+        logger.info("接收到取消导入任务请求, 任务ID: {}", id);
+        try {
+            IngestJob job = ingestJobService.cancel(id);
+            return ResponseEntity.ok(job);
+        } catch (Exception e) {
+            logger.error("取消导入任务失败, 任务ID: " + id, e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 调整导入任务优先级
+     */
+    @PutMapping("/ingest-jobs/{id}/priority")
+    public ResponseEntity<?> updateIngestJobPriority(@PathVariable("id") Long id, @RequestBody Map<String, Integer> body) {
+        try {
+            Integer priority = body.get("priority");
+            if (priority == null) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("error", "缺少priority参数"));
+            }
+            return ResponseEntity.ok(ingestJobService.updatePriority(id, priority));
+        } catch (Exception e) {
+            logger.error("调整导入任务优先级失败, 任务ID: " + id, e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
 } 
- 
\ No newline at end of file
@@ -1,29 +1,53 @@
 package com.novelassistant.controller;
 
+import com.novelassistant.model.ExportJob;
+import com.novelassistant.payload.request.ExportJobRequest;
+import com.novelassistant.security.services.UserDetailsImpl;
+import com.novelassistant.service.ExportJobService;
 import com.novelassistant.service.ExportService;
+import com.novelassistant.service.NovelService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * 导出控制器
- * 处理图表导出为图片或PDF的请求
+ * 处理图表导出为图片或PDF的请求，以及后台导出任务的提交、查询和下载
  */
 @RestController
 @RequestMapping("/api/export")
 public class ExportController {
     
+    private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
+    
     @Autowired
     private ExportService exportService;
     
+    @Autowired
+    private NovelService novelService;
+    
+    @Autowired
+    private ExportJobService exportJobService;
+    
     /**
      * 导出图表为PDF
      */
@@ -78,22 +102,166 @@ public class ExportController {
     
     /**
      * 导出小说分析报告
+     * 已有当前数据版本的缓存报告时直接返回缓存文件；否则在异步线程中渲染并写入导出缓存
+     * （与相同报告的后台导出任务共用一次渲染），再从缓存文件写入响应，不在内存中缓存整个文件
      */
     @GetMapping("/novel/{novelId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<byte[]> exportNovelReport(@PathVariable Long novelId) {
+    public ResponseEntity<StreamingResponseBody> exportNovelReport(@PathVariable Long novelId) {
+        // 开始写入响应前检查小说是否存在，之后的错误无法再改变响应状态
+        if (!novelService.existsNovelById(novelId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        
+        // 缓存文件在返回响应前打开，之后被淘汰也能完整读取
+        InputStream cached;
         try {
-            byte[] pdfBytes = exportService.exportNovelReport(novelId);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "novel-report-" + novelId + ".pdf");
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-            
-            return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
-        } catch (Exception e) {
+            cached = exportJobService.openNovelReport(novelId, false);
+        } catch (IOException e) {
+            logger.error("读取小说 {} 的缓存报告失败: {}", novelId, e.getMessage());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        StreamingResponseBody body = output -> {
+            try (InputStream input = cached != null ? cached : exportJobService.openNovelReport(novelId, true)) {
+                input.transferTo(output);
+            } catch (IOException e) {
+                logger.error("导出小说 {} 的分析报告失败: {}", novelId, e.getMessage());
+                throw e;
+            }
+        };
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "novel-report-" + novelId + ".pdf");
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+    
+    /**
+     * 提交后台导出任务
+     * 渲染在导出线程池中进行，相同输入的导出直接复用已缓存的结果
+     */
+    @PostMapping("/jobs")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> submitExportJob(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @Valid @RequestBody ExportJobRequest request) {
+        try {
+            ExportJob job = exportJobService.submit(request, userDetails.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(toResponse(job));
+        } catch (Exception e) {
+            logger.error("提交导出任务失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 查询导出任务状态
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getExportJob(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @PathVariable String jobId) {
+        ExportJob job = exportJobService.getJob(jobId);
+        ResponseEntity<?> denied = checkJobAccess(job, jobId, userDetails);
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(toResponse(job));
+    }
+    
+    /**
+     * 下载导出任务的结果文件
+     */
+    @GetMapping("/jobs/{jobId}/download")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> downloadExportJob(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @PathVariable String jobId) {
+        ExportJob job = exportJobService.getJob(jobId);
+        ResponseEntity<?> denied = checkJobAccess(job, jobId, userDetails);
+        if (denied != null) {
+            return denied;
+        }
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("error", "导出任务尚未完成，当前状态: " + job.getStatus()));
+        }
+        
+        // 先打开结果文件再返回响应，文件之后被淘汰也能完整读取
+        InputStream artifact;
+        try {
+            artifact = exportJobService.openArtifact(job);
+        } catch (IOException e) {
+            logger.error("读取导出任务 {} 的结果文件失败: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", "读取导出结果失败"));
+        }
+        if (artifact == null) {
+            // 结果文件已被缓存淘汰，需要重新提交
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(Collections.singletonMap("error", "导出结果已过期，请重新提交导出任务"));
+        }
+        
+        Resource resource = new InputStreamResource(artifact);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(job.getContentType()));
+        if (job.getSizeBytes() > 0) {
+            headers.setContentLength(job.getSizeBytes());
+        }
+        headers.setContentDispositionFormData("attachment",
+                URLEncoder.encode(job.getFileName(), StandardCharsets.UTF_8).replaceAll("\\+", "%20"));
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    }
+    
+    /**
+     * 获取导出任务和结果缓存的统计信息
+     */
+    @GetMapping("/jobs/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getExportJobStats() {
+        return ResponseEntity.ok(exportJobService.getStats());
+    }
+    
+    /**
+     * 检查任务是否存在以及当前用户是否有权访问，有权访问时返回null
+     */
+    private ResponseEntity<?> checkJobAccess(ExportJob job, String jobId, UserDetailsImpl userDetails) {
+        if (job == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "导出任务不存在或已过期");
+            error.put("id", jobId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+        boolean isAdmin = userDetails.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"));
+        if (!isAdmin && !userDetails.getId().equals(job.getUserId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Collections.singletonMap("error", "您没有权限访问此导出任务"));
+        }
+        return null;
+    }
+    
+    private Map<String, Object> toResponse(ExportJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("type", job.getType());
+        response.put("novelId", job.getNovelId());
+        response.put("status", job.getStatus());
+        response.put("cached", job.isCached());
+        response.put("sizeBytes", job.getSizeBytes());
+        response.put("fileName", job.getFileName());
+        response.put("createdAt", job.getCreatedAt());
+        response.put("finishedAt", job.getFinishedAt());
+        if (job.getError() != null) {
+            response.put("error", job.getError());
+        }
+        if (job.getStatus() == ExportJob.Status.COMPLETED) {
+            response.put("downloadUrl", "/api/export/jobs/" + job.getId() + "/download");
+        }
+        return response;
     }
-} 
- 
\ No newline at end of file
+}
@@ -8,7 +8,9 @@ import org.springframework.web.multipart.MultipartFile;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.entity.Chapter;
 import com.novelassistant.entity.Tag;
+import com.novelassistant.service.ChapterIndexService;
 import com.novelassistant.service.NovelService;
+import com.novelassistant.repository.ChapterRepository;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.security.services.UserDetailsImpl;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -32,6 +34,12 @@ public class NovelController {
     @Autowired
     private NovelRepository novelRepository;
     
+    @Autowired
+    private ChapterRepository chapterRepository;
+    
+    @Autowired
+    private ChapterIndexService chapterIndexService;
+    
     @GetMapping("/novels")
     public ResponseEntity<?> getNovelList(@RequestParam(value = "userId", required = false) Long userId) {
         try {
@@ -114,6 +122,67 @@ public class NovelController {
         }
     }
     
+    /**
+     * 查找与指定章节内容最相似的章节
+     * scope=all 在所有未删除的小说中查找，scope=mine 只在当前用户的小说中查找，scope=novel 只在本小说中查找
+     */
+    @GetMapping("/novels/{id}/chapters/{chapterId}/similar")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getSimilarChapters(
+            @PathVariable("id") Long id,
+            @PathVariable("chapterId") Long chapterId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "scope", defaultValue = "all") String scope,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        try {
+            Novel novel = novelRepository.findById(id).orElse(null);
+            if (novel == null || Boolean.TRUE.equals(novel.getIsDeleted())) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "小说不存在");
+                errorResponse.put("id", id);
+                return ResponseEntity.status(404).body(errorResponse);
+            }
+            
+            List<Object[]> headers = chapterRepository.findHeadersByIdIn(Collections.singletonList(chapterId));
+            if (headers.isEmpty() || !id.equals(headers.get(0)[1])) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "章节不存在");
+                errorResponse.put("chapterId", chapterId);
+                return ResponseEntity.status(404).body(errorResponse);
+            }
+            
+            // 确定允许出现在结果中的小说；删除的小说已从索引中移除，全部范围不需要过滤
+            long startTime = System.currentTimeMillis();
+            Set<Long> novelIds;
+            switch (scope) {
+                case "novel":
+                    novelIds = Collections.singleton(id);
+                    break;
+                case "mine":
+                    novelIds = new HashSet<>(novelRepository.findIdsByUserIdAndIsDeletedFalse(userDetails.getId()));
+                    break;
+                case "all":
+                    novelIds = null;
+                    break;
+                default:
+                    return ResponseEntity.badRequest().body(Collections.singletonMap("error", "无效的查找范围: " + scope));
+            }
+            
+            List<Map<String, Object>> similar = chapterIndexService.findSimilarChapters(chapterId, limit, novelIds);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("novelId", id);
+            response.put("chapterId", chapterId);
+            response.put("scope", scope);
+            response.put("chapters", similar);
+            response.put("took", System.currentTimeMillis() - startTime);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("查找相似章节失败: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
     @DeleteMapping("/novels/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> deleteNovel(
@@ -309,6 +378,45 @@ public class NovelController {
         }
     }
     
+    /**
+     * 重新同步从URL导入的小说
+     * 只抓取新章节，已保存的章节内容变化时才重新分析
+     */
+    @PostMapping("/novels/{id}/resync")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> resyncNovelFromUrl(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "maxNewChapters", required = false, defaultValue = "0") int maxNewChapters,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        try {
+            if (!novelService.existsNovelById(id)) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "小说不存在");
+                errorResponse.put("id", id);
+                return ResponseEntity.status(404).body(errorResponse);
+            }
+            
+            // 只能同步自己的小说，管理员除外
+            Novel novel = novelService.getNovelById(id);
+            boolean isAdmin = userDetails.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"));
+            if (!isAdmin && !userDetails.getId().equals(novel.getUserId())) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "无权限同步此小说");
+                return ResponseEntity.status(403).body(errorResponse);
+            }
+            
+            Map<String, Object> result = novelService.resyncNovelFromUrl(id, maxNewChapters);
+            if ((Boolean) result.getOrDefault("success", false)) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            logger.error("重新同步小说失败: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
     /**
      * 从URL导入小说 - 别名方法，与import-from-url功能相同
      * 仅支持笔趣阁网站
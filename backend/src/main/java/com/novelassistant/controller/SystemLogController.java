@@ -85,6 +85,59 @@ public class SystemLogController {
         }
     }
 
+    /**
+     * 键集分页获取系统日志
+     * 
+     * @param cursor 上一页返回的nextCursor，第一页不传
+     * @param size 每页大小
+     * @param level 日志级别
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param query 搜索关键词
+     * @param userId 用户ID
+     * @return 系统日志列表和下一页游标
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollSystemLogs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String userId) {
+        
+        // 调整开始日期为当天的开始时间
+        if (startDate != null) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(startDate);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            startDate = calendar.getTime();
+        }
+        
+        // 调整结束日期，确保包含当天的所有时间
+        if (endDate != null) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(endDate);
+            calendar.set(Calendar.HOUR_OF_DAY, 23);
+            calendar.set(Calendar.MINUTE, 59);
+            calendar.set(Calendar.SECOND, 59);
+            calendar.set(Calendar.MILLISECOND, 999);
+            endDate = calendar.getTime();
+        }
+        
+        try {
+            return ResponseEntity.ok(systemLogService.scrollSystemLogs(cursor, Math.max(1, Math.min(size, 500)),
+                    level, startDate, endDate, query, userId));
+        } catch (Exception e) {
+            logger.error("获取系统日志时发生错误", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
     /**
      * 添加系统日志
      * 该接口主要用于调试和测试，正常日志记录应该通过SystemLogService直接调用
@@ -143,4 +196,34 @@ public class SystemLogController {
             return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 获取日志异步写入器的统计信息
+     * 
+     * @return 统计信息
+     */
+    @GetMapping("/writer-stats")
+    public ResponseEntity<?> getWriterStats() {
+        try {
+            return ResponseEntity.ok(systemLogService.getWriterStats());
+        } catch (Exception e) {
+            logger.error("获取系统日志写入统计信息时发生错误", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取日志表分区和保留策略信息
+     * 
+     * @return 分区信息
+     */
+    @GetMapping("/storage")
+    public ResponseEntity<?> getStorageStats() {
+        try {
+            return ResponseEntity.ok(systemLogService.getStorageStats());
+        } catch (Exception e) {
+            logger.error("获取系统日志分区信息时发生错误", e);
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+}
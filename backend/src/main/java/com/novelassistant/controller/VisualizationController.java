@@ -140,25 +140,8 @@ public class VisualizationController {
 
         logger.info("接收到获取小说所有可视化数据请求, 小说ID: {}", novelId);
         try {
-            Map<String, Object> result = new HashMap<>();
-            
-            // 收集所有可视化数据
-            // 前端期望的变量名为keywords, emotional, structure
-            result.put("keywords", visualizationService.getKeywordCloudData(novelId));
-            
-            // 获取情节波动图数据，从emotional字段中提取
-            Map<String, Object> emotionalData = visualizationService.getEmotionalFluctuationData(novelId);
-            if (emotionalData != null && emotionalData.containsKey("emotional")) {
-                result.put("emotional", emotionalData.get("emotional"));
-            } else {
-                result.put("emotional", new HashMap<>());
-            }
-            
-            // 获取结构分析数据
-            result.put("structure", visualizationService.getStructureAnalysisData(novelId));
-            
-            // 获取人物关系网络数据
-            result.put("characters", visualizationService.getCharacterRelationshipData(novelId));
+            // 导入完成时已预计算，这里只读取缓存
+            Map<String, Object> result = visualizationService.getAllVisualizationData(novelId);
             
             logger.info("获取小说所有可视化数据成功, 小说ID: {}", novelId);
             return ResponseEntity.ok(result);
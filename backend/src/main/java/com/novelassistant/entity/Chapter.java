@@ -1,6 +1,7 @@
 package com.novelassistant.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.util.Date;
 import java.util.List;
@@ -11,7 +12,10 @@ import java.util.ArrayList;
 public class Chapter {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 使用表生成器分配ID，IDENTITY策略会使Hibernate无法批量插入
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chapter_id")
+    @TableGenerator(name = "chapter_id", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "gen_value", pkColumnValue = "chapters", allocationSize = 50)
     private Long id;
     
     @ManyToOne
@@ -40,6 +44,12 @@ public class Chapter {
     
     private List<String> keywords = new ArrayList<>();
     
+    // 流式导入时保存的章节人物分析结果（JSON），见ChapterAnalysis
+    @Column(name = "analysis_json", columnDefinition = "LONGTEXT")
+    @Lob
+    @JsonIgnore
+    private String analysisJson;
+    
     @Column(name = "created_at")
     @Temporal(TemporalType.TIMESTAMP)
     private Date createdAt = new Date();
@@ -129,6 +139,14 @@ public class Chapter {
         this.keywords = keywords;
     }
     
+    public String getAnalysisJson() {
+        return analysisJson;
+    }
+    
+    public void setAnalysisJson(String analysisJson) {
+        this.analysisJson = analysisJson;
+    }
+    
     public Date getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,236 @@
+package com.novelassistant.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 小说导入任务实体类
+ * 导入任务保存在数据库中，由工作线程按优先级领取（带租约），失败后按退避时间重试，
+ * 章节按批提交并记录检查点，重启或重试后从检查点继续
+ */
+@Entity
+@Table(name = "ingest_jobs", indexes = {
+    @Index(name = "idx_ingest_jobs_status_next_run", columnList = "status, next_run_at"),
+    @Index(name = "idx_ingest_jobs_user_id", columnList = "user_id"),
+    @Index(name = "idx_ingest_jobs_novel_id", columnList = "novel_id")
+})
+public class IngestJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "novel_id", nullable = false)
+    private Long novelId;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private JobStatus status = JobStatus.QUEUED;
+    
+    @Column(name = "priority", nullable = false)
+    private Integer priority = 0;
+    
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts = 3;
+    
+    // 已提交的章节数，重试时从下一章继续
+    @Column(name = "checkpoint_chapter", nullable = false)
+    private Integer checkpointChapter = 0;
+    
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+    
+    @Column(name = "lease_expires_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date leaseExpiresAt;
+    
+    @Column(name = "next_run_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextRunAt = new Date();
+    
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+    
+    @Column(name = "started_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startedAt;
+    
+    @Column(name = "finished_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date finishedAt;
+    
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt = new Date();
+    
+    @Column(name = "updated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt = new Date();
+    
+    public IngestJob() {
+    }
+    
+    public IngestJob(Long novelId, Long userId, String filePath, int priority) {
+        this.novelId = novelId;
+        this.userId = userId;
+        this.filePath = filePath;
+        this.priority = priority;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getNovelId() {
+        return novelId;
+    }
+    
+    public void setNovelId(Long novelId) {
+        this.novelId = novelId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getFilePath() {
+        return filePath;
+    }
+    
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    
+    public JobStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+    
+    public Integer getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+    
+    public Integer getCheckpointChapter() {
+        return checkpointChapter;
+    }
+    
+    public void setCheckpointChapter(Integer checkpointChapter) {
+        this.checkpointChapter = checkpointChapter;
+    }
+    
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+    
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+    
+    public Date getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    
+    public void setLeaseExpiresAt(Date leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+    
+    public Date getNextRunAt() {
+        return nextRunAt;
+    }
+    
+    public void setNextRunAt(Date nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public Date getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = new Date();
+    }
+    
+    /**
+     * 导入任务状态
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+}
@@ -0,0 +1,95 @@
+package com.novelassistant.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 小说分析文档实体类
+ * 以JSON形式保存每部小说的一次性分析结果，章节内容未变化时可直接复用
+ */
+@Entity
+@Table(name = "novel_analysis_documents")
+public class NovelAnalysisDocument {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "novel_id", nullable = false, unique = true)
+    private Long novelId;
+    
+    @Column(name = "content_fingerprint", length = 64)
+    private String contentFingerprint;
+    
+    @Column(name = "data_json", columnDefinition = "LONGTEXT")
+    @Lob
+    private String dataJson;
+    
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt = new Date();
+    
+    @Column(name = "updated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt = new Date();
+    
+    public NovelAnalysisDocument() {
+    }
+    
+    public NovelAnalysisDocument(Long novelId) {
+        this.novelId = novelId;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getNovelId() {
+        return novelId;
+    }
+    
+    public void setNovelId(Long novelId) {
+        this.novelId = novelId;
+    }
+    
+    public String getContentFingerprint() {
+        return contentFingerprint;
+    }
+    
+    public void setContentFingerprint(String contentFingerprint) {
+        this.contentFingerprint = contentFingerprint;
+    }
+    
+    public String getDataJson() {
+        return dataJson;
+    }
+    
+    public void setDataJson(String dataJson) {
+        this.dataJson = dataJson;
+    }
+    
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = new Date();
+    }
+}
@@ -0,0 +1,95 @@
+package com.novelassistant.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * 小说人名词典实体类
+ * 以JSON（人名 -> 权重）保存每部小说已确认的人物名，首次导入时生成，之后的处理直接加载
+ */
+@Entity
+@Table(name = "novel_gazetteers")
+public class NovelGazetteer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "novel_id", nullable = false, unique = true)
+    private Long novelId;
+
+    @Column(name = "name_count")
+    private Integer nameCount = 0;
+
+    @Column(name = "names_json", columnDefinition = "LONGTEXT")
+    @Lob
+    private String namesJson;
+
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt = new Date();
+
+    @Column(name = "updated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt = new Date();
+
+    public NovelGazetteer() {
+    }
+
+    public NovelGazetteer(Long novelId) {
+        this.novelId = novelId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getNovelId() {
+        return novelId;
+    }
+
+    public void setNovelId(Long novelId) {
+        this.novelId = novelId;
+    }
+
+    public Integer getNameCount() {
+        return nameCount;
+    }
+
+    public void setNameCount(Integer nameCount) {
+        this.nameCount = nameCount;
+    }
+
+    public String getNamesJson() {
+        return namesJson;
+    }
+
+    public void setNamesJson(String namesJson) {
+        this.namesJson = namesJson;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = new Date();
+    }
+}
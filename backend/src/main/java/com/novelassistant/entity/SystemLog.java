@@ -10,9 +10,15 @@ import org.hibernate.annotations.Type;
 
 /**
  * 系统日志实体类
+ * 表按created_at月度分区（见sql/06_system_logs_partitions.sql和SystemLogPartitionManager），主键为(id, created_at)，
+ * 查询按(created_at, id)倒序分页
  */
 @Entity
-@Table(name = "system_logs")
+@Table(name = "system_logs", indexes = {
+    @Index(name = "idx_system_logs_level_created", columnList = "level, created_at"),
+    @Index(name = "idx_system_logs_created", columnList = "created_at"),
+    @Index(name = "idx_system_logs_user_created", columnList = "user_id, created_at")
+})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SystemLog {
 
@@ -9,7 +9,10 @@ import java.util.Date;
 public class Tag {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 使用表生成器分配ID，IDENTITY策略会使Hibernate无法批量插入
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "tag_id")
+    @TableGenerator(name = "tag_id", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "gen_value", pkColumnValue = "tags", allocationSize = 50)
     private Long id;
     
     @ManyToOne
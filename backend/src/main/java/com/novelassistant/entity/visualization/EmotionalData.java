@@ -15,7 +15,10 @@ import java.util.Date;
 public class EmotionalData {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 使用表生成器分配ID，IDENTITY策略会使Hibernate无法批量插入
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "emotional_data_id")
+    @TableGenerator(name = "emotional_data_id", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "gen_value", pkColumnValue = "emotional_data", allocationSize = 50)
     private Long id;
     
     @ManyToOne
@@ -11,7 +11,10 @@ import java.util.Calendar;
  * 用于存储生成的可视化数据的缓存
  */
 @Entity
-@Table(name = "visualization_cache")
+@Table(
+    name = "visualization_cache",
+    uniqueConstraints = @UniqueConstraint(name = "novel_vis_type_idx", columnNames = {"novel_id", "visualization_type"})
+)
 public class VisualizationCache {
     
     @Id
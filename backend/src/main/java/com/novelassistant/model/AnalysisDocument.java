@@ -0,0 +1,350 @@
+package com.novelassistant.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hankcs.hanlp.seg.common.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小说分析文档
+ * 对全文只做一次分词与结构扫描，保存句子/段落边界、人名出现位置、对话区间，
+ * 以及关键词、人物、关系、情感等分析结果，供小说处理、分析和标签生成共用
+ */
+public class AnalysisDocument {
+
+    // 保存时每个说话者保留的对话数
+    private static final int PERSISTED_DIALOGUES_PER_SPEAKER = 5;
+
+    // 保存时保留采样句子的人物数（按人物重要性顺序）
+    private static final int PERSISTED_SENTENCE_CHARACTERS = 100;
+
+    // 章节内容指纹，用于判断文档是否仍与章节内容一致
+    private String contentFingerprint;
+
+    private int textLength;
+
+    private int chapterCount;
+
+    private double averageChapterLength;
+
+    // 句子结束位置（不含），第i句为 [sentenceEnds[i-1]+1, sentenceEnds[i])
+    private int[] sentenceEnds = new int[0];
+
+    // 段落结束位置（不含），按换行符切分
+    private int[] paragraphEnds = new int[0];
+
+    // 人名 -> 在全文中出现的起始位置
+    private Map<String, int[]> personMentions = new LinkedHashMap<>();
+
+    // 对话区间，每项为 {起始位置, 结束位置}（不含引号）
+    private List<int[]> dialogueSpans = new ArrayList<>();
+
+    private Map<String, Integer> keywords = new LinkedHashMap<>();
+
+    private List<String> characters = new ArrayList<>();
+
+    private List<Map<String, Object>> relationships = new ArrayList<>();
+
+    private int dialogueCount;
+
+    private double sentiment = 0.5;
+
+    // 各章节情感值（0-1），按章节顺序，跳过空章节
+    private List<Double> chapterSentiments = new ArrayList<>();
+
+    private String summary;
+
+    // 分词结果只在内存中使用，不持久化
+    @JsonIgnore
+    private List<Term> terms = Collections.emptyList();
+
+    // 对话和采样句子只按样本持久化（见getDialogueSamples、getCharacterSentenceSamples）
+    @JsonIgnore
+    private List<Map<String, String>> dialogues = new ArrayList<>();
+
+    // 流式构建时按人物采样的句子（没有全文可供按位置定位）
+    @JsonIgnore
+    private Map<String, List<String>> characterSentences = new LinkedHashMap<>();
+
+    public AnalysisDocument() {
+    }
+
+    /**
+     * 获取与人物相关的句子，优先使用流式构建时采样的句子
+     *
+     * @param text 构建文档时使用的全文，流式构建时可为null
+     * @param name 人名
+     * @param limit 最多返回的句子数
+     * @return 句子列表
+     */
+    public List<String> sentencesFor(String text, String name, int limit) {
+        List<String> sampled = characterSentences.get(name);
+        if (sampled != null) {
+            return sampled.size() > limit ? new ArrayList<>(sampled.subList(0, limit)) : sampled;
+        }
+        return sentencesContaining(text, name, limit);
+    }
+
+    /**
+     * 获取包含指定人名的句子，按出现顺序
+     *
+     * @param text 构建文档时使用的全文
+     * @param name 人名
+     * @param limit 最多返回的句子数
+     * @return 句子列表
+     */
+    public List<String> sentencesContaining(String text, String name, int limit) {
+        List<String> result = new ArrayList<>();
+        if (text == null || name == null || name.isEmpty()
+                || text.length() != textLength || sentenceEnds.length == 0) {
+            return result;
+        }
+
+        int[] mentions = personMentions.get(name);
+        if (mentions != null && mentions.length > 0) {
+            // 人名出现位置有序，二分定位所在句子
+            int lastSentence = -1;
+            for (int offset : mentions) {
+                int sentence = sentenceIndexOf(offset);
+                if (sentence != lastSentence) {
+                    result.add(sentenceAt(text, sentence));
+                    lastSentence = sentence;
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        // 分词未识别为人名时，按句子逐个查找
+        for (int i = 0; i < sentenceEnds.length && result.size() < limit; i++) {
+            String sentence = sentenceAt(text, i);
+            if (sentence.contains(name)) {
+                result.add(sentence);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取指定位置所在的句子序号
+     */
+    public int sentenceIndexOf(int offset) {
+        int low = 0;
+        int high = sentenceEnds.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sentenceEnds[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 获取第index个句子的文本（不含句末标点）
+     */
+    public String sentenceAt(String text, int index) {
+        int start = index == 0 ? 0 : sentenceEnds[index - 1] + 1;
+        int end = sentenceEnds[index];
+        return start >= end ? "" : text.substring(start, end);
+    }
+
+    public String getContentFingerprint() {
+        return contentFingerprint;
+    }
+
+    public void setContentFingerprint(String contentFingerprint) {
+        this.contentFingerprint = contentFingerprint;
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    public void setTextLength(int textLength) {
+        this.textLength = textLength;
+    }
+
+    public int getChapterCount() {
+        return chapterCount;
+    }
+
+    public void setChapterCount(int chapterCount) {
+        this.chapterCount = chapterCount;
+    }
+
+    public double getAverageChapterLength() {
+        return averageChapterLength;
+    }
+
+    public void setAverageChapterLength(double averageChapterLength) {
+        this.averageChapterLength = averageChapterLength;
+    }
+
+    public int[] getSentenceEnds() {
+        return sentenceEnds;
+    }
+
+    public void setSentenceEnds(int[] sentenceEnds) {
+        this.sentenceEnds = sentenceEnds;
+    }
+
+    public int[] getParagraphEnds() {
+        return paragraphEnds;
+    }
+
+    public void setParagraphEnds(int[] paragraphEnds) {
+        this.paragraphEnds = paragraphEnds;
+    }
+
+    public Map<String, int[]> getPersonMentions() {
+        return personMentions;
+    }
+
+    public void setPersonMentions(Map<String, int[]> personMentions) {
+        this.personMentions = personMentions;
+    }
+
+    public List<int[]> getDialogueSpans() {
+        return dialogueSpans;
+    }
+
+    public void setDialogueSpans(List<int[]> dialogueSpans) {
+        this.dialogueSpans = dialogueSpans;
+    }
+
+    public Map<String, Integer> getKeywords() {
+        return keywords;
+    }
+
+    public void setKeywords(Map<String, Integer> keywords) {
+        this.keywords = keywords;
+    }
+
+    public List<String> getCharacters() {
+        return characters;
+    }
+
+    public void setCharacters(List<String> characters) {
+        this.characters = characters;
+    }
+
+    public List<Map<String, Object>> getRelationships() {
+        return relationships;
+    }
+
+    public void setRelationships(List<Map<String, Object>> relationships) {
+        this.relationships = relationships;
+    }
+
+    public int getDialogueCount() {
+        return dialogueCount;
+    }
+
+    public void setDialogueCount(int dialogueCount) {
+        this.dialogueCount = dialogueCount;
+    }
+
+    public double getSentiment() {
+        return sentiment;
+    }
+
+    public void setSentiment(double sentiment) {
+        this.sentiment = sentiment;
+    }
+
+    public List<Double> getChapterSentiments() {
+        return chapterSentiments;
+    }
+
+    public void setChapterSentiments(List<Double> chapterSentiments) {
+        this.chapterSentiments = chapterSentiments;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    public void setTerms(List<Term> terms) {
+        this.terms = terms;
+    }
+
+    public List<Map<String, String>> getDialogues() {
+        return dialogues;
+    }
+
+    public void setDialogues(List<Map<String, String>> dialogues) {
+        this.dialogues = dialogues;
+    }
+
+    public Map<String, List<String>> getCharacterSentences() {
+        return characterSentences;
+    }
+
+    public void setCharacterSentences(Map<String, List<String>> characterSentences) {
+        this.characterSentences = characterSentences;
+    }
+
+    /**
+     * 持久化的对话样本：每个说话者按出现顺序保留前几条，重新读取的文档仍可给出人物的典型对话
+     */
+    @JsonProperty("dialogueSamples")
+    public List<Map<String, String>> getDialogueSamples() {
+        Map<String, Integer> perSpeaker = new HashMap<>();
+        List<Map<String, String>> samples = new ArrayList<>();
+        for (Map<String, String> dialogue : dialogues) {
+            String speaker = dialogue.get("speaker");
+            if (speaker == null || perSpeaker.merge(speaker, 1, Integer::sum) > PERSISTED_DIALOGUES_PER_SPEAKER) {
+                continue;
+            }
+            samples.add(dialogue);
+        }
+        return samples;
+    }
+
+    @JsonProperty("dialogueSamples")
+    public void setDialogueSamples(List<Map<String, String>> dialogueSamples) {
+        this.dialogues = dialogueSamples != null ? dialogueSamples : new ArrayList<>();
+    }
+
+    /**
+     * 持久化的采样句子：只保留排在前面的人物
+     */
+    @JsonProperty("characterSentenceSamples")
+    public Map<String, List<String>> getCharacterSentenceSamples() {
+        Map<String, List<String>> samples = new LinkedHashMap<>();
+        for (String character : characters) {
+            if (samples.size() >= PERSISTED_SENTENCE_CHARACTERS) {
+                break;
+            }
+            List<String> sentences = characterSentences.get(character);
+            if (sentences != null) {
+                samples.put(character, sentences);
+            }
+        }
+        return samples;
+    }
+
+    @JsonProperty("characterSentenceSamples")
+    public void setCharacterSentenceSamples(Map<String, List<String>> characterSentenceSamples) {
+        this.characterSentences = characterSentenceSamples != null ? characterSentenceSamples : new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,44 @@
+package com.novelassistant.model;
+
+import com.novelassistant.util.RelationshipAccumulator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 章节人物分析结果
+ * 流式导入时随章节以JSON保存，重新同步跳过已保存的章节时直接并入分析文档，
+ * 不再重新提取人物、对话和人物关系；章节内容更新后清除
+ */
+public class ChapterAnalysis {
+
+    private List<String> characters;
+
+    private List<Map<String, String>> dialogues;
+
+    private RelationshipAccumulator.Snapshot relationships;
+
+    public List<String> getCharacters() {
+        return characters;
+    }
+
+    public void setCharacters(List<String> characters) {
+        this.characters = characters;
+    }
+
+    public List<Map<String, String>> getDialogues() {
+        return dialogues;
+    }
+
+    public void setDialogues(List<Map<String, String>> dialogues) {
+        this.dialogues = dialogues;
+    }
+
+    public RelationshipAccumulator.Snapshot getRelationships() {
+        return relationships;
+    }
+
+    public void setRelationships(RelationshipAccumulator.Snapshot relationships) {
+        this.relationships = relationships;
+    }
+}
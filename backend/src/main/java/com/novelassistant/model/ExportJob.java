@@ -0,0 +1,117 @@
+package com.novelassistant.model;
+
+import java.util.Date;
+
+/**
+ * 导出任务
+ * 导出任务只保存在内存中，渲染结果保存在磁盘缓存中，按小说ID、数据版本和导出类型复用
+ */
+public class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String type;
+    private final Long novelId;
+    private final Long userId;
+    private final String artifactKey;
+    private final String fileName;
+    private final String contentType;
+    private volatile Status status = Status.QUEUED;
+    private volatile boolean cached;
+    private volatile long sizeBytes;
+    private volatile String error;
+    private final Date createdAt = new Date();
+    private volatile Date finishedAt;
+
+    public ExportJob(String id, String type, Long novelId, Long userId, String artifactKey,
+                     String fileName, String contentType) {
+        this.id = id;
+        this.type = type;
+        this.novelId = novelId;
+        this.userId = userId;
+        this.artifactKey = artifactKey;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getNovelId() {
+        return novelId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * 渲染结果的缓存键
+     */
+    public String getArtifactKey() {
+        return artifactKey;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * 是否直接使用了已缓存的渲染结果
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,131 @@
+package com.novelassistant.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层摘要
+ * 由已保存的章节摘要逐级生成：章节摘要按顺序分组得到情节段摘要，情节段摘要再逐级分组，
+ * 直到剩余节点不超过一组，由其生成整体摘要；每一级的节点记录覆盖的章节范围和平均情感
+ */
+public class HierarchicalSummary {
+
+    private String overallSummary;
+
+    private String plotProgressionSummary;
+
+    // 各级节点，第0级为章节，第1级为情节段，之后逐级合并
+    private List<List<Node>> levels = new ArrayList<>();
+
+    // 人物 -> 章节摘要中提到该人物的句子，按章节顺序均匀采样
+    private Map<String, List<String>> characterSentences = Collections.emptyMap();
+
+    // 人物 -> {首次出场章节号, 最后出场章节号, 出场章节数}
+    private Map<String, int[]> characterAppearances = Collections.emptyMap();
+
+    public String getOverallSummary() {
+        return overallSummary;
+    }
+
+    public void setOverallSummary(String overallSummary) {
+        this.overallSummary = overallSummary;
+    }
+
+    public String getPlotProgressionSummary() {
+        return plotProgressionSummary;
+    }
+
+    public void setPlotProgressionSummary(String plotProgressionSummary) {
+        this.plotProgressionSummary = plotProgressionSummary;
+    }
+
+    public List<List<Node>> getLevels() {
+        return levels;
+    }
+
+    public void setLevels(List<List<Node>> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * 情节段摘要（第1级节点）
+     */
+    public List<Node> getArcs() {
+        return levels.size() > 1 ? levels.get(1) : Collections.emptyList();
+    }
+
+    public Map<String, List<String>> getCharacterSentences() {
+        return characterSentences;
+    }
+
+    public void setCharacterSentences(Map<String, List<String>> characterSentences) {
+        this.characterSentences = characterSentences;
+    }
+
+    public Map<String, int[]> getCharacterAppearances() {
+        return characterAppearances;
+    }
+
+    public void setCharacterAppearances(Map<String, int[]> characterAppearances) {
+        this.characterAppearances = characterAppearances;
+    }
+
+    /**
+     * 获取章节摘要中提到该人物的句子
+     *
+     * @param character 人物名
+     * @param limit 最多返回的句子数
+     */
+    public List<String> sentencesFor(String character, int limit) {
+        List<String> sentences = characterSentences.getOrDefault(character, Collections.emptyList());
+        return sentences.size() > limit ? sentences.subList(0, limit) : sentences;
+    }
+
+    /**
+     * 摘要树节点
+     */
+    public static class Node {
+
+        private final int startChapter;
+
+        private final int endChapter;
+
+        private final String summary;
+
+        // 覆盖章节的平均情感值（0-1）
+        private final double sentiment;
+
+        // 覆盖的章节中是否有重要章节
+        private final boolean important;
+
+        public Node(int startChapter, int endChapter, String summary, double sentiment, boolean important) {
+            this.startChapter = startChapter;
+            this.endChapter = endChapter;
+            this.summary = summary;
+            this.sentiment = sentiment;
+            this.important = important;
+        }
+
+        public int getStartChapter() {
+            return startChapter;
+        }
+
+        public int getEndChapter() {
+            return endChapter;
+        }
+
+        public String getSummary() {
+            return summary;
+        }
+
+        public double getSentiment() {
+            return sentiment;
+        }
+
+        public boolean isImportant() {
+            return important;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.novelassistant.payload.request;
+
+import lombok.Data;
+
+import jakarta.validation.constraints.NotBlank;
+import java.util.Map;
+
+/**
+ * 提交导出任务请求
+ */
+@Data
+public class ExportJobRequest {
+
+    // 导出类型：novel-report、chart-pdf、chart-image
+    @NotBlank(message = "导出类型不能为空")
+    private String type;
+
+    // 小说ID，导出小说报告时必填
+    private Long novelId;
+
+    // 图表数据，导出图表时必填
+    private Map<String, Object> chartData;
+
+    private String title;
+
+    private String description;
+}
@@ -1,10 +1,15 @@
 package com.novelassistant.repository;
 
 import com.novelassistant.entity.Chapter;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChapterRepository extends JpaRepository<Chapter, Long> {
@@ -31,4 +36,38 @@ public interface ChapterRepository extends JpaRepository<Chapter, Long> {
      * @return 章节数量
      */
     long countByNovelId(Long novelId);
+    
+    /**
+     * 根据小说ID和章节号查找章节
+     * @param novelId 小说ID
+     * @param chapterNumber 章节号
+     * @return 章节
+     */
+    Optional<Chapter> findByNovelIdAndChapterNumber(Long novelId, Integer chapterNumber);
+    
+    /**
+     * 批量查询章节的基本信息（不加载章节内容）
+     * @param ids 章节ID列表
+     * @return 每行依次为章节ID、小说ID、章节号、标题
+     */
+    @Query("SELECT c.id, c.novelId, c.chapterNumber, c.title FROM Chapter c WHERE c.id IN :ids")
+    List<Object[]> findHeadersByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 分页查询小说的章节概要（不加载章节内容）
+     * @param novelId 小说ID
+     * @param pageable 分页参数
+     * @return 每行依次为章节号、标题、摘要，按章节号排序
+     */
+    @Query("SELECT c.chapterNumber, c.title, c.summary FROM Chapter c WHERE c.novelId = :novelId ORDER BY c.chapterNumber")
+    List<Object[]> findOutlineByNovelId(@Param("novelId") Long novelId, Pageable pageable);
+    
+    /**
+     * 分页查询小说各章的摘要和关键词（不加载章节内容）
+     * @param novelId 小说ID
+     * @param pageable 分页参数
+     * @return 每行依次为章节号、摘要、关键词，按章节号排序
+     */
+    @Query("SELECT c.chapterNumber, c.summary, c.keywords FROM Chapter c WHERE c.novelId = :novelId ORDER BY c.chapterNumber")
+    List<Object[]> findSummaryAndKeywordsByNovelId(@Param("novelId") Long novelId, Pageable pageable);
 } 
\ No newline at end of file
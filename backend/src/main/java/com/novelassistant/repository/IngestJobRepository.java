@@ -0,0 +1,141 @@
+package com.novelassistant.repository;
+
+import com.novelassistant.entity.IngestJob;
+import com.novelassistant.entity.IngestJob.JobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 小说导入任务仓库接口
+ */
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, Long> {
+    
+    /**
+     * 可领取任务的条件：到期的排队任务，以及租约已过期的运行中任务（工作节点已失联）
+     */
+    String CLAIMABLE = "((j.status = com.novelassistant.entity.IngestJob$JobStatus.QUEUED AND j.nextRunAt <= :now) " +
+           "OR (j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING AND j.leaseExpiresAt < :now))";
+    
+    /**
+     * 按用户汇总可领取的任务，用于在用户之间公平地领取
+     * @param now 当前时间
+     * @return 每行依次为用户ID（可为null）、最高优先级、最早创建时间
+     */
+    @Query("SELECT j.userId, MAX(j.priority), MIN(j.createdAt) FROM IngestJob j WHERE " + CLAIMABLE + " GROUP BY j.userId")
+    List<Object[]> summarizeClaimableByUser(@Param("now") Date now);
+    
+    /**
+     * 统计各用户租约有效的运行中任务数
+     * @param now 当前时间
+     * @return 每行依次为用户ID（可为null）、运行中任务数
+     */
+    @Query("SELECT j.userId, COUNT(j) FROM IngestJob j WHERE j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING " +
+           "AND j.leaseExpiresAt >= :now GROUP BY j.userId")
+    List<Object[]> countActiveRunningByUser(@Param("now") Date now);
+    
+    /**
+     * 查找用户可领取的任务，按优先级从高到低、创建时间从早到晚排序
+     * @param userId 用户ID
+     * @param now 当前时间
+     * @param pageable 分页参数
+     * @return 候选任务列表
+     */
+    @Query("SELECT j FROM IngestJob j WHERE j.userId = :userId AND " + CLAIMABLE + " ORDER BY j.priority DESC, j.createdAt ASC")
+    List<IngestJob> findClaimableByUser(@Param("userId") Long userId, @Param("now") Date now, Pageable pageable);
+    
+    /**
+     * 查找没有所属用户的可领取任务（如系统发起的导入）
+     * @param now 当前时间
+     * @param pageable 分页参数
+     * @return 候选任务列表
+     */
+    @Query("SELECT j FROM IngestJob j WHERE j.userId IS NULL AND " + CLAIMABLE + " ORDER BY j.priority DESC, j.createdAt ASC")
+    List<IngestJob> findClaimableWithoutUser(@Param("now") Date now, Pageable pageable);
+    
+    /**
+     * 以条件更新的方式领取任务，只有任务仍处于可领取状态时才会成功，多个工作节点之间不会重复领取
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @param leaseExpiresAt 租约到期时间
+     * @param now 当前时间
+     * @return 更新的记录数，为1表示领取成功
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE IngestJob j SET j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING, j.leaseOwner = :owner, " +
+           "j.leaseExpiresAt = :leaseExpiresAt, j.attempts = j.attempts + 1, j.startedAt = :now, j.updatedAt = :now " +
+           "WHERE j.id = :id AND ((j.status = com.novelassistant.entity.IngestJob$JobStatus.QUEUED AND j.nextRunAt <= :now) " +
+           "OR (j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING AND j.leaseExpiresAt < :now))")
+    int claim(@Param("id") Long id, @Param("owner") String owner,
+              @Param("leaseExpiresAt") Date leaseExpiresAt, @Param("now") Date now);
+    
+    /**
+     * 延长租约，只有仍由该节点持有的运行中任务才会更新
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @param leaseExpiresAt 新的租约到期时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.leaseExpiresAt = :leaseExpiresAt WHERE j.id = :id AND j.leaseOwner = :owner " +
+           "AND j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseExpiresAt") Date leaseExpiresAt);
+    
+    /**
+     * 更新检查点（已提交的章节数），只有仍由该节点持有的运行中任务才会更新
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @param checkpointChapter 已提交的章节数
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.checkpointChapter = :checkpointChapter WHERE j.id = :id AND j.leaseOwner = :owner " +
+           "AND j.status = com.novelassistant.entity.IngestJob$JobStatus.RUNNING")
+    int updateCheckpoint(@Param("id") Long id, @Param("owner") String owner,
+                         @Param("checkpointChapter") int checkpointChapter);
+    
+    /**
+     * 统计用户处于指定状态的任务数
+     * @param userId 用户ID
+     * @param status 任务状态
+     * @return 任务数
+     */
+    long countByUserIdAndStatus(Long userId, JobStatus status);
+    
+    /**
+     * 统计处于指定状态的任务数
+     * @param status 任务状态
+     * @return 任务数
+     */
+    long countByStatus(JobStatus status);
+    
+    /**
+     * 按状态查找任务，按创建时间倒序
+     * @param status 任务状态
+     * @param pageable 分页参数
+     * @return 任务列表
+     */
+    List<IngestJob> findByStatusOrderByCreatedAtDesc(JobStatus status, Pageable pageable);
+    
+    /**
+     * 查找所有任务，按创建时间倒序
+     * @param pageable 分页参数
+     * @return 任务列表
+     */
+    List<IngestJob> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    
+    /**
+     * 查找小说最近的导入任务
+     * @param novelId 小说ID
+     * @return 导入任务
+     */
+    Optional<IngestJob> findFirstByNovelIdOrderByCreatedAtDesc(Long novelId);
+}
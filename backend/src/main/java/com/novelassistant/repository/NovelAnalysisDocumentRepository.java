@@ -0,0 +1,27 @@
+package com.novelassistant.repository;
+
+import com.novelassistant.entity.NovelAnalysisDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 小说分析文档仓库接口
+ */
+@Repository
+public interface NovelAnalysisDocumentRepository extends JpaRepository<NovelAnalysisDocument, Long> {
+    
+    /**
+     * 根据小说ID查找分析文档
+     * @param novelId 小说ID
+     * @return 分析文档
+     */
+    Optional<NovelAnalysisDocument> findByNovelId(Long novelId);
+    
+    /**
+     * 删除小说的分析文档
+     * @param novelId 小说ID
+     */
+    void deleteByNovelId(Long novelId);
+}
@@ -0,0 +1,46 @@
+package com.novelassistant.repository;
+
+import com.novelassistant.entity.NovelGazetteer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 小说人名词典仓库接口
+ */
+@Repository
+public interface NovelGazetteerRepository extends JpaRepository<NovelGazetteer, Long> {
+
+    /**
+     * 根据小说ID查找人名词典
+     * @param novelId 小说ID
+     * @return 人名词典
+     */
+    Optional<NovelGazetteer> findByNovelId(Long novelId);
+
+    /**
+     * 删除小说的人名词典
+     * @param novelId 小说ID
+     */
+    void deleteByNovelId(Long novelId);
+
+    /**
+     * 写入小说的人名词典，已存在时整体替换
+     * 按novel_id唯一键插入或更新，并发写入同一部小说时不会因先查后存而违反唯一约束
+     * @param novelId 小说ID
+     * @param nameCount 人名数
+     * @param namesJson 人名 -> 权重的JSON
+     * @return 影响的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO novel_gazetteers (novel_id, name_count, names_json, created_at, updated_at) " +
+                   "VALUES (:novelId, :nameCount, :namesJson, NOW(), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE name_count = VALUES(name_count), names_json = VALUES(names_json), " +
+                   "updated_at = NOW()", nativeQuery = true)
+    int upsert(@Param("novelId") Long novelId, @Param("nameCount") int nameCount,
+               @Param("namesJson") String namesJson);
+}
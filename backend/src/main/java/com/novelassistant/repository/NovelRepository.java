@@ -2,6 +2,8 @@ package com.novelassistant.repository;
 
 import com.novelassistant.entity.Novel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -59,6 +61,14 @@ public interface NovelRepository extends JpaRepository<Novel, Long> {
      */
     List<Novel> findByUserIdAndIsDeletedFalse(Long userId);
     
+    /**
+     * 查找用户未删除的小说ID（不加载小说实体）
+     * @param userId 用户ID
+     * @return 小说ID列表
+     */
+    @Query("SELECT n.id FROM Novel n WHERE n.userId = :userId AND n.isDeleted = false")
+    List<Long> findIdsByUserIdAndIsDeletedFalse(@Param("userId") Long userId);
+    
     /**
      * 根据ID查找未删除的小说
      * @param id 小说ID
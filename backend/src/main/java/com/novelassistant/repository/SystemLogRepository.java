@@ -4,6 +4,7 @@ import com.novelassistant.entity.SystemLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,7 +15,7 @@ import java.util.Date;
  * 系统日志的JPA Repository
  */
 @Repository
-public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
+public interface SystemLogRepository extends JpaRepository<SystemLog, Long>, JpaSpecificationExecutor<SystemLog> {
     
     /**
      * 根据日志级别和时间范围查询日志
@@ -2,7 +2,9 @@ package com.novelassistant.repository.visualization;
 
 import com.novelassistant.entity.visualization.VisualizationCache;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -36,17 +38,42 @@ public interface VisualizationCacheRepository extends JpaRepository<Visualizatio
     @Query("SELECT vc FROM VisualizationCache vc WHERE vc.novel.id = ?1 AND vc.visualizationType = ?2 AND (vc.expiresAt IS NULL OR vc.expiresAt > ?3)")
     VisualizationCache findValidCache(Long novelId, String visualizationType, Date now);
     
+    /**
+     * 写入缓存，小说和可视化类型已有记录时更新数据和过期时间
+     * 依赖(novel_id, visualization_type)唯一键，并发写入同一条缓存不会产生重复记录
+     * @param novelId 小说ID
+     * @param visualizationType 可视化类型
+     * @param dataJson 可视化数据JSON
+     * @param expiresAt 过期时间
+     * @return 影响的行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO visualization_cache (novel_id, visualization_type, data_json, created_at, updated_at, expires_at) " +
+                   "VALUES (:novelId, :visualizationType, :dataJson, NOW(), NOW(), :expiresAt) " +
+                   "ON DUPLICATE KEY UPDATE data_json = VALUES(data_json), expires_at = VALUES(expires_at), " +
+                   "updated_at = NOW()", nativeQuery = true)
+    int upsert(@Param("novelId") Long novelId, @Param("visualizationType") String visualizationType,
+               @Param("dataJson") String dataJson, @Param("expiresAt") Date expiresAt);
+    
     /**
      * 删除小说的所有缓存
      * @param novelId 小说ID
      */
     void deleteByNovelId(Long novelId);
     
+    /**
+     * 删除小说某一类型的缓存
+     * @param novelId 小说ID
+     * @param visualizationType 可视化类型
+     */
+    void deleteByNovelIdAndVisualizationType(Long novelId, String visualizationType);
+    
     /**
      * 删除所有过期缓存
      * @param now 当前时间
      * @return 删除的记录数
      */
+    @Modifying
     @Query("DELETE FROM VisualizationCache vc WHERE vc.expiresAt < ?1")
     int deleteExpiredCache(Date now);
 } 
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.novelassistant.security.jwt.AuthTokenFilter;
 import com.novelassistant.security.services.UserDetailsServiceImpl;
 import com.novelassistant.util.LogUtil;
 
+import jakarta.servlet.DispatcherType;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -90,6 +91,8 @@ public class SecurityConfiguration {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // 流式响应完成后的异步分派沿用原请求的鉴权结果，JWT过滤器不处理异步分派
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/novels/demo/**").permitAll() // 演示数据无需认证
                 .requestMatchers("/novels/*/status").permitAll() // 小说处理状态查询无需认证
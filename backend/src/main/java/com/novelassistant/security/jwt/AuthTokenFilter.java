@@ -17,19 +17,20 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.novelassistant.security.services.UserDetailsServiceImpl;
+import com.novelassistant.security.services.UserPrincipalCache;
 import com.novelassistant.util.LogUtil;
 
 /**
  * JWT认证过滤器
  * 每次HTTP请求都会经过此过滤器，负责解析JWT令牌并设置认证信息
+ * 用户详情通过UserPrincipalCache获取，用户被修改时由相应服务使缓存失效
  */
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserPrincipalCache userPrincipalCache;
 
     private static final Logger logger = LogUtil.getLogger(AuthTokenFilter.class);
 
@@ -48,8 +49,8 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                     String username = jwtUtils.getUserNameFromJwtToken(jwt);
                     logger.debug("JWT令牌有效，用户名: {}", username);
                     
-                    // 加载用户详情
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    // 加载用户详情，短时间内的重复请求使用缓存，不再查询数据库
+                    UserDetails userDetails = userPrincipalCache.get(username);
                     
                     // 检查用户是否被禁用
                     if (!userDetails.isEnabled()) {
@@ -0,0 +1,136 @@
+package com.novelassistant.security.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 认证用户缓存
+ * JWT认证时按用户名缓存用户详情（含角色），在TTL内不再查询数据库；容量有上限，超出时淘汰最久未使用的用户。
+ * 每个用户名有一个版本号，用户状态、密码或资料修改时递增版本号并删除缓存，
+ * 版本号变化前开始的加载结果不会写回缓存，避免并发请求把旧数据重新放入缓存
+ */
+@Component
+public class UserPrincipalCache {
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Value("${novelassistant.auth.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${novelassistant.auth.principal-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, CachedPrincipal> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // 用户名 -> 版本号
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 获取用户详情，缓存未命中或已过期时从数据库加载
+     * 用户不存在或已禁用时抛出UsernameNotFoundException，失败结果不缓存
+     *
+     * @param username 用户名
+     * @return 用户详情
+     */
+    public UserDetailsImpl get(String username) {
+        long now = System.currentTimeMillis();
+        long version = version(username).get();
+        synchronized (cache) {
+            CachedPrincipal cached = cache.get(username);
+            if (cached != null && cached.version == version && now - cached.loadedAt < ttlMs) {
+                hits.incrementAndGet();
+                return cached.principal;
+            }
+        }
+
+        misses.incrementAndGet();
+        UserDetailsImpl principal = (UserDetailsImpl) userDetailsService.loadUserByUsername(username);
+        synchronized (cache) {
+            // 加载期间用户被修改时不写入缓存
+            if (version(username).get() == version) {
+                cache.put(username, new CachedPrincipal(principal, version, now));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * 使用户的缓存失效
+     * 在事务中调用时，事务提交后再失效一次，避免提交前加载的旧数据留在缓存中
+     *
+     * @param username 用户名
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username);
+                }
+            });
+        }
+        logger.debug("用户 {} 的认证缓存已失效", username);
+    }
+
+    private void evict(String username) {
+        version(username).incrementAndGet();
+        synchronized (cache) {
+            cache.remove(username);
+        }
+    }
+
+    private AtomicLong version(String username) {
+        return versions.computeIfAbsent(username, key -> new AtomicLong());
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("entries", cache.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private static final class CachedPrincipal {
+        private final UserDetailsImpl principal;
+        private final long version;
+        private final long loadedAt;
+
+        CachedPrincipal(UserDetailsImpl principal, long version, long loadedAt) {
+            this.principal = principal;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
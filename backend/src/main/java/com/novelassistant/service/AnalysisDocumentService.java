@@ -0,0 +1,105 @@
+package com.novelassistant.service;
+
+import com.novelassistant.entity.Chapter;
+import com.novelassistant.model.AnalysisDocument;
+import com.novelassistant.util.RelationshipAccumulator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小说分析文档服务
+ * 对全文只运行一次NLP分析，结果按小说持久化，供处理、分析、标签生成共用
+ */
+public interface AnalysisDocumentService {
+    
+    /**
+     * 对全文构建分析文档（不保存）
+     * 
+     * @param novelId 小说ID
+     * @param fullContent 全文内容
+     * @param chapters 小说章节，用于计算内容指纹和章节情感
+     * @return 分析文档
+     */
+    AnalysisDocument build(Long novelId, String fullContent, List<Chapter> chapters);
+    
+    /**
+     * 创建流式构建器，按章节顺序累积分析结果，不需要持有全文
+     * 
+     * @param novelId 小说ID
+     * @return 流式构建器
+     */
+    StreamingBuilder newStreamingBuilder(Long novelId);
+    
+    /**
+     * 获取小说的分析文档
+     * 已保存的文档与当前章节内容一致时直接返回，否则重新构建并保存
+     * 
+     * @param novelId 小说ID
+     * @return 分析文档
+     */
+    AnalysisDocument getOrBuild(Long novelId);
+    
+    /**
+     * 保存小说的分析文档，已存在时覆盖
+     * 
+     * @param novelId 小说ID
+     * @param document 分析文档
+     */
+    void save(Long novelId, AnalysisDocument document);
+    
+    /**
+     * 删除小说的分析文档，下次获取时重新构建
+     * 
+     * @param novelId 小说ID
+     */
+    void invalidate(Long novelId);
+    
+    /**
+     * 计算章节内容指纹
+     * 
+     * @param chapters 小说章节
+     * @return 内容指纹
+     */
+    String computeFingerprint(List<Chapter> chapters);
+    
+    /**
+     * 分析文档流式构建器
+     * 关键词按章节权重累加，人物按各章出现次数累加，对话数量有上限，
+     * 人物关系由各章的关系统计合并后计算，整体情感为各章情感按长度加权的平均值
+     */
+    interface StreamingBuilder {
+        
+        /**
+         * 按章节顺序加入一章的分析结果
+         * 
+         * @param content 章节内容
+         * @param keywords 章节关键词及权重
+         * @param characters 章节人物
+         * @param dialogues 章节对话
+         * @param relationships 章节人物关系统计，可为null
+         * @param sentiment 章节情感值（0-1）
+         * @param summary 章节摘要
+         */
+        void addChapter(String content, Map<String, Integer> keywords, List<String> characters,
+                        List<Map<String, String>> dialogues, RelationshipAccumulator relationships,
+                        double sentiment, String summary);
+        
+        /**
+         * 获取小说开头部分的文本样本（长度有上限），用于世界观摘要和基于内容的标签
+         */
+        String getSampleText();
+        
+        /**
+         * 获取按章节顺序拼接的章节摘要（长度有上限），用于生成整体摘要
+         */
+        String getSummaryText();
+        
+        /**
+         * 完成构建
+         * 
+         * @return 分析文档
+         */
+        AnalysisDocument finish();
+    }
+}
@@ -0,0 +1,44 @@
+package com.novelassistant.service;
+
+import com.novelassistant.entity.Chapter;
+
+import java.util.List;
+
+/**
+ * 章节文档向量服务
+ * 按章节缓存由词向量池化得到的单位长度文档向量，章节内容变化后自动重新计算
+ */
+public interface ChapterEmbeddingService {
+    
+    /**
+     * 获取章节的文档向量
+     * 
+     * @param chapter 章节
+     * @return 单位长度的文档向量，没有可用的词向量模型时返回null
+     */
+    float[] getEmbedding(Chapter chapter);
+    
+    /**
+     * 批量获取章节的文档向量
+     * 
+     * @param chapters 章节列表
+     * @return 与章节列表一一对应的文档向量，任一章节无法计算向量时返回null
+     */
+    float[][] getEmbeddings(List<Chapter> chapters);
+    
+    /**
+     * 计算章节两两之间的相似度矩阵
+     * 每个章节只计算一次文档向量，矩阵按对称性只计算上三角
+     * 
+     * @param chapters 章节列表
+     * @return 相似度矩阵（0-1），没有可用的词向量模型时返回null
+     */
+    double[][] similarityMatrix(List<Chapter> chapters);
+    
+    /**
+     * 移除章节的缓存向量
+     * 
+     * @param chapterId 章节ID
+     */
+    void invalidate(Long chapterId);
+}
@@ -0,0 +1,44 @@
+package com.novelassistant.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 章节向量索引服务
+ * 维护全部章节文档向量的近似最近邻索引，索引持久化在本地磁盘上，由小说导入流程写入
+ */
+public interface ChapterIndexService {
+    
+    /**
+     * 将小说的所有章节写入索引，已存在的章节会被替换
+     * 
+     * @param novelId 小说ID
+     * @return 写入索引的章节数，没有可用的词向量模型时返回0
+     */
+    int indexNovel(Long novelId);
+    
+    /**
+     * 从索引中删除小说的所有章节
+     * 
+     * @param novelId 小说ID
+     */
+    void removeNovel(Long novelId);
+    
+    /**
+     * 查找与指定章节最相似的章节
+     * 
+     * @param chapterId 章节ID
+     * @param limit 返回的结果数
+     * @param novelIds 允许出现在结果中的小说ID，为null时不限制；已删除的小说不出现在结果中
+     * @return 相似章节列表，每项包含chapterId、novelId、novelTitle、chapterNumber、title和similarity
+     */
+    List<Map<String, Object>> findSimilarChapters(Long chapterId, int limit, Set<Long> novelIds);
+    
+    /**
+     * 获取索引统计信息
+     * 
+     * @return 章节数、维度、倒排列表数等
+     */
+    Map<String, Object> getIndexStats();
+}
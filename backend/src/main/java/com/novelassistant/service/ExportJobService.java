@@ -0,0 +1,64 @@
+package com.novelassistant.service;
+
+import com.novelassistant.model.ExportJob;
+import com.novelassistant.payload.request.ExportJobRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 导出任务服务
+ * 导出在后台线程池中渲染，结果按小说ID、数据版本和导出类型（图表导出按图表内容）保存在磁盘缓存中，
+ * 相同输入的导出直接复用缓存文件；缓存按总字节数淘汰最久未使用的文件
+ */
+public interface ExportJobService {
+
+    String TYPE_NOVEL_REPORT = "novel-report";
+    String TYPE_CHART_PDF = "chart-pdf";
+    String TYPE_CHART_IMAGE = "chart-image";
+
+    /**
+     * 提交导出任务
+     * 已有缓存结果时任务直接完成；相同输入正在渲染时共用同一次渲染，渲染开始后共用的任务同样显示为进行中
+     *
+     * @param request 导出请求
+     * @param userId 提交用户ID
+     * @return 导出任务
+     */
+    ExportJob submit(ExportJobRequest request, Long userId);
+
+    /**
+     * 获取导出任务
+     *
+     * @param jobId 任务ID
+     * @return 导出任务，不存在或已过期时返回null
+     */
+    ExportJob getJob(String jobId);
+
+    /**
+     * 打开已完成任务的结果文件
+     * 返回已打开的输入流，之后文件被缓存淘汰也不影响读取
+     *
+     * @param job 导出任务
+     * @return 结果文件的输入流，任务未完成或文件已被淘汰时返回null
+     */
+    InputStream openArtifact(ExportJob job) throws IOException;
+
+    /**
+     * 打开当前数据版本的小说分析报告
+     * 返回已打开的输入流，之后文件被缓存淘汰也不影响读取
+     *
+     * @param novelId 小说ID
+     * @param render 未缓存时是否渲染：渲染结果写入缓存（相同报告正在渲染时等待这次渲染）后再打开
+     * @return 报告文件的输入流，由调用方关闭；未缓存且不渲染时返回null
+     */
+    InputStream openNovelReport(Long novelId, boolean render) throws IOException;
+
+    /**
+     * 获取导出任务和结果缓存的统计信息
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
@@ -1,5 +1,7 @@
 package com.novelassistant.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
@@ -34,5 +36,15 @@ public interface ExportService {
      * @return PDF字节数组
      */
     byte[] exportNovelReport(Long novelId);
+    
+    /**
+     * 将小说分析报告直接写入输出流
+     * PDF页面内容超过内存上限后写入临时文件，内存占用与角色数和章节数无关
+     * 
+     * @param novelId 小说ID
+     * @param output 输出流，写入完成后由PDFBox关闭
+     * @throws IOException 写入失败时抛出
+     */
+    void writeNovelReport(Long novelId, OutputStream output) throws IOException;
 } 
  
\ No newline at end of file
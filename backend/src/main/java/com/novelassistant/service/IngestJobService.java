@@ -0,0 +1,121 @@
+package com.novelassistant.service;
+
+import com.novelassistant.entity.IngestJob;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小说导入任务队列服务
+ * 导入任务持久化在数据库中，工作节点按优先级以租约方式领取，失败后按指数退避重试，
+ * 章节按批提交时记录检查点，重试时从检查点继续
+ */
+public interface IngestJobService {
+    
+    /**
+     * 提交导入任务
+     * 用户排队中和运行中的任务数达到上限时拒绝提交
+     * 
+     * @param novelId 小说ID
+     * @param userId 上传用户ID
+     * @param filePath 上传文件路径，URL导入时为小说URL
+     * @param priority 优先级，数值越大越先处理
+     * @return 导入任务
+     */
+    IngestJob enqueue(Long novelId, Long userId, String filePath, int priority);
+    
+    /**
+     * 领取下一个可执行的任务
+     * 按优先级领取，同一用户同时运行的任务数受限，避免单个用户占满所有工作线程
+     * 
+     * @param owner 工作节点标识
+     * @return 领取到的任务，没有可领取的任务时返回null
+     */
+    IngestJob claimNext(String owner);
+    
+    /**
+     * 延长任务租约
+     * 
+     * @param jobId 任务ID
+     * @param owner 工作节点标识
+     * @return 租约仍由该节点持有时返回true；任务已被取消或被其他节点接管时返回false
+     */
+    boolean renewLease(Long jobId, String owner);
+    
+    /**
+     * 记录检查点，在章节批量写入的事务中调用
+     * 租约已失效时抛出异常，使该批章节随事务回滚
+     * 
+     * @param jobId 任务ID
+     * @param owner 工作节点标识
+     * @param committedChapters 已提交的章节数
+     */
+    void recordCheckpoint(Long jobId, String owner, int committedChapters);
+    
+    /**
+     * 标记任务成功
+     * 
+     * @param jobId 任务ID
+     * @param owner 工作节点标识
+     */
+    void complete(Long jobId, String owner);
+    
+    /**
+     * 标记任务失败，未超过最大尝试次数时按指数退避重新排队
+     * 
+     * @param jobId 任务ID
+     * @param owner 工作节点标识
+     * @param error 失败原因
+     */
+    void fail(Long jobId, String owner, Throwable error);
+    
+    /**
+     * 查询任务列表，按创建时间倒序
+     * 
+     * @param status 任务状态，为空时查询全部
+     * @param limit 最多返回的任务数
+     * @return 任务列表
+     */
+    List<IngestJob> listJobs(String status, int limit);
+    
+    /**
+     * 获取小说最近的导入任务
+     * 
+     * @param novelId 小说ID
+     * @return 导入任务，不存在时返回null
+     */
+    IngestJob getLatestJobForNovel(Long novelId);
+    
+    /**
+     * 获取队列统计信息（各状态任务数）
+     * 
+     * @return 统计信息
+     */
+    Map<String, Object> getQueueStats();
+    
+    /**
+     * 重新排队已失败或已取消的任务，从检查点继续处理
+     * 
+     * @param jobId 任务ID
+     * @return 导入任务
+     */
+    IngestJob retry(Long jobId);
+    
+    /**
+     * 取消排队中或运行中的任务
+     * 运行中的任务在下次续约或记录检查点时停止
+     * 
+     * @param jobId 任务ID
+     * @return 导入任务
+     */
+    IngestJob cancel(Long jobId);
+    
+    /**
+     * 调整任务优先级
+     * 
+     * @param jobId 任务ID
+     * @param priority 优先级
+     * @return 导入任务
+     */
+    IngestJob updatePriority(Long jobId, int priority);
+}
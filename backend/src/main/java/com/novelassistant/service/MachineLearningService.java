@@ -1,5 +1,8 @@
 package com.novelassistant.service;
 
+import com.novelassistant.util.KMeans;
+
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +21,17 @@ public interface MachineLearningService {
      */
     double calculateTextSimilarity(String text1, String text2);
     
+    /**
+     * 计算文本的文档向量：分词后对词向量做平均池化，并归一化为单位长度
+     * 归一化后的文档向量之间的点积即为余弦相似度，可以缓存后重复比较
+     * 
+     * @param text 文本
+     * @return 文档向量，没有可用的词向量模型或文本中没有词表内的词时返回null
+     */
+    default float[] embedText(String text) {
+        return null;
+    }
+    
     /**
      * 对文本进行聚类分析
      * 
@@ -27,6 +41,20 @@ public interface MachineLearningService {
      */
     Map<Integer, List<Integer>> clusterTexts(List<String> textList, int clusterCount);
     
+    /**
+     * 对已计算好的单位长度向量进行聚类分析
+     * 
+     * @param vectors 向量，每行一个
+     * @param clusterCount 希望分的簇数
+     * @return 聚类结果，键为聚类ID，值为该类中的向量索引列表
+     */
+    default Map<Integer, List<Integer>> clusterVectors(float[][] vectors, int clusterCount) {
+        if (vectors == null || vectors.length == 0) {
+            return Collections.emptyMap();
+        }
+        return new KMeans(Math.max(1, clusterCount)).setMetric(KMeans.Metric.COSINE).fit(vectors).toClusters();
+    }
+    
     /**
      * 基于深度学习的情感分析
      * 提供比传统NLP更准确的情感评分
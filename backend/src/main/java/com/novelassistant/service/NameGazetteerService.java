@@ -0,0 +1,46 @@
+package com.novelassistant.service;
+
+import com.novelassistant.util.NameGazetteer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小说人名词典服务
+ * 首次导入完成时由识别出的人物生成词典并保存，之后的章节、对话、人物关系和标签刷新
+ * 直接用词典做最长匹配；词典在内存中闲置一段时间后被移除，下次使用时从数据库重新加载
+ */
+public interface NameGazetteerService {
+
+    /**
+     * 获取小说的人名词典
+     *
+     * @param novelId 小说ID，为null时返回null
+     * @return 人名词典，尚未生成时返回null
+     */
+    NameGazetteer get(Long novelId);
+
+    /**
+     * 用识别出的人物补充小说的人名词典并保存
+     * 与已保存的人名合并，同名取较高的权重，总数超过上限时丢弃权重最低的；
+     * 删除小说时词典随之删除
+     *
+     * @param novelId 小说ID
+     * @param rankedNames 按重要性从高到低排列的人物名
+     */
+    void seed(Long novelId, List<String> rankedNames);
+
+    /**
+     * 删除小说的人名词典，小说删除时调用
+     *
+     * @param novelId 小说ID
+     */
+    void invalidate(Long novelId);
+
+    /**
+     * 获取词典缓存统计
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> getStats();
+}
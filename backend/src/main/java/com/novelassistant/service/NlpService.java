@@ -1,5 +1,9 @@
 package com.novelassistant.service;
 
+import com.novelassistant.util.DialogueScanner;
+import com.novelassistant.util.RelationshipAccumulator;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +21,16 @@ public interface NlpService {
      */
     String generateSummary(String text, int maxLength);
     
+    /**
+     * 从已有的摘要句子中再提取摘要，用于由章节摘要逐级生成整体摘要
+     * 只用TextRank选句，不再识别人物、关键词和情感，选出的句子保持原有顺序
+     * 
+     * @param sentences 按顺序排列的摘要句子
+     * @param maxLength 摘要的最大长度
+     * @return 生成的摘要
+     */
+    String summarizeSentences(List<String> sentences, int maxLength);
+    
     /**
      * 从文本中提取关键词
      * 
@@ -67,6 +81,14 @@ public interface NlpService {
      */
     List<Map<String, String>> extractDialogues(String text);
     
+    /**
+     * 一次扫描提取文本中的对话区间
+     * 
+     * @param text 需要分析的文本
+     * @return 按位置排序的对话区间，包含引号、内容和说话者在文本中的偏移
+     */
+    List<DialogueScanner.Span> scanDialogues(String text);
+    
     /**
      * 分析角色之间的关系
      * 
@@ -75,6 +97,25 @@ public interface NlpService {
      */
     List<Map<String, Object>> analyzeCharacterRelationships(List<Map<String, String>> dialogues);
     
+    /**
+     * 累计一段文本（通常是一章）的人物关系统计，各章的结果可以并行计算后合并
+     * 
+     * @param text 文本，为null时不统计叙述中的共现
+     * @param dialogues 从文本中提取的对话列表，可为null
+     * @param characters 文本中的人物，用于按句子窗口统计共现，可为null
+     * @return 累计结果
+     */
+    RelationshipAccumulator accumulateRelationships(String text, List<Map<String, String>> dialogues,
+                                                    Collection<String> characters);
+    
+    /**
+     * 根据累计结果分析角色之间的关系
+     * 
+     * @param accumulator 一章或多章合并后的累计结果
+     * @return 关系列表，格式同analyzeCharacterRelationships(List)
+     */
+    List<Map<String, Object>> analyzeCharacterRelationships(RelationshipAccumulator accumulator);
+    
     /**
      * 从文本中提取命名实体
      * 
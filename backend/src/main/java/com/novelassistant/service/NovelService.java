@@ -5,8 +5,10 @@ import com.novelassistant.entity.Chapter;
 import com.novelassistant.entity.Tag;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntConsumer;
 
 public interface NovelService {
     
@@ -47,6 +49,17 @@ public interface NovelService {
      */
     Map<String, Object> processNovel(MultipartFile file, String title, String author, Long userId);
     
+    /**
+     * 执行小说导入任务：切分并分析章节，按批提交，全部章节提交后进行整体分析，
+     * 预计算可视化数据后将小说标记为完成；由导入任务工作器调用，不在外部事务中执行
+     * @param novelId 小说ID
+     * @param filePath 上传文件路径，URL导入时为小说URL
+     * @param resumeAfterChapter 之前的尝试中已提交的章节数，这些章节不再重复处理
+     * @param checkpointListener 每批章节提交时在同一事务中回调已提交的章节数，可为null
+     * @throws IOException 读取文件失败时抛出
+     */
+    void runIngest(Long novelId, String filePath, int resumeAfterChapter, IntConsumer checkpointListener) throws IOException;
+    
     /**
      * 从URL导入小说
      * @param url 小说URL
@@ -69,6 +82,15 @@ public interface NovelService {
         return importNovelFromUrl(url, userId, null, null, maxChapters);
     }
     
+    /**
+     * 重新同步URL导入的小说
+     * 只抓取新章节，已保存的章节通过条件请求校验，内容变化的章节才重新分析
+     * @param novelId 小说ID
+     * @param maxNewChapters 最多新增的章节数，0表示不限制
+     * @return 处理结果
+     */
+    Map<String, Object> resyncNovelFromUrl(Long novelId, int maxNewChapters);
+    
     /**
      * 获取小说的章节列表
      * @param novelId 小说ID
@@ -0,0 +1,22 @@
+package com.novelassistant.service;
+
+import com.novelassistant.model.HierarchicalSummary;
+
+import java.util.List;
+
+/**
+ * 小说分层摘要服务
+ * 整体摘要、情节发展摘要和人物发展素材由导入时已保存的章节摘要逐级生成，
+ * 不再对全文做摘要，耗时随章节数线性增长
+ */
+public interface NovelSummaryService {
+
+    /**
+     * 由章节摘要生成小说的分层摘要
+     *
+     * @param novelId 小说ID
+     * @param characters 按重要性排列的人物，用于整体摘要中的主要角色和人物发展素材，可为null
+     * @return 分层摘要，小说没有已保存的章节摘要时返回null
+     */
+    HierarchicalSummary summarize(Long novelId, List<String> characters);
+}
@@ -26,6 +26,7 @@ public interface SystemLogService {
     
     /**
      * 添加系统日志
+     * 日志异步批量写入，方法返回时日志可能尚未保存
      * 
      * @param level 日志级别
      * @param logger Logger名称
@@ -40,11 +41,43 @@ public interface SystemLogService {
                       String userId, String ip, String thread, 
                       String stackTrace, Map<String, Object> params);
     
+    /**
+     * 键集分页获取系统日志
+     * 按时间和ID倒序，用上一页返回的游标定位下一页，不统计总数，深分页时不变慢
+     * 
+     * @param cursor 上一页返回的nextCursor，第一页为空
+     * @param size 每页大小
+     * @param level 日志级别
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param query 搜索关键词
+     * @param userId 用户ID
+     * @return 日志列表和下一页游标（没有下一页时不包含nextCursor）
+     */
+    Map<String, Object> scrollSystemLogs(String cursor, int size, String level,
+                                         Date startDate, Date endDate,
+                                         String query, String userId);
+    
     /**
      * 清理指定天数前的日志
+     * 早于该时间的整月分区直接删除
      * 
      * @param days 天数
      * @return 清理的日志条数
      */
     int cleanLogs(int days);
+    
+    /**
+     * 获取日志异步写入器的统计信息
+     * 
+     * @return 缓冲区容量、待写入、已写入、丢弃和失败的日志数
+     */
+    Map<String, Object> getWriterStats();
+    
+    /**
+     * 获取日志表分区和保留策略信息
+     * 
+     * @return 是否分区、各分区估算行数和保留天数
+     */
+    Map<String, Object> getStorageStats();
 } 
\ No newline at end of file
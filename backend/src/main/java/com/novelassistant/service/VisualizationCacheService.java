@@ -0,0 +1,67 @@
+package com.novelassistant.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.function.Supplier;
+
+/**
+ * 可视化数据缓存服务
+ * 两级读穿缓存：进程内LRU为第一级，visualization_cache表中的JSON行为第二级，
+ * 两级都按expiresAt过期，进程内的条目另有较短的最长保留时间；小说重新处理后整体失效
+ */
+public interface VisualizationCacheService {
+    
+    String TYPE_KEYWORDS = "keywords";
+    String TYPE_EMOTIONAL = "emotional";
+    String TYPE_STRUCTURE = "structure";
+    String TYPE_CHARACTERS = "characters";
+    
+    /**
+     * 读取缓存的可视化数据，两级缓存都未命中时计算并写入缓存
+     * 同一小说同一类型的并发未命中只计算一次；返回的对象在多个请求间共享，调用方不应修改
+     * 
+     * @param novelId 小说ID
+     * @param type 可视化类型
+     * @param typeReference 数据类型，用于反序列化第二级缓存中的JSON
+     * @param loader 计算数据的方法，返回null或空集合时不缓存
+     * @return 可视化数据
+     */
+    <T> T getOrCompute(Long novelId, String type, TypeReference<T> typeReference, Supplier<T> loader);
+    
+    /**
+     * 只读取缓存的可视化数据，两级缓存都未命中时返回null，不触发计算
+     * 
+     * @param novelId 小说ID
+     * @param type 可视化类型
+     * @param typeReference 数据类型，用于反序列化第二级缓存中的JSON
+     * @return 可视化数据，未缓存时返回null
+     */
+    <T> T get(Long novelId, String type, TypeReference<T> typeReference);
+    
+    /**
+     * 写入缓存，覆盖已有的数据
+     * 小说的缓存版本号与开始计算前读取的不一致时（计算期间已失效）不写入
+     * 
+     * @param novelId 小说ID
+     * @param type 可视化类型
+     * @param data 可视化数据
+     * @param version 开始计算前由currentVersion读取的版本号
+     * @return 是否已写入
+     */
+    boolean put(Long novelId, String type, Object data, long version);
+    
+    /**
+     * 小说当前的缓存版本号，每次失效时递增
+     * 
+     * @param novelId 小说ID
+     * @return 版本号
+     */
+    long currentVersion(Long novelId);
+    
+    /**
+     * 使小说的所有可视化缓存失效
+     * 
+     * @param novelId 小说ID
+     */
+    void invalidate(Long novelId);
+}
@@ -56,4 +56,22 @@ public interface VisualizationService {
      * @return 综合统计数据
      */
     Map<String, Object> getNovelStatisticsData(Long novelId);
-} 
\ No newline at end of file
+    
+    /**
+     * 获取小说的全部可视化数据（关键词、情节波动、结构、人物关系）
+     * 只读取预计算的缓存，不触发计算；未缓存的类型返回空数据，并在pending中列出
+     * 
+     * @param novelId 小说ID
+     * @return 全部可视化数据
+     */
+    Map<String, Object> getAllVisualizationData(Long novelId);
+    
+    /**
+     * 预计算小说的全部可视化数据，写入可视化缓存和关键词、字数分布、结构数据表
+     * 在小说导入完成后调用，已有的缓存会被覆盖
+     * 
+     * @param novelId 小说ID
+     * @return 各类数据的计算耗时（毫秒）
+     */
+    Map<String, Object> precomputeVisualizations(Long novelId);
+}
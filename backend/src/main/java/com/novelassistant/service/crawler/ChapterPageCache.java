@@ -0,0 +1,147 @@
+package com.novelassistant.service.crawler;
+
+import com.novelassistant.util.DiskLruCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 章节页面磁盘缓存
+ * 按URL缓存解析后的章节内容及响应的ETag/Last-Modified，再次抓取时发送条件请求，
+ * 服务器返回304时直接使用缓存内容，不再下载和解析页面。
+ * 缓存文件由DiskLruCache管理，总大小超过上限时淘汰最久未访问的章节
+ */
+public class ChapterPageCache {
+
+    private static final int MAGIC = 0x4E414350; // "NACP"
+    private static final int VERSION = 2;
+
+    private final DiskLruCache files;
+
+    /**
+     * @param directory 缓存目录
+     * @param maxBytes 缓存文件的总字节数上限
+     */
+    public ChapterPageCache(Path directory, long maxBytes) throws IOException {
+        this.files = new DiskLruCache(directory, maxBytes);
+    }
+
+    /**
+     * 读取缓存项
+     *
+     * @param url 章节URL
+     * @return 缓存项，不存在或已损坏时返回null
+     */
+    public Entry get(String url) {
+        Path path = files.get(url);
+        if (path == null) {
+            return null;
+        }
+        try {
+            // 章节文件不大，整体读入后按剩余字节数校验内容长度，损坏的长度字段不会导致分配超大数组
+            byte[] data = Files.readAllBytes(path);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            String cachedUrl = input.readUTF();
+            if (!cachedUrl.equals(url)) {
+                // 哈希冲突
+                return null;
+            }
+            String etag = readNullable(input);
+            String lastModified = readNullable(input);
+            int length = input.readInt();
+            if (length < 0 || length != input.available()) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return new Entry(etag, lastModified, new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // 文件已被淘汰或不完整时按未缓存处理
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存项
+     *
+     * @param url 章节URL
+     * @param etag 响应的ETag，可为null
+     * @param lastModified 响应的Last-Modified，可为null
+     * @param content 解析后的章节内容
+     */
+    public void put(String url, String etag, String lastModified, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        files.put(url, stream -> {
+            DataOutputStream output = new DataOutputStream(stream);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(url);
+            writeNullable(output, etag);
+            writeNullable(output, lastModified);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            output.flush();
+        });
+    }
+
+    /**
+     * 删除缓存项
+     */
+    public void remove(String url) throws IOException {
+        files.remove(url);
+    }
+
+    /**
+     * 缓存统计信息（文件数、总大小、淘汰次数等）
+     */
+    public Map<String, Object> getStats() {
+        return files.getStats();
+    }
+
+    private static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    /**
+     * 缓存项
+     */
+    public static class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final String content;
+
+        Entry(String etag, String lastModified, String content) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.novelassistant.service.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 并发章节抓取器
+ * 在线程池中并发抓取章节，同时进行中的请求数不超过窗口大小，每个请求先从主机的令牌桶获取令牌；
+ * 结果按章节顺序交给调用方（调用线程中执行），后面的章节先完成时在窗口中等待。
+ * 调用方记录已交付的章节下标，中断后可以从该下标继续抓取
+ */
+public class ConcurrentChapterFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentChapterFetcher.class);
+
+    /**
+     * 页面抓取和解析
+     */
+    @FunctionalInterface
+    public interface PageFetcher {
+        /**
+         * @param url 章节URL
+         * @return 章节内容
+         * @throws IOException 请求失败或页面中没有章节内容
+         */
+        String fetch(String url) throws IOException;
+    }
+
+    /**
+     * 章节内容的接收方
+     */
+    @FunctionalInterface
+    public interface ChapterConsumer {
+        /**
+         * @param index 章节下标
+         * @param content 章节内容，重试后仍抓取失败时为null
+         */
+        void accept(int index, String content) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final HostRateLimiter rateLimiter;
+    private final int maxConcurrency;
+    private final int maxRetries;
+    private final long retryDelayMs;
+
+    /**
+     * @param executor 执行请求的线程池
+     * @param rateLimiter 主机限速器
+     * @param maxConcurrency 同时进行中的请求数上限
+     * @param maxRetries 每个章节的最大尝试次数
+     * @param retryDelayMs 重试延迟基数，第n次重试前等待 n * retryDelayMs 毫秒
+     */
+    public ConcurrentChapterFetcher(ExecutorService executor, HostRateLimiter rateLimiter,
+                                    int maxConcurrency, int maxRetries, long retryDelayMs) {
+        this.executor = executor;
+        this.rateLimiter = rateLimiter;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxRetries = Math.max(1, maxRetries);
+        this.retryDelayMs = Math.max(0, retryDelayMs);
+    }
+
+    /**
+     * 按顺序抓取章节
+     *
+     * @param urls 章节URL列表
+     * @param startIndex 起始下标，之前的章节视为已完成
+     * @param fetcher 页面抓取和解析方法
+     * @param consumer 按下标顺序接收章节内容
+     * @return 交付给接收方的章节数
+     * @throws InterruptedException 抓取过程中线程被中断
+     * @throws Exception 接收方抛出的异常，此时未完成的请求被取消
+     */
+    public int fetchInOrder(List<String> urls, int startIndex, PageFetcher fetcher, ChapterConsumer consumer) throws Exception {
+        Deque<Future<String>> window = new ArrayDeque<>(maxConcurrency);
+        int next = Math.max(0, startIndex);
+        int delivered = 0;
+
+        try {
+            while (next < urls.size() || !window.isEmpty()) {
+                // 填满窗口
+                while (next < urls.size() && window.size() < maxConcurrency) {
+                    String url = urls.get(next);
+                    window.addLast(executor.submit(() -> fetchWithRetry(url, fetcher)));
+                    next++;
+                }
+
+                int index = next - window.size();
+                String content;
+                try {
+                    content = window.peekFirst().get();
+                } catch (ExecutionException e) {
+                    logger.error("获取章节 {} 内容失败: {}", urls.get(index), e.getCause().getMessage());
+                    content = null;
+                }
+                window.pollFirst();
+                consumer.accept(index, content);
+                delivered++;
+            }
+            return delivered;
+        } finally {
+            for (Future<String> pending : window) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    private String fetchWithRetry(String url, PageFetcher fetcher) throws IOException, InterruptedException {
+        String host = hostOf(url);
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            rateLimiter.acquire(host);
+            try {
+                return fetcher.fetch(url);
+            } catch (IOException e) {
+                lastError = e;
+                if (attempt < maxRetries) {
+                    logger.warn("获取章节内容失败，将进行第{}次重试，URL: {}, 错误: {}", attempt, url, e.getMessage());
+                    Thread.sleep(retryDelayMs * attempt);
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
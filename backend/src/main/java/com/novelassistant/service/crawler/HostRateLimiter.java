@@ -0,0 +1,74 @@
+package com.novelassistant.service.crawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按主机限速的令牌桶
+ * 每个主机一个令牌桶，按固定速率补充令牌，容量即允许的突发请求数；
+ * 令牌不足时预约下一个令牌并在锁外等待，多个线程按预约顺序依次放行
+ */
+public class HostRateLimiter {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond 每个主机每秒允许的请求数
+     * @param burst 每个主机允许的突发请求数
+     */
+    public HostRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("请求速率必须大于0: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * 获取一个令牌，令牌不足时阻塞等待
+     *
+     * @param host 主机名
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public void acquire(String host) throws InterruptedException {
+        long waitNanos = buckets.computeIfAbsent(host == null ? "" : host.toLowerCase(),
+                key -> new TokenBucket(permitsPerSecond, burst)).reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private static class TokenBucket {
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double permitsPerSecond, int capacity) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * 预约一个令牌，令牌数可以为负（表示已被预约的未来令牌）
+         *
+         * @return 需要等待的纳秒数
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.novelassistant.service.crawler;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,10 +17,44 @@ public interface NovelCrawlerService {
      */
     Map<String, Object> crawlNovelFromUrl(String url, int maxChapters);
     
+    /**
+     * 获取小说信息和章节目录，不抓取章节内容
+     * @param url 小说URL
+     * @param maxChapters 最大章节数，0表示不限制
+     * @return 包含标题、作者、简介和章节目录（title、url、number）的Map对象
+     */
+    Map<String, Object> crawlNovelInfo(String url, int maxChapters);
+    
+    /**
+     * 并发抓取章节内容，按章节顺序交付
+     * 抓取失败的章节内容为空字符串；中断后可以从已交付的章节数继续；
+     * 已缓存的章节只在缓存过期后发送条件请求，未变化的章节不再下载
+     * @param chapters 章节目录，抓取到的内容写入每个章节的content字段
+     * @param startIndex 起始下标，之前的章节不再抓取
+     * @param listener 按顺序接收抓取完成的章节
+     * @return 交付的章节数
+     * @throws Exception 接收方抛出的异常或抓取被中断
+     */
+    int fetchChapters(List<Map<String, String>> chapters, int startIndex, ChapterListener listener) throws Exception;
+    
+    /**
+     * 获取章节页面缓存统计
+     * @return 条件请求未修改和完整下载的次数，以及缓存文件的数量、大小和淘汰次数
+     */
+    Map<String, Object> getCacheStats();
+    
     /**
      * 检查URL是否受支持
      * @param url 待检查的URL
      * @return 是否支持爬取该URL
      */
     boolean isSupportedUrl(String url);
-} 
\ No newline at end of file
+    
+    /**
+     * 章节抓取完成的回调
+     */
+    @FunctionalInterface
+    interface ChapterListener {
+        void onChapter(int index, Map<String, String> chapter) throws Exception;
+    }
+}
@@ -1,16 +1,28 @@
 package com.novelassistant.service.crawler.impl;
 
+import com.novelassistant.service.crawler.ChapterPageCache;
+import com.novelassistant.service.crawler.ConcurrentChapterFetcher;
+import com.novelassistant.service.crawler.HostRateLimiter;
 import com.novelassistant.service.crawler.NovelCrawlerService;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.Random;
@@ -29,15 +41,115 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
             "biq03.cc", "www.biq03.cc"
     );
     
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.0 Safari/605.1.15",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 15_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.0 Mobile/15E148 Safari/604.1"
+    };
+    
+    private static final Pattern CHAPTER_NUMBER_PATTERN = Pattern.compile("第([\\d零一二三四五六七八九十百千万亿]+)章");
+    
+    @Autowired
+    @Qualifier("crawlerExecutor")
+    private ExecutorService crawlerExecutor;
+    
+    // 每个主机每秒的请求数
+    @Value("${novelassistant.crawler.requests-per-second:2.0}")
+    private double requestsPerSecond = 2.0;
+    
+    // 每个主机允许的突发请求数
+    @Value("${novelassistant.crawler.burst:4}")
+    private int burst = 4;
+    
+    // 每本小说同时进行中的章节请求数
+    @Value("${novelassistant.crawler.max-concurrent-requests:8}")
+    private int maxConcurrentRequests = 8;
+    
+    // 每个章节的最大尝试次数
+    @Value("${novelassistant.crawler.max-retries:3}")
+    private int maxRetries = 3;
+    
+    // 重试延迟基数（毫秒）
+    @Value("${novelassistant.crawler.retry-delay-ms:1500}")
+    private long retryDelayMs = 1500;
+    
+    // 请求超时（毫秒）
+    @Value("${novelassistant.crawler.timeout-ms:30000}")
+    private int timeoutMs = 30000;
+    
+    // 是否启用章节页面磁盘缓存
+    @Value("${novelassistant.crawler.cache.enabled:true}")
+    private boolean cacheEnabled = true;
+    
+    @Value("${novelassistant.crawler.cache.dir:data/chapter-cache}")
+    private String cacheDir = "data/chapter-cache";
+    
+    // 缓存文件的总字节数上限，超出后淘汰最久未访问的章节
+    @Value("${novelassistant.crawler.cache.max-bytes:536870912}")
+    private long cacheMaxBytes = 536870912L;
+    
+    private final Random random = new Random();
+    
+    private ChapterPageCache pageCache;
+    
+    // 缓存统计：条件请求返回304、完整下载
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong downloaded = new AtomicLong();
+    
+    // 限速器在所有导入之间共享，同一主机的总请求速率不超过配置值
+    private HostRateLimiter rateLimiter;
+    private ConcurrentChapterFetcher chapterFetcher;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        rateLimiter = new HostRateLimiter(requestsPerSecond, burst);
+        chapterFetcher = new ConcurrentChapterFetcher(crawlerExecutor, rateLimiter,
+                maxConcurrentRequests, maxRetries, retryDelayMs);
+        logger.info("章节爬取限速: 每个主机每秒 {} 个请求，突发 {} 个，并发 {} 个", requestsPerSecond, burst, maxConcurrentRequests);
+        if (cacheEnabled) {
+            pageCache = new ChapterPageCache(Paths.get(cacheDir), cacheMaxBytes);
+            logger.info("章节页面缓存目录: {}，上限 {} 字节", cacheDir, cacheMaxBytes);
+        }
+    }
+    
     @Override
     public Map<String, Object> crawlNovelFromUrl(String url, int maxChapters) {
+        Map<String, Object> result = crawlNovelInfo(url, maxChapters);
+        if (!Boolean.TRUE.equals(result.get("success"))) {
+            return result;
+        }
+        
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> chapters = (List<Map<String, String>>) result.get("chapters");
+        long startTime = System.currentTimeMillis();
+        try {
+            fetchChapters(chapters, 0, (index, chapter) -> logger.info("成功获取章节内容: {}", chapter.get("title")));
+            logger.info("章节内容抓取完成，共 {} 章，耗时 {} 秒", chapters.size(),
+                    (System.currentTimeMillis() - startTime) / 1000.0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("success", false);
+            result.put("error", "爬取小说被中断");
+        } catch (Exception e) {
+            logger.error("爬取章节内容失败: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", "爬取小说失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Object> crawlNovelInfo(String url, int maxChapters) {
         Map<String, Object> result = new HashMap<>();
         
         try {
+            // 目录页同样受主机限速
+            rateLimiter.acquire(hostOf(url));
+            
             // 获取网页内容
             Document document = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36")
-                    .timeout(30000)
+                    .userAgent(USER_AGENTS[0])
+                    .timeout(timeoutMs)
                     .get();
             
             // 解析小说标题和作者
@@ -87,7 +199,6 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
                 // 限制章节数量
                 int limit = (maxChapters > 0 && maxChapters < chapterElements.size()) ? maxChapters : chapterElements.size();
                 
-                Random random = new Random();
                 for (int i = 0; i < limit; i++) {
                     Element chapterElement = chapterElements.get(i);
                     Element linkElement = chapterElement.selectFirst("a");
@@ -95,8 +206,7 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
                     
                     // 提取章节编号
                     int chapterNumber = i + 1;
-                    Pattern pattern = Pattern.compile("第([\\d零一二三四五六七八九十百千万亿]+)章");
-                    Matcher matcher = pattern.matcher(chapterTitle);
+                    Matcher matcher = CHAPTER_NUMBER_PATTERN.matcher(chapterTitle);
                     if (matcher.find()) {
                         try {
                             String numStr = matcher.group(1);
@@ -125,28 +235,7 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
                     chapter.put("title", chapterTitle);
                     chapter.put("url", chapterUrl);
                     chapter.put("number", String.valueOf(chapterNumber));
-                    
-                    // 获取章节内容
-                    try {
-                        String chapterContent = fetchChapterContent(chapterUrl);
-                        chapter.put("content", chapterContent);
-                        logger.info("成功获取章节内容: {}", chapterTitle);
-                    } catch (Exception e) {
-                        logger.error("获取章节 {} 内容失败: {}", chapterTitle, e.getMessage());
-                        chapter.put("content", ""); // 设置空内容
-                    }
-                    
                     chapters.add(chapter);
-                    
-                    // 加入随机延迟，避免频繁请求
-                    try {
-                        // 延迟时间在1000-3000毫秒之间随机
-                        int delayTime = 1000 + random.nextInt(2000);
-                        logger.debug("章节爬取延迟: {}ms", delayTime);
-                        Thread.sleep(delayTime);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
                 }
             }
             
@@ -157,102 +246,117 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
             logger.error("爬取小说失败: {}", e.getMessage());
             result.put("success", false);
             result.put("error", "爬取小说失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("success", false);
+            result.put("error", "爬取小说被中断");
         }
         
         return result;
     }
     
+    @Override
+    public int fetchChapters(List<Map<String, String>> chapters, int startIndex, ChapterListener listener) throws Exception {
+        List<String> urls = new ArrayList<>(chapters.size());
+        for (Map<String, String> chapter : chapters) {
+            urls.add(chapter.getOrDefault("url", ""));
+        }
+        
+        return chapterFetcher.fetchInOrder(urls, startIndex, this::fetchChapterContent, (index, content) -> {
+            Map<String, String> chapter = chapters.get(index);
+            // 抓取失败时设置空内容
+            chapter.put("content", content != null ? content : "");
+            listener.onChapter(index, chapter);
+        });
+    }
+    
     /**
-     * 获取章节内容
+     * 获取章节内容（单次请求，重试和限速由抓取器负责）
+     * 启用页面缓存时带上缓存的ETag/Last-Modified发送条件请求，服务器返回304时沿用缓存内容
      * @param chapterUrl 章节URL
      * @return 章节内容
      * @throws IOException 如果获取失败
      */
     private String fetchChapterContent(String chapterUrl) throws IOException {
-        int maxRetries = 3; // 最大重试次数
-        int retryCount = 0;
-        int retryDelayMs = 1500; // 重试延迟，单位毫秒
+        ChapterPageCache.Entry cached = pageCache != null ? pageCache.get(chapterUrl) : null;
         
-        while (retryCount < maxRetries) {
-            try {
-                Document doc = Jsoup.connect(chapterUrl)
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36")
-                        .timeout(30000)
-                        .get();
-                
-                // 获取章节内容
-                Element contentElement = doc.selectFirst("div#chaptercontent");
+        // 每次请求随机选择User-Agent，减少被识别为爬虫的可能
+        Connection connection = Jsoup.connect(chapterUrl)
+                .userAgent(USER_AGENTS[random.nextInt(USER_AGENTS.length)])
+                .timeout(timeoutMs)
+                .ignoreHttpErrors(true);
+        if (cached != null && cached.getEtag() != null) {
+            connection.header("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            connection.header("If-Modified-Since", cached.getLastModified());
+        }
+        
+        Connection.Response response = connection.execute();
+        if (response.statusCode() == 304 && cached != null) {
+            // 内容未变化；校验信息有更新时才重写缓存文件
+            notModified.incrementAndGet();
+            String etag = headerOrDefault(response, "ETag", cached.getEtag());
+            String lastModified = headerOrDefault(response, "Last-Modified", cached.getLastModified());
+            if (!Objects.equals(etag, cached.getEtag()) || !Objects.equals(lastModified, cached.getLastModified())) {
+                storeInCache(chapterUrl, etag, lastModified, cached.getContent());
+            }
+            return cached.getContent();
+        }
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException("章节请求失败", response.statusCode(), chapterUrl);
+        }
+        
+        String content = extractChapterContent(response.parse());
+        downloaded.incrementAndGet();
+        storeInCache(chapterUrl, response.header("ETag"), response.header("Last-Modified"), content);
+        return content;
+    }
+    
+    /**
+     * 从章节页面中提取正文
+     */
+    private String extractChapterContent(Document doc) throws IOException {
+        // 获取章节内容
+        Element contentElement = doc.selectFirst("div#chaptercontent");
+        if (contentElement == null) {
+            // 尝试其他可能的选择器
+            contentElement = doc.selectFirst("div.content");
+            if (contentElement == null) {
+                contentElement = doc.selectFirst("div.Readarea");
                 if (contentElement == null) {
-                    // 尝试其他可能的选择器
-                    contentElement = doc.selectFirst("div.content");
+                    // 尝试使用class为ReadAjax_content的div
+                    contentElement = doc.selectFirst("div.ReadAjax_content");
                     if (contentElement == null) {
-                        contentElement = doc.selectFirst("div.Readarea");
-                        if (contentElement == null) {
-                            // 尝试使用class为ReadAjax_content的div
-                            contentElement = doc.selectFirst("div.ReadAjax_content");
-                            if (contentElement == null) {
-                                // 再尝试组合查询
-                                contentElement = doc.selectFirst("div#chaptercontent.Readarea.ReadAjax_content");
-                            }
-                        }
+                        // 再尝试组合查询
+                        contentElement = doc.selectFirst("div#chaptercontent.Readarea.ReadAjax_content");
                     }
                 }
-                
-                if (contentElement != null) {
-                    // 获取内容，保留段落格式
-                    String content = contentElement.html()
-                            .replaceAll("<br\\s*/*>", "\n") // 将<br>替换为换行符
-                            .replaceAll("<script[\\s\\S]*?</script>", "") // 移除脚本标签
-                            .replaceAll("<[^>]*>", ""); // 移除其他HTML标签
-                    
-                    // 清理内容
-                    content = content.trim()
-                            .replaceAll("\\s*\n\\s*", "\n\n") // 标准化换行
-                            .replaceAll("(\\n\\s*){3,}", "\n\n") // 删除过多的空行
-                            .replaceAll("请百度搜索.*", "") // 移除常见的推广文字
-                            .replaceAll("www\\..*\\.com", "") // 移除网站链接
-                            .replaceAll("笔趣.*", ""); // 移除笔趣阁相关文字
-                    
-                    logger.info("成功提取章节内容，长度: {}", content.length());
-                    return content;
-                }
-                
-                // 记录HTML内容以便调试
-                logger.error("未找到章节内容，HTML: {}", doc.html().substring(0, Math.min(500, doc.html().length())));
-                throw new IOException("未找到章节内容");
-                
-            } catch (IOException e) {
-                retryCount++;
-                if (retryCount >= maxRetries) {
-                    logger.error("获取章节内容失败，已重试{}次：{}", maxRetries, e.getMessage());
-                    throw e; // 重试次数用尽，抛出异常
-                }
-                
-                // 重试前增加延迟时间，并记录重试日志
-                logger.warn("获取章节内容失败，将进行第{}次重试，URL: {}, 错误: {}", 
-                        retryCount, chapterUrl, e.getMessage());
-                
-                try {
-                    // 每次重试增加更长的延迟时间
-                    Thread.sleep(retryDelayMs * retryCount);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("获取章节内容被中断", e);
-                }
-                
-                // 更换User-Agent，减少被识别为爬虫的可能
-                String[] userAgents = {
-                    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0.4664.110 Safari/537.36",
-                    "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.0 Safari/605.1.15",
-                    "Mozilla/5.0 (iPhone; CPU iPhone OS 15_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/15.0 Mobile/15E148 Safari/604.1"
-                };
-                // 随机选择一个User-Agent
-                int randomIndex = new Random().nextInt(userAgents.length);
-                logger.info("重试使用新的User-Agent: {}", userAgents[randomIndex]);
             }
         }
         
-        throw new IOException("获取章节内容失败，超过最大重试次数");
+        if (contentElement != null) {
+            // 获取内容，保留段落格式
+            String content = contentElement.html()
+                    .replaceAll("<br\\s*/*>", "\n") // 将<br>替换为换行符
+                    .replaceAll("<script[\\s\\S]*?</script>", "") // 移除脚本标签
+                    .replaceAll("<[^>]*>", ""); // 移除其他HTML标签
+            
+            // 清理内容
+            content = content.trim()
+                    .replaceAll("\\s*\n\\s*", "\n\n") // 标准化换行
+                    .replaceAll("(\\n\\s*){3,}", "\n\n") // 删除过多的空行
+                    .replaceAll("请百度搜索.*", "") // 移除常见的推广文字
+                    .replaceAll("www\\..*\\.com", "") // 移除网站链接
+                    .replaceAll("笔趣.*", ""); // 移除笔趣阁相关文字
+            
+            logger.debug("成功提取章节内容，长度: {}", content.length());
+            return content;
+        }
+        
+        // 记录HTML内容以便调试
+        logger.error("未找到章节内容，HTML: {}", doc.html().substring(0, Math.min(500, doc.html().length())));
+        throw new IOException("未找到章节内容");
     }
     
     @Override
@@ -278,6 +382,42 @@ public class NovelCrawlerServiceImpl implements NovelCrawlerService {
         }
     }
     
+    private void storeInCache(String url, String etag, String lastModified, String content) {
+        if (pageCache == null) {
+            return;
+        }
+        try {
+            pageCache.put(url, etag, lastModified, content);
+        } catch (IOException e) {
+            logger.warn("写入章节页面缓存失败: {}, {}", url, e.getMessage());
+        }
+    }
+    
+    private static String headerOrDefault(Connection.Response response, String name, String defaultValue) {
+        String value = response.header(name);
+        return value != null ? value : defaultValue;
+    }
+    
+    @Override
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", pageCache != null);
+        stats.put("notModified", notModified.get());
+        stats.put("downloaded", downloaded.get());
+        if (pageCache != null) {
+            stats.put("files", pageCache.getStats());
+        }
+        return stats;
+    }
+    
+    private static String hostOf(String url) {
+        try {
+            return new java.net.URL(url).getHost();
+        } catch (Exception e) {
+            return url;
+        }
+    }
+    
     /**
      * 获取URL的基础部分
      */
@@ -6,8 +6,10 @@ import com.novelassistant.entity.User;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.repository.UserRepository;
 import com.novelassistant.repository.SystemLogRepository;
+import com.novelassistant.security.services.UserPrincipalCache;
 import com.novelassistant.service.AdminService;
 import com.novelassistant.service.NovelService;
+import com.novelassistant.util.SegmentationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +45,12 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private NovelService novelService;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
+    @Autowired
+    private SegmentationCache segmentationCache;
+    
     @Override
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -281,7 +289,9 @@ public class AdminServiceImpl implements AdminService {
     public User updateUserStatus(Long id, boolean enabled) {
         User user = getUserById(id);
         user.setEnabled(enabled);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userPrincipalCache.invalidate(user.getUsername());
+        return saved;
     }
     
     @Override
@@ -289,6 +299,7 @@ public class AdminServiceImpl implements AdminService {
     public void deleteUser(Long id) {
         User user = getUserById(id);
         userRepository.delete(user);
+        userPrincipalCache.invalidate(user.getUsername());
     }
     
     /**
@@ -348,7 +359,11 @@ public class AdminServiceImpl implements AdminService {
                 }
             }
             
-            // 4. 尝试清理Hibernate二级缓存
+            // 4. 清理分词缓存
+            segmentationCache.clear();
+            cleanedItems.add("分词缓存");
+            
+            // 5. 尝试清理Hibernate二级缓存
             try {
                 // 获取EntityManagerFactory
                 org.springframework.web.context.WebApplicationContext ctx = 
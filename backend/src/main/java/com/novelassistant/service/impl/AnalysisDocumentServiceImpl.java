@@ -0,0 +1,463 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hankcs.hanlp.seg.common.Term;
+import com.novelassistant.entity.Chapter;
+import com.novelassistant.entity.NovelAnalysisDocument;
+import com.novelassistant.entity.visualization.EmotionalData;
+import com.novelassistant.model.AnalysisDocument;
+import com.novelassistant.repository.ChapterRepository;
+import com.novelassistant.repository.NovelAnalysisDocumentRepository;
+import com.novelassistant.repository.visualization.EmotionalDataRepository;
+import com.novelassistant.service.AnalysisDocumentService;
+import com.novelassistant.service.NlpService;
+import com.novelassistant.util.ContentHashUtil;
+import com.novelassistant.util.RelationshipAccumulator;
+import com.novelassistant.util.RequestContextHolder;
+import com.novelassistant.util.SegmentationCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 小说分析文档服务实现
+ * 分词经由SegmentationCache，与NlpService内部的全文分词共享同一份结果；
+ * 句子、段落、对话区间在一次字符扫描中得出，人名位置按分词游标计算
+ */
+@Service
+public class AnalysisDocumentServiceImpl implements AnalysisDocumentService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisDocumentServiceImpl.class);
+    
+    // 对话区间超过该长度视为引号不配对，丢弃
+    private static final int MAX_DIALOGUE_LENGTH = 1000;
+    
+    // 流式构建时保留的文本样本、章节摘要和对话的上限
+    private static final int MAX_SAMPLE_LENGTH = 100000;
+    private static final int MAX_SUMMARY_TEXT_LENGTH = 100000;
+    private static final int MAX_STREAMING_DIALOGUES = 20000;
+    
+    // 流式构建时每章参与累计的人物数和每个人物采样的句子数
+    private static final int CHARACTERS_PER_CHAPTER = 30;
+    private static final int SENTENCES_PER_CHARACTER = 15;
+    
+    @Autowired
+    private NlpService nlpService;
+    
+    @Autowired
+    private SegmentationCache segmentationCache;
+    
+    @Autowired
+    private NovelAnalysisDocumentRepository documentRepository;
+    
+    @Autowired
+    private ChapterRepository chapterRepository;
+    
+    @Autowired
+    private EmotionalDataRepository emotionalDataRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Override
+    public AnalysisDocument build(Long novelId, String fullContent, List<Chapter> chapters) {
+        // 标签刷新等不经过导入流程的调用没有小说上下文，补上后NLP分析才能使用该小说的人名词典
+        boolean setContext = novelId != null && RequestContextHolder.getCurrentNovelId() == null;
+        if (setContext) {
+            RequestContextHolder.setCurrentNovelId(novelId);
+        }
+        try {
+            return buildDocument(novelId, fullContent, chapters);
+        } finally {
+            if (setContext) {
+                RequestContextHolder.clearCurrentNovelId();
+            }
+        }
+    }
+    
+    private AnalysisDocument buildDocument(Long novelId, String fullContent, List<Chapter> chapters) {
+        long startTime = System.currentTimeMillis();
+        String content = fullContent != null ? fullContent : "";
+        
+        AnalysisDocument document = new AnalysisDocument();
+        document.setContentFingerprint(computeFingerprint(chapters));
+        document.setTextLength(content.length());
+        document.setChapterCount(chapters != null ? chapters.size() : 0);
+        document.setAverageChapterLength(chapters == null ? 0 : chapters.stream()
+                .filter(c -> c.getContent() != null)
+                .mapToInt(c -> c.getContent().length())
+                .average()
+                .orElse(0));
+        
+        // 分词结果进入缓存，下面的NLP调用直接复用
+        List<Term> terms = segmentationCache.segment(content);
+        document.setTerms(terms);
+        
+        scanStructure(content, document);
+        collectPersonMentions(content, terms, document);
+        
+        document.setKeywords(nlpService.extractKeywords(content, 20));
+        document.setCharacters(nlpService.extractCharacters(content));
+        
+        List<Map<String, String>> dialogues = nlpService.extractDialogues(content);
+        document.setDialogues(dialogues);
+        document.setDialogueCount(dialogues.size());
+        document.setRelationships(nlpService.analyzeCharacterRelationships(
+                nlpService.accumulateRelationships(content, dialogues, document.getCharacters())));
+        
+        document.setSentiment(nlpService.analyzeSentiment(content));
+        document.setChapterSentiments(collectChapterSentiments(novelId, chapters));
+        
+        logger.info("小说 {} 分析文档构建完成，文本长度: {}, 词项: {}, 句子: {}, 对话: {}, 耗时: {}ms",
+                novelId, content.length(), terms.size(), document.getSentenceEnds().length,
+                dialogues.size(), System.currentTimeMillis() - startTime);
+        return document;
+    }
+    
+    @Override
+    public StreamingBuilder newStreamingBuilder(Long novelId) {
+        return new StreamingDocumentBuilder(novelId);
+    }
+    
+    @Override
+    @Transactional
+    public AnalysisDocument getOrBuild(Long novelId) {
+        List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novelId);
+        String fingerprint = computeFingerprint(chapters);
+        
+        Optional<NovelAnalysisDocument> stored = documentRepository.findByNovelId(novelId);
+        if (stored.isPresent() && fingerprint.equals(stored.get().getContentFingerprint())) {
+            try {
+                AnalysisDocument document = objectMapper.readValue(stored.get().getDataJson(), AnalysisDocument.class);
+                // 早期保存的文档没有对话样本，重新构建一次
+                if (document.getDialogueCount() == 0 || !document.getDialogues().isEmpty()) {
+                    logger.debug("复用小说 {} 已保存的分析文档", novelId);
+                    return document;
+                }
+                logger.info("小说 {} 已保存的分析文档缺少对话样本，重新构建", novelId);
+            } catch (Exception e) {
+                logger.warn("读取小说 {} 的分析文档失败，重新构建: {}", novelId, e.getMessage());
+            }
+        }
+        
+        StringBuilder fullTextBuilder = new StringBuilder();
+        for (Chapter chapter : chapters) {
+            if (chapter.getContent() != null) {
+                fullTextBuilder.append(chapter.getContent()).append("\n");
+            }
+        }
+        
+        AnalysisDocument document = build(novelId, fullTextBuilder.toString(), chapters);
+        save(novelId, document);
+        return document;
+    }
+    
+    @Override
+    @Transactional
+    public void save(Long novelId, AnalysisDocument document) {
+        try {
+            NovelAnalysisDocument entity = documentRepository.findByNovelId(novelId)
+                    .orElseGet(() -> new NovelAnalysisDocument(novelId));
+            entity.setContentFingerprint(document.getContentFingerprint());
+            entity.setDataJson(objectMapper.writeValueAsString(document));
+            documentRepository.save(entity);
+        } catch (Exception e) {
+            // 保存失败不影响本次处理，下次获取时重新构建
+            logger.warn("保存小说 {} 的分析文档失败: {}", novelId, e.getMessage());
+        }
+    }
+    
+    @Override
+    @Transactional
+    public void invalidate(Long novelId) {
+        documentRepository.deleteByNovelId(novelId);
+    }
+    
+    @Override
+    public String computeFingerprint(List<Chapter> chapters) {
+        long hash = ContentHashUtil.initial();
+        int totalLength = 0;
+        if (chapters != null) {
+            for (Chapter chapter : chapters) {
+                hash = ContentHashUtil.update(hash, chapter.getContent());
+                totalLength += chapter.getContent() != null ? chapter.getContent().length() : 0;
+            }
+        }
+        int count = chapters != null ? chapters.size() : 0;
+        return count + ":" + totalLength + ":" + Long.toHexString(hash);
+    }
+    
+    /**
+     * 一次扫描得出句子、段落边界和对话区间
+     */
+    private void scanStructure(String text, AnalysisDocument document) {
+        List<Integer> sentenceEnds = new ArrayList<>();
+        List<Integer> paragraphEnds = new ArrayList<>();
+        List<int[]> dialogueSpans = new ArrayList<>();
+        
+        int dialogueStart = -1;
+        char closingQuote = 0;
+        
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            
+            switch (c) {
+                case '。': case '！': case '？': case '.': case '!': case '?':
+                    sentenceEnds.add(i);
+                    break;
+                case '\n':
+                    paragraphEnds.add(i);
+                    // 对话不跨段落，未闭合的引号在段落结束时丢弃
+                    dialogueStart = -1;
+                    break;
+                default:
+                    break;
+            }
+            
+            if (dialogueStart < 0) {
+                if (c == '“' || c == '「' || c == '"') {
+                    dialogueStart = i + 1;
+                    closingQuote = c == '“' ? '”' : (c == '「' ? '」' : '"');
+                }
+            } else if (c == closingQuote) {
+                if (i > dialogueStart && i - dialogueStart <= MAX_DIALOGUE_LENGTH) {
+                    dialogueSpans.add(new int[]{dialogueStart, i});
+                }
+                dialogueStart = -1;
+            }
+        }
+        
+        int last = sentenceEnds.isEmpty() ? -1 : sentenceEnds.get(sentenceEnds.size() - 1);
+        if (last < text.length() - 1) {
+            sentenceEnds.add(text.length());
+        }
+        int lastParagraph = paragraphEnds.isEmpty() ? -1 : paragraphEnds.get(paragraphEnds.size() - 1);
+        if (lastParagraph < text.length() - 1) {
+            paragraphEnds.add(text.length());
+        }
+        
+        document.setSentenceEnds(sentenceEnds.stream().mapToInt(Integer::intValue).toArray());
+        document.setParagraphEnds(paragraphEnds.stream().mapToInt(Integer::intValue).toArray());
+        document.setDialogueSpans(dialogueSpans);
+    }
+    
+    /**
+     * 按分词游标计算人名在全文中的出现位置
+     * HanLP默认不填充Term.offset，这里沿文本向前查找每个词的位置
+     */
+    private void collectPersonMentions(String text, List<Term> terms, AnalysisDocument document) {
+        Map<String, List<Integer>> mentions = new LinkedHashMap<>();
+        int cursor = 0;
+        
+        for (Term term : terms) {
+            int offset = text.indexOf(term.word, cursor);
+            if (offset < 0) {
+                continue;
+            }
+            cursor = offset + term.word.length();
+            
+            if (term.nature != null && term.nature.toString().startsWith("nr") && term.word.length() >= 2) {
+                mentions.computeIfAbsent(term.word, k -> new ArrayList<>()).add(offset);
+            }
+        }
+        
+        Map<String, int[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : mentions.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        document.setPersonMentions(result);
+    }
+    
+    /**
+     * 收集各章节情感值，优先使用处理章节时已保存的情感数据
+     */
+    private List<Double> collectChapterSentiments(Long novelId, List<Chapter> chapters) {
+        Map<Integer, Double> savedValues = new HashMap<>();
+        if (novelId != null) {
+            for (EmotionalData data : emotionalDataRepository.findByNovelIdOrderByChapterNumberAsc(novelId)) {
+                if (data.getChapterNumber() != null && data.getEmotionValue() != null) {
+                    // 情感数据以0-100保存
+                    savedValues.put(data.getChapterNumber(), data.getEmotionValue() / 100.0);
+                }
+            }
+        }
+        
+        List<Double> sentiments = new ArrayList<>();
+        if (chapters == null) {
+            return sentiments;
+        }
+        for (Chapter chapter : chapters) {
+            if (chapter.getContent() == null || chapter.getContent().isEmpty()) {
+                continue;
+            }
+            Double saved = savedValues.get(chapter.getChapterNumber());
+            sentiments.add(saved != null ? saved : nlpService.analyzeSentiment(chapter.getContent()));
+        }
+        return sentiments;
+    }
+    
+    /**
+     * 流式构建器实现，只保留有上限的累计结果
+     */
+    private class StreamingDocumentBuilder implements StreamingBuilder {
+        private final Long novelId;
+        private final long startTime = System.currentTimeMillis();
+        private final Map<String, Integer> keywordWeights = new HashMap<>();
+        private final Map<String, Integer> characterCounts = new HashMap<>();
+        private final Map<String, List<String>> characterSentences = new HashMap<>();
+        private final List<Map<String, String>> dialogues = new ArrayList<>();
+        private final RelationshipAccumulator relationships = new RelationshipAccumulator();
+        private final List<Double> chapterSentiments = new ArrayList<>();
+        private final StringBuilder sampleText = new StringBuilder();
+        private final StringBuilder summaryText = new StringBuilder();
+        private long fingerprintHash = ContentHashUtil.initial();
+        private int chapterCount = 0;
+        private long totalLength = 0;
+        private int dialogueCount = 0;
+        private double weightedSentiment = 0;
+        
+        StreamingDocumentBuilder(Long novelId) {
+            this.novelId = novelId;
+        }
+        
+        @Override
+        public void addChapter(String content, Map<String, Integer> keywords, List<String> characters,
+                               List<Map<String, String>> chapterDialogues, RelationshipAccumulator chapterRelationships,
+                               double sentiment, String summary) {
+            String text = content != null ? content : "";
+            chapterCount++;
+            totalLength += text.length();
+            fingerprintHash = ContentHashUtil.update(fingerprintHash, content);
+            
+            if (keywords != null) {
+                keywords.forEach((word, weight) -> keywordWeights.merge(word, weight, Integer::sum));
+            }
+            
+            if (!text.isEmpty()) {
+                chapterSentiments.add(sentiment);
+                weightedSentiment += sentiment * text.length();
+            }
+            
+            if (characters != null) {
+                accumulateCharacters(text, characters);
+            }
+            
+            if (chapterDialogues != null) {
+                dialogueCount += chapterDialogues.size();
+                for (Map<String, String> dialogue : chapterDialogues) {
+                    if (dialogues.size() >= MAX_STREAMING_DIALOGUES) {
+                        break;
+                    }
+                    dialogues.add(dialogue);
+                }
+            }
+            
+            // 各章的关系统计在章节任务中并行得出，这里只做合并，不受对话数量上限影响
+            relationships.merge(chapterRelationships);
+            
+            appendLimited(sampleText, text, MAX_SAMPLE_LENGTH);
+            if (summary != null && !summary.isEmpty()) {
+                appendLimited(summaryText, summary + "\n", MAX_SUMMARY_TEXT_LENGTH);
+            }
+        }
+        
+        @Override
+        public String getSampleText() {
+            return sampleText.toString();
+        }
+        
+        @Override
+        public String getSummaryText() {
+            return summaryText.toString();
+        }
+        
+        @Override
+        public AnalysisDocument finish() {
+            AnalysisDocument document = new AnalysisDocument();
+            document.setContentFingerprint(chapterCount + ":" + totalLength + ":" + Long.toHexString(fingerprintHash));
+            document.setTextLength((int) Math.min(Integer.MAX_VALUE, totalLength));
+            document.setChapterCount(chapterCount);
+            document.setAverageChapterLength(chapterCount > 0 ? (double) totalLength / chapterCount : 0);
+            
+            Map<String, Integer> keywords = new LinkedHashMap<>();
+            keywordWeights.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(20)
+                    .forEach(entry -> keywords.put(entry.getKey(), entry.getValue()));
+            document.setKeywords(keywords);
+            
+            List<String> characters = characterCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            if (characters.isEmpty()) {
+                characters.add("主角");
+                characters.add("配角");
+            }
+            document.setCharacters(characters);
+            document.setCharacterSentences(characterSentences);
+            
+            document.setDialogues(dialogues);
+            document.setDialogueCount(dialogueCount);
+            document.setRelationships(nlpService.analyzeCharacterRelationships(relationships));
+            
+            document.setSentiment(totalLength > 0 ? weightedSentiment / totalLength : 0.5);
+            document.setChapterSentiments(chapterSentiments);
+            
+            logger.info("小说 {} 分析文档流式构建完成，章节: {}, 文本长度: {}, 对话: {}, 耗时: {}ms",
+                    novelId, chapterCount, totalLength, dialogueCount, System.currentTimeMillis() - startTime);
+            return document;
+        }
+        
+        /**
+         * 按章节内出现次数累计人物，并为每个人物采样少量句子
+         */
+        private void accumulateCharacters(String text, List<String> characters) {
+            List<String> sentences = null;
+            int limit = Math.min(CHARACTERS_PER_CHAPTER, characters.size());
+            
+            for (int i = 0; i < limit; i++) {
+                String name = characters.get(i);
+                // 章节内没有识别出人物时会返回默认角色，不参与累计
+                if (name == null || name.isEmpty() || "主角".equals(name) || "配角".equals(name)) {
+                    continue;
+                }
+                
+                int occurrences = 0;
+                int index = text.indexOf(name);
+                while (index >= 0) {
+                    occurrences++;
+                    index = text.indexOf(name, index + name.length());
+                }
+                characterCounts.merge(name, Math.max(1, occurrences), Integer::sum);
+                
+                List<String> sampled = characterSentences.computeIfAbsent(name, k -> new ArrayList<>());
+                if (sampled.size() < SENTENCES_PER_CHARACTER && occurrences > 0) {
+                    if (sentences == null) {
+                        sentences = Arrays.asList(text.split("[。！？.!?]"));
+                    }
+                    for (String sentence : sentences) {
+                        if (sampled.size() >= SENTENCES_PER_CHARACTER) {
+                            break;
+                        }
+                        if (sentence.contains(name)) {
+                            sampled.add(sentence);
+                        }
+                    }
+                }
+            }
+        }
+        
+        private void appendLimited(StringBuilder target, String text, int maxLength) {
+            int remaining = maxLength - target.length();
+            if (remaining > 0) {
+                target.append(text, 0, Math.min(remaining, text.length()));
+            }
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.novelassistant.service.impl;
 import com.novelassistant.entity.Chapter;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.entity.NovelCharacter;
+import com.novelassistant.model.AnalysisDocument;
 import com.novelassistant.repository.ChapterRepository;
 import com.novelassistant.repository.NovelRepository;
+import com.novelassistant.service.AnalysisDocumentService;
 import com.novelassistant.service.AnalyzationService;
+import com.novelassistant.service.ChapterEmbeddingService;
 import com.novelassistant.service.MachineLearningService;
 import com.novelassistant.service.NlpService;
 import org.slf4j.Logger;
@@ -38,6 +41,12 @@ public class AnalyzationServiceImpl implements AnalyzationService {
     @Autowired
     private MachineLearningService mlService;
     
+    @Autowired
+    private AnalysisDocumentService analysisDocumentService;
+    
+    @Autowired
+    private ChapterEmbeddingService chapterEmbeddingService;
+    
     @Override
     public Map<String, Object> analyzeNovel(Long novelId) {
         Map<String, Object> result = new HashMap<>();
@@ -65,7 +74,7 @@ public class AnalyzationServiceImpl implements AnalyzationService {
             result.put("chapterCount", chapters.size());
             
             // NLP分析
-            performNlpAnalysis(result, fullContent, chapters);
+            performNlpAnalysis(result, novelId, fullContent);
             
             // 机器学习增强分析
             enhanceWithMachineLearning(result, fullContent, chapters);
@@ -80,31 +89,25 @@ public class AnalyzationServiceImpl implements AnalyzationService {
     
     /**
      * 执行基础NLP分析
+     * 关键词、人物、情感、对话和关系取自小说的分析文档，章节未变化时不重新运行NLP
      */
-    private void performNlpAnalysis(Map<String, Object> result, String fullContent, List<Chapter> chapters) {
-        // 生成摘要
-        String summary = nlpService.generateSummary(fullContent, 500);
-        result.put("summary", summary);
-        
-        // 提取关键词
-        Map<String, Integer> keywords = nlpService.extractKeywords(fullContent, 20);
-        result.put("keywords", keywords);
-        
-        // 提取人物
-        List<String> characters = nlpService.extractCharacters(fullContent);
-        result.put("characters", characters);
+    private void performNlpAnalysis(Map<String, Object> result, Long novelId, String fullContent) {
+        AnalysisDocument analysis = analysisDocumentService.getOrBuild(novelId);
         
-        // 分析情感
-        double sentiment = nlpService.analyzeSentiment(fullContent);
-        result.put("sentiment", sentiment);
-        
-        // 提取对话
-        List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-        result.put("dialogueCount", dialogues.size());
+        // 生成摘要，结果写回分析文档
+        String summary = analysis.getSummary();
+        if (summary == null || summary.isEmpty()) {
+            summary = nlpService.generateSummary(fullContent, 500);
+            analysis.setSummary(summary);
+            analysisDocumentService.save(novelId, analysis);
+        }
+        result.put("summary", summary);
         
-        // 分析人物关系
-        List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
-        result.put("characterRelationships", relationships);
+        result.put("keywords", analysis.getKeywords());
+        result.put("characters", analysis.getCharacters());
+        result.put("sentiment", analysis.getSentiment());
+        result.put("dialogueCount", analysis.getDialogueCount());
+        result.put("characterRelationships", analysis.getRelationships());
     }
     
     /**
@@ -146,8 +149,12 @@ public class AnalyzationServiceImpl implements AnalyzationService {
         result.put("genreClassification", genreClassification);
         
         // 章节聚类分析
+        // 优先使用缓存的章节文档向量，避免重复分词
         if (chapterContents.size() > 5) {
-            Map<Integer, List<Integer>> chapterClusters = mlService.clusterTexts(chapterContents, 3);
+            float[][] embeddings = chapterEmbeddingService.getEmbeddings(chapters);
+            Map<Integer, List<Integer>> chapterClusters = embeddings != null
+                    ? mlService.clusterVectors(embeddings, 3)
+                    : mlService.clusterTexts(chapterContents, 3);
             result.put("chapterClusters", chapterClusters);
         }
     }
@@ -220,15 +227,27 @@ public class AnalyzationServiceImpl implements AnalyzationService {
                     .map(Chapter::getContent)
                     .collect(Collectors.toList());
             
-            // 计算章节间相似度矩阵
+            // 计算章节间相似度矩阵：每个章节的文档向量只计算一次（按章节缓存），两两比较只做点积
             List<List<Double>> similarityMatrix = new ArrayList<>();
-            for (String content1 : contents) {
-                List<Double> similarities = new ArrayList<>();
-                for (String content2 : contents) {
-                    double similarity = mlService.calculateTextSimilarity(content1, content2);
-                    similarities.add(similarity);
+            double[][] embeddingMatrix = chapterEmbeddingService.similarityMatrix(chapters);
+            if (embeddingMatrix != null) {
+                for (double[] row : embeddingMatrix) {
+                    List<Double> similarities = new ArrayList<>(row.length);
+                    for (double similarity : row) {
+                        similarities.add(similarity);
+                    }
+                    similarityMatrix.add(similarities);
+                }
+            } else {
+                // 没有可用的词向量模型时，回退到逐对计算文本相似度
+                for (String content1 : contents) {
+                    List<Double> similarities = new ArrayList<>();
+                    for (String content2 : contents) {
+                        double similarity = mlService.calculateTextSimilarity(content1, content2);
+                        similarities.add(similarity);
+                    }
+                    similarityMatrix.add(similarities);
                 }
-                similarityMatrix.add(similarities);
             }
             result.put("similarityMatrix", similarityMatrix);
             
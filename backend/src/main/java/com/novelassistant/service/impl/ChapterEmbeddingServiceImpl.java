@@ -0,0 +1,120 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.entity.Chapter;
+import com.novelassistant.service.ChapterEmbeddingService;
+import com.novelassistant.service.MachineLearningService;
+import com.novelassistant.util.ContentHashUtil;
+import com.novelassistant.util.VectorMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 章节文档向量服务实现
+ * 向量按章节ID缓存在LRU中，缓存项记录章节内容键，内容变化时重新计算
+ */
+@Service
+public class ChapterEmbeddingServiceImpl implements ChapterEmbeddingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChapterEmbeddingServiceImpl.class);
+
+    @Autowired
+    private MachineLearningService mlService;
+
+    // 缓存的章节向量数上限
+    @Value("${novelassistant.ml.chapter-embedding-cache.max-entries:20000}")
+    private int maxEntries = 20000;
+
+    private final Map<Long, CachedEmbedding> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedEmbedding> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @Override
+    public float[] getEmbedding(Chapter chapter) {
+        String content = chapter.getContent();
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+
+        String contentKey = ContentHashUtil.contentKey(content);
+        Long chapterId = chapter.getId();
+        if (chapterId != null) {
+            synchronized (cache) {
+                CachedEmbedding cached = cache.get(chapterId);
+                if (cached != null && cached.contentKey.equals(contentKey)) {
+                    return cached.vector;
+                }
+            }
+        }
+
+        // 分词和池化在锁外进行
+        float[] vector = mlService.embedText(content);
+        if (vector != null && chapterId != null) {
+            synchronized (cache) {
+                cache.put(chapterId, new CachedEmbedding(contentKey, vector));
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public float[][] getEmbeddings(List<Chapter> chapters) {
+        int n = chapters.size();
+        float[][] vectors = new float[n][];
+        for (int i = 0; i < n; i++) {
+            vectors[i] = getEmbedding(chapters.get(i));
+            if (vectors[i] == null) {
+                logger.debug("章节 {} 无法计算文档向量", chapters.get(i).getId());
+                return null;
+            }
+        }
+        return vectors;
+    }
+
+    @Override
+    public double[][] similarityMatrix(List<Chapter> chapters) {
+        float[][] vectors = getEmbeddings(chapters);
+        if (vectors == null) {
+            return null;
+        }
+        int n = vectors.length;
+
+        // 向量已归一化，余弦相似度即点积
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            matrix[i][i] = 1.0;
+            for (int j = i + 1; j < n; j++) {
+                double similarity = Math.max(0.0, VectorMath.dot(vectors[i], vectors[j]));
+                matrix[i][j] = similarity;
+                matrix[j][i] = similarity;
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public void invalidate(Long chapterId) {
+        synchronized (cache) {
+            cache.remove(chapterId);
+        }
+    }
+
+    private static class CachedEmbedding {
+        private final String contentKey;
+        private final float[] vector;
+
+        CachedEmbedding(String contentKey, float[] vector) {
+            this.contentKey = contentKey;
+            this.vector = vector;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.entity.Chapter;
+import com.novelassistant.entity.Novel;
+import com.novelassistant.repository.ChapterRepository;
+import com.novelassistant.repository.NovelRepository;
+import com.novelassistant.service.ChapterEmbeddingService;
+import com.novelassistant.service.ChapterIndexService;
+import com.novelassistant.util.IvfVectorIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 章节向量索引服务实现
+ * 使用IVF倒排索引（int8量化）保存章节向量；章节数达到训练阈值后训练聚类中心，
+ * 之后章节数每增长到上次训练时的若干倍重新训练一次；训练在采样的快照上进行，不持有锁，完成后在写锁内换上新的中心。
+ * 索引在首次使用时从磁盘加载，有修改时定时写回（先写临时文件再原子替换）
+ */
+@Service
+public class ChapterIndexServiceImpl implements ChapterIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChapterIndexServiceImpl.class);
+
+    // 章节数增长到上次训练时的该倍数后重新训练
+    private static final int RETRAIN_GROWTH_FACTOR = 4;
+
+    private static final int MIN_LISTS = 16;
+    private static final int MAX_LISTS = 4096;
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private NovelRepository novelRepository;
+
+    @Autowired
+    private ChapterEmbeddingService chapterEmbeddingService;
+
+    // 索引文件路径
+    @Value("${novelassistant.ml.chapter-index.path:data/chapter-index.bin}")
+    private String indexPath = "data/chapter-index.bin";
+
+    // 查询时扫描的倒排列表数
+    @Value("${novelassistant.ml.chapter-index.nprobe:16}")
+    private int nprobe = 16;
+
+    // 开始训练聚类中心的最少章节数，之前所有向量在同一个列表中顺序扫描
+    @Value("${novelassistant.ml.chapter-index.min-train-size:2000}")
+    private int minTrainSize = 2000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IvfVectorIndex index;
+    private boolean loaded;
+    private volatile boolean dirty;
+
+    // 正在训练聚类中心，同一时间只训练一次
+    private final AtomicBoolean training = new AtomicBoolean();
+
+    @Override
+    public int indexNovel(Long novelId) {
+        List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novelId);
+        if (chapters.isEmpty()) {
+            return 0;
+        }
+
+        // 向量在锁外计算
+        List<Long> ids = new ArrayList<>(chapters.size());
+        List<float[]> vectors = new ArrayList<>(chapters.size());
+        for (Chapter chapter : chapters) {
+            float[] vector = chapterEmbeddingService.getEmbedding(chapter);
+            if (vector != null) {
+                ids.add(chapter.getId());
+                vectors.add(vector);
+            }
+        }
+        if (vectors.isEmpty()) {
+            logger.debug("小说 {} 没有可计算文档向量的章节，跳过索引", novelId);
+            return 0;
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureLoaded();
+            int dimension = vectors.get(0).length;
+            if (index == null || index.dimension() != dimension) {
+                if (index != null) {
+                    logger.warn("章节向量维度由 {} 变为 {}，重建章节索引", index.dimension(), dimension);
+                }
+                index = new IvfVectorIndex(dimension);
+            }
+            index.removeGroup(novelId);
+            for (int i = 0; i < ids.size(); i++) {
+                index.add(ids.get(i), novelId, vectors.get(i));
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        retrainIfNeeded();
+
+        logger.info("小说 {} 的 {} 个章节已写入章节向量索引", novelId, ids.size());
+        return ids.size();
+    }
+
+    @Override
+    public void removeNovel(Long novelId) {
+        lock.writeLock().lock();
+        try {
+            ensureLoaded();
+            if (index != null && index.removeGroup(novelId) > 0) {
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> findSimilarChapters(Long chapterId, int limit, Set<Long> novelIds) {
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<IvfVectorIndex.Hit> hits;
+
+        lock.readLock().lock();
+        try {
+            if (!loaded) {
+                // 加载需要写锁
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    ensureLoaded();
+                } finally {
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+            if (index == null) {
+                return Collections.emptyList();
+            }
+
+            float[] query = index.getVector(chapterId);
+            if (query == null) {
+                query = embedChapter(chapterId);
+            }
+            if (query == null || query.length != index.dimension()) {
+                return Collections.emptyList();
+            }
+            hits = index.search(query, k, nprobe, novelIds == null ? null : novelIds::contains, chapterId);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return toResults(hits);
+    }
+
+    @Override
+    public Map<String, Object> getIndexStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("path", indexPath);
+            stats.put("loaded", loaded);
+            stats.put("chapters", index == null ? 0 : index.size());
+            stats.put("dimension", index == null ? 0 : index.dimension());
+            stats.put("lists", index == null ? 0 : index.listCount());
+            stats.put("trainedSize", index == null ? 0 : index.getTrainedSize());
+            stats.put("dirty", dirty);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    /**
+     * 定时将修改写回磁盘
+     */
+    @Scheduled(fixedDelayString = "${novelassistant.ml.chapter-index.flush-interval-ms:60000}")
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        // 写文件期间只需要读锁，查询不受影响
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return;
+            }
+            dirty = false;
+            save(index);
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("保存章节向量索引失败: {}", e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 在持有写锁时调用
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path path = Paths.get(indexPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            index = IvfVectorIndex.readFrom(input);
+            logger.info("章节向量索引加载完成: {} 个章节，{} 个倒排列表，耗时 {} ms",
+                    index.size(), index.listCount(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            logger.error("加载章节向量索引失败，将重新建立: {}", e.getMessage(), e);
+            index = null;
+        }
+    }
+
+    private void save(IvfVectorIndex snapshot) throws IOException {
+        Path path = Paths.get(indexPath).toAbsolutePath();
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = Files.createTempFile(parent, "chapter-index", ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                snapshot.writeTo(output);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("章节向量索引已保存: {} 个章节", snapshot.size());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 章节数达到条件时重新训练聚类中心
+     * 在读锁内采样，k-means在锁外运行，查询不受影响；只在换上新中心、重新分配向量时持有写锁
+     */
+    private void retrainIfNeeded() {
+        if (!training.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            IvfVectorIndex target;
+            int size;
+            int nlist;
+            float[][] sample;
+            lock.readLock().lock();
+            try {
+                target = index;
+                if (target == null) {
+                    return;
+                }
+                size = target.size();
+                int trainedSize = target.getTrainedSize();
+                if (size < minTrainSize || (trainedSize > 0 && size < (long) trainedSize * RETRAIN_GROWTH_FACTOR)) {
+                    return;
+                }
+                nlist = Math.max(MIN_LISTS, Math.min(MAX_LISTS, (int) Math.sqrt(size)));
+                sample = target.sample(nlist, size);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            long startTime = System.currentTimeMillis();
+            float[][] centroids = IvfVectorIndex.trainCentroids(sample, nlist, size);
+
+            lock.writeLock().lock();
+            try {
+                if (index != target) {
+                    // 训练期间索引被重建
+                    return;
+                }
+                index.assign(centroids);
+                dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("章节向量索引训练完成: {} 个章节，{} 个倒排列表，耗时 {} ms",
+                    size, centroids.length, System.currentTimeMillis() - startTime);
+        } finally {
+            training.set(false);
+        }
+    }
+
+    /**
+     * 查询章节不在索引中时（例如尚未完成导入）现场计算向量
+     */
+    private float[] embedChapter(Long chapterId) {
+        return chapterRepository.findById(chapterId)
+                .map(chapterEmbeddingService::getEmbedding)
+                .orElse(null);
+    }
+
+    private List<Map<String, Object>> toResults(List<IvfVectorIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> chapterIds = hits.stream().map(IvfVectorIndex.Hit::getId).collect(Collectors.toList());
+        Map<Long, Object[]> headers = new HashMap<>();
+        for (Object[] row : chapterRepository.findHeadersByIdIn(chapterIds)) {
+            headers.put((Long) row[0], row);
+        }
+        Set<Long> novelIds = hits.stream().map(IvfVectorIndex.Hit::getGroup).collect(Collectors.toSet());
+        Map<Long, String> novelTitles = new HashMap<>();
+        for (Novel novel : novelRepository.findAllById(novelIds)) {
+            if (!Boolean.TRUE.equals(novel.getIsDeleted())) {
+                novelTitles.put(novel.getId(), novel.getTitle());
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(hits.size());
+        for (IvfVectorIndex.Hit hit : hits) {
+            Object[] header = headers.get(hit.getId());
+            if (header == null || !novelTitles.containsKey(hit.getGroup())) {
+                // 章节或小说已被删除
+                continue;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("chapterId", hit.getId());
+            result.put("novelId", header[1]);
+            result.put("novelTitle", novelTitles.get(hit.getGroup()));
+            result.put("chapterNumber", header[2]);
+            result.put("title", header[3]);
+            result.put("similarity", Math.max(0.0, hit.getScore()));
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -7,7 +7,13 @@ import com.novelassistant.entity.Chapter;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.service.MachineLearningService;
 import com.novelassistant.service.NlpService;
+import com.novelassistant.util.ContentHashUtil;
+import com.novelassistant.util.KMeans;
+import com.novelassistant.util.MappedWordVectors;
 import com.novelassistant.util.RequestContextHolder;
+import com.novelassistant.util.SegmentationCache;
+import com.novelassistant.util.VectorMath;
+import com.novelassistant.util.WordVectorConverter;
 import lombok.RequiredArgsConstructor;
 import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
 import org.deeplearning4j.models.word2vec.Word2Vec;
@@ -17,21 +23,20 @@ import org.deeplearning4j.text.sentenceiterator.SentenceIterator;
 import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
-import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.ops.transforms.Transforms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Primary;
 
-import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +51,12 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
     private static final String MODEL_PATH = "models/sgns.zhihu.word";
     private static final int DEFAULT_VECTOR_SIZE = 100;
     
+    // 没有词向量模型时聚类使用的哈希特征维度
+    private static final int HASHED_FEATURE_DIMENSION = 256;
+    // 超过该数量的向量聚类时使用mini-batch
+    private static final int MINI_BATCH_THRESHOLD = 5000;
+    private static final int MINI_BATCH_SIZE = 1024;
+    
     @Autowired
     @Lazy
     private NlpService nlpService;
@@ -53,110 +64,74 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
     @Autowired
     private NovelRepository novelRepository;
     
-    private Word2Vec word2Vec;
+    @Autowired
+    private SegmentationCache segmentationCache;
+    
+    // 运行时训练得到的模型，优先于预训练词向量使用
+    private volatile Word2Vec word2Vec;
+    
+    // 预训练词向量，首次使用时才加载
+    private volatile MappedWordVectors wordVectors;
+    private volatile boolean wordVectorsLoaded = false;
+    private final AtomicBoolean wordVectorsLoading = new AtomicBoolean(false);
+    
+    // 二进制词向量文件（由WordVectorConverter生成），以只读方式内存映射
+    @Value("${novelassistant.ml.word-vectors.binary-path:models/word-vectors.bin}")
+    private String wordVectorsBinaryPath = "models/word-vectors.bin";
+    
+    // 文本格式的预训练词向量，二进制文件不存在时转换一次
+    @Value("${novelassistant.ml.word-vectors.text-path:E:/Novel_Wonderful generation/novel-assistant/backend/src/main/resources/models/45000-small.txt}")
+    private String wordVectorsTextPath = "E:/Novel_Wonderful generation/novel-assistant/backend/src/main/resources/models/45000-small.txt";
     
     /**
-     * 初始化词向量模型
-     * 如果存在预训练模型则加载，否则使用默认词向量
+     * 获取预训练词向量，首次调用时加载
+     * 二进制文件存在时直接内存映射（只读取文件头，几乎不耗时）；
+     * 否则如果存在文本格式的词向量文件，先转换为二进制格式再映射；都不存在时返回null，使用基础分析方法。
+     * 只有第一个调用的线程加载，加载和格式转换不持有任何锁，完成后再替换进来；
+     * 加载期间其他线程得到null，按未加载词向量处理，不等待转换
      */
-    private void initWordVectors() {
+    private MappedWordVectors getWordVectors() {
+        if (wordVectorsLoaded) {
+            return wordVectors;
+        }
+        if (!wordVectorsLoading.compareAndSet(false, true)) {
+            return null;
+        }
+        MappedWordVectors loaded = loadWordVectors();
+        wordVectors = loaded;
+        wordVectorsLoaded = true;
+        return loaded;
+    }
+    
+    private MappedWordVectors loadWordVectors() {
         try {
-            // 使用绝对路径加载模型文件
-            File modelFile = new File("E:/Novel_Wonderful generation/novel-assistant/backend/src/main/resources/models/45000-small.txt");
-            
-            if (modelFile.exists()) {
-                logger.info("加载预训练词向量模型: {}", modelFile.getAbsolutePath());
-                logger.info("模型加载中，请耐心等待...");
-                
-                // 显示加载进度条
-                Thread progressThread = new Thread(() -> {
-                    String[] progressChars = {"|", "/", "-", "\\"};
-                    int counter = 0;
-                    while (!Thread.currentThread().isInterrupted()) {
-                        System.out.print("\r加载词向量模型中 " + progressChars[counter % 4] + " ");
-                        counter++;
-                        try {
-                            Thread.sleep(200);
-                        } catch (InterruptedException e) {
-                            break;
-                        }
-                    }
-                    System.out.println("\r加载词向量模型完成!                ");
-                });
-                
-                progressThread.setDaemon(true);
-                progressThread.start();
-                
-                try {
-                    long startTime = System.currentTimeMillis();
-                    
-                    // 尝试多种方式加载模型文件
-                    try {
-                        // 方法1: 使用标准Text格式加载
-                        logger.info("尝试使用Text格式加载词向量...");
-                        word2Vec = WordVectorSerializer.readWord2Vec(modelFile);
-                    } catch (Exception e1) {
-                        logger.warn("使用Text格式加载失败: {}", e1.getMessage());
-                        
-                try {
-                            // 方法2: 使用Word2Vec专用格式加载
-                            logger.info("尝试使用Word2Vec专用格式加载...");
-                            word2Vec = WordVectorSerializer.readWord2VecModel(modelFile, false);
-                        } catch (Exception e2) {
-                            logger.warn("使用Word2Vec专用格式加载失败: {}", e2.getMessage());
-                            
-                            try {
-                                // 方法3: 使用二进制格式加载
-                                logger.info("尝试使用二进制格式加载...");
-                                word2Vec = WordVectorSerializer.readBinaryModel(modelFile, true, true);
-                            } catch (Exception e3) {
-                                // 所有加载方法都失败，抛出异常
-                                logger.error("所有尝试的加载方法都失败");
-                                throw new RuntimeException("无法加载词向量模型，所有尝试方法均失败", e3);
-                            }
-                        }
-                    }
-                    
-                    long endTime = System.currentTimeMillis();
-                    
-                    // 停止进度条线程
-                    progressThread.interrupt();
-                    
-                    logger.info("词向量模型加载成功，词汇表大小: {}", word2Vec.getVocab().numWords());
-                    logger.info("模型加载耗时: {} 秒", (endTime - startTime) / 1000.0);
-                } catch (Exception e) {
-                    // 停止进度条线程
-                    progressThread.interrupt();
-                    logger.error("加载词向量模型失败", e);
-                    logger.info("未找到预训练模型，将使用基础分析方法");
-                }
-            } else {
-                logger.info("未找到预训练模型文件: {}，将使用基础分析方法", modelFile.getAbsolutePath());
-                
-                // 如果需要，可以创建models目录
-                try {
-                // 创建一个临时目录确保路径存在
-                    File tempDir = new File("models");
-                    if (!tempDir.exists()) {
-                        tempDir.mkdirs();
-                        logger.info("创建了models目录，用于将来保存模型");
-                    }
-                } catch (Exception ex) {
-                    logger.warn("无法创建models目录: {}", ex.getMessage());
+            Path binaryFile = Paths.get(wordVectorsBinaryPath);
+            if (!Files.exists(binaryFile)) {
+                Path textFile = Paths.get(wordVectorsTextPath);
+                if (!Files.exists(textFile)) {
+                    logger.info("未找到预训练词向量文件: {}，将使用基础分析方法", binaryFile.toAbsolutePath());
+                    return null;
                 }
+                logger.info("将文本词向量 {} 转换为二进制格式: {}", textFile, binaryFile.toAbsolutePath());
+                WordVectorConverter.convert(textFile, binaryFile);
             }
+            
+            long startTime = System.currentTimeMillis();
+            MappedWordVectors vectors = MappedWordVectors.open(binaryFile);
+            logger.info("词向量映射成功: {}，词汇表大小: {}，维度: {}，耗时: {}ms", binaryFile.toAbsolutePath(),
+                    vectors.size(), vectors.dimension(), System.currentTimeMillis() - startTime);
+            return vectors;
         } catch (Exception e) {
-            logger.error("检查词向量模型时出错", e);
-            logger.info("未找到预训练模型，将使用基础分析方法");
+            logger.error("加载词向量失败，将使用基础分析方法", e);
+            return null;
         }
     }
     
     /**
      * 构造函数
+     * 词向量在首次使用时才加载，不阻塞应用启动
      */
     public Dl4jMachineLearningServiceImpl() {
-        // 初始化词向量模型
-        initWordVectors();
     }
     
     /**
@@ -215,13 +190,14 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
         }
         
         try {
-            if (word2Vec != null) {
-                // 使用词向量计算两个文本的相似度
-                return word2Vec.similarity(text1, text2);
-            } else {
-                // 回退到简单相似度计算
-                return calculateSimpleSimilarity(text1, text2);
+            // 分词后将词向量池化为文档向量，计算文档向量的余弦相似度
+            float[] vector1 = embedText(text1);
+            float[] vector2 = vector1 != null ? embedText(text2) : null;
+            if (vector1 != null && vector2 != null) {
+                return Math.max(0.0, VectorMath.dot(vector1, vector2));
             }
+            // 回退到简单相似度计算
+            return calculateSimpleSimilarity(text1, text2);
         } catch (Exception e) {
             logger.error("计算文本相似度失败", e);
             // 回退到简单相似度计算
@@ -229,6 +205,57 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
         }
     }
     
+    @Override
+    public float[] embedText(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        Word2Vec trained = word2Vec;
+        MappedWordVectors vectors = trained == null ? getWordVectors() : null;
+        if (trained == null && vectors == null) {
+            return null;
+        }
+        
+        int dimension = trained != null ? trained.getLayerSize() : vectors.dimension();
+        float[] pooled = new float[dimension];
+        int count = 0;
+        // 章节内容在导入分析时已分词，经由分词缓存复用同一份结果
+        for (Term term : segmentationCache.segment(text)) {
+            // 跳过标点和空白
+            if (term.nature != null && term.nature.startsWith('w')) {
+                continue;
+            }
+            String word = term.word.trim();
+            if (word.isEmpty()) {
+                continue;
+            }
+            
+            if (trained != null) {
+                if (!trained.hasWord(word)) {
+                    continue;
+                }
+                double[] vector = trained.getWordVector(word);
+                for (int i = 0; i < dimension; i++) {
+                    pooled[i] += (float) vector[i];
+                }
+            } else {
+                int wordIndex = vectors.indexOf(word);
+                if (wordIndex < 0) {
+                    continue;
+                }
+                vectors.addTo(wordIndex, pooled);
+            }
+            count++;
+        }
+        
+        if (count == 0) {
+            return null;
+        }
+        // 平均池化后归一化，与直接对累加和归一化结果相同
+        VectorMath.normalize(pooled);
+        return pooled;
+    }
+    
     private double calculateSimpleSimilarity(String text1, String text2) {
         // 使用TF-IDF特征的余弦相似度
         
@@ -283,19 +310,20 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
         }
         
         try {
-            // 创建特征向量
-            List<double[]> vectors = new ArrayList<>();
-            
-            for (String text : textList) {
-                // 将文本转换为特征向量
-                double[] vector = createFeatureVector(text);
-                vectors.add(vector);
+            // 创建特征向量，有词向量模型时使用文档向量，否则所有文本统一使用哈希词袋特征
+            float[][] data = new float[textList.size()][];
+            boolean useEmbedding = true;
+            for (int i = 0; i < data.length; i++) {
+                float[] vector = useEmbedding ? embedText(textList.get(i)) : null;
+                if (vector == null && useEmbedding) {
+                    useEmbedding = false;
+                    for (int j = 0; j < i; j++) {
+                        data[j] = hashedFeatureVector(textList.get(j));
+                    }
+                }
+                data[i] = vector != null ? vector : hashedFeatureVector(textList.get(i));
             }
             
-            // 转换为二维数组
-            double[][] data = vectors.toArray(new double[0][]);
-            
-            // 使用简单K-means实现替代SMILE库
             return performKMeansClustering(data, clusterCount);
         } catch (Exception e) {
             logger.error("聚类分析失败", e);
@@ -303,125 +331,30 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
         }
     }
     
-    /**
-     * 执行K-means聚类
-     */
-    private Map<Integer, List<Integer>> performKMeansClustering(double[][] data, int k) {
-        int n = data.length;
-        if (n < k) {
-            k = n;
-        }
-        
-        // 随机选择初始中心点
-        Random rand = new Random(42);
-        int[] centers = new int[k];
-        boolean[] chosen = new boolean[n];
-        
-        for (int i = 0; i < k; i++) {
-            int idx;
-            do {
-                idx = rand.nextInt(n);
-            } while (chosen[idx]);
-            
-            centers[i] = idx;
-            chosen[idx] = true;
-        }
-        
-        // 分配点到最近的中心点
-        int[] labels = new int[n];
-        boolean changed;
-        
-        // 迭代直到收敛或达到最大迭代次数
-        int maxIterations = 100;
-        for (int iter = 0; iter < maxIterations; iter++) {
-            changed = false;
-            
-            // 分配阶段
-            for (int i = 0; i < n; i++) {
-                double minDist = Double.MAX_VALUE;
-                int bestCluster = 0;
-                
-                for (int j = 0; j < k; j++) {
-                    double dist = distance(data[i], data[centers[j]]);
-                    if (dist < minDist) {
-                        minDist = dist;
-                        bestCluster = j;
-                    }
-                }
-                
-                if (labels[i] != bestCluster) {
-                    changed = true;
-                    labels[i] = bestCluster;
-                }
-            }
-            
-            // 更新阶段
-            int[] clusterSize = new int[k];
-            for (int i = 0; i < n; i++) {
-                clusterSize[labels[i]]++;
-            }
-            
-            int[] newCenters = new int[k];
-            for (int j = 0; j < k; j++) {
-                if (clusterSize[j] == 0) {
-                    // 如果有空的簇，随机选择新的中心
-                    newCenters[j] = rand.nextInt(n);
-                    continue;
-                }
-                
-                double minSumDist = Double.MAX_VALUE;
-                
-                for (int i = 0; i < n; i++) {
-                    if (labels[i] != j) continue;
-                    
-                    double sumDist = 0;
-                    for (int l = 0; l < n; l++) {
-                        if (labels[l] != j) continue;
-                        sumDist += distance(data[i], data[l]);
-                    }
-                    
-                    if (sumDist < minSumDist) {
-                        minSumDist = sumDist;
-                        newCenters[j] = i;
-                    }
-                }
-            }
-            
-            for (int j = 0; j < k; j++) {
-                if (centers[j] != newCenters[j]) {
-                    changed = true;
-                    centers[j] = newCenters[j];
-                }
-            }
-            
-            if (!changed) {
-                break;
-            }
-        }
-        
-        // 整理结果
-        Map<Integer, List<Integer>> result = new HashMap<>();
-        for (int i = 0; i < n; i++) {
-            int clusterId = labels[i];
-            if (!result.containsKey(clusterId)) {
-                result.put(clusterId, new ArrayList<>());
-            }
-            result.get(clusterId).add(i);
+    @Override
+    public Map<Integer, List<Integer>> clusterVectors(float[][] vectors, int clusterCount) {
+        if (vectors == null || vectors.length == 0) {
+            return Collections.emptyMap();
         }
-        
-        return result;
+        return performKMeansClustering(vectors, clusterCount);
     }
     
     /**
-     * 计算欧几里得距离
+     * 执行K-means聚类
+     * 特征向量均为单位长度，使用余弦距离；数据量较大时使用mini-batch
      */
-    private double distance(double[] a, double[] b) {
-        double sum = 0;
-        for (int i = 0; i < a.length; i++) {
-            double diff = a[i] - b[i];
-            sum += diff * diff;
+    private Map<Integer, List<Integer>> performKMeansClustering(float[][] data, int k) {
+        long startTime = System.currentTimeMillis();
+        KMeans kMeans = new KMeans(Math.max(1, k))
+                .setMetric(KMeans.Metric.COSINE)
+                .setSeed(42);
+        if (data.length > MINI_BATCH_THRESHOLD) {
+            kMeans.setBatchSize(MINI_BATCH_SIZE).setMaxIterations(500);
         }
-        return Math.sqrt(sum);
+        KMeans.Result result = kMeans.fit(data);
+        logger.debug("K-means聚类完成: {} 个向量，{} 个簇，迭代 {} 次，耗时 {}ms",
+                data.length, k, result.getIterations(), System.currentTimeMillis() - startTime);
+        return result.toClusters();
     }
     
     /**
@@ -456,49 +389,29 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
     }
     
     /**
-     * 创建文本的特征向量
+     * 创建文本的哈希词袋特征向量（没有词向量模型时使用）
+     * 分词一次，词按哈希映射到固定维度，词频取对数后归一化
      */
-    private double[] createFeatureVector(String text) {
-        if (word2Vec != null) {
-            try {
-                // 使用Word2Vec创建文本向量
-                INDArray textVector = word2Vec.getWordVectorsMean(tokenizeText(text));
-                if (textVector != null) {
-                    return textVector.toDoubleVector();
+    private float[] hashedFeatureVector(String text) {
+        float[] features = new float[HASHED_FEATURE_DIMENSION];
+        if (text != null) {
+            for (Term term : HanLP.segment(text)) {
+                if (term.nature != null && term.nature.startsWith('w') || term.word.trim().length() < 2) {
+                    continue;
                 }
-            } catch (Exception e) {
-                logger.debug("使用Word2Vec创建特征向量失败，回退到TF-IDF: {}", e.getMessage());
+                int slot = (int) ((ContentHashUtil.fnv1a64(term.word) >>> 1) % HASHED_FEATURE_DIMENSION);
+                features[slot]++;
             }
         }
-        
-        // 回退到TF-IDF特征
-        Map<String, Integer> keywords = nlpService.extractKeywords(text, 50);
-        
-        // 简化版特征向量，使用关键词权重
-        double[] features = new double[50];
-        int i = 0;
-        for (Map.Entry<String, Integer> entry : keywords.entrySet()) {
-            if (i < 50) {
-                features[i] = entry.getValue() / 100.0; // 归一化权重
-                i++;
-            } else {
-                break;
+        for (int i = 0; i < features.length; i++) {
+            if (features[i] > 0) {
+                features[i] = (float) (1 + Math.log(features[i]));
             }
         }
-        
+        VectorMath.normalize(features);
         return features;
     }
     
-    /**
-     * 对文本进行分词
-     */
-    private Collection<String> tokenizeText(String text) {
-        List<Term> terms = HanLP.segment(text);
-        return terms.stream()
-                .map(term -> term.word)
-                .collect(Collectors.toList());
-    }
-    
     @Override
     public double deepSentimentAnalysis(String text) {
         // 目前使用传统NLP服务的情感分析，后续可替换为深度学习模型
@@ -2040,16 +1953,14 @@ public class Dl4jMachineLearningServiceImpl implements MachineLearningService {
         
         try {
             // 如果有Word2Vec模型，使用它来计算语义相关性
-            if (word2Vec != null) {
-                Collection<String> mainTokens = tokenizeText(mainText);
-                INDArray mainVector = word2Vec.getWordVectorsMean(mainTokens);
+            if (word2Vec != null || getWordVectors() != null) {
+                float[] mainVector = embedText(mainText);
                 
                 for (String refText : referenceTexts) {
-                    Collection<String> refTokens = tokenizeText(refText);
-                    INDArray refVector = word2Vec.getWordVectorsMean(refTokens);
+                    float[] refVector = embedText(refText);
                     
                     if (mainVector != null && refVector != null) {
-                        double similarity = Transforms.cosineSim(mainVector, refVector);
+                        double similarity = VectorMath.dot(mainVector, refVector);
                         relatedness.add(similarity);
                     } else {
                         // 回退到简单相似度
@@ -0,0 +1,333 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.novelassistant.entity.Novel;
+import com.novelassistant.exception.BadRequestException;
+import com.novelassistant.exception.ResourceNotFoundException;
+import com.novelassistant.exception.ServiceException;
+import com.novelassistant.model.ExportJob;
+import com.novelassistant.payload.request.ExportJobRequest;
+import com.novelassistant.repository.ChapterRepository;
+import com.novelassistant.repository.NovelRepository;
+import com.novelassistant.service.ExportJobService;
+import com.novelassistant.service.ExportService;
+import com.novelassistant.util.ContentHashUtil;
+import com.novelassistant.util.DiskLruCache;
+import com.novelassistant.util.ErrorCodes;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导出任务服务实现类
+ * 任务状态保存在内存中，渲染结果保存在磁盘LRU缓存中。
+ * 小说报告的缓存键包含小说的更新时间和章节数，小说重新处理后旧报告不再命中并随LRU淘汰
+ */
+@Service
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private NovelRepository novelRepository;
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("exportJobExecutor")
+    private ExecutorService exportJobExecutor;
+
+    @Value("${novelassistant.export.cache.dir:data/export-cache}")
+    private String cacheDir;
+
+    @Value("${novelassistant.export.cache.max-bytes:536870912}")
+    private long cacheMaxBytes;
+
+    @Value("${novelassistant.export.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    private DiskLruCache artifactCache;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    // 缓存键 -> 正在进行的渲染，相同输入的任务共用同一次渲染
+    private final Map<String, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    // 已在导出线程池中开始渲染的缓存键
+    private final Set<String> renderingStarted = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        artifactCache = new DiskLruCache(Paths.get(cacheDir), cacheMaxBytes);
+        logger.info("导出结果缓存目录: {}，上限 {} 字节", cacheDir, cacheMaxBytes);
+    }
+
+    @Override
+    public ExportJob submit(ExportJobRequest request, Long userId) {
+        String type = request.getType();
+        ExportJob job;
+        if (TYPE_NOVEL_REPORT.equals(type)) {
+            if (request.getNovelId() == null) {
+                throw new BadRequestException("导出小说报告时小说ID不能为空");
+            }
+            Long novelId = request.getNovelId();
+            job = new ExportJob(UUID.randomUUID().toString(), type, novelId, userId, novelReportKey(novelId),
+                    "novel-report-" + novelId + ".pdf", "application/pdf");
+        } else if (TYPE_CHART_PDF.equals(type) || TYPE_CHART_IMAGE.equals(type)) {
+            if (request.getChartData() == null) {
+                throw new BadRequestException("导出图表时图表数据不能为空");
+            }
+            String title = request.getTitle() != null ? request.getTitle() : "图表";
+            boolean pdf = TYPE_CHART_PDF.equals(type);
+            job = new ExportJob(UUID.randomUUID().toString(), type, null, userId, chartKey(request, title),
+                    title + (pdf ? ".pdf" : ".png"), pdf ? "application/pdf" : "image/png");
+        } else {
+            throw new BadRequestException("不支持的导出类型: " + type);
+        }
+        jobs.put(job.getId(), job);
+
+        Path cached = artifactCache.get(job.getArtifactKey());
+        if (cached != null) {
+            reused.incrementAndGet();
+            job.setCached(true);
+            complete(job, cached);
+            return job;
+        }
+
+        CompletableFuture<Path> future = startRender(job.getArtifactKey(), job.getType(), job.getNovelId(), request);
+        // 共用已开始的渲染时直接显示为进行中；渲染尚未开始时由render在开始时更新
+        if (renderingStarted.contains(job.getArtifactKey())) {
+            job.setStatus(ExportJob.Status.RUNNING);
+        }
+        future.whenComplete((path, error) -> {
+            if (error == null) {
+                complete(job, path);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                job.setError(cause.getMessage());
+                job.setStatus(ExportJob.Status.FAILED);
+                job.setFinishedAt(new Date());
+            }
+        });
+        return job;
+    }
+
+    /**
+     * 开始渲染，相同缓存键正在渲染时返回这次渲染
+     */
+    private CompletableFuture<Path> startRender(String artifactKey, String type, Long novelId,
+                                                ExportJobRequest request) {
+        CompletableFuture<Path> future = rendering.computeIfAbsent(artifactKey,
+                key -> CompletableFuture.supplyAsync(() -> render(key, type, novelId, request), exportJobExecutor));
+        future.whenComplete((path, error) -> rendering.remove(artifactKey, future));
+        return future;
+    }
+
+    /**
+     * 在导出线程池中渲染并写入缓存
+     * 开始时把等待这次渲染的任务更新为进行中
+     */
+    private Path render(String artifactKey, String type, Long novelId, ExportJobRequest request) {
+        renderingStarted.add(artifactKey);
+        jobs.values().stream()
+                .filter(job -> artifactKey.equals(job.getArtifactKey()) && job.getStatus() == ExportJob.Status.QUEUED)
+                .forEach(job -> job.setStatus(ExportJob.Status.RUNNING));
+        long start = System.currentTimeMillis();
+        try {
+            Path path = artifactCache.put(artifactKey, output -> {
+                switch (type) {
+                    case TYPE_NOVEL_REPORT:
+                        exportService.writeNovelReport(novelId, output);
+                        break;
+                    case TYPE_CHART_PDF:
+                        output.write(exportService.exportChartToPdf(request.getChartData(),
+                                request.getTitle() != null ? request.getTitle() : "图表",
+                                request.getDescription() != null ? request.getDescription() : ""));
+                        break;
+                    default:
+                        output.write(exportService.exportChartToImage(request.getChartData(),
+                                request.getTitle() != null ? request.getTitle() : "图表"));
+                        break;
+                }
+            });
+            rendered.incrementAndGet();
+            logger.info("导出 {} 渲染完成，耗时 {} 毫秒", artifactKey, System.currentTimeMillis() - start);
+            return path;
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            logger.error("导出 {} 渲染失败: {}", artifactKey, e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.error("导出 {} 渲染失败: {}", artifactKey, e.getMessage());
+            throw e;
+        } finally {
+            renderingStarted.remove(artifactKey);
+        }
+    }
+
+    private void complete(ExportJob job, Path path) {
+        try {
+            job.setSizeBytes(Files.size(path));
+        } catch (IOException e) {
+            logger.debug("读取导出文件大小失败: {}", path);
+        }
+        job.setStatus(ExportJob.Status.COMPLETED);
+        job.setFinishedAt(new Date());
+    }
+
+    @Override
+    public ExportJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @Override
+    public InputStream openArtifact(ExportJob job) throws IOException {
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            return null;
+        }
+        return openCached(job.getArtifactKey());
+    }
+
+    @Override
+    public InputStream openNovelReport(Long novelId, boolean render) throws IOException {
+        String key = novelReportKey(novelId);
+        InputStream cached = openCached(key);
+        if (cached != null) {
+            reused.incrementAndGet();
+            return cached;
+        }
+        if (!render) {
+            return null;
+        }
+        // 渲染完成到打开文件之间可能被淘汰，这时重新渲染一次
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Path path;
+            try {
+                path = startRender(key, TYPE_NOVEL_REPORT, novelId, null).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+            }
+            try {
+                return Files.newInputStream(path);
+            } catch (NoSuchFileException e) {
+                logger.debug("导出文件渲染后已被淘汰: {}", path);
+            }
+        }
+        throw new IOException("小说 " + novelId + " 的分析报告渲染后被缓存淘汰");
+    }
+
+    /**
+     * 打开缓存文件，未缓存或已被淘汰时返回null
+     */
+    private InputStream openCached(String key) throws IOException {
+        Path path = artifactCache.get(key);
+        if (path == null) {
+            return null;
+        }
+        try {
+            return Files.newInputStream(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (ExportJob.Status status : ExportJob.Status.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        jobs.values().forEach(job -> byStatus.merge(job.getStatus().name(), 1L, Long::sum));
+        stats.put("jobs", byStatus);
+        stats.put("rendering", rendering.size());
+        stats.put("rendered", rendered.get());
+        stats.put("reused", reused.get());
+        stats.put("failed", failed.get());
+        stats.put("cache", artifactCache.getStats());
+        return stats;
+    }
+
+    /**
+     * 清理已结束的过期任务，缓存文件不受影响
+     */
+    @Scheduled(fixedDelayString = "${novelassistant.export.job-cleanup-interval-ms:600000}")
+    public void cleanupJobs() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(jobTtlMinutes);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().getTime() < expireBefore);
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            logger.info("已清理 {} 个过期导出任务", removed);
+        }
+    }
+
+    /**
+     * 小说报告的缓存键：小说ID + 数据版本（更新时间和章节数）
+     */
+    private String novelReportKey(Long novelId) {
+        Novel novel = novelRepository.findById(novelId)
+                .orElseThrow(() -> new ResourceNotFoundException("Novel not found with id: " + novelId));
+        long version = novel.getUpdatedAt() != null ? novel.getUpdatedAt().getTime() : 0L;
+        return TYPE_NOVEL_REPORT + ":" + novelId + ":" + version + ":" + chapterRepository.countByNovelId(novelId);
+    }
+
+    /**
+     * 图表的缓存键：导出类型 + 图表数据、标题和说明的内容哈希
+     */
+    private String chartKey(ExportJobRequest request, String title) {
+        try {
+            String chartJson = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsString(request.getChartData());
+            String description = TYPE_CHART_PDF.equals(request.getType()) && request.getDescription() != null
+                    ? request.getDescription() : "";
+            return request.getType() + ":" + ContentHashUtil.contentKey(chartJson + "\n" + title + "\n" + description);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("图表数据无法序列化: " + e.getMessage(), e, ErrorCodes.INVALID_REQUEST_BODY);
+        }
+    }
+}
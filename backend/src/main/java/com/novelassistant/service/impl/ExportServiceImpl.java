@@ -19,11 +19,14 @@ import com.itextpdf.text.PageSize;
 import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.pdf.BaseFont;
 import com.itextpdf.text.pdf.PdfWriter;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.DefaultCategoryDataset;
@@ -31,13 +34,19 @@ import org.jfree.data.general.DefaultPieDataset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
@@ -75,6 +84,21 @@ public class ExportServiceImpl implements ExportService {
     @Autowired
     private EmotionalDataRepository emotionalDataRepository;
     
+    // 章节概要每次查询的章节数
+    private static final int OUTLINE_PAGE_SIZE = 200;
+    
+    // 每个PDF文档在内存中缓存的最大字节数，超出部分写入临时文件
+    @Value("${novelassistant.export.pdf.max-main-memory-bytes:8388608}")
+    private long pdfMaxMainMemoryBytes = 8388608;
+    
+    // PDF临时文件目录，为空时使用系统临时目录
+    @Value("${novelassistant.export.pdf.temp-dir:}")
+    private String pdfTempDir;
+    
+    // 类路径中没有 /fonts/SimSun.ttf 时使用的中文字体文件
+    @Value("${novelassistant.export.pdf.font-path:}")
+    private String pdfFontPath;
+    
     // 定义字体
     private static Font TITLE_FONT;
     private static Font HEADING_FONT;
@@ -97,52 +121,39 @@ public class ExportServiceImpl implements ExportService {
     
     @Override
     public byte[] exportChartToPdf(Map<String, Object> chartData, String title, String description) {
-        try {
-            PDDocument document = new PDDocument();
+        try (PDDocument document = new PDDocument(pdfMemoryUsageSetting())) {
             PDPage page = new PDPage(PDRectangle.A4);
             document.addPage(page);
+            PDFont font = loadFont(document);
             
             // 生成图表图像
             JFreeChart chart = createChartFromData(chartData, title);
             BufferedImage chartImage = chart.createBufferedImage(500, 400);
             
             // 将图表转为PDF格式
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-            
-            // 添加标题
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 16);
-            contentStream.newLineAtOffset(50, 750);
-            contentStream.showText(title);
-            contentStream.endText();
-            
-            // 添加描述
-            if (description != null && !description.isEmpty()) {
-                contentStream.beginText();
-                contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 12);
-                contentStream.newLineAtOffset(50, 730);
-                contentStream.showText(description);
-                contentStream.endText();
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                // 添加标题
+                showText(contentStream, font, 16, 50, 750, title);
+                
+                // 添加描述
+                if (description != null && !description.isEmpty()) {
+                    showText(contentStream, font, 12, 50, 730, description);
+                }
+                
+                // 添加图表
+                PDImageXObject pdImage = LosslessFactory.createFromImage(document, chartImage);
+                contentStream.drawImage(pdImage, 50, 300, 500, 400);
+                
+                // 添加页脚
+                showText(contentStream, font, 10, 50, 50,
+                        "Generated on: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
             }
             
-            // 添加图表
-            PDImageXObject pdImage = LosslessFactory.createFromImage(document, chartImage);
-            contentStream.drawImage(pdImage, 50, 300, 500, 400);
-            
-            // 添加页脚
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 10);
-            contentStream.newLineAtOffset(50, 50);
-            contentStream.showText("Generated on: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-            contentStream.endText();
-            
-            contentStream.close();
-            
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             document.save(baos);
-            document.close();
-            
             return baos.toByteArray();
+        } catch (BadRequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to export chart to PDF", e);
         }
@@ -167,112 +178,192 @@ public class ExportServiceImpl implements ExportService {
     @Override
     public byte[] exportNovelReport(Long novelId) {
         try {
-            Novel novel = novelRepository.findById(novelId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Novel not found with id: " + novelId));
-            
-            List<NovelCharacter> characters = characterRepository.findByNovelId(novelId);
-            
-            PDDocument document = new PDDocument();
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-            
-            // 添加标题
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 18);
-            contentStream.newLineAtOffset(50, 750);
-            contentStream.showText("Novel Analysis Report: " + novel.getTitle());
-            contentStream.endText();
-            
-            // 添加小说基本信息
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 12);
-            contentStream.newLineAtOffset(50, 720);
-            contentStream.showText("Author: " + novel.getAuthor());
-            contentStream.endText();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeNovelReport(novelId, baos);
+            return baos.toByteArray();
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to export novel report", e);
+        }
+    }
+    
+    @Override
+    public void writeNovelReport(Long novelId, OutputStream output) throws IOException {
+        Novel novel = novelRepository.findById(novelId)
+                .orElseThrow(() -> new ResourceNotFoundException("Novel not found with id: " + novelId));
+        
+        List<NovelCharacter> characters = characterRepository.findByNovelId(novelId);
+        
+        // 页面内容超过内存上限后写入临时文件，保存时直接写到输出流，不在内存中保留整个文件
+        try (PDDocument document = new PDDocument(pdfMemoryUsageSetting());
+             ReportWriter writer = new ReportWriter(document, loadFont(document))) {
             
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 12);
-            contentStream.newLineAtOffset(50, 700);
+            // 添加标题和小说基本信息
+            writer.line("Novel Analysis Report: " + novel.getTitle(), 18, 50, 30);
+            writer.line("Author: " + novel.getAuthor(), 12, 50, 20);
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            contentStream.showText("Published: " + (novel.getCreatedAt() != null ? 
-                dateFormat.format(novel.getCreatedAt()) : "Unknown"));
-            contentStream.endText();
-            
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 12);
-            contentStream.newLineAtOffset(50, 680);
-            contentStream.showText("Total Chapters: " + 
-                chapterRepository.countByNovelId(novel.getId()));
-            contentStream.endText();
-            
-            // 添加角色信息标题
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 14);
-            contentStream.newLineAtOffset(50, 650);
-            contentStream.showText("Character Analysis");
-            contentStream.endText();
+            writer.line("Published: " + (novel.getCreatedAt() != null ?
+                    dateFormat.format(novel.getCreatedAt()) : "Unknown"), 12, 50, 20);
+            writer.line("Total Chapters: " + chapterRepository.countByNovelId(novel.getId()), 12, 50, 30);
             
-            // 添加角色列表
-            int yPosition = 630;
+            // 添加角色信息
+            writer.line("Character Analysis", 14, 50, 20);
             for (NovelCharacter character : characters) {
-                if (yPosition < 100) {
-                    // 创建新页面继续写入
-                    contentStream.close();
-                    PDPage newPage = new PDPage(PDRectangle.A4);
-                    document.addPage(newPage);
-                    contentStream = new PDPageContentStream(document, newPage);
-                    yPosition = 750;
-                }
-                
-                contentStream.beginText();
-                contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 12);
-                contentStream.newLineAtOffset(50, yPosition);
-                contentStream.showText(character.getName() + " (" + character.getCategory() + ")");
-                contentStream.endText();
-                yPosition -= 20;
+                writer.line(character.getName() + " (" + character.getCategory() + ")", 12, 50, 20);
                 
                 if (character.getDescription() != null && !character.getDescription().isEmpty()) {
-                    contentStream.beginText();
-                    contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 10);
-                    contentStream.newLineAtOffset(70, yPosition);
                     // 限制描述长度以避免溢出页面
-                    String description = character.getDescription();
-                    if (description.length() > 100) {
-                        description = description.substring(0, 97) + "...";
-                    }
-                    contentStream.showText(description);
-                    contentStream.endText();
-                    yPosition -= 20;
+                    writer.line(truncate(character.getDescription(), 100), 10, 70, 20);
                 }
                 
-                contentStream.beginText();
-                contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 10);
-                contentStream.newLineAtOffset(70, yPosition);
-                contentStream.showText("Importance: " + character.getImportance());
-                contentStream.endText();
-                yPosition -= 30;
+                writer.line("Importance: " + character.getImportance(), 10, 70, 30);
             }
             
-            // 添加页脚
-            contentStream.beginText();
-            contentStream.setFont(PDType0Font.load(document, ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")), 10);
-            contentStream.newLineAtOffset(50, 50);
-            contentStream.showText("Report generated on: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-            contentStream.endText();
-            
-            contentStream.close();
+            // 添加章节概要，按页查询，不加载章节内容
+            writer.line("Chapter Overview", 14, 50, 20);
+            for (int page = 0; ; page++) {
+                List<Object[]> outline = chapterRepository.findOutlineByNovelId(novelId,
+                        PageRequest.of(page, OUTLINE_PAGE_SIZE));
+                for (Object[] row : outline) {
+                    writer.line(row[0] + ". " + (row[1] != null ? row[1] : ""), 12, 50, 18);
+                    if (row[2] != null && !((String) row[2]).isEmpty()) {
+                        writer.line(truncate((String) row[2], 45), 10, 70, 22);
+                    }
+                }
+                if (outline.size() < OUTLINE_PAGE_SIZE) {
+                    break;
+                }
+            }
             
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            document.close();
+            // 添加页脚
+            writer.footer("Report generated on: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+            writer.close();
             
-            return baos.toByteArray();
-        } catch (ResourceNotFoundException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to export novel report", e);
+            document.save(output);
+        }
+    }
+    
+    /**
+     * PDF内存设置：超过主内存上限的部分写入临时文件
+     */
+    private MemoryUsageSetting pdfMemoryUsageSetting() {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(pdfMaxMainMemoryBytes);
+        if (pdfTempDir != null && !pdfTempDir.isEmpty()) {
+            setting.setTempDir(new File(pdfTempDir));
+        }
+        return setting;
+    }
+    
+    /**
+     * 加载中文字体，每个文档只加载一次，保存时只嵌入用到的字形；
+     * 找不到字体文件时使用Helvetica，无法显示的字符以问号代替
+     */
+    private PDFont loadFont(PDDocument document) throws IOException {
+        try (InputStream fontStream = ExportServiceImpl.class.getResourceAsStream("/fonts/SimSun.ttf")) {
+            if (fontStream != null) {
+                return PDType0Font.load(document, fontStream);
+            }
+        }
+        if (pdfFontPath != null && !pdfFontPath.isEmpty() && new File(pdfFontPath).isFile()) {
+            return PDType0Font.load(document, new File(pdfFontPath));
+        }
+        logger.warn("未找到中文字体文件，PDF中的中文将无法显示");
+        return PDType1Font.HELVETICA;
+    }
+    
+    private static void showText(PDPageContentStream contentStream, PDFont font, float fontSize,
+                                 float x, float y, String text) throws IOException {
+        contentStream.beginText();
+        contentStream.setFont(font, fontSize);
+        contentStream.newLineAtOffset(x, y);
+        contentStream.showText(encodableText(font, text));
+        contentStream.endText();
+    }
+    
+    /**
+     * 去掉换行等控制字符，替换字体无法编码的字符
+     */
+    private static String encodableText(PDFont font, String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isISOControl(codePoint)) {
+                builder.append(' ');
+                continue;
+            }
+            String ch = new String(Character.toChars(codePoint));
+            try {
+                font.encode(ch);
+                builder.append(ch);
+            } catch (IllegalArgumentException | IOException e) {
+                builder.append('?');
+            }
+        }
+        return builder.toString();
+    }
+    
+    private static String truncate(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength - 3) + "..." : text;
+    }
+    
+    /**
+     * 报告分页写入器
+     * 逐行写入文本，当前页写满时开始新的一页，每页的内容流写完即关闭
+     */
+    private static class ReportWriter implements Closeable {
+        private static final float TOP = 750;
+        private static final float BOTTOM = 100;
+        
+        private final PDDocument document;
+        private final PDFont font;
+        private PDPageContentStream contentStream;
+        private float y;
+        
+        ReportWriter(PDDocument document, PDFont font) throws IOException {
+            this.document = document;
+            this.font = font;
+            newPage();
+        }
+        
+        /**
+         * 在当前位置写入一行文本
+         *
+         * @param advance 写入后向下移动的距离
+         */
+        void line(String text, float fontSize, float x, float advance) throws IOException {
+            if (y < BOTTOM) {
+                newPage();
+            }
+            showText(contentStream, font, fontSize, x, y, text);
+            y -= advance;
+        }
+        
+        /**
+         * 在当前页底部写入页脚
+         */
+        void footer(String text) throws IOException {
+            showText(contentStream, font, 10, 50, 50, text);
+        }
+        
+        private void newPage() throws IOException {
+            close();
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            y = TOP;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+                contentStream = null;
+            }
         }
     }
     
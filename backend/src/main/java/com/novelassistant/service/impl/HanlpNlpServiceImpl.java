@@ -10,9 +10,17 @@ import com.hankcs.hanlp.summary.TextRankKeyword;
 import com.hankcs.hanlp.summary.TextRankSentence;
 import com.novelassistant.service.NlpService;
 import com.novelassistant.service.MachineLearningService;
+import com.novelassistant.service.NameGazetteerService;
+import com.novelassistant.util.AhoCorasickMatcher;
 import com.novelassistant.util.ApplicationContextProvider;
 import com.novelassistant.util.ChineseNameDictionary;
+import com.novelassistant.util.DialogueScanner;
+import com.novelassistant.util.LexiconRegistry;
+import com.novelassistant.util.NameGazetteer;
+import com.novelassistant.util.RelationshipAccumulator;
 import com.novelassistant.util.RequestContextHolder;
+import com.novelassistant.util.SegmentationCache;
+import com.novelassistant.util.SparseCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
@@ -25,6 +33,7 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 基于HanLP的自然语言处理服务实现
@@ -37,9 +46,22 @@ public class HanlpNlpServiceImpl implements NlpService {
     
     private final MachineLearningService mlService;
     
+    // 分词结果缓存，同一文本在多个分析方法间共享分词结果
+    private final SegmentationCache segmentationCache;
+    
+    // 情感词、情节转折词、主题词等词典，编译为一个自动机，文本只需扫描一遍
+    private final LexiconRegistry lexiconRegistry;
+    
+    // 小说人名词典，首次导入后用于已知人名的最长匹配
+    private final NameGazetteerService nameGazetteerService;
+    
     @Autowired
-    public HanlpNlpServiceImpl(@Lazy MachineLearningService mlService) {
+    public HanlpNlpServiceImpl(@Lazy MachineLearningService mlService, SegmentationCache segmentationCache,
+                               LexiconRegistry lexiconRegistry, NameGazetteerService nameGazetteerService) {
         this.mlService = mlService;
+        this.segmentationCache = segmentationCache;
+        this.lexiconRegistry = lexiconRegistry;
+        this.nameGazetteerService = nameGazetteerService;
     }
 
     // 章节标题识别的正则表达式 - 优化版本，支持更多格式
@@ -59,98 +81,18 @@ public class HanlpNlpServiceImpl implements NlpService {
     // 人名词性集合
     private static final Set<String> PERSON_NATURES = new HashSet<>(Arrays.asList("nr", "nrj", "nrf"));
     
-    // 情感词典权重
-    private static final Map<String, Integer> EMOTION_DICT = new HashMap<>();
+    // 叙述中人物共现的句子窗口大小
+    private static final int RELATIONSHIP_SENTENCE_WINDOW = 3;
     
-    static {
-        // 初始化情感词典（扩展版）
-        // 正面情感词
-        EMOTION_DICT.put("喜悦", 2);
-        EMOTION_DICT.put("高兴", 2);
-        EMOTION_DICT.put("愉快", 2);
-        EMOTION_DICT.put("激动", 1);
-        EMOTION_DICT.put("兴奋", 2);
-        EMOTION_DICT.put("幸福", 3);
-        EMOTION_DICT.put("开心", 2);
-        EMOTION_DICT.put("欢喜", 2);
-        EMOTION_DICT.put("快乐", 2);
-        EMOTION_DICT.put("欣慰", 1);
-        EMOTION_DICT.put("满意", 1);
-        EMOTION_DICT.put("欢乐", 2);
-        EMOTION_DICT.put("愉悦", 2);
-        EMOTION_DICT.put("欣喜", 2);
-        EMOTION_DICT.put("欢欣", 2);
-        EMOTION_DICT.put("快活", 2);
-        EMOTION_DICT.put("欢畅", 2);
-        EMOTION_DICT.put("甜蜜", 2);
-        EMOTION_DICT.put("惊喜", 1);
-        
-        // 负面情感词
-        EMOTION_DICT.put("悲伤", -2);
-        EMOTION_DICT.put("难过", -2);
-        EMOTION_DICT.put("痛苦", -3);
-        EMOTION_DICT.put("伤心", -2);
-        EMOTION_DICT.put("失望", -1);
-        EMOTION_DICT.put("沮丧", -2);
-        EMOTION_DICT.put("绝望", -3);
-        EMOTION_DICT.put("愤怒", -2);
-        EMOTION_DICT.put("生气", -1);
-        EMOTION_DICT.put("恼火", -1);
-        EMOTION_DICT.put("焦虑", -1);
-        EMOTION_DICT.put("恐惧", -2);
-        EMOTION_DICT.put("害怕", -2);
-        EMOTION_DICT.put("担心", -1);
-        EMOTION_DICT.put("苦恼", -1);
-        EMOTION_DICT.put("忧愁", -1);
-        EMOTION_DICT.put("悲痛", -3);
-        EMOTION_DICT.put("哀伤", -2);
-        EMOTION_DICT.put("痛心", -2);
-        EMOTION_DICT.put("悲哀", -2);
-        EMOTION_DICT.put("忧伤", -1);
-        EMOTION_DICT.put("烦躁", -1);
-        EMOTION_DICT.put("愁苦", -2);
-        EMOTION_DICT.put("怨恨", -2);
-        EMOTION_DICT.put("仇恨", -3);
-        EMOTION_DICT.put("厌恶", -2);
-        EMOTION_DICT.put("讨厌", -1);
-        EMOTION_DICT.put("憎恨", -3);
-        EMOTION_DICT.put("烦恼", -1);
-        EMOTION_DICT.put("不快", -1);
-        EMOTION_DICT.put("不满", -1);
-        EMOTION_DICT.put("怒火", -2);
-        EMOTION_DICT.put("不爽", -1);
-        EMOTION_DICT.put("愤恨", -2);
-        EMOTION_DICT.put("嫉妒", -1);
-        EMOTION_DICT.put("羞愧", -1);
-        EMOTION_DICT.put("内疚", -1);
-        EMOTION_DICT.put("惭愧", -1);
-        EMOTION_DICT.put("委屈", -1);
-        EMOTION_DICT.put("困惑", -1);
-        EMOTION_DICT.put("迷茫", -1);
-        
-        // 复杂情感词
-        EMOTION_DICT.put("感动", 2);
-        EMOTION_DICT.put("惊讶", 0);
-        EMOTION_DICT.put("惊奇", 0);
-        EMOTION_DICT.put("惊骇", -1);
-        EMOTION_DICT.put("震惊", -1);
-        EMOTION_DICT.put("思念", 1);
-        EMOTION_DICT.put("怀念", 1);
-        EMOTION_DICT.put("渴望", 1);
-        EMOTION_DICT.put("期待", 1);
-        EMOTION_DICT.put("希望", 1);
-        EMOTION_DICT.put("同情", 0);
-        EMOTION_DICT.put("怜悯", 0);
-        EMOTION_DICT.put("好奇", 1);
-        EMOTION_DICT.put("满足", 1);
-        EMOTION_DICT.put("安心", 1);
-        EMOTION_DICT.put("放心", 1);
-        EMOTION_DICT.put("释然", 1);
-        EMOTION_DICT.put("宽慰", 1);
-    }
-
     @Override
     public Map<String, Integer> extractKeywords(String text, int maxKeywords) {
+        return extractKeywords(text, maxKeywords, scanLexicon(text));
+    }
+
+    /**
+     * 提取关键词，情节、主题和情感关键词使用已有的词典扫描结果
+     */
+    private Map<String, Integer> extractKeywords(String text, int maxKeywords, LexiconScan lexiconScan) {
         // 结果关键词和权重映射
         Map<String, Integer> result = new LinkedHashMap<>();
         
@@ -158,7 +100,7 @@ public class HanlpNlpServiceImpl implements NlpService {
         List<String> textRankKeywords = new TextRankKeyword().getKeywordList(text, maxKeywords);
         
         // 2. 获取文本中的人名、地名、组织名等命名实体
-        List<Term> terms = HanLP.segment(text);
+        List<Term> terms = segmentationCache.segment(text);
         
         // 直接在这里提取命名实体，而不是调用extractNamedEntities方法
         Map<String, Integer> entityScores = new HashMap<>();
@@ -208,13 +150,13 @@ public class HanlpNlpServiceImpl implements NlpService {
         Map<String, Integer> repeatedPhrases = extractRepeatedPhrases(text);
         
         // 5. 识别情节转折点相关词
-        Map<String, Integer> plotKeywords = extractPlotKeywords(text);
+        Map<String, Integer> plotKeywords = extractPlotKeywords(terms, lexiconScan.plotMarkers);
         
         // 6. 识别主题相关词汇 (新增)
-        Map<String, Integer> themeKeywords = extractThemeKeywords(text);
+        Map<String, Integer> themeKeywords = extractThemeKeywords(lexiconScan.categoryCounts);
         
         // 7. 识别情感相关词汇 (新增)
-        Map<String, Integer> emotionKeywords = extractEmotionKeywords(text);
+        Map<String, Integer> emotionKeywords = extractEmotionKeywords(lexiconScan.categoryCounts);
         
         // 将TextRank关键词添加到结果中
         for (int i = 0; i < textRankKeywords.size(); i++) {
@@ -282,7 +224,7 @@ public class HanlpNlpServiceImpl implements NlpService {
     public List<String> extractNamedEntities(String text, String entityType) {
         logger.info("提取命名实体, 类型: {}", entityType);
         
-        List<Term> terms = HanLP.segment(text);
+        List<Term> terms = segmentationCache.segment(text);
         Map<String, Integer> entityMap = new HashMap<>();
         
         // 根据实体类型选择对应的词性
@@ -363,7 +305,7 @@ public class HanlpNlpServiceImpl implements NlpService {
         Map<String, Integer> phraseCounts = new HashMap<>();
         
         // 获取2-3个词的组合
-        List<Term> terms = HanLP.segment(text);
+        List<Term> terms = segmentationCache.segment(text);
         List<String> words = terms.stream().map(term -> term.word).collect(Collectors.toList());
         
         // 统计2-3词组合的出现频率
@@ -396,36 +338,64 @@ public class HanlpNlpServiceImpl implements NlpService {
         return repeatedPhrases;
     }
 
+    /**
+     * 词典扫描结果：各分类的命中次数和情节转折词的位置
+     */
+    private static final class LexiconScan {
+        private final Map<String, Integer> categoryCounts = new HashMap<>();
+        // 每个转折词的{起始位置, 结束位置}
+        private final List<int[]> plotMarkers = new ArrayList<>();
+    }
+
+    /**
+     * 用词典自动机扫描一次文本，统计各分类命中次数并记录转折词位置
+     */
+    private LexiconScan scanLexicon(String text) {
+        LexiconScan scan = new LexiconScan();
+        lexiconRegistry.matcher().scan(text, (pos, entry) -> {
+            scan.categoryCounts.merge(entry.getCategory(), 1, Integer::sum);
+            if (LexiconRegistry.PLOT_MARKER.equals(entry.getCategory())) {
+                scan.plotMarkers.add(new int[]{pos, pos + entry.getWord().length()});
+            }
+            return true;
+        });
+        return scan;
+    }
+
     /**
      * 提取与情节转折相关的关键词
+     * 取每个转折词前10个字到后20个字范围内的名词，直接使用全文的分词结果，不再对上下文重新分词
+     *
+     * @param terms 全文分词结果
+     * @param plotMarkers 转折词的{起始位置, 结束位置}，按结束位置排列
      */
-    private Map<String, Integer> extractPlotKeywords(String text) {
+    private Map<String, Integer> extractPlotKeywords(List<Term> terms, List<int[]> plotMarkers) {
         Map<String, Integer> plotKeywords = new HashMap<>();
+        if (plotMarkers.isEmpty() || terms.isEmpty()) {
+            return plotKeywords;
+        }
         
-        // 情节转折相关词汇
-        String[] plotMarkers = {
-            "突然", "忽然", "但是", "然而", "不过", "却", "竟然", "居然", "原来", 
-            "终于", "最终", "结果", "没想到", "意外", "惊讶", "震惊", "转折", "变化"
-        };
+        // 分词结果按顺序覆盖全文，累加词长即得到每个词的起始位置
+        int[] termStarts = new int[terms.size() + 1];
+        for (int i = 0; i < terms.size(); i++) {
+            termStarts[i + 1] = termStarts[i] + terms.get(i).word.length();
+        }
         
-        // 提取与转折词相关的上下文
-        for (String marker : plotMarkers) {
-            int pos = 0;
-            while ((pos = text.indexOf(marker, pos + 1)) != -1) {
-                // 获取转折词周围的上下文（前10个字和后20个字）
-                int start = Math.max(0, pos - 10);
-                int end = Math.min(text.length(), pos + marker.length() + 20);
-                
-                String context = text.substring(start, end);
-                
-                // 从上下文中提取名词
-                List<Term> contextTerms = HanLP.segment(context);
-                for (Term term : contextTerms) {
-                    if (term.nature.toString().startsWith("n") && term.word.length() > 1) {
-                        String keyword = term.word;
-                        int currentScore = plotKeywords.getOrDefault(keyword, 0);
-                        plotKeywords.put(keyword, Math.min(80, currentScore + 15));
-                    }
+        for (int[] marker : plotMarkers) {
+            int start = Math.max(0, marker[0] - 10);
+            int end = marker[1] + 20;
+            
+            // 找到第一个起始位置不早于上下文起点的词，依次取完全落在上下文中的名词
+            int index = Arrays.binarySearch(termStarts, 0, terms.size(), start);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            for (; index < terms.size() && termStarts[index + 1] <= end; index++) {
+                Term term = terms.get(index);
+                if (term.nature.toString().startsWith("n") && term.word.length() > 1) {
+                    String keyword = term.word;
+                    int currentScore = plotKeywords.getOrDefault(keyword, 0);
+                    plotKeywords.put(keyword, Math.min(80, currentScore + 15));
                 }
             }
         }
@@ -435,40 +405,18 @@ public class HanlpNlpServiceImpl implements NlpService {
 
     /**
      * 提取文本中的主题相关词汇
+     *
+     * @param categoryCounts 词典各分类的命中次数
      */
-    private Map<String, Integer> extractThemeKeywords(String text) {
+    private Map<String, Integer> extractThemeKeywords(Map<String, Integer> categoryCounts) {
         Map<String, Integer> themeKeywords = new HashMap<>();
         
-        // 主题分类字典
-        Map<String, List<String>> themeDict = new HashMap<>();
-        themeDict.put("爱情", Arrays.asList("爱情", "恋爱", "情侣", "相爱", "爱慕", "恋人", "告白", "表白", "婚姻", "求婚"));
-        themeDict.put("友情", Arrays.asList("友情", "朋友", "友谊", "伙伴", "交情", "友人", "死党", "同伴"));
-        themeDict.put("冒险", Arrays.asList("冒险", "探险", "探索", "旅行", "历险", "征程", "奇遇", "探险家"));
-        themeDict.put("成长", Arrays.asList("成长", "成熟", "进步", "蜕变", "成人", "青春", "懂事", "领悟"));
-        themeDict.put("奇幻", Arrays.asList("奇幻", "魔法", "魔术", "神奇", "幻想", "超能力", "异能", "法术"));
-        themeDict.put("科幻", Arrays.asList("科幻", "未来", "太空", "宇宙", "科技", "外星", "人工智能", "机器人"));
-        themeDict.put("悬疑", Arrays.asList("悬疑", "推理", "谜题", "侦探", "案件", "谋杀", "犯罪", "线索"));
-        themeDict.put("历史", Arrays.asList("历史", "古代", "朝代", "皇帝", "王朝", "古典", "古风", "传统"));
-        themeDict.put("战争", Arrays.asList("战争", "战斗", "征战", "军事", "军队", "作战", "兵法", "战略"));
-        themeDict.put("哲学", Arrays.asList("哲学", "思考", "意义", "存在", "真理", "道德", "伦理", "价值"));
-        
-        // 检测主题词出现频率
-        for (Map.Entry<String, List<String>> themeEntry : themeDict.entrySet()) {
-            String themeName = themeEntry.getKey();
-            List<String> keywords = themeEntry.getValue();
-            
-            int count = 0;
-            for (String keyword : keywords) {
-                // 简单计数
-                int startIndex = 0;
-                while (startIndex != -1) {
-                    startIndex = text.indexOf(keyword, startIndex);
-                    if (startIndex != -1) {
-                        count++;
-                        startIndex += keyword.length();
-                    }
-                }
+        for (Map.Entry<String, Integer> categoryEntry : categoryCounts.entrySet()) {
+            if (!categoryEntry.getKey().startsWith(LexiconRegistry.THEME_PREFIX)) {
+                continue;
             }
+            String themeName = categoryEntry.getKey().substring(LexiconRegistry.THEME_PREFIX.length());
+            int count = categoryEntry.getValue();
             
             // 如果主题词频繁出现，添加到结果中
             if (count > 5) {  // 设置阈值
@@ -481,36 +429,18 @@ public class HanlpNlpServiceImpl implements NlpService {
     
     /**
      * 提取文本中的情感相关词汇
+     *
+     * @param categoryCounts 词典各分类的命中次数
      */
-    private Map<String, Integer> extractEmotionKeywords(String text) {
+    private Map<String, Integer> extractEmotionKeywords(Map<String, Integer> categoryCounts) {
         Map<String, Integer> emotionKeywords = new HashMap<>();
         
-        // 情感分类字典
-        Map<String, List<String>> emotionDict = new HashMap<>();
-        emotionDict.put("欢乐", Arrays.asList("欢乐", "快乐", "喜悦", "高兴", "开心", "欣喜", "兴奋", "愉快"));
-        emotionDict.put("悲伤", Arrays.asList("悲伤", "伤心", "难过", "痛苦", "哀伤", "忧伤", "哭泣", "流泪"));
-        emotionDict.put("愤怒", Arrays.asList("愤怒", "愤恨", "气愤", "暴怒", "发火", "恼怒", "生气", "怒火"));
-        emotionDict.put("恐惧", Arrays.asList("恐惧", "害怕", "惊恐", "恐慌", "畏惧", "惊吓", "惧怕", "胆怯"));
-        emotionDict.put("惊喜", Arrays.asList("惊喜", "意外", "惊讶", "吃惊", "震惊", "诧异", "意想不到", "惊奇"));
-        emotionDict.put("感动", Arrays.asList("感动", "感慨", "感恩", "感激", "温情", "暖心", "催泪", "触动"));
-        
-        // 检测情感词出现频率
-        for (Map.Entry<String, List<String>> emotionEntry : emotionDict.entrySet()) {
-            String emotionName = emotionEntry.getKey();
-            List<String> keywords = emotionEntry.getValue();
-            
-            int count = 0;
-            for (String keyword : keywords) {
-                // 简单计数
-                int startIndex = 0;
-                while (startIndex != -1) {
-                    startIndex = text.indexOf(keyword, startIndex);
-                    if (startIndex != -1) {
-                        count++;
-                        startIndex += keyword.length();
-                    }
-                }
+        for (Map.Entry<String, Integer> categoryEntry : categoryCounts.entrySet()) {
+            if (!categoryEntry.getKey().startsWith(LexiconRegistry.MOOD_PREFIX)) {
+                continue;
             }
+            String emotionName = categoryEntry.getKey().substring(LexiconRegistry.MOOD_PREFIX.length());
+            int count = categoryEntry.getValue();
             
             // 如果情感词频繁出现，添加到结果中
             if (count > 10) {  // 设置阈值
@@ -572,7 +502,9 @@ public class HanlpNlpServiceImpl implements NlpService {
         
         // 提取关键要素
         List<String> characters = extractCharacters(text);
-        Map<String, Integer> keywords = extractKeywords(text, 8);
+        // 词典只扫描一次，关键词和章节类型共用扫描结果
+        LexiconScan lexiconScan = scanLexicon(text);
+        Map<String, Integer> keywords = extractKeywords(text, 8, lexiconScan);
         double sentiment = analyzeSentiment(text);
         
         // 使用TextRank提取关键句子
@@ -601,7 +533,7 @@ public class HanlpNlpServiceImpl implements NlpService {
         }
         
         // 识别章节类型
-        String chapterType = identifyChapterType(text, characters);
+        String chapterType = identifyChapterType(text, characters, lexiconScan.categoryCounts);
         
         // 构建结构化摘要
         StringBuilder summary = new StringBuilder();
@@ -661,7 +593,46 @@ public class HanlpNlpServiceImpl implements NlpService {
         
         return summary.toString();
     }
-    
+
+    @Override
+    public String summarizeSentences(List<String> sentences, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        for (String sentence : sentences) {
+            String cleaned = cleanTextForSummary(sentence).trim();
+            if (cleaned.isEmpty()) {
+                continue;
+            }
+            text.append(cleaned);
+            if ("。！？!?…".indexOf(cleaned.charAt(cleaned.length() - 1)) < 0) {
+                text.append('。');
+            }
+        }
+        if (text.length() <= maxLength) {
+            return text.toString();
+        }
+
+        // TextRank按得分排序返回，按句子在原文中的位置恢复叙述顺序
+        String document = text.toString();
+        List<String> selected = new ArrayList<>(HanLP.extractSummary(document, Math.max(2, maxLength / 50)));
+        Map<String, Integer> positions = new HashMap<>();
+        for (String sentence : selected) {
+            positions.put(sentence, document.indexOf(sentence));
+        }
+        selected.sort(Comparator.comparingInt(positions::get));
+
+        StringBuilder summary = new StringBuilder();
+        for (String sentence : selected) {
+            if (summary.length() > 0 && summary.length() + sentence.length() + 1 > maxLength) {
+                break;
+            }
+            summary.append(sentence).append('。');
+        }
+        if (summary.length() > maxLength) {
+            return summary.substring(0, maxLength - 3) + "...";
+        }
+        return summary.toString();
+    }
+
     /**
      * 清理文本，移除特殊标记，为摘要生成做准备
      */
@@ -682,9 +653,10 @@ public class HanlpNlpServiceImpl implements NlpService {
      * 识别章节类型
      * @param text 章节文本
      * @param characters 识别出的人物列表
+     * @param categoryCounts 词典各分类的命中次数（动作用字和情感词）
      * @return 章节类型描述
      */
-    private String identifyChapterType(String text, List<String> characters) {
+    private String identifyChapterType(String text, List<String> characters, Map<String, Integer> categoryCounts) {
         // 计算对话比例
         int dialogueCount = 0;
         Pattern dialoguePattern = Pattern.compile("[\"\"](.*?)[\"\"]|['']([^'']*)['']");
@@ -696,22 +668,12 @@ public class HanlpNlpServiceImpl implements NlpService {
         double dialogueRatio = (double) dialogueCount / (text.length() / 100);
         
         // 检测战斗/动作场景
-        String[] actionWords = {"战", "打", "杀", "击", "冲", "跑", "跳", "逃", "突", "爆", "炸", "伤", "血", "死"};
-        int actionCount = 0;
-        for (String word : actionWords) {
-            int count = text.split(word).length - 1;
-            actionCount += count;
-        }
+        int actionCount = categoryCounts.getOrDefault(LexiconRegistry.ACTION, 0);
         
         double actionRatio = (double) actionCount / (text.length() / 100);
         
         // 检测情感描写比例
-        Set<String> emotionWords = EMOTION_DICT.keySet();
-        int emotionCount = 0;
-        for (String emotion : emotionWords) {
-            int count = text.split(emotion).length - 1;
-            emotionCount += count;
-        }
+        int emotionCount = categoryCounts.getOrDefault(LexiconRegistry.EMOTION, 0);
         
         double emotionRatio = (double) emotionCount / (text.length() / 100);
         
@@ -733,7 +695,7 @@ public class HanlpNlpServiceImpl implements NlpService {
 
     // HanLP分词方法，仅供内部使用
     private List<String> segment(String text) {
-        List<Term> termList = HanLP.segment(text);
+        List<Term> termList = segmentationCache.segment(text);
         return termList.stream()
                 .map(term -> term.word)
                 .collect(Collectors.toList());
@@ -741,7 +703,7 @@ public class HanlpNlpServiceImpl implements NlpService {
 
     @Override
     public List<String> extractCharacters(String text) {
-        List<Term> termList = HanLP.segment(text);
+        List<Term> termList = segmentationCache.segment(text);
         Map<String, Integer> characterCounts = new HashMap<>();
         
         // 获取词典工具实例
@@ -819,18 +781,11 @@ public class HanlpNlpServiceImpl implements NlpService {
             }
         }
         
-        // 5. 检查小说特有人名词典
-        try {
-            Long novelId = getCurrentNovelId();
-            if (novelId != null) {
-                Set<String> specificNames = nameDictionary.getNovelSpecificNames(novelId);
-                for (String name : specificNames) {
-                    // 特有人名词典中的名字给予更高权重
-                    characterCounts.put(name, characterCounts.getOrDefault(name, 0) + 3);
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("获取小说特有人名词典失败", e);
+        // 5. 小说人名词典中的人名按最长匹配计数，已知人名给予更高权重
+        NameGazetteer gazetteer = currentGazetteer();
+        if (gazetteer != null) {
+            gazetteer.countMatches(text).forEach((name, occurrences) ->
+                    characterCounts.merge(name, occurrences + 3, Integer::sum));
         }
         
         // 6. 提取高频词作为可能的人名 (新增)
@@ -870,19 +825,6 @@ public class HanlpNlpServiceImpl implements NlpService {
                 .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
         
-        // 保存识别到的人物到小说特有人名词典
-        try {
-            Long novelId = getCurrentNovelId();
-            if (novelId != null) {
-                // 只保存排名靠前的人物
-                int topCharacterCount = Math.min(30, result.size()); // 增加保存数量
-                Set<String> topCharacters = new HashSet<>(result.subList(0, topCharacterCount));
-                nameDictionary.addNovelSpecificNames(novelId, topCharacters);
-            }
-        } catch (Exception e) {
-            logger.debug("保存人物到小说特有人名词典失败", e);
-        }
-        
         // 确保至少返回一些角色（即使是推测的）
         if (result.isEmpty()) {
             logger.warn("未能识别出任何角色，添加默认角色");
@@ -909,6 +851,20 @@ public class HanlpNlpServiceImpl implements NlpService {
         }
     }
 
+    /**
+     * 获取当前正在处理的小说的人名词典
+     * 
+     * @return 人名词典，没有小说上下文或尚未生成时返回null
+     */
+    private NameGazetteer currentGazetteer() {
+        try {
+            return nameGazetteerService.get(getCurrentNovelId());
+        } catch (Exception e) {
+            logger.warn("获取小说人名词典失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 判断词性是否为人名
      */
@@ -1175,7 +1131,7 @@ public class HanlpNlpServiceImpl implements NlpService {
         double baseScore = 0.5;
         
         // 情感词及其修饰词的位置跟踪
-        List<Term> termList = HanLP.segment(text);
+        List<Term> termList = segmentationCache.segment(text);
         Map<Integer, Double> sentimentMap = new HashMap<>(); // 位置 -> 情感值
         Map<Integer, Integer> degreeMap = new HashMap<>();   // 位置 -> 程度值
         Map<Integer, Boolean> negationMap = new HashMap<>(); // 位置 -> 是否被否定
@@ -1186,8 +1142,9 @@ public class HanlpNlpServiceImpl implements NlpService {
             String word = term.word;
             
             // 情感词识别
-            if (EMOTION_DICT.containsKey(word)) {
-                int score = EMOTION_DICT.get(word);
+            Integer emotionScore = lexiconRegistry.valueOf(LexiconRegistry.EMOTION, word);
+            if (emotionScore != null) {
+                int score = emotionScore;
                 // 归一化到0-1范围
                 double normalizedScore = (score + 3) / 6.0; // 从[-3,3]映射到[0,1]
                 sentimentMap.put(i, normalizedScore);
@@ -1402,9 +1359,10 @@ public class HanlpNlpServiceImpl implements NlpService {
     
     /**
      * 从文本中提取对话，用于人物关系识别
-     * 支持中文引号和英文引号
+     * 支持中文引号和英文引号，由DialogueScanner一次扫描得到，每段引号对话只输出一次；
+     * 小说已有人名词典时，说话者归一为其中包含的已知人名
      * @param text 需要分析的文本
-     * @return 对话列表，每项包含说话者和内容
+     * @return 对话列表，每项包含说话者、内容、开引号位置和闭引号之后的位置，有听话者时包含listener
      */
     public List<Map<String, String>> extractDialogues(String text) {
         List<Map<String, String>> dialogues = new ArrayList<>();
@@ -1414,101 +1372,25 @@ public class HanlpNlpServiceImpl implements NlpService {
         }
         
         try {
-            // 模式1: 角色名+冒号+引号内容 (支持中英文引号和冒号)
-            Pattern pattern1 = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,15})[：:][\"]([^\"]*)[\"]", Pattern.DOTALL);
-            Pattern pattern1b = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,15})[：:][\u201c]([^\u201d]*)[\u201d]", Pattern.DOTALL);
-            
-            // 模式2: 角色名+说/道/问+冒号+引号内容
-            Pattern pattern2 = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,15})[说道问答喊叫][：:][\"]([^\"]*)[\"]", Pattern.DOTALL);
-            Pattern pattern2b = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,15})[说道问答喊叫][：:][\u201c]([^\u201d]*)[\u201d]", Pattern.DOTALL);
-            
-            // 模式3: 引号内容+角色名+说/道
-            Pattern pattern3 = Pattern.compile("[\"]([^\"]*)[\"][\\s]*[，。！？,.。]([^，。：:\"'！？\\s\\n]{1,15})[说道问答喊叫]", Pattern.DOTALL);
-            Pattern pattern3b = Pattern.compile("[\u201c]([^\u201d]*)[\u201d][\\s]*[，。！？,.。]([^，。：:\"'！？\\s\\n]{1,15})[说道问答喊叫]", Pattern.DOTALL);
-            
-            // 模式4: 直接匹配常见对话格式 ""xxxx" 他说道"
-            Pattern pattern4 = Pattern.compile("[\u201c]([^\u201d]{2,100})[\u201d][，。？！,.!?]?\\s*([^，。：;！？\\s\\n]{1,10})(?:说|道|问|答|嘀咕|喊|叫|笑)", Pattern.DOTALL);
-            
-            // 模式5: 引号对话 (不确定说话者，但至少提取对话内容)
-            Pattern pattern5 = Pattern.compile("[\u201c]([^\u201d]{2,100})[\u201d]", Pattern.DOTALL);
-            
-            // 模式6: 角色+动词+说话内容 (新增)
-            Pattern pattern6 = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,10})(?:对着|朝着|冲着|转向|看着|盯着)([^，。：:\"'！？\\s\\n]{1,10})(?:说|道|问|喊|叫)[：:，,][\u201c]([^\u201d]*)[\u201d]", Pattern.DOTALL);
-            
-            // 模式7: 说话者敬语形式 (新增) - 如"xxx大人说道"
-            Pattern pattern7 = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,5})(?:大人|先生|小姐|公子|师父|师傅|师兄|师姐|师弟|师妹|大哥|大姐|爷爷|奶奶|叔叔|阿姨)(?:说|道|问|答|喊|叫)[：:，,]?[\u201c]([^\u201d]*)[\u201d]", Pattern.DOTALL);
-            
-            // 模式8: 人物+特殊动词+引号内容 (新增)
-            Pattern pattern8 = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,10})(?:点头|摇头|思考|沉默|微笑|叹气|皱眉|惊讶|大笑|冷笑)[了]?[一下子]?[，：:,][\u201c]([^\u201d]*)[\u201d]", Pattern.DOTALL);
-            
-            // 处理模式1
-            processMatcher(pattern1, text, dialogues, 1, 2);
-            processMatcher(pattern1b, text, dialogues, 1, 2);
-            
-            // 处理模式2
-            processMatcher(pattern2, text, dialogues, 1, 2);
-            processMatcher(pattern2b, text, dialogues, 1, 2);
-            
-            // 处理模式3
-            processMatcher(pattern3, text, dialogues, 2, 1);
-            processMatcher(pattern3b, text, dialogues, 2, 1);
-            
-            // 处理模式4
-            processMatcher(pattern4, text, dialogues, 2, 1);
-            
-            // 处理模式6 (新增)
-            Matcher matcher6 = pattern6.matcher(text);
-            while (matcher6.find()) {
-                Map<String, String> dialogue = new HashMap<>();
-                dialogue.put("speaker", matcher6.group(1).trim());
-                dialogue.put("listener", matcher6.group(2).trim());
-                dialogue.put("content", matcher6.group(3).trim());
-                dialogues.add(dialogue);
-                    }
-                    
-            // 处理模式7 (新增)
-            Matcher matcher7 = pattern7.matcher(text);
-            while (matcher7.find()) {
-                Map<String, String> dialogue = new HashMap<>();
-                dialogue.put("speaker", matcher7.group(1).trim());
-                dialogue.put("content", matcher7.group(2).trim());
-                dialogues.add(dialogue);
-                    }
-            
-            // 处理模式8 (新增)
-            Matcher matcher8 = pattern8.matcher(text);
-            while (matcher8.find()) {
-                Map<String, String> dialogue = new HashMap<>();
-                dialogue.put("speaker", matcher8.group(1).trim());
-                dialogue.put("content", matcher8.group(2).trim());
-                dialogues.add(dialogue);
-            }
-            
-            // 处理模式5 (未知说话者)
-            Matcher matcher5 = pattern5.matcher(text);
-            while (matcher5.find()) {
-                String content = matcher5.group(1).trim();
-                
-                // 检查是否已经在之前的模式中捕获了这个对话
-                boolean alreadyCaptured = false;
-                for (Map<String, String> existingDialogue : dialogues) {
-                    if (existingDialogue.get("content").equals(content)) {
-                        alreadyCaptured = true;
-                        break;
+            NameGazetteer gazetteer = currentGazetteer();
+            for (DialogueScanner.Span span : scanDialogues(text)) {
+                String speaker = span.getSpeaker();
+                if (speaker != null && gazetteer != null && !gazetteer.contains(speaker)) {
+                    String knownName = gazetteer.firstMatch(speaker);
+                    if (knownName != null) {
+                        speaker = knownName;
                     }
                 }
-                
-                if (!alreadyCaptured) {
-                    // 未收录的对话，尝试通过上下文推断说话者
-                    String potentialSpeaker = inferSpeakerFromContext(text, matcher5.start());
-                    
-                    Map<String, String> dialogue = new HashMap<>();
-                    dialogue.put("speaker", potentialSpeaker);
-                    dialogue.put("content", content);
-                    dialogues.add(dialogue);
+                Map<String, String> dialogue = new HashMap<>();
+                dialogue.put("speaker", speaker != null ? speaker : "未知人物");
+                dialogue.put("content", span.getContent());
+                if (span.getListener() != null) {
+                    dialogue.put("listener", span.getListener());
                 }
+                dialogue.put("start", String.valueOf(span.getStart()));
+                dialogue.put("end", String.valueOf(span.getEnd()));
+                dialogues.add(dialogue);
             }
-            
         } catch (Exception e) {
             logger.error("提取对话失败", e);
         }
@@ -1516,179 +1398,112 @@ public class HanlpNlpServiceImpl implements NlpService {
         return dialogues;
     }
     
-    /**
-     * 处理正则匹配结果并添加到对话列表
-     */
-    private void processMatcher(Pattern pattern, String text, List<Map<String, String>> dialogues, 
-                              int speakerGroup, int contentGroup) {
-        Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            Map<String, String> dialogue = new HashMap<>();
-            dialogue.put("speaker", matcher.group(speakerGroup).trim());
-            dialogue.put("content", matcher.group(contentGroup).trim());
-            dialogues.add(dialogue);
-        }
+    @Override
+    public List<DialogueScanner.Span> scanDialogues(String text) {
+        return DialogueScanner.scan(text);
     }
-    
-    /**
-     * 尝试从上下文推断说话者
-     * 新增方法，通过分析对话前的内容来推断可能的说话者
-     */
-    private String inferSpeakerFromContext(String text, int dialogueStartPosition) {
-        // 默认未知人物
-        String defaultSpeaker = "未知人物";
+
+    @Override
+    public List<Map<String, Object>> analyzeCharacterRelationships(List<Map<String, String>> dialogues) {
+        return analyzeCharacterRelationships(accumulateRelationships(null, dialogues, null));
+    }
+
+    @Override
+    public RelationshipAccumulator accumulateRelationships(String text, List<Map<String, String>> dialogues,
+                                                           Collection<String> characters) {
+        RelationshipAccumulator accumulator = new RelationshipAccumulator();
+        NameGazetteer gazetteer = currentGazetteer();
+        
+        // 1. 统计对话数据：说话者与对话中提到的人物
+        if (dialogues != null) {
+            for (Map<String, String> dialogue : dialogues) {
+                String speaker = dialogue.get("speaker");
+                String content = dialogue.get("content");
+                
+                if (speaker == null || content == null || speaker.isEmpty() || content.isEmpty()) {
+                    continue;
+                }
+                
+                Set<String> mentionedCharacters = extractMentionedCharacters(content, gazetteer);
+                mentionedCharacters.remove(speaker);
+                if (mentionedCharacters.isEmpty()) {
+                    accumulator.characterId(speaker);
+                    continue;
+                }
+                
+                accumulator.addDialogue(speaker, mentionedCharacters, analyzeSentiment(content),
+                        HanLP.extractKeyword(content, 5));
+            }
+        }
         
-        try {
-            // 获取对话前的最多50个字符
-            int contextStart = Math.max(0, dialogueStartPosition - 50);
-            String context = text.substring(contextStart, dialogueStartPosition);
-            
-            // 查找可能的人名模式
-            Pattern namePattern = Pattern.compile("([^，。：:\"'！？\\s\\n]{1,10})(?:说|道|问|答|看|笑|叹|喊)");
-            Matcher matcher = namePattern.matcher(context);
-            
-            String lastMatch = null;
-            while (matcher.find()) {
-                lastMatch = matcher.group(1).trim();
+        // 2. 叙述中按句子窗口统计人物共现，默认角色和单字称呼不参与；人名词典中的已知人名一并统计，
+        //    只加入词典Trie在本段文本中实际匹配到的人名，人物名自动机只包含本章出现的人物
+        if (text != null && (characters != null || gazetteer != null)) {
+            Stream<String> candidates = characters != null ? characters.stream() : Stream.empty();
+            if (gazetteer != null) {
+                candidates = Stream.concat(candidates, gazetteer.countMatches(text).keySet().stream());
             }
-            
-            return lastMatch != null ? lastMatch : defaultSpeaker;
-            
-        } catch (Exception e) {
-            logger.debug("从上下文推断说话者失败", e);
-            return defaultSpeaker;
+            List<String> names = candidates
+                    .filter(name -> name != null && name.length() >= 2 && !"主角".equals(name) && !"配角".equals(name))
+                    .distinct()
+                    .collect(Collectors.toList());
+            accumulator.addSentenceWindow(text, names, RELATIONSHIP_SENTENCE_WINDOW);
         }
+        
+        return accumulator;
     }
 
     @Override
-    public List<Map<String, Object>> analyzeCharacterRelationships(List<Map<String, String>> dialogues) {
+    public List<Map<String, Object>> analyzeCharacterRelationships(RelationshipAccumulator accumulator) {
         List<Map<String, Object>> relationships = new ArrayList<>();
         
-        // 对话次数统计
-        Map<String, Map<String, Integer>> dialogCounts = new HashMap<>();
-        
-        // 对话情感映射
-        Map<String, Map<String, Double>> dialogSentiments = new HashMap<>();
-        
-        // 对话词汇共现统计
-        Map<String, Map<String, Set<String>>> sharedWords = new HashMap<>();
-        
-        // 共现矩阵：记录角色在同一场景中出现的次数
-        Map<String, Map<String, Integer>> cooccurrenceMatrix = new HashMap<>();
-        
-        // 提取所有可能的角色
-        Set<String> allCharacters = new HashSet<>();
-        
         // 获取词典工具实例
         ChineseNameDictionary nameDictionary = ApplicationContextProvider.getBean(ChineseNameDictionary.class);
         
-        // 1. 统计对话数据
-        for (Map<String, String> dialogue : dialogues) {
-            String speaker = dialogue.get("speaker");
-            String content = dialogue.get("content");
-            
-            if (speaker == null || content == null || speaker.isEmpty() || content.isEmpty()) {
+        // 2. 计算角色重要性得分
+        double[] importanceById = accumulator.importance(10, 0.85);
+        Map<String, Double> characterImportance = new HashMap<>();
+        for (int id = 0; id < importanceById.length; id++) {
+            characterImportance.put(accumulator.name(id), importanceById[id]);
+        }
+        
+        // 3. 过滤噪声角色
+        Set<String> significantCharacters = filterSignificantCharacters(characterImportance, characterImportance.keySet());
+        
+        // 4. 只对有共现或对话的角色对生成关系数据
+        Map<Long, Set<String>> sharedWordsByPair = accumulator.sharedWordsByPair();
+        for (long pair : accumulator.pairs()) {
+            int first = SparseCounter.high(pair);
+            int second = SparseCounter.low(pair);
+            if (!significantCharacters.contains(accumulator.name(first))
+                    || !significantCharacters.contains(accumulator.name(second))) {
                 continue;
             }
             
-            allCharacters.add(speaker);
+            // 计算交互频率
+            int firstToSecond = accumulator.interactions(first, second);
+            int secondToFirst = accumulator.interactions(second, first);
             
-            // 提取对话中提到的其他角色
-            Set<String> mentionedCharacters = extractMentionedCharacters(content);
+            // 共现次数
+            int cooccurrences = accumulator.cooccurrences(first, second);
             
-            // 更新共现矩阵
-            for (String mentionedChar : mentionedCharacters) {
-                allCharacters.add(mentionedChar);
-                
-                // 更新speaker与mentionedChar的共现关系
-                cooccurrenceMatrix.computeIfAbsent(speaker, k -> new HashMap<>())
-                    .put(mentionedChar, cooccurrenceMatrix.getOrDefault(speaker, Collections.emptyMap())
-                        .getOrDefault(mentionedChar, 0) + 1);
-                
-                // 反向更新，确保共现矩阵的对称性
-                cooccurrenceMatrix.computeIfAbsent(mentionedChar, k -> new HashMap<>())
-                    .put(speaker, cooccurrenceMatrix.getOrDefault(mentionedChar, Collections.emptyMap())
-                        .getOrDefault(speaker, 0) + 1);
+            // 忽略没有足够交互或共现的角色对
+            if ((firstToSecond + secondToFirst < 2) && cooccurrences < 3) {
+                continue;
             }
             
-            // 计算对话的情感值
-            double sentiment = analyzeSentiment(content);
+            // 情感平均值
+            double averageSentiment = (accumulator.sentiment(first, second) + accumulator.sentiment(second, first)) / 2;
             
-            // 提取对话关键词
-            List<String> keywords = HanLP.extractKeyword(content, 5);
+            // 两个方向合并后的共享词汇，按出现次数排列
+            Set<String> combinedWords = sharedWordsByPair.getOrDefault(pair, Collections.emptySet());
             
-            // 更新对话统计
-            for (String mentionedChar : mentionedCharacters) {
-                // 排除自己对自己说话的情况
-                if (mentionedChar.equals(speaker)) {
-                    continue;
-                }
-                
-                // 增加对话计数
-                dialogCounts.computeIfAbsent(speaker, k -> new HashMap<>());
-                dialogCounts.get(speaker).put(mentionedChar, 
-                        dialogCounts.get(speaker).getOrDefault(mentionedChar, 0) + 1);
-                
-                // 更新情感值
-                dialogSentiments.computeIfAbsent(speaker, k -> new HashMap<>());
-                Double currentSentiment = dialogSentiments.get(speaker).getOrDefault(mentionedChar, 0.5);
-                // 将新情感值与历史情感值加权平均
-                dialogSentiments.get(speaker).put(mentionedChar, 
-                        currentSentiment * 0.7 + sentiment * 0.3);
-                
-                // 更新共享词汇
-                sharedWords.computeIfAbsent(speaker, k -> new HashMap<>());
-                sharedWords.get(speaker).computeIfAbsent(mentionedChar, k -> new HashSet<>());
-                sharedWords.get(speaker).get(mentionedChar).addAll(keywords);
-            }
-        }
-        
-        // 2. 计算角色重要性得分
-        Map<String, Double> characterImportance = calculateCharacterImportance(cooccurrenceMatrix, allCharacters);
-        
-        // 3. 过滤噪声角色
-        Set<String> significantCharacters = filterSignificantCharacters(characterImportance, allCharacters);
-        
-        // 4. 生成关系数据
-        for (String char1 : significantCharacters) {
-            for (String char2 : significantCharacters) {
-                if (char1.equals(char2)) {
-                    continue;
-                }
-                
-                // 计算交互频率
-                int char1ToChar2 = dialogCounts.getOrDefault(char1, Collections.emptyMap())
-                                            .getOrDefault(char2, 0);
-                int char2ToChar1 = dialogCounts.getOrDefault(char2, Collections.emptyMap())
-                                            .getOrDefault(char1, 0);
-                
-                // 共现次数
-                int cooccurrences = cooccurrenceMatrix.getOrDefault(char1, Collections.emptyMap())
-                                                .getOrDefault(char2, 0);
-                
-                // 忽略没有足够交互或共现的角色对
-                if ((char1ToChar2 + char2ToChar1 < 2) && cooccurrences < 3) {
-                    continue;
-                }
-                
-                // 计算情感倾向
-                double char1ToChar2Sentiment = dialogSentiments.getOrDefault(char1, Collections.emptyMap())
-                                                    .getOrDefault(char2, 0.5);
-                double char2ToChar1Sentiment = dialogSentiments.getOrDefault(char2, Collections.emptyMap())
-                                                    .getOrDefault(char1, 0.5);
-                
-                // 情感平均值
-                double averageSentiment = (char1ToChar2Sentiment + char2ToChar1Sentiment) / 2;
-                
-                // 提取共享语言特征
-                Set<String> char1ToChar2Words = sharedWords.getOrDefault(char1, Collections.emptyMap())
-                                                   .getOrDefault(char2, Collections.emptySet());
-                Set<String> char2ToChar1Words = sharedWords.getOrDefault(char2, Collections.emptyMap())
-                                                   .getOrDefault(char1, Collections.emptySet());
-                
-                // 合并共享词汇
-                Set<String> combinedWords = new HashSet<>(char1ToChar2Words);
-                combinedWords.addAll(char2ToChar1Words);
+            // 每个角色对按两个方向各输出一条，与原有结果格式保持一致
+            for (int direction = 0; direction < 2; direction++) {
+                String char1 = accumulator.name(direction == 0 ? first : second);
+                String char2 = accumulator.name(direction == 0 ? second : first);
+                int char1ToChar2 = direction == 0 ? firstToSecond : secondToFirst;
+                int char2ToChar1 = direction == 0 ? secondToFirst : firstToSecond;
                 
                 // 确定关系类型
                 String relationship = determineRelationshipType(
@@ -1719,19 +1534,20 @@ public class HanlpNlpServiceImpl implements NlpService {
                     relation.put("relationship", "可能是同一角色");
                     relation.put("is_alias", true);
                     
-                    // 记录别名关系
-                    try {
-                        if (nameDictionary != null) {
-                            // 选择更可能是主名称的作为realName（通常是出现次数更多的）
-                            if (characterImportance.getOrDefault(char1, 0.0) > 
-                                characterImportance.getOrDefault(char2, 0.0)) {
-                                nameDictionary.addCharacterAlias(char1, char2);
-                            } else {
-                                nameDictionary.addCharacterAlias(char2, char1);
+                    // 记录别名关系，每个角色对只记录一次
+                    if (direction == 0) {
+                        try {
+                            if (nameDictionary != null) {
+                                // 选择更可能是主名称的作为realName（通常是出现次数更多的）
+                                if (importanceById[first] > importanceById[second]) {
+                                    nameDictionary.addCharacterAlias(char1, char2);
+                                } else {
+                                    nameDictionary.addCharacterAlias(char2, char1);
+                                }
                             }
+                        } catch (Exception e) {
+                            logger.debug("添加角色别名失败", e);
                         }
-                    } catch (Exception e) {
-                        logger.debug("添加角色别名失败", e);
                     }
                 }
                 
@@ -1749,64 +1565,6 @@ public class HanlpNlpServiceImpl implements NlpService {
         return relationships;
     }
 
-    /**
-     * 计算角色的重要性得分
-     * @param cooccurrenceMatrix 共现矩阵
-     * @param allCharacters 所有角色
-     * @return 角色重要性得分映射
-     */
-    private Map<String, Double> calculateCharacterImportance(
-            Map<String, Map<String, Integer>> cooccurrenceMatrix, 
-            Set<String> allCharacters) {
-        
-        Map<String, Double> importance = new HashMap<>();
-        
-        // 初始化每个角色的重要性为1.0
-        for (String character : allCharacters) {
-            importance.put(character, 1.0);
-        }
-        
-        // 迭代计算重要性（简化版PageRank算法）
-        double dampingFactor = 0.85;
-        int iterations = 10;
-        
-        for (int i = 0; i < iterations; i++) {
-            Map<String, Double> newImportance = new HashMap<>();
-            
-            for (String character : allCharacters) {
-                double sum = 0.0;
-                
-                // 计算所有指向当前角色的其他角色的贡献
-                for (String other : allCharacters) {
-                    if (other.equals(character)) continue;
-                    
-                    int linkWeight = cooccurrenceMatrix.getOrDefault(other, Collections.emptyMap())
-                                                  .getOrDefault(character, 0);
-                    
-                    if (linkWeight > 0) {
-                        // 计算其他角色的出链总权重
-                        int totalOutWeight = 0;
-                        for (Integer weight : cooccurrenceMatrix.getOrDefault(other, Collections.emptyMap()).values()) {
-                            totalOutWeight += weight;
-                        }
-                        
-                        if (totalOutWeight > 0) {
-                            sum += importance.get(other) * ((double)linkWeight / totalOutWeight);
-                        }
-                    }
-                }
-                
-                // 应用阻尼因子
-                newImportance.put(character, (1 - dampingFactor) + dampingFactor * sum);
-            }
-            
-            // 更新重要性
-            importance = newImportance;
-            }
-        
-        return importance;
-        }
-        
     /**
      * 过滤出重要的角色，移除噪声
      * @param importance 角色重要性得分
@@ -1963,61 +1721,45 @@ public class HanlpNlpServiceImpl implements NlpService {
      * 判断共享词汇是否暗示浪漫关系
      */
     private boolean sharedWordsSuggestRomance(Set<String> words) {
-        String[] romanticWords = {"爱", "喜欢", "心动", "浪漫", "亲爱", "想你", "思念", 
-                               "温柔", "甜蜜", "牵手", "拥抱", "吻", "爱人", "约会"};
-        
-        return containsAnyWord(words, romanticWords);
+        return containsAnyWord(words, LexiconRegistry.RELATION_ROMANCE);
     }
 
     /**
      * 判断共享词汇是否暗示家庭关系
      */
     private boolean sharedWordsSuggestFamily(Set<String> words) {
-        String[] familyWords = {"父亲", "母亲", "爸爸", "妈妈", "儿子", "女儿", "哥哥", "姐姐", 
-                             "弟弟", "妹妹", "家人", "亲人", "血缘", "家庭", "亲情"};
-        
-        return containsAnyWord(words, familyWords);
+        return containsAnyWord(words, LexiconRegistry.RELATION_FAMILY);
     }
 
     /**
      * 判断共享词汇是否暗示师徒关系
      */
     private boolean sharedWordsSuggestMentor(Set<String> words) {
-        String[] mentorWords = {"老师", "师父", "师傅", "徒弟", "弟子", "门徒", "学徒", 
-                              "教导", "指导", "传授", "学习", "教导", "修行"};
-        
-        return containsAnyWord(words, mentorWords);
+        return containsAnyWord(words, LexiconRegistry.RELATION_MENTOR);
     }
 
     /**
      * 判断共享词汇是否暗示商业关系
      */
     private boolean sharedWordsSuggestBusiness(Set<String> words) {
-        String[] businessWords = {"合作", "伙伴", "生意", "交易", "买卖", "买", "卖", 
-                                "价格", "钱", "金钱", "利润", "商业", "市场", "客户"};
-        
-        return containsAnyWord(words, businessWords);
+        return containsAnyWord(words, LexiconRegistry.RELATION_BUSINESS);
     }
 
     /**
      * 判断共享词汇是否暗示竞争关系
      */
     private boolean sharedWordsSuggestCompetition(Set<String> words) {
-        String[] competitionWords = {"对手", "竞争", "争夺", "比赛", "打败", "胜利", "失败", 
-                                 "赢", "输", "超越", "挑战", "实力", "强弱", "较量"};
-        
-        return containsAnyWord(words, competitionWords);
+        return containsAnyWord(words, LexiconRegistry.RELATION_COMPETITION);
     }
 
     /**
-     * 判断集合中是否包含指定词汇中的任何一个
+     * 判断集合中是否有词包含指定词典中的任何一个词
      */
-    private boolean containsAnyWord(Set<String> wordSet, String[] targetWords) {
-        for (String word : targetWords) {
-            for (String setWord : wordSet) {
-                if (setWord.contains(word)) {
-                    return true;
-                }
+    private boolean containsAnyWord(Set<String> wordSet, String category) {
+        AhoCorasickMatcher matcher = lexiconRegistry.matcher();
+        for (String setWord : wordSet) {
+            if (matcher.containsCategory(setWord, category)) {
+                return true;
             }
         }
         return false;
@@ -2220,8 +1962,9 @@ public class HanlpNlpServiceImpl implements NlpService {
         // 重要物品/概念
         if (!items.isEmpty()) {
             // 过滤出出现频率高的物品
+            Map<String, Integer> itemCounts = countOccurrences(text, items);
             List<String> significantItems = items.stream()
-                    .filter(item -> countOccurrences(text, item) >= 3)
+                    .filter(item -> itemCounts.getOrDefault(item, 0) >= 3)
                     .limit(5)
                     .collect(Collectors.toList());
                     
@@ -2384,7 +2127,8 @@ public class HanlpNlpServiceImpl implements NlpService {
         List<String> timeReferences = extractTimeReferences(text);
         
         // 提取情节关键点
-        Map<String, Integer> plotKeywords = extractPlotKeywords(text);
+        Map<String, Integer> plotKeywords = extractPlotKeywords(segmentationCache.segment(text),
+                scanLexicon(text).plotMarkers);
         
         // 分析情感变化点
         List<String> sentences = splitIntoSentences(text);
@@ -2500,7 +2244,7 @@ public class HanlpNlpServiceImpl implements NlpService {
      * 提取文本中的时间引用
      */
     private List<String> extractTimeReferences(String text) {
-        List<Term> terms = HanLP.segment(text);
+        List<Term> terms = segmentationCache.segment(text);
         Set<String> timeSet = new LinkedHashSet<>(); // 使用LinkedHashSet保持顺序并去重
         
         // 提取时间词
@@ -2521,15 +2265,7 @@ public class HanlpNlpServiceImpl implements NlpService {
         }
         
         // 特定时间关键词
-        String[] timeKeywords = {"清晨", "早晨", "上午", "中午", "下午", "傍晚", "晚上", "深夜", 
-                               "昨天", "今天", "明天", "后天", "前天", "上周", "本周", "下周", 
-                               "上个月", "这个月", "下个月", "去年", "今年", "明年"};
-        
-        for (String keyword : timeKeywords) {
-            if (text.contains(keyword)) {
-                timeSet.add(keyword);
-            }
-        }
+        timeSet.addAll(lexiconRegistry.matcher().countByWord(text, LexiconRegistry.TIME).keySet());
         
         return new ArrayList<>(timeSet);
     }
@@ -2654,44 +2390,41 @@ public class HanlpNlpServiceImpl implements NlpService {
             .filter(e -> e.length() > 1)
             .collect(Collectors.toList());
         
-        // 根据在文本中的出现频率排序
-        filtered.sort((e1, e2) -> {
-            int count1 = countOccurrences(text, e1);
-            int count2 = countOccurrences(text, e2);
-            return Integer.compare(count2, count1);
-        });
+        // 根据在文本中的出现频率排序，所有实体的出现次数一次扫描统计
+        Map<String, Integer> counts = countOccurrences(text, filtered);
+        filtered.sort((e1, e2) -> Integer.compare(counts.getOrDefault(e2, 0), counts.getOrDefault(e1, 0)));
         
         // 取前20个最频繁的实体
         return filtered.stream().limit(20).collect(Collectors.toList());
     }
     
     /**
-     * 计算字符串在文本中出现的次数
+     * 统计多个字符串在文本中出现的次数
      */
-    private int countOccurrences(String text, String target) {
-        int count = 0;
-        int index = 0;
-        while ((index = text.indexOf(target, index)) != -1) {
-            count++;
-            index += target.length();
-        }
-        return count;
+    private Map<String, Integer> countOccurrences(String text, Collection<String> targets) {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.builder().addAll("", targets).build();
+        return matcher.countByWord(text, "");
     }
 
     /**
      * 从文本中提取提到的人物角色
      */
-    private Set<String> extractMentionedCharacters(String text) {
+    private Set<String> extractMentionedCharacters(String text, NameGazetteer gazetteer) {
         Set<String> mentionedCharacters = new HashSet<>();
         
         // 提取人名
-        List<Term> terms = HanLP.segment(text);
+        List<Term> terms = segmentationCache.segment(text);
         for (Term term : terms) {
             if (isPerson(term.nature.toString())) {
                 mentionedCharacters.add(term.word);
             }
         }
         
+        // 人名词典中的已知人名
+        if (gazetteer != null) {
+            mentionedCharacters.addAll(gazetteer.countMatches(text).keySet());
+        }
+        
         // 尝试提取称呼语（如"爸爸"、"老师"、"大人"等）
         Pattern titlePattern = Pattern.compile("([老小][爷子]|大人|[师父]|[爸妈][爸妈]|[叔伯舅姨姑][父母]|[哥姐弟妹]|[王帝将军])");
         Matcher matcher = titlePattern.matcher(text);
@@ -0,0 +1,320 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.entity.IngestJob;
+import com.novelassistant.entity.IngestJob.JobStatus;
+import com.novelassistant.entity.Novel;
+import com.novelassistant.exception.ServiceException;
+import com.novelassistant.repository.IngestJobRepository;
+import com.novelassistant.repository.NovelRepository;
+import com.novelassistant.service.IngestJobService;
+import com.novelassistant.util.ErrorCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 小说导入任务队列服务实现
+ */
+@Service
+public class IngestJobServiceImpl implements IngestJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestJobServiceImpl.class);
+
+    // 每个用户每次领取时查看的候选任务数，其他节点同时领取走一个时可以尝试下一个
+    private static final int CLAIM_CANDIDATES_PER_USER = 3;
+
+    // 错误信息最大保存长度
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    @Autowired
+    private IngestJobRepository ingestJobRepository;
+
+    @Autowired
+    private NovelRepository novelRepository;
+
+    // 最大尝试次数
+    @Value("${novelassistant.ingest.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    // 租约时长（秒），工作节点失联超过该时间后任务可被其他节点接管
+    @Value("${novelassistant.ingest.lease-seconds:120}")
+    private int leaseSeconds = 120;
+
+    // 重试退避基数（秒），第n次失败后等待 base * 2^(n-1) 秒
+    @Value("${novelassistant.ingest.retry-backoff-seconds:30}")
+    private int retryBackoffSeconds = 30;
+
+    // 重试退避上限（秒）
+    @Value("${novelassistant.ingest.retry-backoff-max-seconds:1800}")
+    private int retryBackoffMaxSeconds = 1800;
+
+    // 每个用户同时运行的任务数上限
+    @Value("${novelassistant.ingest.max-running-per-user:1}")
+    private int maxRunningPerUser = 1;
+
+    // 每个用户排队中和运行中的任务总数上限
+    @Value("${novelassistant.ingest.max-pending-per-user:10}")
+    private int maxPendingPerUser = 10;
+
+    @Override
+    @Transactional
+    public IngestJob enqueue(Long novelId, Long userId, String filePath, int priority) {
+        if (userId != null && maxPendingPerUser > 0) {
+            long pending = ingestJobRepository.countByUserIdAndStatus(userId, JobStatus.QUEUED)
+                    + ingestJobRepository.countByUserIdAndStatus(userId, JobStatus.RUNNING);
+            if (pending >= maxPendingPerUser) {
+                throw new ServiceException("待处理的小说过多，请等待已上传的小说处理完成后再上传", ErrorCodes.OPERATION_REJECTED);
+            }
+        }
+
+        IngestJob job = new IngestJob(novelId, userId, filePath, priority);
+        job.setMaxAttempts(Math.max(1, maxAttempts));
+        job = ingestJobRepository.save(job);
+        logger.info("小说 {} 的导入任务已排队，任务ID: {}, 优先级: {}", novelId, job.getId(), priority);
+        return job;
+    }
+
+    /**
+     * 领取下一个任务
+     * 先按用户汇总可领取的任务，跳过运行数已达上限的用户，其余用户按运行中任务数从少到多、
+     * 最高优先级从高到低、最早任务从早到晚排序，依次领取各用户自己队列的队首任务；
+     * 某个用户排队的任务再多也只占一个候选位置，不会挤占其他用户
+     */
+    @Override
+    @Transactional
+    public IngestJob claimNext(String owner) {
+        Date now = new Date();
+        Map<Long, Long> runningByUser = new HashMap<>();
+        for (Object[] row : ingestJobRepository.countActiveRunningByUser(now)) {
+            runningByUser.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        List<Object[]> users = new ArrayList<>();
+        for (Object[] row : ingestJobRepository.summarizeClaimableByUser(now)) {
+            Long userId = (Long) row[0];
+            if (userId != null && maxRunningPerUser > 0 && runningByUser.getOrDefault(userId, 0L) >= maxRunningPerUser) {
+                continue;
+            }
+            users.add(row);
+        }
+        users.sort(Comparator.<Object[]>comparingLong(row -> runningByUser.getOrDefault((Long) row[0], 0L))
+                .thenComparing(row -> -((Number) row[1]).intValue())
+                .thenComparing(row -> (Date) row[2]));
+
+        PageRequest page = PageRequest.of(0, CLAIM_CANDIDATES_PER_USER);
+        for (Object[] user : users) {
+            Long userId = (Long) user[0];
+            List<IngestJob> candidates = userId != null
+                    ? ingestJobRepository.findClaimableByUser(userId, now, page)
+                    : ingestJobRepository.findClaimableWithoutUser(now, page);
+            IngestJob job = claimFirst(candidates, owner, now);
+            if (job != null) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按顺序尝试领取候选任务，返回第一个领取成功的任务
+     */
+    private IngestJob claimFirst(List<IngestJob> candidates, String owner, Date now) {
+        for (IngestJob candidate : candidates) {
+            Date leaseExpiresAt = new Date(now.getTime() + leaseSeconds * 1000L);
+            if (ingestJobRepository.claim(candidate.getId(), owner, leaseExpiresAt, now) == 1) {
+                IngestJob job = ingestJobRepository.findById(candidate.getId()).orElse(null);
+                if (job != null) {
+                    updateNovelStatus(job.getNovelId(), Novel.ProcessingStatus.PROCESSING);
+                    logger.info("工作节点 {} 领取导入任务 {}（小说 {}），第 {} 次尝试，检查点: {}",
+                            owner, job.getId(), job.getNovelId(), job.getAttempts(), job.getCheckpointChapter());
+                }
+                return job;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional
+    public boolean renewLease(Long jobId, String owner) {
+        Date leaseExpiresAt = new Date(System.currentTimeMillis() + leaseSeconds * 1000L);
+        return ingestJobRepository.renewLease(jobId, owner, leaseExpiresAt) == 1;
+    }
+
+    @Override
+    @Transactional
+    public void recordCheckpoint(Long jobId, String owner, int committedChapters) {
+        if (ingestJobRepository.updateCheckpoint(jobId, owner, committedChapters) != 1) {
+            throw new ServiceException("导入任务 " + jobId + " 已取消或已被其他节点接管", ErrorCodes.OPERATION_REJECTED);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void complete(Long jobId, String owner) {
+        IngestJob job = findOwnedRunningJob(jobId, owner);
+        if (job == null) {
+            return;
+        }
+
+        job.setStatus(JobStatus.SUCCEEDED);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setLastError(null);
+        job.setFinishedAt(new Date());
+        ingestJobRepository.save(job);
+        logger.info("导入任务 {}（小说 {}）处理完成", jobId, job.getNovelId());
+    }
+
+    @Override
+    @Transactional
+    public void fail(Long jobId, String owner, Throwable error) {
+        IngestJob job = findOwnedRunningJob(jobId, owner);
+        if (job == null) {
+            return;
+        }
+
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setLastError(truncateError(error));
+
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            job.setStatus(JobStatus.FAILED);
+            job.setFinishedAt(new Date());
+            updateNovelStatus(job.getNovelId(), Novel.ProcessingStatus.FAILED);
+            logger.error("导入任务 {}（小说 {}）已失败 {} 次，不再重试: {}",
+                    jobId, job.getNovelId(), job.getAttempts(), job.getLastError());
+        } else {
+            long delaySeconds = Math.min((long) retryBackoffSeconds << Math.min(20, job.getAttempts() - 1),
+                    retryBackoffMaxSeconds);
+            job.setStatus(JobStatus.QUEUED);
+            job.setNextRunAt(new Date(System.currentTimeMillis() + delaySeconds * 1000L));
+            updateNovelStatus(job.getNovelId(), Novel.ProcessingStatus.PENDING);
+            logger.warn("导入任务 {}（小说 {}）第 {} 次尝试失败，{} 秒后从第 {} 章之后重试: {}",
+                    jobId, job.getNovelId(), job.getAttempts(), delaySeconds, job.getCheckpointChapter(), job.getLastError());
+        }
+        ingestJobRepository.save(job);
+    }
+
+    @Override
+    public List<IngestJob> listJobs(String status, int limit) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, 500)));
+        if (status == null || status.isEmpty()) {
+            return ingestJobRepository.findAllByOrderByCreatedAtDesc(page);
+        }
+        return ingestJobRepository.findByStatusOrderByCreatedAtDesc(parseStatus(status), page);
+    }
+
+    @Override
+    public IngestJob getLatestJobForNovel(Long novelId) {
+        return ingestJobRepository.findFirstByNovelIdOrderByCreatedAtDesc(novelId).orElse(null);
+    }
+
+    @Override
+    public Map<String, Object> getQueueStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long total = 0;
+        for (JobStatus status : JobStatus.values()) {
+            long count = ingestJobRepository.countByStatus(status);
+            stats.put(status.name().toLowerCase(), count);
+            total += count;
+        }
+        stats.put("total", total);
+        return stats;
+    }
+
+    @Override
+    @Transactional
+    public IngestJob retry(Long jobId) {
+        IngestJob job = getJob(jobId);
+        if (job.getStatus() != JobStatus.FAILED && job.getStatus() != JobStatus.CANCELLED) {
+            throw new ServiceException("只能重试已失败或已取消的任务，当前状态: " + job.getStatus(), ErrorCodes.OPERATION_REJECTED);
+        }
+
+        // 重置尝试次数，保留检查点，从已提交的章节之后继续
+        job.setStatus(JobStatus.QUEUED);
+        job.setAttempts(0);
+        job.setNextRunAt(new Date());
+        job.setFinishedAt(null);
+        updateNovelStatus(job.getNovelId(), Novel.ProcessingStatus.PENDING);
+        logger.info("导入任务 {}（小说 {}）已重新排队，检查点: {}", jobId, job.getNovelId(), job.getCheckpointChapter());
+        return ingestJobRepository.save(job);
+    }
+
+    @Override
+    @Transactional
+    public IngestJob cancel(Long jobId) {
+        IngestJob job = getJob(jobId);
+        if (job.getStatus() != JobStatus.QUEUED && job.getStatus() != JobStatus.RUNNING) {
+            throw new ServiceException("只能取消排队中或运行中的任务，当前状态: " + job.getStatus(), ErrorCodes.OPERATION_REJECTED);
+        }
+
+        job.setStatus(JobStatus.CANCELLED);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setFinishedAt(new Date());
+        updateNovelStatus(job.getNovelId(), Novel.ProcessingStatus.FAILED);
+        logger.info("导入任务 {}（小说 {}）已取消", jobId, job.getNovelId());
+        return ingestJobRepository.save(job);
+    }
+
+    @Override
+    @Transactional
+    public IngestJob updatePriority(Long jobId, int priority) {
+        IngestJob job = getJob(jobId);
+        job.setPriority(priority);
+        return ingestJobRepository.save(job);
+    }
+
+    /**
+     * 获取仍由该节点持有的运行中任务，任务已被取消或接管时返回null
+     */
+    private IngestJob findOwnedRunningJob(Long jobId, String owner) {
+        IngestJob job = ingestJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != JobStatus.RUNNING || !owner.equals(job.getLeaseOwner())) {
+            logger.warn("导入任务 {} 已不由工作节点 {} 持有，忽略结果", jobId, owner);
+            return null;
+        }
+        return job;
+    }
+
+    private IngestJob getJob(Long jobId) {
+        return ingestJobRepository.findById(jobId)
+                .orElseThrow(() -> new ServiceException("导入任务不存在: " + jobId, ErrorCodes.RESOURCE_NOT_FOUND));
+    }
+
+    private JobStatus parseStatus(String status) {
+        try {
+            return JobStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException("无效的任务状态: " + status, ErrorCodes.INVALID_PARAMETER);
+        }
+    }
+
+    private void updateNovelStatus(Long novelId, Novel.ProcessingStatus status) {
+        novelRepository.findById(novelId).ifPresent(novel -> {
+            novel.setProcessingStatus(status);
+            novelRepository.save(novel);
+        });
+    }
+
+    private static String truncateError(Throwable error) {
+        if (error == null) {
+            return null;
+        }
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
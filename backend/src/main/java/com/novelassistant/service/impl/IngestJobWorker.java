@@ -0,0 +1,158 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.entity.IngestJob;
+import com.novelassistant.service.IngestJobService;
+import com.novelassistant.service.NovelService;
+import com.novelassistant.util.RequestContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 小说导入任务工作器
+ * 定时从导入任务队列领取任务并在工作线程池中执行，在独立的调度线程上定时为本节点持有的任务续约；
+ * 续约失败（任务已被取消或被其他节点接管）时中断对应的任务
+ */
+@Component
+public class IngestJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestJobWorker.class);
+
+    @Autowired
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    private NovelService novelService;
+
+    @Autowired
+    @Qualifier("ingestJobExecutor")
+    private ExecutorService ingestJobExecutor;
+
+    @Autowired
+    @Qualifier("leaseRenewalScheduler")
+    private ScheduledExecutorService leaseRenewalScheduler;
+
+    // 续约间隔（毫秒），应明显小于租约时长
+    @Value("${novelassistant.ingest.lease-renew-interval-ms:30000}")
+    private long leaseRenewIntervalMs = 30000;
+
+    // 本节点同时处理的任务数
+    @Value("${novelassistant.ingest.workers:2}")
+    private int workers = 2;
+
+    // 是否在本节点处理导入任务
+    @Value("${novelassistant.ingest.worker-enabled:true}")
+    private boolean workerEnabled = true;
+
+    // 工作节点标识，作为任务租约的持有者
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName()
+            + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    // 本节点正在处理的任务
+    private final Map<Long, Future<?>> runningJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 领取并提交任务，直到工作线程全部占用或没有可领取的任务
+     */
+    @Scheduled(initialDelayString = "${novelassistant.ingest.poll-initial-delay-ms:10000}",
+               fixedDelayString = "${novelassistant.ingest.poll-interval-ms:2000}")
+    public void pollJobs() {
+        if (!workerEnabled) {
+            return;
+        }
+        runningJobs.values().removeIf(Future::isDone);
+
+        try {
+            while (runningJobs.size() < workers) {
+                IngestJob job = ingestJobService.claimNext(nodeId);
+                if (job == null) {
+                    break;
+                }
+                runningJobs.put(job.getId(), ingestJobExecutor.submit(() -> runJob(job)));
+            }
+        } catch (Exception e) {
+            logger.error("领取导入任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @PostConstruct
+    public void startLeaseRenewal() {
+        leaseRenewalScheduler.scheduleWithFixedDelay(this::renewLeases,
+                leaseRenewIntervalMs, leaseRenewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为本节点持有的任务续约，在独立的调度线程上执行
+     */
+    public void renewLeases() {
+        for (Map.Entry<Long, Future<?>> entry : runningJobs.entrySet()) {
+            if (entry.getValue().isDone()) {
+                continue;
+            }
+            try {
+                if (!ingestJobService.renewLease(entry.getKey(), nodeId)) {
+                    logger.warn("导入任务 {} 的租约已失效（已取消或被其他节点接管），停止处理", entry.getKey());
+                    entry.getValue().cancel(true);
+                }
+            } catch (Exception e) {
+                logger.error("导入任务 {} 续约失败: {}", entry.getKey(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 本节点正在处理的任务ID
+     */
+    public Set<Long> getRunningJobIds() {
+        runningJobs.values().removeIf(Future::isDone);
+        return runningJobs.keySet();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void runJob(IngestJob job) {
+        Long jobId = job.getId();
+        RequestContextHolder.setCurrentNovelId(job.getNovelId());
+        try {
+            novelService.runIngest(job.getNovelId(), job.getFilePath(), job.getCheckpointChapter(),
+                    committedChapters -> ingestJobService.recordCheckpoint(jobId, nodeId, committedChapters));
+            ingestJobService.complete(jobId, nodeId);
+
+            // 处理成功后删除上传文件，失败的任务保留文件以便重试；URL导入没有上传文件
+            File file = new File(job.getFilePath());
+            if (file.exists() && !file.delete()) {
+                logger.warn("删除上传文件失败: {}", job.getFilePath());
+            }
+        } catch (Throwable e) {
+            logger.error("导入任务 {}（小说 {}）处理失败: {}", jobId, job.getNovelId(), e.getMessage(), e);
+            // 任务被取消时线程处于中断状态，先清除中断标记再更新任务状态
+            Thread.interrupted();
+            try {
+                ingestJobService.fail(jobId, nodeId, e);
+            } catch (Exception ex) {
+                logger.error("更新导入任务 {} 状态失败: {}", jobId, ex.getMessage(), ex);
+            }
+        } finally {
+            RequestContextHolder.clearCurrentNovelId();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novelassistant.entity.NovelGazetteer;
+import com.novelassistant.repository.NovelGazetteerRepository;
+import com.novelassistant.service.NameGazetteerService;
+import com.novelassistant.util.NameGazetteer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 小说人名词典服务实现
+ * 数据库中保存人名及权重，每次补充与已有人名合并，超过上限时丢弃权重最低的；
+ * 双数组Trie在加载时重新构建；没有词典的小说同样缓存，
+ * 避免导入过程中每章都查询数据库
+ */
+@Service
+public class NameGazetteerServiceImpl implements NameGazetteerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NameGazetteerServiceImpl.class);
+
+    // 人名长度范围
+    private static final int MIN_NAME_LENGTH = 2;
+    private static final int MAX_NAME_LENGTH = 6;
+
+    // 每次补充时最多取前多少个人物
+    private static final int MAX_SEED_NAMES = 200;
+
+    // 排名第一的人物的权重，之后按排名递减，最低为1
+    private static final int TOP_WEIGHT = MAX_SEED_NAMES;
+
+    @Autowired
+    private NovelGazetteerRepository gazetteerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 每部小说词典保留的人名上限，超出时丢弃权重最低的
+    @Value("${novelassistant.gazetteer.max-names:2000}")
+    private int maxNames = 2000;
+
+    // 词典在内存中闲置多久后移除（毫秒）
+    @Value("${novelassistant.gazetteer.idle-evict-ms:1800000}")
+    private long idleEvictMs = 1800000L;
+
+    private final Map<Long, CachedGazetteer> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Override
+    public NameGazetteer get(Long novelId) {
+        if (novelId == null) {
+            return null;
+        }
+        CachedGazetteer cached = cache.get(novelId);
+        if (cached == null) {
+            cached = cache.computeIfAbsent(novelId, id -> new CachedGazetteer(load(id)));
+        } else {
+            hits.incrementAndGet();
+        }
+        cached.lastAccess = System.currentTimeMillis();
+        return cached.gazetteer;
+    }
+
+    @Override
+    @Transactional
+    public void seed(Long novelId, List<String> rankedNames) {
+        if (novelId == null || rankedNames == null || rankedNames.isEmpty()) {
+            return;
+        }
+
+        // 与已保存的词典合并，同名取较高的权重，之前识别出的人名不会因本次排名靠后而丢失
+        Map<String, Integer> weights = new HashMap<>(gazetteerRepository.findByNovelId(novelId)
+                .map(this::readNames)
+                .orElse(Map.of()));
+        int before = weights.size();
+        int rank = 0;
+        for (String name : rankedNames) {
+            if (rank >= MAX_SEED_NAMES) {
+                break;
+            }
+            if (!isValidName(name)) {
+                continue;
+            }
+            weights.merge(name, Math.max(1, TOP_WEIGHT - rank), Math::max);
+            rank++;
+        }
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        NameGazetteer gazetteer = NameGazetteer.of(weights);
+        if (gazetteer.size() > maxNames) {
+            // getWeights按权重从高到低排列，保留前maxNames个
+            Map<String, Integer> kept = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : gazetteer.getWeights().entrySet()) {
+                if (kept.size() >= maxNames) {
+                    break;
+                }
+                kept.put(entry.getKey(), entry.getValue());
+            }
+            gazetteer = NameGazetteer.of(kept);
+        }
+
+        String namesJson;
+        try {
+            namesJson = objectMapper.writeValueAsString(gazetteer.getWeights());
+        } catch (Exception e) {
+            logger.error("序列化小说 {} 的人名词典失败: {}", novelId, e.getMessage(), e);
+            return;
+        }
+        // 用唯一键插入或更新；同一部小说的补充由其导入任务顺序执行
+        gazetteerRepository.upsert(novelId, gazetteer.size(), namesJson);
+
+        CachedGazetteer cached = new CachedGazetteer(gazetteer);
+        cached.lastAccess = System.currentTimeMillis();
+        cache.put(novelId, cached);
+        logger.info("小说 {} 的人名词典已更新，新增 {} 个人名，共 {} 个人名", novelId,
+                Math.max(0, gazetteer.size() - before), gazetteer.size());
+    }
+
+    @Override
+    @Transactional
+    public void invalidate(Long novelId) {
+        cache.remove(novelId);
+        gazetteerRepository.deleteByNovelId(novelId);
+        logger.info("小说 {} 的人名词典已删除", novelId);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long loaded = cache.values().stream().filter(c -> c.gazetteer != null).count();
+        stats.put("cachedNovels", cache.size());
+        stats.put("loadedGazetteers", loaded);
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("evictions", evictions.get());
+        stats.put("idleEvictMs", idleEvictMs);
+        stats.put("maxNames", maxNames);
+        return stats;
+    }
+
+    /**
+     * 定期移除闲置的词典
+     */
+    @Scheduled(fixedDelayString = "${novelassistant.gazetteer.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - idleEvictMs;
+        int before = cache.size();
+        cache.entrySet().removeIf(entry -> entry.getValue().lastAccess < deadline);
+        int evicted = before - cache.size();
+        if (evicted > 0) {
+            evictions.addAndGet(evicted);
+            logger.debug("已移除 {} 个闲置的人名词典", evicted);
+        }
+    }
+
+    private NameGazetteer load(Long novelId) {
+        loads.incrementAndGet();
+        try {
+            Map<String, Integer> weights = gazetteerRepository.findByNovelId(novelId)
+                    .map(this::readNames)
+                    .orElse(Map.of());
+            if (weights.isEmpty()) {
+                return null;
+            }
+            NameGazetteer gazetteer = NameGazetteer.of(weights);
+            logger.debug("已加载小说 {} 的人名词典，共 {} 个人名", novelId, gazetteer.size());
+            return gazetteer;
+        } catch (Exception e) {
+            logger.warn("加载小说 {} 的人名词典失败: {}", novelId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Integer> readNames(NovelGazetteer entity) {
+        if (entity.getNamesJson() == null || entity.getNamesJson().isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(entity.getNamesJson(), new TypeReference<Map<String, Integer>>() {});
+        } catch (Exception e) {
+            logger.warn("解析小说 {} 的人名词典失败: {}", entity.getNovelId(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private boolean isValidName(String name) {
+        return name != null
+                && name.length() >= MIN_NAME_LENGTH
+                && name.length() <= MAX_NAME_LENGTH
+                && !"主角".equals(name)
+                && !"配角".equals(name);
+    }
+
+    /**
+     * 缓存的词典，gazetteer为null表示小说尚无词典
+     */
+    private static class CachedGazetteer {
+        final NameGazetteer gazetteer;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        CachedGazetteer(NameGazetteer gazetteer) {
+            this.gazetteer = gazetteer;
+        }
+    }
+}
@@ -1,28 +1,38 @@
 package com.novelassistant.service.impl;
 
 import com.novelassistant.entity.Chapter;
+import com.novelassistant.entity.IngestJob;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.repository.ChapterRepository;
 import com.novelassistant.repository.NovelRepository;
-import com.novelassistant.service.NlpService;
-import com.novelassistant.service.NovelService;
+import com.novelassistant.service.IngestJobService;
 import com.novelassistant.service.crawler.NovelCrawlerService;
+import com.novelassistant.util.ContentHashUtil;
 import com.novelassistant.util.LogUtil;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 
 /**
  * 小说服务扩展实现类
  * 增加URL导入小说功能
+ * URL导入与文件上传共用导入任务队列：提交时只抓取目录页，章节由导入任务边抓取边分析、按批提交，
+ * 抓取、NLP分析和写入之间都是有界队列，内存占用与小说长度无关
  */
 @Service
 @Primary
@@ -32,18 +42,31 @@ public class NovelServiceExtImpl extends NovelServiceImpl {
 
     @Autowired
     private NovelCrawlerService novelCrawlerService;
-    
+
     @Autowired
     private NovelRepository novelRepository;
-    
+
     @Autowired
     private ChapterRepository chapterRepository;
-    
+
     @Autowired
-    private NlpService nlpService;
-    
+    private IngestJobService ingestJobService;
+
+    @Autowired
+    @Qualifier("crawlCoordinatorExecutor")
+    private ExecutorService crawlCoordinatorExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 已抓取、等待分析的章节数上限，抓取快于分析时抓取线程在此等待
+    @Value("${novelassistant.crawler.ingest-queue-capacity:16}")
+    private int ingestQueueCapacity = 16;
+
     /**
      * 从URL导入小说
+     * 只抓取目录页并创建小说，章节内容由导入任务抓取和处理，处理进度通过小说状态查询；
+     * 目录页在事务之外抓取，只有创建小说和提交导入任务在事务中
      * @param url 小说URL
      * @param userId 用户ID
      * @param title 可选的小说标题，如果提供则覆盖从网页提取的标题
@@ -52,231 +75,306 @@ public class NovelServiceExtImpl extends NovelServiceImpl {
      * @return 处理结果
      */
     @Override
-    @Transactional
     public Map<String, Object> importNovelFromUrl(String url, Long userId, String title, String author, int maxChapters) {
         Map<String, Object> result = new HashMap<>();
-        
+
         // 检查URL是否受支持
         if (!novelCrawlerService.isSupportedUrl(url)) {
             result.put("success", false);
             result.put("error", "不支持的URL格式，目前仅支持笔趣阁网站");
             return result;
         }
-        
-        // 爬取小说信息
-        Map<String, Object> crawlResult = novelCrawlerService.crawlNovelFromUrl(url, maxChapters);
-        
+
+        // 爬取小说信息和章节目录
+        Map<String, Object> crawlResult = novelCrawlerService.crawlNovelInfo(url, maxChapters);
+
         if (!(Boolean) crawlResult.getOrDefault("success", false)) {
             result.put("success", false);
             result.put("error", crawlResult.get("error"));
             return result;
         }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> chaptersInfo = (List<Map<String, String>>) crawlResult.get("chapters");
+        if (chaptersInfo == null || chaptersInfo.isEmpty()) {
+            result.put("success", false);
+            result.put("error", "未找到章节目录");
+            return result;
+        }
+
+        // 创建小说实体
+        Novel novel = new Novel();
+
+        // 设置小说标题，优先使用传入的标题
+        if (title != null && !title.trim().isEmpty()) {
+            novel.setTitle(title.trim());
+            logger.info("使用提供的标题: {}", title);
+        } else {
+            novel.setTitle((String) crawlResult.get("title"));
+            logger.info("使用爬取的标题: {}", crawlResult.get("title"));
+        }
+
+        // 设置小说作者，优先使用传入的作者
+        if (author != null && !author.trim().isEmpty()) {
+            novel.setAuthor(author.trim());
+            logger.info("使用提供的作者: {}", author);
+        } else {
+            novel.setAuthor((String) crawlResult.get("author"));
+            logger.info("使用爬取的作者: {}", crawlResult.get("author"));
+        }
+
+        novel.setDescription((String) crawlResult.get("description"));
+        novel.setSourceUrl(url);
+        novel.setUserId(userId);
+        novel.setProcessingStatus(Novel.ProcessingStatus.PENDING);
+
+        // 目录中的章节数即本次导入的章节数上限，导入任务重新读取目录时按此截取
+        novel.setTotalChapters(chaptersInfo.size());
+        novel.setProcessedChapters(0);
+
+        // 提交导入任务，任务的文件路径记录小说URL；抓取受限速影响耗时较长，按大文件的优先级排队
+        Novel saved = transactionTemplate.execute(status -> {
+            Novel created = novelRepository.save(novel);
+            ingestJobService.enqueue(created.getId(), userId, url, 0);
+            return created;
+        });
+        logger.info("成功保存小说: {}, ID: {}, 章节数: {}", saved.getTitle(), saved.getId(), chaptersInfo.size());
+
+        result.put("success", true);
+        result.put("novelId", saved.getId());
+        result.put("title", saved.getTitle());
+        result.put("chapterCount", chaptersInfo.size());
+        result.put("status", saved.getProcessingStatus().name());
+        result.put("message", "已获取章节目录，章节将在后台逐步抓取和处理");
+        return result;
+    }
+
+    /**
+     * 重新同步URL导入的小说
+     * 提交导入任务重新读取目录：已保存的章节发送条件请求校验，内容变化的才重新分析；新章节抓取后追加
+     * @param novelId 小说ID
+     * @param maxNewChapters 最多新增的章节数，0表示不限制
+     * @return 处理结果
+     */
+    @Override
+    @Transactional
+    public Map<String, Object> resyncNovelFromUrl(Long novelId, int maxNewChapters) {
+        Map<String, Object> result = new HashMap<>();
+        Novel novel = getNovelById(novelId);
         
+        if (!novelCrawlerService.isSupportedUrl(novel.getSourceUrl())) {
+            result.put("success", false);
+            result.put("error", "该小说不是从受支持的URL导入的，无法重新同步");
+            return result;
+        }
+        
+        IngestJob latestJob = ingestJobService.getLatestJobForNovel(novelId);
+        if (latestJob != null && (latestJob.getStatus() == IngestJob.JobStatus.QUEUED
+                || latestJob.getStatus() == IngestJob.JobStatus.RUNNING)) {
+            result.put("success", false);
+            result.put("error", "该小说正在处理中，请稍后再试");
+            return result;
+        }
+        
+        // 导入任务按总章节数截取目录，0表示读取全部章节
+        int storedChapters = (int) chapterRepository.countByNovelId(novelId);
+        novel.setTotalChapters(maxNewChapters > 0 ? storedChapters + maxNewChapters : 0);
+        novel.setProcessingStatus(Novel.ProcessingStatus.PENDING);
+        novelRepository.save(novel);
+        
+        ingestJobService.enqueue(novelId, novel.getUserId(), novel.getSourceUrl(), 0);
+        logger.info("小说 {} 已提交重新同步，已保存章节数: {}", novelId, storedChapters);
+        
+        result.put("success", true);
+        result.put("novelId", novelId);
+        result.put("storedChapters", storedChapters);
+        result.put("status", novel.getProcessingStatus().name());
+        result.put("message", "已提交重新同步，只会抓取新章节并重新处理内容变化的章节");
+        return result;
+    }
+    
+    /**
+     * 处理小说来源
+     * 来源为URL时边抓取边处理章节，否则按上传文件处理
+     */
+    @Override
+    protected void processNovelFile(Long novelId, String filePath, int resumeAfterChapter,
+                                    IntConsumer checkpointListener) throws IOException {
+        if (!isUrlSource(filePath)) {
+            super.processNovelFile(novelId, filePath, resumeAfterChapter, checkpointListener);
+            return;
+        }
+
+        Novel novel = novelRepository.findById(novelId)
+                .orElseThrow(() -> new RuntimeException("小说不存在: " + novelId));
+
+        // 重新读取目录，章节数不超过提交导入时的目录
+        int maxChapters = novel.getTotalChapters() != null ? novel.getTotalChapters() : 0;
+        Map<String, Object> crawlResult = novelCrawlerService.crawlNovelInfo(filePath, maxChapters);
+        if (!(Boolean) crawlResult.getOrDefault("success", false)) {
+            throw new IOException("获取章节目录失败: " + crawlResult.get("error"));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> chaptersInfo = (List<Map<String, String>>) crawlResult.get("chapters");
+        novel.setTotalChapters(chaptersInfo.size());
+        novelRepository.save(novel);
+        logger.info("小说 {} 开始抓取章节，目录章节数: {}, 已提交章节数: {}",
+                novelId, chaptersInfo.size(), resumeAfterChapter);
+
+        // 重新同步时，检查点之后已保存的章节先校验内容，之后只抓取新章节
+        int storedChapters = Math.min((int) chapterRepository.countByNovelId(novelId), chaptersInfo.size());
+        if (storedChapters > resumeAfterChapter) {
+            verifyStoredChapters(novelId, chaptersInfo.subList(0, storedChapters), resumeAfterChapter);
+        }
+        int committedChapters = Math.max(resumeAfterChapter, storedChapters);
+
+        try (CrawlChapterSource source = new CrawlChapterSource(novelId, chaptersInfo, committedChapters)) {
+            processNovelStream(novelId, source, committedChapters, checkpointListener);
+        }
+    }
+
+    /**
+     * 校验已保存的章节
+     * 章节页面缓存未过期或服务器返回304时不重新下载；内容与已保存的章节相同时不重新分析
+     *
+     * @param novelId 小说ID
+     * @param chapters 已保存章节对应的目录
+     * @param startIndex 起始下标
+     */
+    private void verifyStoredChapters(Long novelId, List<Map<String, String>> chapters, int startIndex) throws IOException {
+        int[] changed = {0};
+        long startTime = System.currentTimeMillis();
         try {
-            // 创建小说实体
-            Novel novel = new Novel();
-            
-            // 设置小说标题，优先使用传入的标题
-            if (title != null && !title.trim().isEmpty()) {
-                novel.setTitle(title.trim());
-                logger.info("使用提供的标题: {}", title);
-            } else {
-                novel.setTitle((String) crawlResult.get("title"));
-                logger.info("使用爬取的标题: {}", crawlResult.get("title"));
-            }
-            
-            // 设置小说作者，优先使用传入的作者
-            if (author != null && !author.trim().isEmpty()) {
-                novel.setAuthor(author.trim());
-                logger.info("使用提供的作者: {}", author);
-            } else {
-                novel.setAuthor((String) crawlResult.get("author"));
-                logger.info("使用爬取的作者: {}", crawlResult.get("author"));
-            }
-            
-            novel.setDescription((String) crawlResult.get("description"));
-            novel.setSourceUrl(url);
-            novel.setUserId(userId);
-            novel.setProcessingStatus(Novel.ProcessingStatus.PROCESSING);
-            
-            // 获取章节信息
-            @SuppressWarnings("unchecked")
-            List<Map<String, String>> chaptersInfo = (List<Map<String, String>>) crawlResult.get("chapters");
-            
-            // 记录章节总数和已处理数量
-            novel.setTotalChapters(chaptersInfo.size());
-            novel.setProcessedChapters(0);
-            
-            // 保存小说
-            novel = novelRepository.save(novel);
-            logger.info("成功保存小说: {}, ID: {}", novel.getTitle(), novel.getId());
-            
-            final Long novelId = novel.getId();
-            
-            // 保存章节信息
-            List<Chapter> chapters = new ArrayList<>();
-            
-            // 构建完整内容，用于生成摘要
-            StringBuilder fullContentBuilder = new StringBuilder();
-            
-            for (Map<String, String> chapterInfo : chaptersInfo) {
-                Chapter chapter = new Chapter();
-                chapter.setNovel(novel);
-                chapter.setTitle(chapterInfo.get("title"));
-                
-                // 设置章节编号
-                try {
-                    chapter.setChapterNumber(Integer.parseInt(chapterInfo.get("number")));
-                } catch (NumberFormatException e) {
-                    chapter.setChapterNumber(chapters.size() + 1);
+            novelCrawlerService.fetchChapters(chapters, startIndex, (index, chapter) -> {
+                String content = chapter.remove("content");
+                if (content == null || content.isEmpty()) {
+                    // 抓取失败，保留已保存的内容
+                    return;
                 }
-                
-                // 保存章节内容
-                String content = chapterInfo.get("content");
-                if (content != null && !content.isEmpty()) {
-                    chapter.setContent(content);
-                    
-                    // 添加到全文中
-                    fullContentBuilder.append(chapter.getTitle()).append("\n");
-                    fullContentBuilder.append(content).append("\n\n");
-                    
-                    // 计算字数
-                    chapter.setWordCount(content.length());
-                    
-                    // 使用NLP生成摘要（如果可用）
-                    try {
-                        String summary = nlpService.generateSummary(content, 200);
-                        chapter.setSummary(summary);
-                        
-                        // 提取关键词
-                        Map<String, Integer> keywordMap = nlpService.extractKeywords(content, 10);
-                        List<String> keywords = new ArrayList<>(keywordMap.keySet());
-                        chapter.setKeywords(keywords);
-                        
-                        logger.info("成功处理章节内容: {}", chapter.getTitle());
-                    } catch (Exception e) {
-                        logger.error("处理章节内容时出错: {}", e.getMessage());
-                        chapter.setSummary("摘要生成失败");
-                        // 确保异常不会影响章节保存
-                    }
+                String text = chapterText(chapter.get("title"), content);
+                int chapterNumber = index + 1;
+                Chapter stored = chapterRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber).orElse(null);
+                if (stored != null && stored.getContent() != null
+                        && ContentHashUtil.contentKey(stored.getContent()).equals(ContentHashUtil.contentKey(text))) {
+                    return;
                 }
-                
-                chapters.add(chapter);
-            }
-            
-            // 批量保存章节
-            List<Chapter> savedChapters = chapterRepository.saveAll(chapters);
-            logger.info("成功保存章节数量: {}", savedChapters.size());
-            
-            // 生成小说整体摘要和分析结果
-            String fullContent = fullContentBuilder.toString();
-            if (!fullContent.isEmpty()) {
-                try {
-                    // 设置小说整体摘要
-                    String overallSummary = nlpService.generateSummary(fullContent, 500);
-                    novel.setOverallSummary(overallSummary);
-                    logger.info("成功生成小说整体摘要，长度: {}", overallSummary.length());
-                    
-                    // 提取全文关键词
-                    Map<String, Integer> keywords = nlpService.extractKeywords(fullContent, 20);
-                    
-                    // 识别人物
-                    List<String> characters = nlpService.extractCharacters(fullContent);
-                    
-                    // 获取对话并分析人物关系
-                    List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-                    List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
-                    
-                    // 生成角色发展摘要
-                    if (!characters.isEmpty()) {
-                        // 直接使用NLP服务生成角色摘要
-                        String characterContent = characters.stream()
-                                .map(character -> {
-                                    StringBuilder context = new StringBuilder();
-                                    context.append(character).append(": ");
-                                    
-                                    // 提取与该角色相关的内容片段
-                                    String[] sentences = fullContent.split("[。！？.!?]");
-                                    int count = 0;
-                                    for (String sentence : sentences) {
-                                        if (sentence.contains(character) && count < 10) {
-                                            context.append(sentence).append("。");
-                                            count++;
-                                        }
-                                    }
-                                    return context.toString();
-                                })
-                                .limit(10) // 只处理前10个主要角色
-                                .collect(Collectors.joining("\n\n"));
-                        
-                        String characterSummary = nlpService.generateSummary(characterContent, 1000);
-                        novel.setCharacterDevelopmentSummary(characterSummary);
-                        logger.info("成功生成角色发展摘要，长度: {}", characterSummary.length());
-                    }
-                    
-                    // 生成世界观摘要
-                    if (fullContent.length() > 0) {
-                        // 限制处理内容长度
-                        String processingContent = fullContent.length() > 50000 ?
-                                fullContent.substring(0, 50000) : fullContent;
-                        
-                        String worldBuildingSummary = nlpService.generateWorldBuildingSummary(processingContent);
-                        
-                        // 验证生成的摘要是否合理
-                        if (worldBuildingSummary != null && worldBuildingSummary.length() < 5000 &&
-                                !worldBuildingSummary.contains("第1章") && !worldBuildingSummary.contains("章节")) {
-                            novel.setWorldBuildingSummary(worldBuildingSummary);
-                            logger.info("成功生成世界观摘要，长度: {}", worldBuildingSummary.length());
-                        } else {
-                            logger.warn("生成的世界观摘要异常，可能包含章节内容，设置默认摘要");
-                            novel.setWorldBuildingSummary("世界观摘要生成失败，请稍后重试。");
-                        }
-                    }
-                    
-                    // 生成剧情进展摘要
-                    if (fullContent.length() > 0) {
-                        // 限制处理内容长度
-                        String processingContent = fullContent.length() > 50000 ?
-                                fullContent.substring(0, 50000) : fullContent;
-                        
-                        String plotProgressionSummary = nlpService.generatePlotProgressionSummary(processingContent);
-                        
-                        // 验证生成的摘要是否合理
-                        if (plotProgressionSummary != null && plotProgressionSummary.length() < 5000 &&
-                                !plotProgressionSummary.contains("第1章") && !plotProgressionSummary.contains("章节")) {
-                            novel.setPlotProgressionSummary(plotProgressionSummary);
-                            logger.info("成功生成情节发展摘要，长度: {}", plotProgressionSummary.length());
-                        } else {
-                            logger.warn("生成的情节发展摘要异常，可能包含章节内容，设置默认摘要");
-                            novel.setPlotProgressionSummary("情节发展摘要生成失败，请稍后重试。");
-                        }
-                    }
-                    
-                } catch (Exception e) {
-                    logger.error("生成小说摘要时出错: {}", e.getMessage(), e);
+                if (updateChapterContent(novelId, chapterNumber, text)) {
+                    changed[0]++;
                 }
-            }
-            
-            // 更新小说处理状态
-            novel.setProcessingStatus(Novel.ProcessingStatus.COMPLETED);
-            novel.setProcessedChapters(chapters.size());
-            novelRepository.save(novel);
-            logger.info("更新小说处理状态为完成，已处理章节: {}", novel.getProcessedChapters());
-            
-            // 返回结果
-            result.put("success", true);
-            result.put("novelId", novel.getId());
-            result.put("title", novel.getTitle());
-            result.put("chapterCount", chapters.size());
-            
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("章节校验被中断", e);
         } catch (Exception e) {
-            logger.error("导入小说失败: {}", e.getMessage(), e);
-            result.put("success", false);
-            result.put("error", "导入小说失败: " + e.getMessage());
-            // 显式抛出异常，确保事务回滚
-            throw new RuntimeException("导入小说失败", e);
+            throw new IOException("章节校验失败: " + e.getMessage(), e);
+        }
+        logger.info("小说 {} 校验已保存章节 {} 个，内容变化 {} 个，耗时 {} ms，页面缓存: {}", novelId,
+                chapters.size() - startIndex, changed[0], System.currentTimeMillis() - startTime,
+                novelCrawlerService.getCacheStats());
+    }
+
+    private boolean isUrlSource(String filePath) {
+        return filePath != null && (filePath.startsWith("http://") || filePath.startsWith("https://"));
+    }
+
+    /**
+     * 章节标题作为首行，与上传文件的章节格式一致
+     */
+    private static String chapterText(String title, String content) {
+        return (title != null ? title : "") + "\n" + (content != null ? content : "");
+    }
+
+    /**
+     * 抓取中的章节来源
+     * 已提交的章节从数据库读取，其余章节由抓取线程并发抓取后按顺序放入有界队列，
+     * 处理线程从队列中取出；处理失败关闭来源时停止抓取
+     */
+    private class CrawlChapterSource implements ChapterSource, AutoCloseable {
+
+        private final Object endOfChapters = new Object();
+        private final Long novelId;
+        private final List<Map<String, String>> chapters;
+        private final int committedChapters;
+        private final BlockingQueue<Object> queue;
+        private Future<?> crawlTask;
+        private int nextIndex;
+
+        CrawlChapterSource(Long novelId, List<Map<String, String>> chapters, int committedChapters) {
+            this.novelId = novelId;
+            this.chapters = chapters;
+            this.committedChapters = Math.min(committedChapters, chapters.size());
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, ingestQueueCapacity));
+        }
+
+        @Override
+        public String next() throws IOException {
+            if (nextIndex < committedChapters) {
+                return committedChapter(++nextIndex);
+            }
+            if (crawlTask == null) {
+                crawlTask = crawlCoordinatorExecutor.submit(this::crawl);
+            }
+
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("章节抓取被中断", e);
+            }
+            if (item == endOfChapters) {
+                // 保留结束标记，重复调用时仍返回null
+                queue.offer(endOfChapters);
+                return null;
+            }
+            if (item instanceof Throwable) {
+                throw new IOException("章节抓取失败: " + ((Throwable) item).getMessage(), (Throwable) item);
+            }
+            nextIndex++;
+            return (String) item;
+        }
+
+        /**
+         * 之前的尝试中已提交的章节，内容从数据库读取，不再重新抓取
+         */
+        private String committedChapter(int chapterNumber) {
+            Chapter chapter = chapterRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber).orElse(null);
+            if (chapter != null && chapter.getContent() != null) {
+                return chapter.getContent();
+            }
+            Map<String, String> info = chapters.get(chapterNumber - 1);
+            return chapterText(info.get("title"), "");
+        }
+
+        private void crawl() {
+            Object last = endOfChapters;
+            try {
+                novelCrawlerService.fetchChapters(chapters, committedChapters, (index, chapter) -> {
+                    // 内容交给队列后从目录中移除，目录不随抓取进度累积全文
+                    String content = chapter.remove("content");
+                    queue.put(chapterText(chapter.get("title"), content));
+                });
+            } catch (InterruptedException e) {
+                // 处理线程已关闭来源
+                return;
+            } catch (Exception e) {
+                last = e;
+            }
+            try {
+                queue.put(last);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (crawlTask != null) {
+                crawlTask.cancel(true);
+            }
         }
-        
-        return result;
     }
-} 
\ No newline at end of file
+}
@@ -1,25 +1,43 @@
 package com.novelassistant.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.novelassistant.entity.*;
 import com.novelassistant.entity.visualization.EmotionalData;
 import com.novelassistant.repository.*;
 import com.novelassistant.repository.visualization.*;
+import com.novelassistant.model.AnalysisDocument;
+import com.novelassistant.model.ChapterAnalysis;
+import com.novelassistant.model.HierarchicalSummary;
+import com.novelassistant.service.AnalysisDocumentService;
+import com.novelassistant.service.ChapterIndexService;
+import com.novelassistant.service.IngestJobService;
+import com.novelassistant.service.NameGazetteerService;
 import com.novelassistant.service.NlpService;
 import com.novelassistant.service.NovelService;
+import com.novelassistant.service.NovelSummaryService;
 import com.novelassistant.service.ProcessingService;
 import com.novelassistant.service.AnalyzationService;
 import com.novelassistant.service.TaggingService;
+import com.novelassistant.service.VisualizationCacheService;
+import com.novelassistant.service.VisualizationService;
 import com.novelassistant.exception.DataAccessException;
 import com.novelassistant.exception.ServiceException;
 import com.novelassistant.exception.CharacterRelationshipException;
+import com.novelassistant.util.ChapterStreamReader;
 import com.novelassistant.util.ErrorCodes;
+import com.novelassistant.util.LexiconRegistry;
+import com.novelassistant.util.RelationshipAccumulator;
+import com.novelassistant.util.RequestContextHolder;
+import com.novelassistant.util.SegmentationCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
@@ -29,11 +47,16 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.io.File;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.io.FileInputStream;
 import java.util.stream.Collectors;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.net.URL;
 
 // 添加import java.util.Objects
@@ -58,6 +81,9 @@ public class NovelServiceImpl implements NovelService {
     @Autowired
     private NlpService nlpService;
     
+    @Autowired
+    private LexiconRegistry lexiconRegistry;
+    
     @Autowired
     private NovelCharacterRepository characterRepository;
     
@@ -79,6 +105,75 @@ public class NovelServiceImpl implements NovelService {
     @Autowired
     private ExecutorService executorService;
     
+    @Autowired
+    private AnalysisDocumentService analysisDocumentService;
+    
+    @Autowired
+    private NameGazetteerService nameGazetteerService;
+    
+    @Autowired
+    private NovelSummaryService novelSummaryService;
+    
+    @Autowired
+    @Qualifier("chapterProcessingExecutor")
+    private ExecutorService chapterProcessingExecutor;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // 是否并行处理章节NLP
+    @Value("${novelassistant.ingest.parallel-chapters:true}")
+    private boolean parallelChapters = true;
+    
+    // 同时处理中的章节数上限，为0时取线程数的2倍
+    @Value("${novelassistant.ingest.max-chapters-in-flight:0}")
+    private int maxChaptersInFlight = 0;
+    
+    @Value("${novelassistant.ingest.chapter-threads:0}")
+    private int chapterThreads = 0;
+    
+    // 文件大小达到该值时使用流式导入，不一次性读入全文
+    @Value("${novelassistant.ingest.streaming-threshold-bytes:8388608}")
+    private long streamingThresholdBytes = 8388608;
+    
+    // 流式导入时单章最大长度，超过后在行边界处切分
+    @Value("${novelassistant.ingest.streaming-max-chapter-length:200000}")
+    private int streamingMaxChapterLength = 200000;
+    
+    // 每累计多少个章节刷新一次写入
+    @Value("${novelassistant.ingest.write-batch-size:50}")
+    private int writeBatchSize = 50;
+    
+    // 处理进度的最小保存间隔（毫秒）
+    @Value("${novelassistant.ingest.progress-interval-ms:2000}")
+    private long progressIntervalMs = 2000;
+    
+    // 上传文件保存目录，文件保留到导入任务成功为止，以便失败后重试
+    @Value("${novelassistant.ingest.upload-dir:${java.io.tmpdir}/novel-uploads}")
+    private String uploadDir = System.getProperty("java.io.tmpdir") + "/novel-uploads";
+    
+    // 整体摘要、人物发展和情节发展摘要是否由已保存的章节摘要分层生成，关闭时对全文（或其开头部分）做摘要
+    @Value("${novelassistant.summary.hierarchical:true}")
+    private boolean hierarchicalSummary = true;
+    
+    @Autowired
+    private IngestJobService ingestJobService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ChapterIndexService chapterIndexService;
+    
+    @Autowired
+    private VisualizationCacheService visualizationCacheService;
+    
+    @Autowired
+    private SegmentationCache segmentationCache;
+    
+    @Autowired
+    private VisualizationService visualizationService;
+    
     private static final Logger logger = LoggerFactory.getLogger(NovelServiceImpl.class);
     
     @Override
@@ -113,6 +208,16 @@ public class NovelServiceImpl implements NovelService {
         status.put("processedChapters", novel.getProcessedChapters());
         status.put("totalChapters", novel.getTotalChapters());
         
+        // 附加导入任务状态，便于前端显示排队、重试情况
+        IngestJob job = ingestJobService.getLatestJobForNovel(id);
+        if (job != null) {
+            status.put("jobStatus", job.getStatus().name());
+            status.put("attempts", job.getAttempts());
+            if (job.getLastError() != null) {
+                status.put("lastError", job.getLastError());
+            }
+        }
+        
         return status;
     }
     
@@ -126,69 +231,74 @@ public class NovelServiceImpl implements NovelService {
             novel.setUserId(userId); // 设置用户ID
             novel = novelRepository.save(novel);
             
-            // 将文件保存到临时目录，防止在异步处理前被删除
-            File tempFile = File.createTempFile("novel_", ".tmp");
-            file.transferTo(tempFile);
-            final String tempFilePath = tempFile.getAbsolutePath();
+            // 将文件保存到上传目录，导入任务成功后才删除，失败重试时可再次读取
+            Path uploadPath = Paths.get(uploadDir);
+            Files.createDirectories(uploadPath);
+            File uploadFile = uploadPath.resolve("novel_" + novel.getId() + "_" + System.currentTimeMillis() + ".txt").toFile();
+            file.transferTo(uploadFile);
             
-            // 开始上传过程
-            final Long novelId = novel.getId();
-            
-            // 使用新方法处理文件，避免使用原始Thread
-            processNovelFileAsync(novelId, tempFilePath);
+            // 提交导入任务，由导入任务工作器处理；较小的文件优先处理，避免排在大文件之后长时间等待
+            int priority = file.getSize() < streamingThresholdBytes ? 1 : 0;
+            ingestJobService.enqueue(novel.getId(), userId, uploadFile.getAbsolutePath(), priority);
             
             Map<String, Object> response = new HashMap<>();
             response.put("id", novel.getId());
             response.put("status", novel.getProcessingStatus().name());
-            response.put("message", "文件已上传，开始处理");
+            response.put("message", "文件已上传，已加入处理队列");
             
             return response;
+        } catch (ServiceException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("处理小说文件失败: " + e.getMessage(), e);
         }
     }
     
-    /**
-     * 异步处理小说文件
-     */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void processNovelFileAsync(Long novelId, String filePath) {
+    @Override
+    public void runIngest(Long novelId, String filePath, int resumeAfterChapter, IntConsumer checkpointListener) throws IOException {
+        // 重新处理前清除旧的可视化缓存和章节向量，处理完成后重新写入索引
+        visualizationCacheService.invalidate(novelId);
+        chapterIndexService.removeNovel(novelId);
+        
+        processNovelFile(novelId, filePath, resumeAfterChapter, checkpointListener);
+        
+        // 处理完成后，进行额外的分析步骤
+        // 调用分析服务进行更深入的分析
         try {
-            processNovelFile(novelId, filePath);
-            
-            // 处理完成后，进行额外的分析步骤
-            Novel novel = novelRepository.findById(novelId).orElse(null);
-            if (novel != null) {
-                // 设置状态为已完成
-                novel.setProcessingStatus(Novel.ProcessingStatus.COMPLETED);
-                novelRepository.save(novel);
-                
-                // 调用分析服务进行更深入的分析
-                try {
-                    Map<String, Object> analysisResult = analyzationService.analyzeNovel(novelId);
-                    logger.info("Novel analysis completed for novel ID: {}, found {} data points", 
-                            novelId, analysisResult.size());
-                } catch (Exception e) {
-                    logger.error("Novel analysis failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
-                }
-                
-                // 生成标签
-                try {
-                    taggingService.generateTagsForNovel(novelId);
-                } catch (Exception e) {
-                    logger.error("Tag generation failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
-                }
-            }
+            Map<String, Object> analysisResult = analyzationService.analyzeNovel(novelId);
+            logger.info("Novel analysis completed for novel ID: {}, found {} data points", 
+                    novelId, analysisResult.size());
         } catch (Exception e) {
-            logger.error("Failed to process novel file: {}, error: {}", filePath, e.getMessage(), e);
-            try {
-                // 更新状态为失败
-                updateNovelStatus(novelId, Novel.ProcessingStatus.FAILED);
-            } catch (Exception ex) {
-                logger.error("Failed to update novel status: {}", ex.getMessage(), ex);
-            }
+            logger.error("Novel analysis failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
         }
+        
+        // 生成标签
+        try {
+            taggingService.generateTagsForNovel(novelId);
+        } catch (Exception e) {
+            logger.error("Tag generation failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
+        }
+        
+        // 写入章节向量索引
+        try {
+            chapterIndexService.indexNovel(novelId);
+        } catch (Exception e) {
+            logger.error("Chapter indexing failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
+        }
+        
+        // 处理期间被访问而写入的不完整数据一并清除，然后预计算全部可视化数据
+        visualizationCacheService.invalidate(novelId);
+        try {
+            visualizationService.precomputeVisualizations(novelId);
+        } catch (Exception e) {
+            logger.error("Visualization precompute failed for novel ID: {}, error: {}", novelId, e.getMessage(), e);
+        }
+        
+        // 可视化数据就绪后才标记为完成，前端看到完成状态时可直接读取预计算的数据
+        transactionTemplate.executeWithoutResult(status -> novelRepository.findById(novelId).ifPresent(novel -> {
+            novel.setProcessingStatus(Novel.ProcessingStatus.COMPLETED);
+            novelRepository.save(novel);
+        }));
     }
     
     @Override
@@ -243,6 +353,23 @@ public class NovelServiceImpl implements NovelService {
         return result;
     }
     
+    /**
+     * 重新同步URL导入的小说
+     * 该方法在扩展实现类中实现，此处为空实现
+     *
+     * @param novelId        小说ID
+     * @param maxNewChapters 最多新增的章节数，0表示不限制
+     * @return 处理结果
+     */
+    @Override
+    public Map<String, Object> resyncNovelFromUrl(Long novelId, int maxNewChapters) {
+        // 默认实现返回错误信息，实际功能由NovelServiceExtImpl实现
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "未实现此功能");
+        return result;
+    }
+    
     @Override
     @Transactional
     public boolean deleteNovel(Long id) {
@@ -257,6 +384,8 @@ public class NovelServiceImpl implements NovelService {
             Novel novel = novelOpt.get();
             novel.setIsDeleted(true);
             novelRepository.save(novel);
+            chapterIndexService.removeNovel(id);
+            nameGazetteerService.invalidate(id);
             
             logger.info("小说已软删除: ID={}, 标题={}", id, novel.getTitle());
             return true;
@@ -280,6 +409,19 @@ public class NovelServiceImpl implements NovelService {
             Novel novel = novelOpt.get();
             novel.setIsDeleted(false);
             novelRepository.save(novel);
+            try {
+                chapterIndexService.indexNovel(id);
+            } catch (Exception e) {
+                logger.warn("小说 {} 恢复后写入章节向量索引失败: {}", id, e.getMessage());
+            }
+            // 删除时人名词典已一并删除，由保存的主要角色重新生成
+            try {
+                nameGazetteerService.seed(id, characterRepository.findByNovelIdOrderByImportanceDesc(id).stream()
+                        .map(NovelCharacter::getName)
+                        .collect(Collectors.toList()));
+            } catch (Exception e) {
+                logger.warn("小说 {} 恢复后生成人名词典失败: {}", id, e.getMessage());
+            }
             
             logger.info("小说已恢复: ID={}, 标题={}", id, novel.getTitle());
             return true;
@@ -296,47 +438,173 @@ public class NovelServiceImpl implements NovelService {
                 .collect(Collectors.toList());
     }
     
-    @Transactional
-    protected void processNovelFile(Long novelId, String filePath) throws IOException {
+    /**
+     * 处理小说文件
+     * 章节按批在各自的事务中提交并回调检查点；全部章节提交后先在事务外构建分析文档，
+     * 再在一个事务中完成摘要、人物关系和标签，失败时只回滚这一部分，重试时跳过已提交的章节
+     */
+    protected void processNovelFile(Long novelId, String filePath, int resumeAfterChapter,
+                                    IntConsumer checkpointListener) throws IOException {
+        Novel novel = startProcessing(novelId, resumeAfterChapter);
+        
+        String fullContent;
+        String summarySource;
+        AnalysisDocument analysis;
+        
+        long fileSize = Files.size(Paths.get(filePath));
+        if (fileSize >= streamingThresholdBytes) {
+            // 大文件按章节流式读取，内存占用只与章节大小有关；
+            // 整体分析由各章结果累积得出，摘要和内容标签基于章节摘要与开头部分的文本样本
+            logger.info("小说 {} 文件大小 {} 字节，使用流式导入", novelId, fileSize);
+            AnalysisDocumentService.StreamingBuilder builder = analysisDocumentService.newStreamingBuilder(novelId);
+            processFileStreaming(novel, filePath, builder, resumeAfterChapter, checkpointListener);
+            analysis = builder.finish();
+            fullContent = builder.getSampleText();
+            summarySource = builder.getSummaryText();
+        } else {
+            // 读取整个文件内容，用于整体分析
+            fullContent = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
+            
+            // 使用NLP服务检测章节分隔
+            List<Integer> chapterPositions = nlpService.detectChapterBreaks(fullContent);
+            
+            // 如果没有找到章节分隔，使用默认方法
+            if (chapterPositions.isEmpty()) {
+                processFileByLines(novel, filePath, resumeAfterChapter, checkpointListener);
+            } else {
+                processFileByChapters(novel, fullContent, chapterPositions, resumeAfterChapter, checkpointListener);
+            }
+            
+            // 对全文只做一次分析：关键词、人物、对话、关系、情感；耗时较长，在整体处理的事务之外完成
+            List<Chapter> savedChapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novelId);
+            analysis = analysisDocumentService.build(novelId, fullContent, savedChapters);
+            summarySource = fullContent;
+        }
+        
+        // 章节已全部提交，整体分析在单独的事务中完成
+        Novel processedNovel = novel;
+        AnalysisDocument streamedAnalysis = analysis;
+        transactionTemplate.executeWithoutResult(status ->
+                completeNovelProcessing(processedNovel, streamedAnalysis, fullContent, summarySource));
+    }
+    
+    /**
+     * 从章节来源流式处理小说
+     * 章节边到达边分析、按批提交，整体分析由各章结果累积得出，不在内存中保留全文；
+     * 用于章节不是来自上传文件的导入（如URL导入）
+     *
+     * @param novelId 小说ID
+     * @param source 章节来源，按顺序返回各章内容（首行为章节标题），包括之前已提交的章节
+     * @param resumeAfterChapter 之前的尝试中已提交的章节数
+     * @param checkpointListener 每批章节提交时回调已提交的章节数，可为null
+     */
+    protected void processNovelStream(Long novelId, ChapterSource source, int resumeAfterChapter,
+                                      IntConsumer checkpointListener) throws IOException {
+        Novel novel = startProcessing(novelId, resumeAfterChapter);
+        
+        AnalysisDocumentService.StreamingBuilder builder = analysisDocumentService.newStreamingBuilder(novelId);
+        int chapterCount = processChaptersStreaming(novel, source, builder, resumeAfterChapter, checkpointListener);
+        logger.info("流式处理小说 {} 完成，章节数: {}", novelId, chapterCount);
+        
+        AnalysisDocument analysis = builder.finish();
+        String sampleText = builder.getSampleText();
+        String summaryText = builder.getSummaryText();
+        transactionTemplate.executeWithoutResult(status ->
+                completeNovelProcessing(novel, analysis, sampleText, summaryText));
+    }
+    
+    /**
+     * 重新分析内容已变化的已保存章节，在一个事务中更新章节和情感数据
+     *
+     * @param novelId 小说ID
+     * @param chapterNumber 章节编号
+     * @param content 新的章节内容（首行为章节标题）
+     * @return 章节存在并已更新时返回true
+     */
+    protected boolean updateChapterContent(Long novelId, int chapterNumber, String content) {
+        ChapterNlpResult result = analyzeChapter(chapterNumber, extractChapterTitle(content), content);
+        Boolean updated = transactionTemplate.execute(status -> {
+            Chapter chapter = chapterRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber).orElse(null);
+            if (chapter == null) {
+                return false;
+            }
+            // 旧内容的分词结果不会再用到
+            segmentationCache.evict(chapter.getContent());
+            chapter.setTitle(result.title);
+            chapter.setContent(result.content);
+            chapter.setSummary(result.summary);
+            chapter.setKeywords(result.keywords);
+            // 保存的人物分析基于旧内容，清除后重新同步时重新提取
+            chapter.setAnalysisJson(null);
+            chapterRepository.save(chapter);
+            
+            EmotionalData emotionalData = emotionalDataRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber);
+            if (emotionalData != null) {
+                emotionalData.setChapterTitle(result.title);
+                emotionalData.setEmotionValue(result.emotionValue * 100);
+                emotionalData.setEventDescription(result.summary);
+                emotionalData.setIsImportant(result.important);
+                emotionalDataRepository.save(emotionalData);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(updated);
+    }
+    
+    /**
+     * 将小说状态更新为处理中
+     */
+    private Novel startProcessing(Long novelId, int resumeAfterChapter) {
         Novel novel = novelRepository.findById(novelId)
                 .orElseThrow(() -> new RuntimeException("小说不存在: " + novelId));
         
         // 更新状态为处理中
         novel.setProcessingStatus(Novel.ProcessingStatus.PROCESSING);
-        novelRepository.save(novel);
+        novel = novelRepository.save(novel);
         
-        // 读取整个文件内容，用于整体分析
-        String fullContent = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
+        if (resumeAfterChapter > 0) {
+            logger.info("小说 {} 从检查点继续处理，已提交章节数: {}", novelId, resumeAfterChapter);
+        }
+        return novel;
+    }
+    
+    /**
+     * 章节提交后的整体处理：摘要、人物关系、世界观与情节摘要、标签、情感模式
+     *
+     * @param novel 小说（可能已脱离持久化上下文）
+     * @param analysis 分析文档，在事务之外构建
+     * @param fullContent 全文，流式导入时为开头部分的文本样本
+     * @param summarySource 生成整体摘要使用的文本
+     */
+    private void completeNovelProcessing(Novel novel, AnalysisDocument analysis, String fullContent, String summarySource) {
+        novel = novelRepository.save(novel);
+        Long novelId = novel.getId();
         
-        // 使用NLP服务检测章节分隔
-        List<Integer> chapterPositions = nlpService.detectChapterBreaks(fullContent);
+        List<String> characters = analysis.getCharacters();
+        List<Map<String, Object>> relationships = analysis.getRelationships();
         
-        // 如果没有找到章节分隔，使用默认方法
-        if (chapterPositions.isEmpty()) {
-            processFileByLines(novel, filePath);
-        } else {
-            processFileByChapters(novel, fullContent, chapterPositions);
+        // 用识别出的人物生成人名词典，之后的章节分析、对话、关系和标签刷新按词典匹配已知人名
+        try {
+            nameGazetteerService.seed(novelId, characters);
+        } catch (Exception e) {
+            logger.warn("生成小说 {} 的人名词典失败: {}", novelId, e.getMessage());
         }
         
-        // 提取全文关键词
-        Map<String, Integer> keywords = nlpService.extractKeywords(fullContent, 20);
+        // 由章节摘要分层生成摘要，没有章节摘要时基于全文生成
+        HierarchicalSummary hierarchy = summarizeHierarchically(novelId, characters);
         
         // 生成小说摘要
-        String overallSummary = nlpService.generateSummary(fullContent, 500);
+        String overallSummary = hierarchy != null
+                ? hierarchy.getOverallSummary()
+                : nlpService.generateSummary(summarySource, 500);
         novel.setOverallSummary(overallSummary);
-        
-        // 识别人物
-        List<String> characters = nlpService.extractCharacters(fullContent);
-        
-        // 获取对话并分析人物关系
-        List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-        List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
+        analysis.setSummary(overallSummary);
         
         // 保存角色和关系
         saveCharacterRelationships(novel, characters, relationships);
         
         // 生成角色发展摘要
-        String characterSummary = generateCharacterSummary(fullContent, characters);
+        String characterSummary = generateCharacterSummary(fullContent, analysis, hierarchy);
         novel.setCharacterDevelopmentSummary(characterSummary);
         
         // 生成世界观摘要
@@ -363,12 +631,16 @@ public class NovelServiceImpl implements NovelService {
         
         // 生成剧情进展摘要
         logger.info("生成情节发展摘要");
-        if (fullContent != null && fullContent.length() > 0) {
-            // 限制处理内容长度
-            String processingContent = fullContent.length() > 50000 ? 
-                fullContent.substring(0, 50000) : fullContent;
-            
-            String plotProgressionSummary = nlpService.generatePlotProgressionSummary(processingContent);
+        if (hierarchy != null || (fullContent != null && fullContent.length() > 0)) {
+            String plotProgressionSummary;
+            if (hierarchy != null) {
+                plotProgressionSummary = hierarchy.getPlotProgressionSummary();
+            } else {
+                // 限制处理内容长度
+                String processingContent = fullContent.length() > 50000 ? 
+                    fullContent.substring(0, 50000) : fullContent;
+                plotProgressionSummary = nlpService.generatePlotProgressionSummary(processingContent);
+            }
             
             // 验证生成的摘要是否合理
             if (plotProgressionSummary != null && plotProgressionSummary.length() < 5000 && 
@@ -383,11 +655,14 @@ public class NovelServiceImpl implements NovelService {
             novel.setPlotProgressionSummary("无法生成情节发展摘要，小说内容为空。");
         }
         
-        // 为小说添加标签 - 增强版标签生成
-        generateSmartTags(novel, keywords, fullContent, characters, relationships);
+        // 为小说添加标签 - 增强版标签生成；重新同步时先清除旧标签
+        tagRepository.deleteAll(tagRepository.findByNovelId(novelId));
+        generateSmartTags(novel, analysis, fullContent);
+        
+        // 保存分析文档，后续分析和标签刷新直接复用
+        analysisDocumentService.save(novelId, analysis);
         
-        // 更新状态为完成
-        novel.setProcessingStatus(Novel.ProcessingStatus.COMPLETED);
+        // 状态保持为处理中，可视化数据预计算完成后由runIngest标记为完成
         novelRepository.save(novel);
         
         // 处理情感数据，标识情节高潮点
@@ -398,10 +673,9 @@ public class NovelServiceImpl implements NovelService {
      * 智能标签生成
      * 基于内容分析结果智能生成多种类型的标签
      */
-    private void generateSmartTags(Novel novel, Map<String, Integer> keywords, String fullContent, 
-                                  List<String> characters, List<Map<String, Object>> relationships) {
+    private void generateSmartTags(Novel novel, AnalysisDocument analysis, String fullContent) {
         // 1. 基于内容关键词生成标签（取前10个，根据内容特征自动判断类型）
-        keywords.entrySet().stream()
+        analysis.getKeywords().entrySet().stream()
                 .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
                 .limit(10)
                 .forEach(entry -> {
@@ -411,13 +685,13 @@ public class NovelServiceImpl implements NovelService {
                 });
         
         // 2. 基于情感分析生成POSITIVE和WARNING标签
-        generateEmotionBasedTags(novel, fullContent);
+        generateEmotionBasedTags(novel, analysis);
         
         // 3. 基于角色分析生成标签
-        generateCharacterBasedTags(novel, characters, relationships);
+        generateCharacterBasedTags(novel, analysis.getCharacters(), analysis.getRelationships());
         
         // 4. 基于内容长度和结构生成标签
-        generateStructureBasedTags(novel, fullContent);
+        generateStructureBasedTags(novel, analysis);
         
         // 5. 生成内容引导标签（新增）
         generateContentGuideTags(novel, fullContent);
@@ -494,9 +768,11 @@ public class NovelServiceImpl implements NovelService {
      * 生成内容引导类标签
      */
     private void generateContentGuideTags(Novel novel, String content) {
+        // 一次扫描统计各类引导词的出现次数
+        Map<String, Integer> counts = lexiconRegistry.matcher().countByCategory(content);
+        
         // 难度标签
-        String[] complexWords = {"哲学", "形而上", "抽象", "理论", "概念", "复杂", "技术", "专业", "深奥"};
-        int complexCount = countOccurrences(content, complexWords);
+        int complexCount = counts.getOrDefault(LexiconRegistry.GUIDE_COMPLEX, 0);
         if (complexCount > 20) {
             addTag(novel, "阅读难度高", Tag.TagType.WARNING);
         } else if (complexCount < 5) {
@@ -504,72 +780,41 @@ public class NovelServiceImpl implements NovelService {
         }
         
         // 受众标签
-        if (content.contains("少年") || content.contains("孩子") || content.contains("小学") || content.contains("童话")) {
+        if (counts.containsKey(LexiconRegistry.GUIDE_CHILDREN)) {
             addTag(novel, "儿童读物", Tag.TagType.INFO);
             }
         
-        if (content.contains("青春") || content.contains("高中") || content.contains("大学") || content.contains("校园")) {
+        if (counts.containsKey(LexiconRegistry.GUIDE_YOUTH)) {
             addTag(novel, "青少年读物", Tag.TagType.INFO);
         }
         
         // 文学流派判断
-        String[] streamOfConsciousnessWords = {"意识流", "内心独白", "心理描写", "思维", "意识", "心流"};
-        int streamCount = countOccurrences(content, streamOfConsciousnessWords);
+        int streamCount = counts.getOrDefault(LexiconRegistry.GUIDE_STREAM, 0);
         if (streamCount > 10) {
             addTag(novel, "意识流", Tag.TagType.INFO);
         }
         
-        String[] realisticWords = {"现实主义", "社会", "现实", "问题", "批判", "反映"};
-        int realisticCount = countOccurrences(content, realisticWords);
+        int realisticCount = counts.getOrDefault(LexiconRegistry.GUIDE_REALISTIC, 0);
         if (realisticCount > 15) {
             addTag(novel, "现实主义", Tag.TagType.INFO);
         }
         
-        String[] romanticWords = {"浪漫", "理想", "幻想", "情感", "抒情", "唯美"};
-        int romanticCount = countOccurrences(content, romanticWords);
+        int romanticCount = counts.getOrDefault(LexiconRegistry.GUIDE_ROMANTIC, 0);
         if (romanticCount > 15) {
             addTag(novel, "浪漫主义", Tag.TagType.INFO);
         }
     }
     
-    /**
-     * 计算单词在文本中出现的次数
-     */
-    private int countOccurrences(String text, String[] words) {
-        int count = 0;
-        for (String word : words) {
-            int lastIndex = 0;
-            while (lastIndex != -1) {
-                lastIndex = text.indexOf(word, lastIndex);
-                if (lastIndex != -1) {
-                    count++;
-                    lastIndex += word.length();
-                }
-            }
-        }
-        return count;
-    }
-    
     /**
      * 基于情感分析生成标签
      */
-    private void generateEmotionBasedTags(Novel novel, String content) {
-        // 分析整体情感
-        double overallSentiment = nlpService.analyzeSentiment(content);
-        
-        // 获取所有章节
-        List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novel.getId());
+    private void generateEmotionBasedTags(Novel novel, AnalysisDocument analysis) {
+        // 整体情感和各章节情感已在分析文档中计算
+        double overallSentiment = analysis.getSentiment();
+        List<Double> sentiments = analysis.getChapterSentiments();
         
         // 分析情感波动
-        if (chapters.size() >= 3) {
-            List<Double> sentiments = new ArrayList<>();
-            for (Chapter chapter : chapters) {
-                if (chapter.getContent() != null && !chapter.getContent().isEmpty()) {
-                    double sentiment = nlpService.analyzeSentiment(chapter.getContent());
-                    sentiments.add(sentiment);
-                }
-            }
-            
+        if (sentiments.size() >= 3) {
             // 计算情感波动度（方差）
             double avgSentiment = sentiments.stream().mapToDouble(d -> d).average().orElse(0.5);
             double variance = sentiments.stream()
@@ -641,9 +886,9 @@ public class NovelServiceImpl implements NovelService {
     /**
      * 基于内容长度和结构生成标签
      */
-    private void generateStructureBasedTags(Novel novel, String content) {
+    private void generateStructureBasedTags(Novel novel, AnalysisDocument analysis) {
         // 内容长度相关标签
-        int wordCount = content.length();
+        int wordCount = analysis.getTextLength();
         
         if (wordCount > 300000) { // 约30万字以上
             addTag(novel, "长篇巨著", Tag.TagType.INFO);
@@ -655,15 +900,10 @@ public class NovelServiceImpl implements NovelService {
             addTag(novel, "篇幅较短", Tag.TagType.INFO);
         }
         
-        // 章节长度分析
-        List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novel.getId());
-        if (chapters.size() > 0) {
-            int totalChapters = chapters.size();
-            double avgChapterLength = chapters.stream()
-                    .filter(c -> c.getContent() != null)
-                    .mapToInt(c -> c.getContent().length())
-                    .average()
-                    .orElse(0);
+        // 章节长度分析，章节数和平均长度已在分析文档中统计
+        if (analysis.getChapterCount() > 0) {
+            int totalChapters = analysis.getChapterCount();
+            double avgChapterLength = analysis.getAverageChapterLength();
             
             if (totalChapters > 100) {
                 addTag(novel, "章节较多", Tag.TagType.INFO);
@@ -680,7 +920,8 @@ public class NovelServiceImpl implements NovelService {
     /**
      * 按行处理文件（旧方法，当无法检测章节时使用）
      */
-    private void processFileByLines(Novel novel, String filePath) throws IOException {
+    private void processFileByLines(Novel novel, String filePath, int resumeAfterChapter,
+                                    IntConsumer checkpointListener) throws IOException {
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8))) {
             
@@ -689,13 +930,18 @@ public class NovelServiceImpl implements NovelService {
             int lineCount = 0;
             int chapterCount = 0;
             String chapterTitle = "第1章";
+            int chaptersSeen = 0;
+            ChapterBatchWriter writer = new ChapterBatchWriter(novel, resumeAfterChapter, checkpointListener);
             
             while ((line = reader.readLine()) != null) {
                 // 检测章节标题
                 if (line.trim().startsWith("第") && line.trim().contains("章")) {
                     // 保存上一章节（如果有内容）
                     if (currentChapter.length() > 0) {
-                        saveChapterWithNlp(novel, chapterCount, chapterTitle, currentChapter.toString());
+                        // 跳过之前的尝试中已提交的章节
+                        if (++chaptersSeen > resumeAfterChapter) {
+                            writer.write(analyzeChapter(chapterCount, chapterTitle, currentChapter.toString()));
+                        }
                         currentChapter = new StringBuilder();
                     }
                     
@@ -708,15 +954,15 @@ public class NovelServiceImpl implements NovelService {
                 
                 // 每处理100行更新一次进度
                 if (lineCount % 100 == 0) {
-                    novel.setProcessedChapters(chapterCount);
-                    novelRepository.save(novel);
+                    writer.updateProgress(chapterCount);
                 }
             }
             
             // 保存最后一章
-            if (currentChapter.length() > 0) {
-                saveChapterWithNlp(novel, chapterCount, chapterTitle, currentChapter.toString());
+            if (currentChapter.length() > 0 && ++chaptersSeen > resumeAfterChapter) {
+                writer.write(analyzeChapter(chapterCount, chapterTitle, currentChapter.toString()));
             }
+            writer.flush();
             
             // 更新小说元数据
             novel.setTotalChapters(chapterCount);
@@ -728,28 +974,222 @@ public class NovelServiceImpl implements NovelService {
     /**
      * 基于检测到的章节位置处理文件
      */
-    private void processFileByChapters(Novel novel, String fullContent, List<Integer> chapterPositions) {
+    private void processFileByChapters(Novel novel, String fullContent, List<Integer> chapterPositions,
+                                       int resumeAfterChapter, IntConsumer checkpointListener) throws IOException {
         int chapterCount = chapterPositions.size();
+        int[] nextChapter = {0};
         
-        // 处理每个章节
-        for (int i = 0; i < chapterCount; i++) {
+        processChapters(novel, () -> {
+            int i = nextChapter[0];
+            if (i >= chapterCount) {
+                return null;
+            }
+            nextChapter[0]++;
             int startPos = chapterPositions.get(i);
             int endPos = (i < chapterCount - 1) ? chapterPositions.get(i + 1) : fullContent.length();
+            return fullContent.substring(startPos, endPos);
+        }, false, null, resumeAfterChapter, checkpointListener);
+        
+        // 更新小说元数据
+        novel.setTotalChapters(chapterCount);
+        novel.setProcessedChapters(chapterCount);
+        novel.setDescription(generateDescription(novel));
+    }
+    
+    /**
+     * 流式处理文件
+     * 按章节边界逐章读取，章节分析结果累积到流式构建器中，不在内存中保留全文
+     */
+    private void processFileStreaming(Novel novel, String filePath, AnalysisDocumentService.StreamingBuilder builder,
+                                      int resumeAfterChapter, IntConsumer checkpointListener) throws IOException {
+        try (ChapterStreamReader reader = new ChapterStreamReader(
+                new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8), streamingMaxChapterLength)) {
             
-            String chapterContent = fullContent.substring(startPos, endPos);
-            String chapterTitle = extractChapterTitle(chapterContent);
-            
-            saveChapterWithNlp(novel, i + 1, chapterTitle, chapterContent);
+            int chapterCount = processChaptersStreaming(novel, reader::nextChapter, builder,
+                    resumeAfterChapter, checkpointListener);
             
-            // 更新进度
-            novel.setProcessedChapters(i + 1);
-            novelRepository.save(novel);
+            logger.info("流式处理小说 {} 完成，章节数: {}, 字符数: {}", novel.getId(), chapterCount, reader.getCharactersRead());
         }
+    }
+    
+    /**
+     * 处理章节并将各章结果累积到流式构建器中
+     *
+     * @return 处理的章节数
+     */
+    private int processChaptersStreaming(Novel novel, ChapterSource source, AnalysisDocumentService.StreamingBuilder builder,
+                                         int resumeAfterChapter, IntConsumer checkpointListener) throws IOException {
+        int chapterCount = processChapters(novel, source, true, result ->
+                builder.addChapter(result.content, result.keywordWeights, result.characters,
+                        result.dialogues, result.relationships, result.emotionValue, result.summary),
+                resumeAfterChapter, checkpointListener);
         
         // 更新小说元数据
         novel.setTotalChapters(chapterCount);
         novel.setProcessedChapters(chapterCount);
         novel.setDescription(generateDescription(novel));
+        return chapterCount;
+    }
+    
+    /**
+     * 章节内容来源，依次返回各章内容，结束时返回null
+     */
+    @FunctionalInterface
+    protected interface ChapterSource {
+        String next() throws IOException;
+    }
+    
+    /**
+     * 处理来自章节来源的所有章节
+     * 并行模式下章节NLP分析在线程池中执行，结果按章节顺序在当前线程（当前事务）中保存；
+     * 同时处理中的章节数有上限，避免一次性为整本书创建任务
+     *
+     * @param novel 小说
+     * @param source 章节来源
+     * @param collectAnalysis 是否同时提取章节人物和对话（流式构建分析文档时使用）
+     * @param onSaved 章节保存后按顺序回调，可为null
+     * @param resumeAfterChapter 之前的尝试中已提交的章节数，这些章节不再重复分析和写入
+     * @param checkpointListener 每批章节提交时回调已提交的章节数，可为null
+     * @return 处理的章节数
+     */
+    private int processChapters(Novel novel, ChapterSource source, boolean collectAnalysis,
+                                Consumer<ChapterNlpResult> onSaved, int resumeAfterChapter,
+                                IntConsumer checkpointListener) throws IOException {
+        ChapterBatchWriter writer = new ChapterBatchWriter(novel, resumeAfterChapter, checkpointListener);
+        int committed = skipCommittedChapters(novel, source, resumeAfterChapter, collectAnalysis, onSaved);
+        
+        if (!parallelChapters) {
+            String chapterContent;
+            while ((chapterContent = source.next()) != null) {
+                ChapterNlpResult result = analyzeChapter(committed + 1, extractChapterTitle(chapterContent),
+                        chapterContent, collectAnalysis);
+                writer.write(result);
+                if (onSaved != null) {
+                    onSaved.accept(result);
+                }
+                writer.updateProgress(++committed);
+            }
+            writer.flush();
+            return committed;
+        }
+        
+        int threads = chapterThreads > 0 ? chapterThreads : Runtime.getRuntime().availableProcessors();
+        int window = maxChaptersInFlight > 0 ? maxChaptersInFlight : threads * 2;
+        Long contextNovelId = RequestContextHolder.getCurrentNovelId();
+        
+        logger.info("并行处理小说 {} 的章节，线程数: {}, 窗口: {}", novel.getId(), threads, window);
+        
+        Deque<Future<ChapterNlpResult>> pending = new ArrayDeque<>();
+        int submitted = committed;
+        boolean exhausted = false;
+        
+        try {
+            while (true) {
+                // 补充任务直到达到窗口上限
+                while (!exhausted && pending.size() < window) {
+                    String chapterContent = source.next();
+                    if (chapterContent == null) {
+                        exhausted = true;
+                        break;
+                    }
+                    int chapterNumber = ++submitted;
+                    
+                    pending.addLast(chapterProcessingExecutor.submit(() -> {
+                        RequestContextHolder.setCurrentNovelId(contextNovelId);
+                        try {
+                            return analyzeChapter(chapterNumber, extractChapterTitle(chapterContent),
+                                    chapterContent, collectAnalysis);
+                        } finally {
+                            RequestContextHolder.clearCurrentNovelId();
+                        }
+                    }));
+                }
+                
+                if (pending.isEmpty()) {
+                    break;
+                }
+                
+                // 按章节顺序取出结果并保存
+                ChapterNlpResult result = pending.removeFirst().get();
+                writer.write(result);
+                if (onSaved != null) {
+                    onSaved.accept(result);
+                }
+                
+                // 更新进度
+                writer.updateProgress(++committed);
+            }
+            writer.flush();
+            return committed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("章节处理被中断", e, ErrorCodes.NOVEL_CHAPTER_ERROR);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new ServiceException("章节处理失败: " + cause.getMessage(), cause, ErrorCodes.NOVEL_CHAPTER_ERROR);
+        } finally {
+            // 出错时取消尚未完成的章节任务
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+    
+    /**
+     * 跳过之前的尝试中已提交的章节
+     * 需要按章节回调时（流式构建分析文档），使用已保存的摘要、关键词、情感值和人物分析结果，
+     * 只有没有保存人物分析的章节（如内容已更新）才重新提取人物和对话
+     *
+     * @return 跳过的章节数
+     */
+    private int skipCommittedChapters(Novel novel, ChapterSource source, int resumeAfterChapter,
+                                      boolean collectAnalysis, Consumer<ChapterNlpResult> onSaved) throws IOException {
+        int skipped = 0;
+        while (skipped < resumeAfterChapter) {
+            String chapterContent = source.next();
+            if (chapterContent == null) {
+                break;
+            }
+            skipped++;
+            if (onSaved != null) {
+                onSaved.accept(restoreChapterResult(novel.getId(), skipped, chapterContent, collectAnalysis));
+            }
+        }
+        return skipped;
+    }
+    
+    /**
+     * 根据已保存的章节和情感数据还原章节分析结果
+     */
+    private ChapterNlpResult restoreChapterResult(Long novelId, int chapterNumber, String content, boolean collectAnalysis) {
+        Chapter chapter = chapterRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber).orElse(null);
+        EmotionalData emotionalData = emotionalDataRepository.findByNovelIdAndChapterNumber(novelId, chapterNumber);
+        if (chapter == null || emotionalData == null) {
+            return analyzeChapter(chapterNumber, extractChapterTitle(content), content, collectAnalysis);
+        }
+        
+        ChapterNlpResult result = new ChapterNlpResult(chapterNumber, chapter.getTitle(), content);
+        result.summary = chapter.getSummary();
+        result.keywords = chapter.getKeywords() != null ? new ArrayList<>(chapter.getKeywords()) : new ArrayList<>();
+        result.keywordWeights = new LinkedHashMap<>();
+        int weight = result.keywords.size();
+        for (String keyword : result.keywords) {
+            result.keywordWeights.put(keyword, weight--);
+        }
+        if (collectAnalysis) {
+            ChapterAnalysis stored = readChapterAnalysis(chapter);
+            if (stored != null) {
+                result.characters = stored.getCharacters();
+                result.dialogues = stored.getDialogues();
+                result.relationships = RelationshipAccumulator.fromSnapshot(stored.getRelationships());
+            } else {
+                // 补存提取结果，之后的重新同步直接使用
+                collectChapterAnalysis(result);
+                chapter.setAnalysisJson(writeChapterAnalysis(result));
+                chapterRepository.save(chapter);
+            }
+        }
+        result.emotionValue = emotionalData.getEmotionValue() != null ? emotionalData.getEmotionValue() / 100 : 0.5;
+        result.important = Boolean.TRUE.equals(emotionalData.getIsImportant());
+        return result;
     }
     
     /**
@@ -788,26 +1228,43 @@ public class NovelServiceImpl implements NovelService {
         return description.toString();
     }
     
+    /**
+     * 由已保存的章节摘要分层生成摘要
+     *
+     * @return 分层摘要，未启用或没有章节摘要时返回null
+     */
+    private HierarchicalSummary summarizeHierarchically(Long novelId, List<String> characters) {
+        if (!hierarchicalSummary) {
+            return null;
+        }
+        try {
+            return novelSummaryService.summarize(novelId, characters);
+        } catch (Exception e) {
+            logger.warn("小说 {} 分层摘要生成失败，改为基于全文生成: {}", novelId, e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * 生成角色发展摘要
+     * 有分层摘要时角色相关内容取自章节摘要，否则取自全文
      */
-    private String generateCharacterSummary(String fullContent, List<String> characters) {
+    private String generateCharacterSummary(String fullContent, AnalysisDocument analysis, HierarchicalSummary hierarchy) {
+        List<String> characters = analysis.getCharacters();
         if (characters == null || characters.isEmpty()) {
             return "小说中未能识别明确的角色。";
         }
         
         try {
             // 验证内容有效性
-            if (fullContent == null || fullContent.isEmpty()) {
+            if (hierarchy == null && (fullContent == null || fullContent.isEmpty())) {
                 logger.warn("生成角色摘要时，内容为空");
                 return "无法生成角色摘要，内容为空。";
             }
             
-            // 获取所有对话
-            List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-            
-            // 提取角色关系 - 仅用于摘要生成，不再保存到数据库（已在processNovelFile中处理）
-            List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
+            // 对话和角色关系直接取自分析文档
+            List<Map<String, String>> dialogues = analysis.getDialogues();
+            List<Map<String, Object>> relationships = analysis.getRelationships();
             
             StringBuilder summary = new StringBuilder();
             summary.append("主要角色：").append(String.join("、", characters.subList(0, Math.min(5, characters.size()))));
@@ -818,19 +1275,10 @@ public class NovelServiceImpl implements NovelService {
             for (int i = 0; i < limit; i++) {
                 String character = characters.get(i);
                 
-                // 提取与该角色相关的内容
-                List<String> sentences = Arrays.asList(fullContent.split("[。！？.!?]"));
-                List<String> characterSentences = new ArrayList<>();
-                
-                for (String sentence : sentences) {
-                    if (sentence.contains(character)) {
-                        characterSentences.add(sentence);
-                    }
-                    
-                    if (characterSentences.size() >= 15) {
-                        break;
-                    }
-                }
+                // 提取与该角色相关的内容：章节摘要中提到该角色的句子，或按分析文档中的句子边界从全文定位
+                List<String> characterSentences = hierarchy != null
+                        ? hierarchy.sentencesFor(character, 15)
+                        : analysis.sentencesFor(fullContent, character, 15);
                 
                 // 提取该角色的对话
                 List<String> characterDialogues = dialogues.stream()
@@ -860,6 +1308,13 @@ public class NovelServiceImpl implements NovelService {
                         
                         summary.append(character).append("：").append(charSummary);
                         
+                        // 添加出场范围
+                        int[] appearance = hierarchy != null ? hierarchy.getCharacterAppearances().get(character) : null;
+                        if (appearance != null) {
+                            summary.append("\n出场：第").append(appearance[0]).append("章至第").append(appearance[1])
+                                    .append("章，共").append(appearance[2]).append("章");
+                        }
+                        
                         // 添加角色对话示例
                         if (!characterDialogues.isEmpty()) {
                             summary.append("\n典型对话：\"").append(characterDialogues.get(0)).append("\"");
@@ -1153,46 +1608,195 @@ public class NovelServiceImpl implements NovelService {
     }
     
     /**
-     * 使用NLP增强的章节保存方法
+     * 对单个章节执行NLP分析（摘要、关键词、情感），不访问数据库，可在工作线程中调用
+     */
+    private ChapterNlpResult analyzeChapter(int chapterNumber, String title, String content) {
+        return analyzeChapter(chapterNumber, title, content, false);
+    }
+    
+    /**
+     * 对单个章节执行NLP分析
+     *
+     * @param collectAnalysis 是否同时提取人物和对话，供流式构建分析文档使用
      */
-    private void saveChapterWithNlp(Novel novel, int chapterNumber, String title, String content) {
-        Chapter chapter = new Chapter(novel, chapterNumber, title);
-        chapter.setContent(content);
+    private ChapterNlpResult analyzeChapter(int chapterNumber, String title, String content, boolean collectAnalysis) {
+        ChapterNlpResult result = new ChapterNlpResult(chapterNumber, title, content);
         
         // 使用NLP生成摘要
-        String summaryText = nlpService.generateSummary(content, 200);
-        chapter.setSummary(summaryText);
+        result.summary = nlpService.generateSummary(content, 200);
         
         // 使用NLP提取关键词
         Map<String, Integer> keywordMap = nlpService.extractKeywords(content, 10);
-        List<String> keywords = new ArrayList<>(keywordMap.keySet());
-        chapter.setKeywords(keywords);
+        result.keywords = new ArrayList<>(keywordMap.keySet());
+        result.keywordWeights = keywordMap;
         
-        // 保存章节
-        chapterRepository.save(chapter);
+        if (collectAnalysis) {
+            collectChapterAnalysis(result);
+        }
         
         // 使用NLP分析章节情感
-        double emotionValue = nlpService.analyzeSentiment(content);
-        
-        // 创建情感数据对象
-        com.novelassistant.entity.visualization.EmotionalData emotionalData = new com.novelassistant.entity.visualization.EmotionalData();
-        emotionalData.setNovel(novel);
-        emotionalData.setChapter(chapter);
-        emotionalData.setChapterNumber(chapterNumber);
-        emotionalData.setChapterTitle(title);
-        
-        // 将0-1范围的情感值转换为0-100范围以便展示
-        emotionalData.setEmotionValue(emotionValue * 100);
-        
-        // 将章节摘要设置为事件描述
-        emotionalData.setEventDescription(summaryText);
+        result.emotionValue = nlpService.analyzeSentiment(content);
         
         // 根据内容特征判断是否为重要章节或情节高潮
-        boolean isImportant = isImportantChapter(content, emotionValue);
-        emotionalData.setIsImportant(isImportant);
+        result.important = isImportantChapter(content, result.emotionValue);
+        return result;
+    }
+    
+    /**
+     * 提取章节人物、对话和人物关系
+     */
+    private void collectChapterAnalysis(ChapterNlpResult result) {
+        result.characters = nlpService.extractCharacters(result.content);
+        result.dialogues = nlpService.extractDialogues(result.content);
+        result.relationships = nlpService.accumulateRelationships(result.content, result.dialogues, result.characters);
+    }
+    
+    /**
+     * 序列化章节人物分析结果，没有收集时返回null
+     */
+    private String writeChapterAnalysis(ChapterNlpResult result) {
+        if (result.characters == null) {
+            return null;
+        }
+        ChapterAnalysis analysis = new ChapterAnalysis();
+        analysis.setCharacters(result.characters);
+        analysis.setDialogues(result.dialogues);
+        analysis.setRelationships(result.relationships != null ? result.relationships.snapshot() : null);
+        try {
+            return objectMapper.writeValueAsString(analysis);
+        } catch (Exception e) {
+            // 不保存时重新同步会重新提取该章
+            logger.warn("序列化第 {} 章的人物分析结果失败: {}", result.chapterNumber, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 读取章节保存的人物分析结果，没有或无法解析时返回null
+     */
+    private ChapterAnalysis readChapterAnalysis(Chapter chapter) {
+        if (chapter.getAnalysisJson() == null || chapter.getAnalysisJson().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(chapter.getAnalysisJson(), ChapterAnalysis.class);
+        } catch (Exception e) {
+            logger.warn("解析第 {} 章的人物分析结果失败: {}", chapter.getChapterNumber(), e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 单个章节的NLP分析结果
+     */
+    private static class ChapterNlpResult {
+        private final int chapterNumber;
+        private final String title;
+        private final String content;
+        private String summary;
+        private List<String> keywords;
+        private Map<String, Integer> keywordWeights;
+        private List<String> characters;
+        private List<Map<String, String>> dialogues;
+        private RelationshipAccumulator relationships;
+        private double emotionValue;
+        private boolean important;
+        
+        ChapterNlpResult(int chapterNumber, String title, String content) {
+            this.chapterNumber = chapterNumber;
+            this.title = title;
+            this.content = content;
+        }
+    }
+    
+    /**
+     * 章节批量写入器
+     * 章节和情感数据先在内存中累积，每累计writeBatchSize个章节在一个事务中批量插入，
+     * 并在同一事务中回调检查点，保证检查点与已提交的章节一致；
+     * 处理进度按时间间隔保存，而不是每个章节保存一次
+     */
+    private class ChapterBatchWriter {
+        private final Novel novel;
+        private final IntConsumer checkpointListener;
+        private final List<Chapter> pendingChapters = new ArrayList<>();
+        private final List<EmotionalData> pendingEmotionalData = new ArrayList<>();
+        private int committedChapters;
+        private long lastProgressTime = System.currentTimeMillis();
+        
+        /**
+         * @param novel 小说
+         * @param committedChapters 之前已提交的章节数
+         * @param checkpointListener 每批提交时回调已提交的章节数，可为null
+         */
+        ChapterBatchWriter(Novel novel, int committedChapters, IntConsumer checkpointListener) {
+            this.novel = novel;
+            this.committedChapters = committedChapters;
+            this.checkpointListener = checkpointListener;
+        }
+        
+        /**
+         * 登记章节及其情感数据，达到批量大小时提交
+         */
+        void write(ChapterNlpResult result) {
+            Chapter chapter = new Chapter(novel, result.chapterNumber, result.title);
+            chapter.setContent(result.content);
+            chapter.setSummary(result.summary);
+            chapter.setKeywords(result.keywords);
+            chapter.setAnalysisJson(writeChapterAnalysis(result));
+            
+            // 创建情感数据对象
+            EmotionalData emotionalData = new EmotionalData();
+            emotionalData.setNovel(novel);
+            emotionalData.setChapter(chapter);
+            emotionalData.setChapterNumber(result.chapterNumber);
+            emotionalData.setChapterTitle(result.title);
+            
+            // 将0-1范围的情感值转换为0-100范围以便展示
+            emotionalData.setEmotionValue(result.emotionValue * 100);
+            
+            // 将章节摘要设置为事件描述
+            emotionalData.setEventDescription(result.summary);
+            emotionalData.setIsImportant(result.important);
+            
+            pendingChapters.add(chapter);
+            pendingEmotionalData.add(emotionalData);
+            if (pendingChapters.size() >= Math.max(1, writeBatchSize)) {
+                flush();
+            }
+        }
         
-        // 保存情感数据
-        emotionalDataRepository.save(emotionalData);
+        /**
+         * 更新处理进度，距上次保存超过progressIntervalMs时才写入数据库
+         */
+        void updateProgress(int processedChapters) {
+            novel.setProcessedChapters(processedChapters);
+            long now = System.currentTimeMillis();
+            if (now - lastProgressTime >= progressIntervalMs) {
+                novelRepository.save(novel);
+                lastProgressTime = now;
+            }
+        }
+        
+        /**
+         * 在一个事务中写入所有已登记的章节并记录检查点
+         */
+        void flush() {
+            if (pendingChapters.isEmpty()) {
+                return;
+            }
+            int committed = committedChapters + pendingChapters.size();
+            transactionTemplate.executeWithoutResult(status -> {
+                chapterRepository.saveAll(pendingChapters);
+                emotionalDataRepository.saveAll(pendingEmotionalData);
+                if (checkpointListener != null) {
+                    checkpointListener.accept(committed);
+                }
+            });
+            logger.debug("批量写入 {} 个章节，已提交: {}", pendingChapters.size(), committed);
+            committedChapters = committed;
+            pendingChapters.clear();
+            pendingEmotionalData.clear();
+        }
     }
     
     /**
@@ -1205,17 +1809,8 @@ public class NovelServiceImpl implements NovelService {
             return true;
         }
         
-        // 检查是否包含重要情节关键词
-        String[] importantKeywords = {"战斗", "死亡", "相遇", "发现", "离别", "相爱", "失去", 
-                                     "冲突", "危机", "转折", "告白", "决定", "选择", "背叛"};
-        
-        for (String keyword : importantKeywords) {
-            if (content.contains(keyword)) {
-                return true;
-            }
-        }
-        
-        return false;
+        // 检查是否包含重要情节关键词，找到第一个即返回
+        return lexiconRegistry.matcher().containsCategory(content, LexiconRegistry.IMPORTANT_CHAPTER);
     }
     
     private void addTag(Novel novel, String name, Tag.TagType type) {
@@ -1355,21 +1950,17 @@ public class NovelServiceImpl implements NovelService {
         }
         String fullContent = fullTextBuilder.toString();
         
-        // 提取关键词
-        Map<String, Integer> keywords = nlpService.extractKeywords(fullContent, 20);
-        
-        // 提取角色
-        List<String> characters = nlpService.extractCharacters(fullContent);
-        
-        // 提取对话和关系
-        List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-        List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
+        // 章节内容未变化时复用已保存的分析文档，不再重新运行NLP
+        AnalysisDocument analysis = analysisDocumentService.getOrBuild(novelId);
         
         // 删除旧标签
         tagRepository.deleteAll(existingTags);
         
         // 重新生成标签
-        generateSmartTags(novel, keywords, fullContent, characters, relationships);
+        generateSmartTags(novel, analysis, fullContent);
+        
+        // 关键词云包含标签，标签变化后缓存失效
+        visualizationCacheService.invalidate(novelId);
         
         // 获取更新后的标签数
         return (int) tagRepository.countByNovelId(novelId);
@@ -1500,6 +2091,17 @@ public class NovelServiceImpl implements NovelService {
     public String generateOverallSummary(Novel novel) {
         logger.info("开始生成小说《{}》整体摘要", novel.getTitle());
         
+        // 有章节摘要时分层生成，不读取章节全文
+        List<String> characterNames = hierarchicalSummary
+                ? characterRepository.findByNovelIdOrderByImportanceDesc(novel.getId()).stream()
+                        .map(NovelCharacter::getName)
+                        .collect(Collectors.toList())
+                : Collections.emptyList();
+        HierarchicalSummary hierarchy = summarizeHierarchically(novel.getId(), characterNames);
+        if (hierarchy != null) {
+            return hierarchy.getOverallSummary();
+        }
+        
         // 获取所有章节
         List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novel.getId());
         if (chapters.isEmpty()) {
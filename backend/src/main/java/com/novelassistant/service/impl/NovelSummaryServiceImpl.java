@@ -0,0 +1,334 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.entity.visualization.EmotionalData;
+import com.novelassistant.model.HierarchicalSummary;
+import com.novelassistant.model.HierarchicalSummary.Node;
+import com.novelassistant.repository.ChapterRepository;
+import com.novelassistant.repository.visualization.EmotionalDataRepository;
+import com.novelassistant.service.NlpService;
+import com.novelassistant.service.NovelSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 小说分层摘要服务实现
+ * 章节摘要按顺序每arcSize章合并为一个情节段，情节段再每arcSize个逐级合并，
+ * 每次合并只对一组摘要句子做TextRank，单组的计算量有上限，总耗时与章节数成正比
+ */
+@Service
+public class NovelSummaryServiceImpl implements NovelSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NovelSummaryServiceImpl.class);
+
+    // 各级摘要的长度
+    private static final int OVERALL_SUMMARY_LENGTH = 500;
+    private static final int PLOT_OVERVIEW_LENGTH = 300;
+    private static final int ARC_SUMMARY_LENGTH = 150;
+    private static final int GROUP_SUMMARY_LENGTH = 300;
+
+    // 情节发展摘要最多列出的阶段数、每个阶段显示的长度和情感高潮点数
+    private static final int MAX_PLOT_POINTS = 12;
+    private static final int PLOT_POINT_LENGTH = 200;
+    private static final int MAX_CLIMAXES = 3;
+
+    // 收集人物发展素材的人物数和每个人物的句子数
+    private static final int CHARACTER_LIMIT = 10;
+    private static final int SENTENCES_PER_CHARACTER = 15;
+
+    // 分页读取章节摘要的页大小
+    private static final int OUTLINE_PAGE_SIZE = 500;
+
+    // generateSummary在摘要句子之后附加的情感、人物和关键词说明，合并前去掉
+    private static final String MAIN_CHARACTERS_MARKER = " 主要角色：";
+    private static final String[] DECORATION_MARKERS = {" 本章氛围", MAIN_CHARACTERS_MARKER, " 关键词："};
+
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    @Autowired
+    private EmotionalDataRepository emotionalDataRepository;
+
+    @Autowired
+    private NlpService nlpService;
+
+    // 每个情节段包含的章节数，也是更高一级每组合并的节点数
+    @Value("${novelassistant.summary.arc-size:10}")
+    private int arcSize = 10;
+
+    @Override
+    public HierarchicalSummary summarize(Long novelId, List<String> characters) {
+        long startTime = System.currentTimeMillis();
+        List<ChapterDigest> digests = loadDigests(novelId);
+        if (digests.isEmpty()) {
+            return null;
+        }
+        int groupSize = Math.max(2, arcSize);
+
+        List<List<Node>> levels = new ArrayList<>();
+        List<Node> current = digests.stream()
+                .map(d -> new Node(d.chapterNumber, d.chapterNumber, d.text, d.sentiment, d.important))
+                .collect(Collectors.toList());
+        levels.add(current);
+        do {
+            current = merge(current, groupSize, levels.size() == 1 ? ARC_SUMMARY_LENGTH : GROUP_SUMMARY_LENGTH);
+            levels.add(current);
+        } while (current.size() > groupSize);
+
+        List<String> topSummaries = current.stream().map(Node::getSummary).collect(Collectors.toList());
+        List<String> mainCharacters = characters == null ? Collections.emptyList() : characters.stream()
+                .filter(name -> name != null && !name.isEmpty())
+                .limit(3)
+                .collect(Collectors.toList());
+
+        HierarchicalSummary summary = new HierarchicalSummary();
+        summary.setLevels(levels);
+        summary.setOverallSummary(buildOverallSummary(topSummaries, mainCharacters));
+        summary.setPlotProgressionSummary(buildPlotProgression(levels, topSummaries));
+        collectCharacterMaterial(summary, digests, characters);
+
+        logger.info("小说 {} 分层摘要生成完成，章节: {}, 层数: {}, 情节段: {}, 耗时: {}ms", novelId,
+                digests.size(), levels.size(), summary.getArcs().size(), System.currentTimeMillis() - startTime);
+        return summary;
+    }
+
+    /**
+     * 按顺序每groupSize个节点合并为上一级节点
+     */
+    private List<Node> merge(List<Node> nodes, int groupSize, int summaryLength) {
+        List<Node> merged = new ArrayList<>((nodes.size() + groupSize - 1) / groupSize);
+        for (int from = 0; from < nodes.size(); from += groupSize) {
+            List<Node> group = nodes.subList(from, Math.min(from + groupSize, nodes.size()));
+            List<String> sentences = new ArrayList<>(group.size());
+            double weightedSentiment = 0;
+            int chapters = 0;
+            boolean important = false;
+            for (Node node : group) {
+                sentences.add(node.getSummary());
+                int span = node.getEndChapter() - node.getStartChapter() + 1;
+                weightedSentiment += node.getSentiment() * span;
+                chapters += span;
+                important |= node.isImportant();
+            }
+            merged.add(new Node(group.get(0).getStartChapter(), group.get(group.size() - 1).getEndChapter(),
+                    nlpService.summarizeSentences(sentences, summaryLength),
+                    weightedSentiment / chapters, important));
+        }
+        return merged;
+    }
+
+    private String buildOverallSummary(List<String> topSummaries, List<String> mainCharacters) {
+        String suffix = mainCharacters.isEmpty() ? "" : MAIN_CHARACTERS_MARKER + String.join("、", mainCharacters);
+        return nlpService.summarizeSentences(topSummaries, OVERALL_SUMMARY_LENGTH - suffix.length()) + suffix;
+    }
+
+    /**
+     * 情节发展摘要：故事概要、各阶段摘要和情感高潮点
+     * 阶段取节点数不超过MAX_PLOT_POINTS的最低一级
+     */
+    private String buildPlotProgression(List<List<Node>> levels, List<String> topSummaries) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(nlpService.summarizeSentences(topSummaries, PLOT_OVERVIEW_LENGTH)).append("\n\n");
+
+        List<Node> stages = levels.get(levels.size() - 1);
+        for (int level = 1; level < levels.size(); level++) {
+            if (levels.get(level).size() <= MAX_PLOT_POINTS) {
+                stages = levels.get(level);
+                break;
+            }
+        }
+        summary.append("情节发展：\n");
+        for (int i = 0; i < stages.size() && i < MAX_PLOT_POINTS; i++) {
+            Node stage = stages.get(i);
+            summary.append("• 阶段").append(i + 1)
+                    .append("（").append(stage.getStartChapter()).append("-").append(stage.getEndChapter()).append("）：")
+                    .append(truncate(stage.getSummary(), PLOT_POINT_LENGTH))
+                    .append("（情感基调：").append(describeSentiment(stage.getSentiment())).append("）\n");
+        }
+
+        // 情感偏离中性最明显的章节，重要章节优先
+        List<Node> climaxes = levels.get(0).stream()
+                .filter(node -> Math.abs(node.getSentiment() - 0.5) > 0.3)
+                .sorted(Comparator.comparing(Node::isImportant).reversed()
+                        .thenComparing(node -> -Math.abs(node.getSentiment() - 0.5)))
+                .limit(MAX_CLIMAXES)
+                .sorted(Comparator.comparingInt(Node::getStartChapter))
+                .collect(Collectors.toList());
+        if (!climaxes.isEmpty()) {
+            summary.append("\n情感高潮点：\n");
+            for (Node node : climaxes) {
+                summary.append("• ").append(node.getSentiment() > 0.5 ? "高兴/激动" : "悲伤/紧张").append(": ")
+                        .append(truncate(firstSentence(node.getSummary()), 50)).append("\n");
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * 收集主要人物在章节摘要中的句子和出场范围，供生成人物发展摘要
+     */
+    private void collectCharacterMaterial(HierarchicalSummary summary, List<ChapterDigest> digests,
+                                          List<String> characters) {
+        if (characters == null || characters.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> sentencesByCharacter = new LinkedHashMap<>();
+        Map<String, int[]> appearances = new LinkedHashMap<>();
+        for (String character : characters.subList(0, Math.min(CHARACTER_LIMIT, characters.size()))) {
+            if (character == null || character.isEmpty()) {
+                continue;
+            }
+            List<String> mentions = new ArrayList<>();
+            int[] appearance = null;
+            for (ChapterDigest digest : digests) {
+                String sentence = digest.sentenceMentioning(character);
+                if (sentence == null && !digest.characters.contains(character)) {
+                    continue;
+                }
+                if (appearance == null) {
+                    appearance = new int[]{digest.chapterNumber, digest.chapterNumber, 0};
+                }
+                appearance[1] = digest.chapterNumber;
+                appearance[2]++;
+                if (sentence != null) {
+                    mentions.add(sentence);
+                }
+            }
+            if (appearance != null) {
+                appearances.put(character, appearance);
+                sentencesByCharacter.put(character, sampleEvenly(mentions, SENTENCES_PER_CHARACTER));
+            }
+        }
+        summary.setCharacterSentences(sentencesByCharacter);
+        summary.setCharacterAppearances(appearances);
+    }
+
+    /**
+     * 按章节号顺序读取章节摘要和情感数据
+     */
+    private List<ChapterDigest> loadDigests(Long novelId) {
+        Map<Integer, EmotionalData> emotions = new HashMap<>();
+        for (EmotionalData data : emotionalDataRepository.findByNovelIdOrderByChapterNumberAsc(novelId)) {
+            if (data.getChapterNumber() != null) {
+                emotions.put(data.getChapterNumber(), data);
+            }
+        }
+
+        List<ChapterDigest> digests = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            List<Object[]> rows = chapterRepository.findOutlineByNovelId(novelId, PageRequest.of(page, OUTLINE_PAGE_SIZE));
+            for (Object[] row : rows) {
+                Integer chapterNumber = (Integer) row[0];
+                String summary = (String) row[2];
+                if (chapterNumber == null || summary == null || summary.isEmpty()) {
+                    continue;
+                }
+                EmotionalData emotion = emotions.get(chapterNumber);
+                double sentiment = emotion != null && emotion.getEmotionValue() != null
+                        ? emotion.getEmotionValue() / 100.0 : 0.5;
+                boolean important = emotion != null && Boolean.TRUE.equals(emotion.getIsImportant());
+                ChapterDigest digest = ChapterDigest.parse(chapterNumber, summary, sentiment, important);
+                if (!digest.text.isEmpty()) {
+                    digests.add(digest);
+                }
+            }
+            if (rows.size() < OUTLINE_PAGE_SIZE) {
+                break;
+            }
+        }
+        return digests;
+    }
+
+    private static <T> List<T> sampleEvenly(List<T> items, int limit) {
+        if (items.size() <= limit) {
+            return items;
+        }
+        List<T> sampled = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            sampled.add(items.get((int) ((long) i * items.size() / limit)));
+        }
+        return sampled;
+    }
+
+    private static String describeSentiment(double sentiment) {
+        return sentiment > 0.6 ? "积极" : (sentiment < 0.4 ? "消极" : "中性");
+    }
+
+    private static String firstSentence(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if ("。！？!?".indexOf(text.charAt(i)) >= 0) {
+                return text.substring(0, i + 1);
+            }
+        }
+        return text;
+    }
+
+    private static String truncate(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength - 3) + "..." : text;
+    }
+
+    /**
+     * 一章的摘要句子、摘要中列出的主要角色和情感
+     */
+    static class ChapterDigest {
+        final int chapterNumber;
+        final String text;
+        final List<String> characters;
+        final double sentiment;
+        final boolean important;
+
+        ChapterDigest(int chapterNumber, String text, List<String> characters, double sentiment, boolean important) {
+            this.chapterNumber = chapterNumber;
+            this.text = text;
+            this.characters = characters;
+            this.sentiment = sentiment;
+            this.important = important;
+        }
+
+        static ChapterDigest parse(int chapterNumber, String summary, double sentiment, boolean important) {
+            int end = summary.length();
+            for (String marker : DECORATION_MARKERS) {
+                int index = summary.indexOf(marker);
+                if (index >= 0 && index < end) {
+                    end = index;
+                }
+            }
+            String text = summary.substring(0, end).replaceAll("【[^】]*?】", "").trim();
+
+            List<String> characters = Collections.emptyList();
+            int charactersStart = summary.indexOf(MAIN_CHARACTERS_MARKER);
+            if (charactersStart >= 0) {
+                charactersStart += MAIN_CHARACTERS_MARKER.length();
+                int charactersEnd = summary.indexOf(' ', charactersStart);
+                String list = summary.substring(charactersStart, charactersEnd >= 0 ? charactersEnd : summary.length());
+                characters = Arrays.asList(list.split("、"));
+            }
+            return new ChapterDigest(chapterNumber, text, characters, sentiment, important);
+        }
+
+        /**
+         * 摘要中第一个提到该人物的句子
+         */
+        String sentenceMentioning(String character) {
+            int index = text.indexOf(character);
+            if (index < 0) {
+                return null;
+            }
+            int start = index;
+            while (start > 0 && "。！？!?".indexOf(text.charAt(start - 1)) < 0) {
+                start--;
+            }
+            int end = index + character.length();
+            while (end < text.length() && "。！？!?".indexOf(text.charAt(end)) < 0) {
+                end++;
+            }
+            return text.substring(start, Math.min(end + 1, text.length())).trim();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.util.LogUtil;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 系统日志分区管理
+ * system_logs表按created_at做MySQL月度RANGE分区（分区名p+年月，另有一个MAXVALUE分区pmax），
+ * 分区表由sql/06_system_logs_partitions.sql一次性转换，应用只检测表是否已分区并定期预建后续月份的分区。
+ * 清理日志时整个删除过期的月分区，只有跨越清理时间点的那个月才按行分批删除；表未分区时全部按行分批删除
+ */
+@Component
+public class SystemLogPartitionManager {
+
+    private static final Logger logger = LogUtil.getLogger(SystemLogPartitionManager.class);
+
+    private static final String TABLE = "system_logs";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // 无法整区删除时每次删除的行数，避免长事务和大量锁
+    private static final int DELETE_CHUNK_SIZE = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${novelassistant.system-log.partitioning.enabled:true}")
+    private boolean partitioningEnabled;
+
+    @Value("${novelassistant.system-log.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    private volatile boolean partitioned;
+
+    /**
+     * 启动时检测表是否已分区并补齐后续月份的分区，不修改表结构
+     */
+    @PostConstruct
+    public void init() {
+        maintainPartitions();
+        if (partitioningEnabled && !partitioned) {
+            logger.info("系统日志表未分区，清理日志时按行分批删除；可执行sql/06_system_logs_partitions.sql转换为分区表");
+        }
+    }
+
+    /**
+     * 每天预建后续月份的分区
+     */
+    @Scheduled(cron = "${novelassistant.system-log.partitioning.maintenance-cron:0 10 0 * * *}")
+    public void maintainPartitions() {
+        if (!partitioningEnabled) {
+            return;
+        }
+        try {
+            // 迁移脚本可能在应用运行期间执行，每次重新检测
+            partitioned = !listPartitions().isEmpty();
+            if (partitioned) {
+                addFuturePartitions();
+            }
+        } catch (Exception e) {
+            // 非MySQL数据库或权限不足时按未分区表处理
+            logger.warn("维护系统日志分区失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从pmax中拆分出当前月份之后monthsAhead个月内尚不存在的分区
+     */
+    private synchronized void addFuturePartitions() {
+        YearMonth last = null;
+        for (String name : listPartitions().keySet()) {
+            YearMonth month = parseMonth(name);
+            if (month != null && (last == null || month.isAfter(last))) {
+                last = month;
+            }
+        }
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        YearMonth next = last != null ? last.plusMonths(1) : YearMonth.now();
+        if (next.isAfter(target)) {
+            return;
+        }
+
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(target); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + String.join(", ", definitions) + ")");
+        logger.info("已预建系统日志分区 {} 至 {}", partitionName(next), partitionName(target));
+    }
+
+    /**
+     * 删除指定时间之前的日志
+     * 整个早于该时间的月分区直接删除，其余日志按行分批删除
+     *
+     * @param threshold 时间点
+     * @return 删除的日志条数，整区删除的部分按分区统计信息估算
+     */
+    public synchronized int purgeBefore(Date threshold) {
+        int deleted = 0;
+        if (partitioned) {
+            LocalDateTime thresholdTime = LocalDateTime.ofInstant(threshold.toInstant(), ZoneId.systemDefault());
+            List<String> expired = new ArrayList<>();
+            for (Map.Entry<String, Long> partition : listPartitions().entrySet()) {
+                YearMonth month = parseMonth(partition.getKey());
+                // 分区中的日志都早于下个月第一天
+                if (month != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(thresholdTime)) {
+                    expired.add(partition.getKey());
+                    // 用information_schema中的估算行数，不为计数扫描整个分区
+                    deleted += partition.getValue().intValue();
+                }
+            }
+            if (!expired.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", expired));
+                logger.info("已删除系统日志分区 {}", expired);
+            }
+        }
+
+        // 剩余的过期日志只在跨越时间点的分区中，按时间范围裁剪后分批删除
+        Timestamp timestamp = new Timestamp(threshold.getTime());
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE created_at < ? LIMIT " + DELETE_CHUNK_SIZE,
+                    timestamp);
+            deleted += chunk;
+        } while (chunk == DELETE_CHUNK_SIZE);
+        return deleted;
+    }
+
+    /**
+     * 分区信息
+     *
+     * @return 分区名 -> 估算行数，表未分区时为空
+     */
+    public Map<String, Long> listPartitions() {
+        Map<String, Long> partitions = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT PARTITION_NAME, TABLE_ROWS FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                rs -> {
+                    partitions.put(rs.getString(1), rs.getLong(2));
+                }, TABLE);
+        return partitions;
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        LocalDate upperBound = month.plusMonths(1).atDay(1);
+        return "PARTITION " + partitionName(month) + " VALUES LESS THAN (TO_DAYS('" + upperBound + "'))";
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_FORMAT);
+    }
+
+    private static YearMonth parseMonth(String partitionName) {
+        if (partitionName == null || !partitionName.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(partitionName.substring(1), PARTITION_FORMAT);
+    }
+}
@@ -1,19 +1,21 @@
 package com.novelassistant.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.novelassistant.entity.SystemLog;
 import com.novelassistant.repository.SystemLogRepository;
 import com.novelassistant.service.SystemLogService;
 import com.novelassistant.util.LogUtil;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.persistence.criteria.Predicate;
 import java.util.*;
 
 /**
@@ -28,7 +30,13 @@ public class SystemLogServiceImpl implements SystemLogService {
     private SystemLogRepository systemLogRepository;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private SystemLogWriter systemLogWriter;
+    
+    @Autowired
+    private SystemLogPartitionManager partitionManager;
+    
+    @Value("${novelassistant.system-log.retention-days:0}")
+    private int retentionDays;
 
     @Override
     public Map<String, Object> getSystemLogs(int page, int size, String level,
@@ -102,18 +110,8 @@ public class SystemLogServiceImpl implements SystemLogService {
             log.setThread(thread);
             log.setStackTrace(stackTrace);
             
-            // 将参数转换为JSON字符串
-            if (params != null && !params.isEmpty()) {
-                try {
-                    log.setParamsJson(objectMapper.writeValueAsString(params));
-                } catch (Exception e) {
-                    // 如果JSON转换失败，记录错误但不阻断主要功能
-                    this.logger.warn("转换日志参数为JSON时出错: " + e.getMessage());
-                }
-            }
-            
-            // 保存到数据库
-            systemLogRepository.save(log);
+            // 交给异步写入器，参数的JSON转换和数据库写入都在写入线程中进行
+            systemLogWriter.submit(log, params);
         } catch (Exception e) {
             // 记录日志保存失败，但不抛出异常，避免影响主要业务流程
             this.logger.error("保存系统日志时发生错误", e);
@@ -121,7 +119,77 @@ public class SystemLogServiceImpl implements SystemLogService {
     }
 
     @Override
-    @Transactional
+    public Map<String, Object> getWriterStats() {
+        return systemLogWriter.getStats();
+    }
+
+    @Override
+    public Map<String, Object> scrollSystemLogs(String cursor, int size, String level,
+                                                Date startDate, Date endDate,
+                                                String query, String userId) {
+        // 游标格式：时间戳毫秒-日志ID
+        Date beforeTime = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.indexOf('-');
+            try {
+                beforeTime = new Date(Long.parseLong(cursor.substring(0, separator)));
+                beforeId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+        
+        List<SystemLog> logs = systemLogRepository.findBy(
+                logsBefore(level, startDate, endDate, query, userId, beforeTime, beforeId),
+                q -> q.sortBy(Sort.by(Sort.Direction.DESC, "timestamp", "id")).limit(size).all());
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("logs", logs);
+        result.put("size", size);
+        if (logs.size() == size) {
+            SystemLog last = logs.get(logs.size() - 1);
+            result.put("nextCursor", last.getTimestamp().getTime() + "-" + last.getId());
+        }
+        return result;
+    }
+
+    /**
+     * 键集分页条件：排在游标(beforeTime, beforeId)之后且满足筛选条件的日志
+     * 只为传入的条件生成谓词，避免参数为空判断使优化器放弃索引；关键词条件是前后模糊匹配，
+     * 只在传入关键词时加入
+     */
+    private static Specification<SystemLog> logsBefore(String level, Date startDate, Date endDate,
+                                                       String query, String userId,
+                                                       Date beforeTime, Long beforeId) {
+        return (root, criteriaQuery, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (level != null && !level.isEmpty()) {
+                predicates.add(cb.equal(root.get("level"), level));
+            }
+            if (startDate != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), startDate));
+            }
+            if (endDate != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), endDate));
+            }
+            if (userId != null && !userId.isEmpty()) {
+                predicates.add(cb.equal(root.get("userId"), userId));
+            }
+            if (query != null && !query.isEmpty()) {
+                String pattern = "%" + query + "%";
+                predicates.add(cb.or(cb.like(root.get("message"), pattern), cb.like(root.get("logger"), pattern)));
+            }
+            if (beforeTime != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("timestamp"), beforeTime),
+                        cb.and(cb.equal(root.get("timestamp"), beforeTime), cb.lessThan(root.get("id"), beforeId))));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    @Override
     public int cleanLogs(int days) {
         try {
             // 计算days天前的日期
@@ -129,8 +197,8 @@ public class SystemLogServiceImpl implements SystemLogService {
             calendar.add(Calendar.DAY_OF_MONTH, -days);
             Date thresholdDate = calendar.getTime();
             
-            // 删除早于thresholdDate的日志
-            int deletedCount = systemLogRepository.deleteByTimestampBefore(thresholdDate);
+            // 整个删除过期的月分区，其余日志分批删除
+            int deletedCount = partitionManager.purgeBefore(thresholdDate);
             
             this.logger.info("成功清理 {} 天前的日志, 共删除 {} 条记录", days, deletedCount);
             return deletedCount;
@@ -139,4 +207,23 @@ public class SystemLogServiceImpl implements SystemLogService {
             return 0;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 按保留天数定期清理日志
+     */
+    @Scheduled(cron = "${novelassistant.system-log.retention-cron:0 30 3 * * *}")
+    public void applyRetention() {
+        if (retentionDays > 0) {
+            cleanLogs(retentionDays);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("partitioned", partitionManager.isPartitioned());
+        stats.put("partitions", partitionManager.listPartitions());
+        stats.put("retentionDays", retentionDays);
+        return stats;
+    }
+}
@@ -0,0 +1,245 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novelassistant.entity.SystemLog;
+import com.novelassistant.util.BoundedRingBuffer;
+import com.novelassistant.util.LogUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 系统日志异步写入器
+ * 请求线程只把日志放入无锁环形缓冲区，后台线程批量取出，序列化参数后用一条批量INSERT写入数据库。
+ * 缓冲区满时按溢出策略处理，被丢弃的日志只计数，不影响请求
+ */
+@Component
+public class SystemLogWriter {
+
+    private static final Logger logger = LogUtil.getLogger(SystemLogWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO system_logs (level, logger_name, message, user_id, "
+            + "ip_address, thread_name, stack_trace, params, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 缓冲区满时的处理策略
+     */
+    public enum OverflowPolicy {
+        // 丢弃新日志
+        DROP_NEWEST,
+        // 丢弃缓冲区中最早的日志，放入新日志
+        DROP_OLDEST,
+        // 由调用线程直接写入数据库
+        CALLER_RUNS
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${novelassistant.system-log.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    @Value("${novelassistant.system-log.async.capacity:8192}")
+    private int capacity;
+
+    @Value("${novelassistant.system-log.async.batch-size:200}")
+    private int batchSize;
+
+    @Value("${novelassistant.system-log.async.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${novelassistant.system-log.async.overflow-policy:DROP_NEWEST}")
+    private OverflowPolicy overflowPolicy;
+
+    private BoundedRingBuffer<PendingLog> buffer;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!asyncEnabled) {
+            logger.info("系统日志同步写入");
+            return;
+        }
+        buffer = new BoundedRingBuffer<>(capacity);
+        running = true;
+        writerThread = new Thread(this::runLoop, "system-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("系统日志异步写入: 缓冲区 {} 条，每批 {} 条，溢出策略 {}",
+                buffer.capacity(), batchSize, overflowPolicy);
+    }
+
+    /**
+     * 提交日志，参数在写入线程中序列化为JSON
+     *
+     * @param log 日志实体
+     * @param params 其他参数，可为null
+     */
+    public void submit(SystemLog log, Map<String, Object> params) {
+        submitted.incrementAndGet();
+        PendingLog pending = new PendingLog(log, params);
+        if (buffer == null) {
+            writeBatch(List.of(pending));
+            return;
+        }
+        if (buffer.offer(pending)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                // 腾出一个位置，仍然放不进去时丢弃新日志
+                if (buffer.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+                if (!buffer.offer(pending)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+            case CALLER_RUNS:
+                writeBatch(List.of(pending));
+                break;
+            default:
+                dropped.incrementAndGet();
+                break;
+        }
+    }
+
+    private void runLoop() {
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                buffer.drainTo(batch, batchSize);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                if (buffer.size() < batchSize) {
+                    // 不足一批时等待一个刷新间隔，积累更多日志再写
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                }
+            } catch (Exception e) {
+                logger.error("系统日志写入线程异常", e);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量写入，批量失败时逐条重试以隔离出错的日志
+     */
+    private void writeBatch(List<PendingLog> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingLog pending : batch) {
+            rows.add(toRow(pending));
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            written.addAndGet(rows.size());
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            if (rows.size() == 1) {
+                failed.incrementAndGet();
+                logger.error("保存系统日志时发生错误: {}", e.getMessage());
+                return;
+            }
+            logger.warn("批量保存 {} 条系统日志失败，逐条重试: {}", rows.size(), e.getMessage());
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, row);
+                    written.incrementAndGet();
+                } catch (Exception rowError) {
+                    failed.incrementAndGet();
+                    logger.error("保存系统日志时发生错误: {}", rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private Object[] toRow(PendingLog pending) {
+        SystemLog log = pending.log;
+        String paramsJson = log.getParamsJson();
+        if (paramsJson == null && pending.params != null && !pending.params.isEmpty()) {
+            try {
+                paramsJson = objectMapper.writeValueAsString(pending.params);
+            } catch (Exception e) {
+                // 如果JSON转换失败，记录错误但不阻断主要功能
+                logger.warn("转换日志参数为JSON时出错: " + e.getMessage());
+            }
+        }
+        return new Object[]{log.getLevel(), log.getLogger(), log.getMessage(), log.getUserId(), log.getIp(),
+                log.getThread(), log.getStackTrace(), paramsJson, new Timestamp(log.getTimestamp().getTime())};
+    }
+
+    /**
+     * 停止写入线程并写完缓冲区中剩余的日志
+     */
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+        logger.info("系统日志写入线程已停止，共写入 {} 条，丢弃 {} 条", written.get(), dropped.get());
+    }
+
+    /**
+     * 写入统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("async", buffer != null);
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("capacity", buffer != null ? buffer.capacity() : 0);
+        stats.put("pending", buffer != null ? buffer.size() : 0);
+        stats.put("submitted", submitted.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private static final class PendingLog {
+        private final SystemLog log;
+        private final Map<String, Object> params;
+
+        PendingLog(SystemLog log, Map<String, Object> params) {
+            this.log = log;
+            this.params = params;
+        }
+    }
+}
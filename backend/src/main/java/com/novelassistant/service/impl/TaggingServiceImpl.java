@@ -4,10 +4,12 @@ import com.novelassistant.entity.Chapter;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.entity.NovelCharacter;
 import com.novelassistant.entity.Tag;
+import com.novelassistant.model.AnalysisDocument;
 import com.novelassistant.repository.ChapterRepository;
 import com.novelassistant.repository.NovelCharacterRepository;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.repository.TagRepository;
+import com.novelassistant.service.AnalysisDocumentService;
 import com.novelassistant.service.NlpService;
 import com.novelassistant.service.TaggingService;
 import org.slf4j.Logger;
@@ -43,6 +45,9 @@ public class TaggingServiceImpl implements TaggingService {
     @Autowired
     private NlpService nlpService;
     
+    @Autowired
+    private AnalysisDocumentService analysisDocumentService;
+    
     @Override
     @Transactional
     public int generateTagsForNovel(Long novelId) {
@@ -74,27 +79,18 @@ public class TaggingServiceImpl implements TaggingService {
         }
         String fullContent = fullContentBuilder.toString();
         
-        // 提取关键词
-        Map<String, Integer> keywords = nlpService.extractKeywords(fullContent, 20);
-        
-        // 提取角色
-        List<String> characters = nlpService.extractCharacters(fullContent);
-        
-        // 获取对话
-        List<Map<String, String>> dialogues = nlpService.extractDialogues(fullContent);
-        
-        // 分析关系
-        List<Map<String, Object>> relationships = nlpService.analyzeCharacterRelationships(dialogues);
+        // 关键词、角色、关系和情感取自分析文档，章节未变化时不重新运行NLP
+        AnalysisDocument analysis = analysisDocumentService.getOrBuild(novelId);
         
         // 基于内容分析生成多种标签
         logger.info("生成基于内容关键词的标签");
-        generateKeywordBasedTags(novel, keywords, fullContent);
+        generateKeywordBasedTags(novel, analysis.getKeywords(), fullContent);
         
         logger.info("生成基于情感分析的标签");
-        generateEmotionBasedTags(novel, fullContent, chapters);
+        generateEmotionBasedTags(novel, analysis, chapters);
         
         logger.info("生成基于角色分析的标签");
-        generateCharacterBasedTags(novel, characters, relationships);
+        generateCharacterBasedTags(novel, analysis.getCharacters(), analysis.getRelationships());
         
         logger.info("生成基于内容结构的标签");
         generateStructureBasedTags(novel, fullContent, chapters);
@@ -169,19 +165,13 @@ public class TaggingServiceImpl implements TaggingService {
     /**
      * 基于情感分析生成标签
      */
-    private void generateEmotionBasedTags(Novel novel, String fullContent, List<Chapter> chapters) {
-        // 分析整体情感
-        double overallSentiment = nlpService.analyzeSentiment(fullContent);
+    private void generateEmotionBasedTags(Novel novel, AnalysisDocument analysis, List<Chapter> chapters) {
+        // 整体情感和各章节情感已在分析文档中计算
+        double overallSentiment = analysis.getSentiment();
         
         // 分析章节情感变化
         if (chapters.size() >= 3) {
-            List<Double> chapterSentiments = new ArrayList<>();
-            for (Chapter chapter : chapters) {
-                if (chapter.getContent() != null && !chapter.getContent().isEmpty()) {
-                    double sentiment = nlpService.analyzeSentiment(chapter.getContent());
-                    chapterSentiments.add(sentiment);
-                }
-            }
+            List<Double> chapterSentiments = analysis.getChapterSentiments();
             
             // 计算情感波动度
             if (!chapterSentiments.isEmpty()) {
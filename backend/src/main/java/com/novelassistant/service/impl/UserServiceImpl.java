@@ -8,6 +8,7 @@ import com.novelassistant.payload.response.UserProfileResponse;
 import com.novelassistant.payload.response.UserStatsResponse;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.repository.UserRepository;
+import com.novelassistant.security.services.UserPrincipalCache;
 import com.novelassistant.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,9 @@ public class UserServiceImpl implements UserService {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
 
     /**
      * 获取用户个人资料
@@ -82,6 +86,7 @@ public class UserServiceImpl implements UserService {
         
         // 保存更新
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getUsername());
         
         return convertToUserProfileResponse(user);
     }
@@ -111,6 +116,7 @@ public class UserServiceImpl implements UserService {
         
         // 保存更新
         userRepository.save(user);
+        userPrincipalCache.invalidate(user.getUsername());
         
         return true;
     }
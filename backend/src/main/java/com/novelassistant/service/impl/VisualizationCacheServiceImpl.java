@@ -0,0 +1,305 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novelassistant.entity.visualization.VisualizationCache;
+import com.novelassistant.repository.visualization.VisualizationCacheRepository;
+import com.novelassistant.service.VisualizationCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 可视化数据缓存服务实现
+ * 第一级为按访问顺序淘汰的LRU，第二级为visualization_cache表；
+ * 每个小说维护一个版本号，失效时递增，失效前开始的计算结果不会写入缓存，
+ * 失效后的请求也不会等待失效前开始的计算。
+ * 版本号和第一级缓存只在本进程内，第一级条目按数据库行的expiresAt过期，且最多保留local-ttl-seconds，
+ * 其他节点失效缓存（删除数据库行）后，本节点在这段时间之后重新读取数据库
+ */
+@Service
+public class VisualizationCacheServiceImpl implements VisualizationCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisualizationCacheServiceImpl.class);
+
+    @Autowired
+    private VisualizationCacheRepository visualizationCacheRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 进程内缓存的条目数上限
+    @Value("${novelassistant.visualization.cache.max-entries:512}")
+    private int maxEntries = 512;
+
+    // 缓存有效期（小时）
+    @Value("${novelassistant.visualization.cache.ttl-hours:168}")
+    private int ttlHours = 168;
+
+    // 进程内缓存条目的最长保留时间（秒）
+    @Value("${novelassistant.visualization.cache.local-ttl-seconds:60}")
+    private int localTtlSeconds = 60;
+
+    private final Map<String, CachedEntry> localCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // 正在计算的条目，键包含小说缓存版本号，同一版本同一个键的并发未命中等待同一次计算
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // 小说缓存版本号
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(Long novelId, String type, TypeReference<T> typeReference, Supplier<T> loader) {
+        String key = cacheKey(novelId, type);
+        Object cached = getLocal(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long version = currentVersion(novelId);
+        String flightKey = key + "@" + version;
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, future);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        try {
+            StoredValue<T> stored = loadFromStore(novelId, type, typeReference);
+            T value;
+            Date expiresAt;
+            if (stored != null) {
+                logger.debug("可视化缓存命中数据库: 小说 {}，类型 {}", novelId, type);
+                value = stored.value;
+                expiresAt = stored.expiresAt;
+            } else {
+                long startTime = System.currentTimeMillis();
+                value = loader.get();
+                logger.info("可视化数据计算完成: 小说 {}，类型 {}，耗时 {}ms", novelId, type,
+                        System.currentTimeMillis() - startTime);
+                expiresAt = expiresAt();
+                if (isCacheable(value)) {
+                    saveToStore(novelId, type, value, expiresAt, version);
+                }
+            }
+            if (isCacheable(value) && version == currentVersion(novelId)) {
+                putLocal(key, value, expiresAt);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, future);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long novelId, String type, TypeReference<T> typeReference) {
+        String key = cacheKey(novelId, type);
+        Object cached = getLocal(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        long version = currentVersion(novelId);
+        StoredValue<T> stored = loadFromStore(novelId, type, typeReference);
+        if (stored == null) {
+            return null;
+        }
+        if (isCacheable(stored.value) && version == currentVersion(novelId)) {
+            putLocal(key, stored.value, stored.expiresAt);
+        }
+        return stored.value;
+    }
+
+    @Override
+    public boolean put(Long novelId, String type, Object data, long version) {
+        if (!isCacheable(data) || version != currentVersion(novelId)) {
+            return false;
+        }
+        Date expiresAt = expiresAt();
+        if (!saveToStore(novelId, type, data, expiresAt, version)) {
+            return false;
+        }
+        putLocal(cacheKey(novelId, type), data, expiresAt);
+        return true;
+    }
+
+    @Override
+    public long currentVersion(Long novelId) {
+        AtomicLong version = versions.get(novelId);
+        return version == null ? 0 : version.get();
+    }
+
+    @Override
+    @Transactional
+    public void invalidate(Long novelId) {
+        versions.computeIfAbsent(novelId, id -> new AtomicLong()).incrementAndGet();
+        String prefix = novelId + ":";
+        synchronized (localCache) {
+            localCache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        visualizationCacheRepository.deleteByNovelId(novelId);
+        logger.info("小说 {} 的可视化缓存已失效", novelId);
+    }
+
+    /**
+     * 定期清理数据库中的过期缓存
+     */
+    @Scheduled(fixedDelayString = "${novelassistant.visualization.cache.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void cleanupExpired() {
+        try {
+            int deleted = visualizationCacheRepository.deleteExpiredCache(new Date());
+            if (deleted > 0) {
+                logger.info("已清理 {} 条过期的可视化缓存", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("清理过期的可视化缓存失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private Object getLocal(String key) {
+        synchronized (localCache) {
+            CachedEntry entry = localCache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                localCache.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * 放入第一级缓存，过期时间取数据库行的过期时间与本地最长保留时间中较早的
+     */
+    private void putLocal(String key, Object value, Date expiresAt) {
+        long localDeadline = System.currentTimeMillis() + localTtlSeconds * 1000L;
+        long deadline = expiresAt == null ? localDeadline : Math.min(expiresAt.getTime(), localDeadline);
+        synchronized (localCache) {
+            localCache.put(key, new CachedEntry(value, deadline));
+        }
+    }
+
+    private <T> StoredValue<T> loadFromStore(Long novelId, String type, TypeReference<T> typeReference) {
+        try {
+            VisualizationCache row = visualizationCacheRepository.findValidCache(novelId, type, new Date());
+            if (row == null || row.getDataJson() == null) {
+                return null;
+            }
+            return new StoredValue<>(objectMapper.readValue(row.getDataJson(), typeReference), row.getExpiresAt());
+        } catch (Exception e) {
+            logger.warn("读取可视化缓存失败，重新计算: 小说 {}，类型 {}，错误: {}", novelId, type, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入数据库，只在版本号仍为计算前读取的版本时写入
+     * 写入期间小说已失效时删除刚写入的行，避免旧数据在invalidate之后留在数据库中
+     *
+     * @return 是否已写入且未失效
+     */
+    private boolean saveToStore(Long novelId, String type, Object value, Date expiresAt, long version) {
+        if (version != currentVersion(novelId)) {
+            return false;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(value);
+            transactionTemplate.executeWithoutResult(status ->
+                    visualizationCacheRepository.upsert(novelId, type, json, expiresAt));
+            if (version != currentVersion(novelId)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        visualizationCacheRepository.deleteByNovelIdAndVisualizationType(novelId, type));
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            // 写缓存失败不影响返回结果
+            logger.warn("保存可视化缓存失败: 小说 {}，类型 {}，错误: {}", novelId, type, e.getMessage());
+            return false;
+        }
+    }
+
+    private Date expiresAt() {
+        return new Date(System.currentTimeMillis() + ttlHours * 3600_000L);
+    }
+
+    private static boolean isCacheable(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Map) {
+            return !((Map<?, ?>) value).isEmpty();
+        }
+        if (value instanceof Collection) {
+            return !((Collection<?>) value).isEmpty();
+        }
+        return true;
+    }
+
+    private static String cacheKey(Long novelId, String type) {
+        return novelId + ":" + type;
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof RuntimeException ? (RuntimeException) cause : e;
+    }
+
+    /**
+     * 从数据库读取的缓存数据及其过期时间
+     */
+    private static class StoredValue<T> {
+        private final T value;
+        private final Date expiresAt;
+
+        StoredValue(T value, Date expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class CachedEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        CachedEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.novelassistant.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.novelassistant.entity.Chapter;
 import com.novelassistant.entity.Novel;
 import com.novelassistant.entity.Tag;
@@ -7,6 +8,9 @@ import com.novelassistant.entity.NovelCharacter;
 import com.novelassistant.entity.CharacterRelationship;
 import com.novelassistant.entity.CharacterDialogue;
 import com.novelassistant.entity.visualization.EmotionalData;
+import com.novelassistant.entity.visualization.StructureData;
+import com.novelassistant.entity.visualization.VisualizationKeyword;
+import com.novelassistant.entity.visualization.WordCountData;
 import com.novelassistant.repository.ChapterRepository;
 import com.novelassistant.repository.NovelRepository;
 import com.novelassistant.repository.TagRepository;
@@ -14,6 +18,10 @@ import com.novelassistant.repository.NovelCharacterRepository;
 import com.novelassistant.repository.CharacterRelationshipRepository;
 import com.novelassistant.repository.CharacterDialogueRepository;
 import com.novelassistant.repository.visualization.EmotionalDataRepository;
+import com.novelassistant.repository.visualization.StructureDataRepository;
+import com.novelassistant.repository.visualization.VisualizationKeywordRepository;
+import com.novelassistant.repository.visualization.WordCountDataRepository;
+import com.novelassistant.service.VisualizationCacheService;
 import com.novelassistant.service.VisualizationService;
 import com.novelassistant.service.NlpService;
 import com.novelassistant.util.LogUtil;
@@ -24,7 +32,9 @@ import com.novelassistant.util.RequestContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +46,7 @@ import java.util.stream.Collectors;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * 小说可视化服务实现类
@@ -46,6 +57,12 @@ public class VisualizationServiceImpl implements VisualizationService {
 
     private static final Logger logger = LoggerFactory.getLogger(VisualizationServiceImpl.class);
     
+    // 按页读取章节摘要和关键词时每页的章节数
+    private static final int CHAPTER_PAGE_SIZE = 500;
+    
+    // 关键词云的主题、风格和文类分析使用的章节摘要总长度上限
+    private static final int MAX_KEYWORD_SOURCE_LENGTH = 200000;
+    
     @Autowired
     private NovelRepository novelRepository;
     
@@ -72,37 +89,230 @@ public class VisualizationServiceImpl implements VisualizationService {
 
     @Autowired
     private MachineLearningService machineLearningService;
+    
+    @Autowired
+    private VisualizationCacheService visualizationCacheService;
+    
+    @Autowired
+    private VisualizationKeywordRepository visualizationKeywordRepository;
+    
+    @Autowired
+    private WordCountDataRepository wordCountDataRepository;
+    
+    @Autowired
+    private StructureDataRepository structureDataRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
+    @Override
+    public Map<String, Object> getAllVisualizationData(Long novelId) {
+        Map<String, Object> result = new HashMap<>();
+        List<String> pending = new ArrayList<>();
+        TypeReference<Map<String, Object>> mapType = new TypeReference<Map<String, Object>>() {};
+        
+        // 前端期望的变量名为keywords, emotional, structure, characters
+        List<Map<String, Object>> keywords = visualizationCacheService.get(novelId, VisualizationCacheService.TYPE_KEYWORDS,
+                new TypeReference<List<Map<String, Object>>>() {});
+        result.put("keywords", keywords != null ? keywords : new ArrayList<>());
+        if (keywords == null) {
+            pending.add(VisualizationCacheService.TYPE_KEYWORDS);
+        }
+        
+        // 获取情节波动图数据，从emotional字段中提取
+        Map<String, Object> emotionalData = visualizationCacheService.get(novelId, VisualizationCacheService.TYPE_EMOTIONAL, mapType);
+        if (emotionalData != null && emotionalData.containsKey("emotional")) {
+            result.put("emotional", emotionalData.get("emotional"));
+        } else {
+            result.put("emotional", new HashMap<>());
+        }
+        if (emotionalData == null) {
+            pending.add(VisualizationCacheService.TYPE_EMOTIONAL);
+        }
+        
+        for (String type : Arrays.asList(VisualizationCacheService.TYPE_STRUCTURE, VisualizationCacheService.TYPE_CHARACTERS)) {
+            Map<String, Object> data = visualizationCacheService.get(novelId, type, mapType);
+            result.put(type, data != null ? data : new HashMap<>());
+            if (data == null) {
+                pending.add(type);
+            }
+        }
+        
+        // 尚未预计算（导入未完成或缓存已过期）的类型由前端按类型单独请求
+        result.put("pending", pending);
+        return result;
+    }
+    
+    @Override
+    public Map<String, Object> precomputeVisualizations(Long novelId) {
+        Map<String, Object> timings = new LinkedHashMap<>();
+        long totalStart = System.currentTimeMillis();
+        
+        List<Map<String, Object>> keywords = precompute(novelId, VisualizationCacheService.TYPE_KEYWORDS,
+                () -> computeKeywordCloudData(novelId), timings);
+        precompute(novelId, VisualizationCacheService.TYPE_EMOTIONAL,
+                () -> computeEmotionalFluctuationData(novelId), timings);
+        Map<String, Object> structure = precompute(novelId, VisualizationCacheService.TYPE_STRUCTURE,
+                () -> computeStructureAnalysisData(novelId), timings);
+        precompute(novelId, VisualizationCacheService.TYPE_CHARACTERS,
+                () -> computeCharacterRelationshipData(novelId), timings);
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> materializeTables(novelId, keywords, structure));
+        } catch (Exception e) {
+            logger.error("保存可视化数据表失败, 小说ID: {}, 错误: {}", novelId, e.getMessage(), e);
+        }
+        
+        timings.put("total", System.currentTimeMillis() - totalStart);
+        logger.info("小说可视化数据预计算完成, 小说ID: {}, 耗时: {}", novelId, timings);
+        return timings;
+    }
+    
     /**
-     * 获取小说关键词云数据
+     * 计算一类可视化数据并写入缓存，失败时记录日志并返回null，不影响其他类型
+     */
+    private <T> T precompute(Long novelId, String type, Supplier<T> loader, Map<String, Object> timings) {
+        long startTime = System.currentTimeMillis();
+        // 计算前读取缓存版本号，计算期间小说被重新处理时不写回旧数据
+        long version = visualizationCacheService.currentVersion(novelId);
+        try {
+            T data = loader.get();
+            if (!visualizationCacheService.put(novelId, type, data, version)) {
+                logger.debug("预计算结果未写入缓存, 小说ID: {}, 类型: {}", novelId, type);
+            }
+            return data;
+        } catch (Exception e) {
+            logger.error("预计算可视化数据失败, 小说ID: {}, 类型: {}, 错误: {}", novelId, type, e.getMessage(), e);
+            return null;
+        } finally {
+            timings.put(type, System.currentTimeMillis() - startTime);
+        }
+    }
+    
+    /**
+     * 将关键词、章节字数分布和结构数据写入对应的数据表，先删除小说的旧数据
+     */
+    @SuppressWarnings("unchecked")
+    private void materializeTables(Long novelId, List<Map<String, Object>> keywords, Map<String, Object> structure) {
+        Novel novel = novelRepository.getReferenceById(novelId);
+        
+        if (keywords != null) {
+            visualizationKeywordRepository.deleteByNovelId(novelId);
+            List<VisualizationKeyword> keywordRows = new ArrayList<>();
+            for (Map<String, Object> keyword : keywords) {
+                keywordRows.add(new VisualizationKeyword(novel, String.valueOf(keyword.get("name")),
+                        ((Number) keyword.get("value")).intValue()));
+            }
+            visualizationKeywordRepository.saveAll(keywordRows);
+        }
+        
+        if (structure == null) {
+            return;
+        }
+        
+        // 章节字数分布，区间格式为"起始-结束"
+        Map<String, Object> wordCount = (Map<String, Object>) structure.get("wordCount");
+        if (wordCount != null) {
+            List<String> ranges = (List<String>) wordCount.get("categories");
+            List<Map<String, Object>> series = (List<Map<String, Object>>) wordCount.get("series");
+            if (ranges != null && series != null && !series.isEmpty()) {
+                List<Integer> counts = (List<Integer>) series.get(0).get("data");
+                wordCountDataRepository.deleteByNovelId(novelId);
+                List<WordCountData> wordCountRows = new ArrayList<>();
+                for (int i = 0; i < ranges.size() && i < counts.size(); i++) {
+                    String[] bounds = ranges.get(i).split("-");
+                    wordCountRows.add(new WordCountData(novel, Integer.valueOf(bounds[0]),
+                            Integer.valueOf(bounds[1]), counts.get(i)));
+                }
+                wordCountDataRepository.saveAll(wordCountRows);
+            }
+        }
+        
+        // 结构分段，机器学习分析失败时使用默认结构
+        List<Map<String, Object>> sections = (List<Map<String, Object>>) structure.get("mainStructure");
+        if (sections == null && structure.get("structure") instanceof Map) {
+            sections = (List<Map<String, Object>>) ((Map<String, Object>) structure.get("structure")).get("sections");
+        }
+        if (sections != null) {
+            structureDataRepository.deleteByNovelId(novelId);
+            List<StructureData> structureRows = new ArrayList<>();
+            for (Map<String, Object> section : sections) {
+                Integer startChapter = toInteger(section.get("startChapter"));
+                Integer endChapter = toInteger(section.get("endChapter"));
+                Integer chapterCount = toInteger(section.containsKey("chapterCount")
+                        ? section.get("chapterCount") : section.get("value"));
+                Object percentage = section.get("percentage");
+                StructureData row = new StructureData(novel, String.valueOf(section.get("name")),
+                        percentage instanceof Number ? ((Number) percentage).doubleValue() : null,
+                        startChapter, endChapter, chapterCount);
+                if (section.get("color") != null) {
+                    row.setColor(String.valueOf(section.get("color")));
+                }
+                structureRows.add(row);
+            }
+            structureDataRepository.saveAll(structureRows);
+        }
+    }
+    
+    private static Integer toInteger(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+    
+    /**
+     * 获取小说关键词云数据（读穿缓存）
      */
     @Override
     public List<Map<String, Object>> getKeywordCloudData(Long novelId) {
+        return visualizationCacheService.getOrCompute(novelId, VisualizationCacheService.TYPE_KEYWORDS,
+                new TypeReference<List<Map<String, Object>>>() {}, () -> computeKeywordCloudData(novelId));
+    }
+    
+    /**
+     * 获取小说关键词云数据
+     * 按页读取已保存的章节摘要和关键词，不加载章节正文；主题、风格和文类分析基于拼接的章节摘要（长度有上限）
+     */
+    private List<Map<String, Object>> computeKeywordCloudData(Long novelId) {
         logger.info("获取小说关键词云数据, 小说ID: {}", novelId);
         
         // 验证小说是否存在
         Novel novel = novelRepository.findById(novelId)
                 .orElseThrow(() -> new RuntimeException("小说不存在，ID: " + novelId));
-
-        // 获取小说的所有章节
-        List<Chapter> chapters = chapterRepository.findByNovelIdOrderByChapterNumberAsc(novelId);
         
         // 统计关键词频率
         Map<String, Integer> keywordFrequency = new HashMap<>();
         
+        // 从章节中提取已有关键词，同时拼接章节摘要
+        StringBuilder summaryText = new StringBuilder();
+        int chapterCount = 0;
+        for (int page = 0; ; page++) {
+            List<Object[]> rows = chapterRepository.findSummaryAndKeywordsByNovelId(novelId,
+                    PageRequest.of(page, CHAPTER_PAGE_SIZE));
+            for (Object[] row : rows) {
+                chapterCount++;
+                String summary = (String) row[1];
+                if (summary != null && !summary.isEmpty() && summaryText.length() < MAX_KEYWORD_SOURCE_LENGTH) {
+                    summaryText.append(summary, 0, Math.min(summary.length(),
+                            MAX_KEYWORD_SOURCE_LENGTH - summaryText.length())).append("\n\n");
+                }
+                @SuppressWarnings("unchecked")
+                List<String> keywords = (List<String>) row[2];
+                if (keywords != null) {
+                    for (String keyword : keywords) {
+                        keywordFrequency.put(keyword, keywordFrequency.getOrDefault(keyword, 0) + 1);
+                    }
+                }
+            }
+            if (rows.size() < CHAPTER_PAGE_SIZE) {
+                break;
+            }
+        }
+        
         try {
-            // 准备章节内容用于机器学习分析
-            List<String> chapterContents = chapters.stream()
-                    .filter(chapter -> chapter.getContent() != null && !chapter.getContent().isEmpty())
-                    .map(Chapter::getContent)
-                    .collect(Collectors.toList());
-            
-            if (!chapterContents.isEmpty()) {
-                // 合并所有章节内容
-                String fullContent = String.join("\n\n", chapterContents);
+            if (summaryText.length() > 0) {
+                String sourceText = summaryText.toString();
                 
                 // 使用LDA主题模型提取主题关键词（更高质量的主题词）
-                Map<Integer, List<String>> topicKeywords = machineLearningService.extractTopicsWithLDA(fullContent, 5);
+                Map<Integer, List<String>> topicKeywords = machineLearningService.extractTopicsWithLDA(sourceText, 5);
                 
                 // 将主题关键词添加到结果中（给予较高权重）
                 for (List<String> keywords : topicKeywords.values()) {
@@ -115,7 +325,7 @@ public class VisualizationServiceImpl implements VisualizationService {
                 }
                 
                 // 添加写作风格相关关键词
-                Map<String, Double> styleFeatures = machineLearningService.detectWritingStyle(fullContent);
+                Map<String, Double> styleFeatures = machineLearningService.detectWritingStyle(sourceText);
                 for (Map.Entry<String, Double> entry : styleFeatures.entrySet()) {
                     if (entry.getValue() > 0.6) { // 只添加显著的风格特征
                         String keyword = entry.getKey();
@@ -126,7 +336,7 @@ public class VisualizationServiceImpl implements VisualizationService {
                 
                 // 对小说进行文类分类，添加类别作为关键词
                 List<String> categories = Arrays.asList("奇幻", "科幻", "武侠", "言情", "悬疑", "历史", "都市");
-                Map<String, Double> genreScores = machineLearningService.classifyText(fullContent, categories);
+                Map<String, Double> genreScores = machineLearningService.classifyText(sourceText, categories);
                 for (Map.Entry<String, Double> entry : genreScores.entrySet()) {
                     if (entry.getValue() > 0.3) { // 只添加较为明显的类别
                         keywordFrequency.put(entry.getKey(), keywordFrequency.getOrDefault(entry.getKey(), 0) + (int)(entry.getValue() * 10));
@@ -138,16 +348,6 @@ public class VisualizationServiceImpl implements VisualizationService {
             // 出错时回退到传统方法
         }
         
-        // 从章节中提取已有关键词
-        for (Chapter chapter : chapters) {
-            List<String> keywords = chapter.getKeywords();
-            if (keywords != null) {
-                for (String keyword : keywords) {
-                    keywordFrequency.put(keyword, keywordFrequency.getOrDefault(keyword, 0) + 1);
-                }
-            }
-        }
-        
         // 从Tags中提取关键词，按不同标签类型区分权重
         List<Tag> tags = tagRepository.findByNovelId(novelId);
         for (Tag tag : tags) {
@@ -157,9 +357,9 @@ public class VisualizationServiceImpl implements VisualizationService {
         }
         
         // 如果机器学习分析不成功或关键词太少，使用传统NLP方法补充
-        if (keywordFrequency.size() < 20 && !chapters.isEmpty()) {
+        if (keywordFrequency.size() < 20 && chapterCount > 0) {
             // 从章节内容中提取关键内容，对未被提取的内容进行补充分析
-            extractContentKeywords(chapters, keywordFrequency);
+            extractContentKeywords(novel, chapterCount, keywordFrequency);
         }
         
         // 转换为前端需要的格式
@@ -196,15 +396,15 @@ public class VisualizationServiceImpl implements VisualizationService {
     /**
      * 从章节内容中提取更多的关键词
      */
-    private void extractContentKeywords(List<Chapter> chapters, Map<String, Integer> keywordFrequency) {
-        // 样本分析：选择一部分章节进行详细分析
-        int maxChaptersToAnalyze = Math.min(chapters.size(), 10);  // 最多分析10章
-        int step = chapters.size() / maxChaptersToAnalyze;
+    private void extractContentKeywords(Novel novel, int chapterCount, Map<String, Integer> keywordFrequency) {
+        // 样本分析：选择一部分章节进行详细分析，逐章读取
+        int maxChaptersToAnalyze = Math.min(chapterCount, 10);  // 最多分析10章
+        int step = chapterCount / maxChaptersToAnalyze;
         step = Math.max(1, step);  // 确保步长至少为1
         
-        for (int i = 0; i < chapters.size(); i += step) {
-            Chapter chapter = chapters.get(i);
-            if (chapter.getContent() == null || chapter.getContent().isEmpty()) {
+        for (int i = 0; i < chapterCount; i += step) {
+            Chapter chapter = chapterRepository.findByNovelIdAndChapterNumber(novel.getId(), i + 1).orElse(null);
+            if (chapter == null || chapter.getContent() == null || chapter.getContent().isEmpty()) {
                 continue;
             }
             
@@ -225,9 +425,6 @@ public class VisualizationServiceImpl implements VisualizationService {
         }
         
         // 分析小说整体主题（如果有总结）
-        Novel novel = novelRepository.findById(chapters.get(0).getNovel().getId())
-                .orElseThrow(() -> new RuntimeException("获取小说失败，ID: " + chapters.get(0).getNovel().getId()));
-                
         if (novel.getOverallSummary() != null && !novel.getOverallSummary().isEmpty()) {
             try {
                 Map<String, Integer> summaryKeywords = nlpService.extractKeywords(novel.getOverallSummary(), 10);
@@ -243,10 +440,18 @@ public class VisualizationServiceImpl implements VisualizationService {
     }
 
     /**
-     * 获取小说情节波动图数据
+     * 获取小说情节波动图数据（读穿缓存）
      */
     @Override
     public Map<String, Object> getEmotionalFluctuationData(Long novelId) {
+        return visualizationCacheService.getOrCompute(novelId, VisualizationCacheService.TYPE_EMOTIONAL,
+                new TypeReference<Map<String, Object>>() {}, () -> computeEmotionalFluctuationData(novelId));
+    }
+    
+    /**
+     * 获取小说情节波动图数据
+     */
+    private Map<String, Object> computeEmotionalFluctuationData(Long novelId) {
         logger.info("获取小说情节波动图数据, 小说ID: {}", novelId);
         
         // 验证小说是否存在
@@ -591,10 +796,18 @@ public class VisualizationServiceImpl implements VisualizationService {
     }
 
     /**
-     * 获取小说结构分析数据
+     * 获取小说结构分析数据（读穿缓存）
      */
     @Override
     public Map<String, Object> getStructureAnalysisData(Long novelId) {
+        return visualizationCacheService.getOrCompute(novelId, VisualizationCacheService.TYPE_STRUCTURE,
+                new TypeReference<Map<String, Object>>() {}, () -> computeStructureAnalysisData(novelId));
+    }
+    
+    /**
+     * 获取小说结构分析数据
+     */
+    private Map<String, Object> computeStructureAnalysisData(Long novelId) {
         logger.info("获取小说结构分析数据, 小说ID: {}", novelId);
         
         // 验证小说是否存在
@@ -734,10 +947,18 @@ public class VisualizationServiceImpl implements VisualizationService {
     }
 
     /**
-     * 获取小说人物关系网络数据
+     * 获取小说人物关系网络数据（读穿缓存）
      */
     @Override
     public Map<String, Object> getCharacterRelationshipData(Long novelId) {
+        return visualizationCacheService.getOrCompute(novelId, VisualizationCacheService.TYPE_CHARACTERS,
+                new TypeReference<Map<String, Object>>() {}, () -> computeCharacterRelationshipData(novelId));
+    }
+    
+    /**
+     * 获取小说人物关系网络数据
+     */
+    private Map<String, Object> computeCharacterRelationshipData(Long novelId) {
         Map<String, Object> networkData = new HashMap<>();
         Optional<Novel> novelOpt = Optional.empty();
         
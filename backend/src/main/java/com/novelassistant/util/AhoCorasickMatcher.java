@@ -0,0 +1,297 @@
+package com.novelassistant.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick多模式匹配自动机
+ * 把多个词典（每个词带分类和分值）编译成一个自动机，对文本只扫描一遍即可找出所有词典词的所有出现位置，
+ * 耗时与文本长度加命中数成正比，与词典大小无关。构建后不可修改，可在多线程间共享
+ */
+public final class AhoCorasickMatcher {
+
+    /**
+     * 词典词条
+     */
+    public static final class Entry {
+        private final String word;
+        private final String category;
+        private final int value;
+
+        Entry(String word, String category, int value) {
+            this.word = word;
+            this.category = category;
+            this.value = value;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 命中回调
+     */
+    @FunctionalInterface
+    public interface HitHandler {
+        /**
+         * @param start 命中词在文本中的起始位置
+         * @param entry 命中的词条
+         * @return 返回false时停止扫描
+         */
+        boolean onHit(int start, Entry entry);
+    }
+
+    // 子节点以CSR形式存储：节点i的子节点为 childChars/childTargets[childStart[i], childStart[i + 1])，按字符排序
+    private final int[] childStart;
+    private final char[] childChars;
+    private final int[] childTargets;
+    private final int[] fail;
+    // 沿失败链最近的、有输出的节点，没有时为0
+    private final int[] outputLink;
+    private final Entry[][] outputs;
+    private final int size;
+
+    private AhoCorasickMatcher(List<TreeMap<Character, Integer>> children, List<List<Entry>> nodeOutputs, int size) {
+        int nodeCount = children.size();
+        this.size = size;
+        childStart = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            childStart[i] = edgeCount;
+            edgeCount += children.get(i).size();
+        }
+        childStart[nodeCount] = edgeCount;
+        childChars = new char[edgeCount];
+        childTargets = new int[edgeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            int position = childStart[i];
+            for (Map.Entry<Character, Integer> edge : children.get(i).entrySet()) {
+                childChars[position] = edge.getKey();
+                childTargets[position] = edge.getValue();
+                position++;
+            }
+        }
+
+        outputs = new Entry[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            List<Entry> list = nodeOutputs.get(i);
+            outputs[i] = list == null ? null : list.toArray(new Entry[0]);
+        }
+
+        // 按层次遍历计算失败指针
+        fail = new int[nodeCount];
+        outputLink = new int[nodeCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int e = childStart[0]; e < childStart[1]; e++) {
+            queue.add(childTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = childStart[node]; e < childStart[node + 1]; e++) {
+                char c = childChars[e];
+                int child = childTargets[e];
+                int state = fail[node];
+                int next;
+                while ((next = child(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                fail[child] = next >= 0 ? next : 0;
+                outputLink[child] = outputs[fail[child]] != null ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 扫描文本，按结束位置顺序回调每一个命中（包括相互重叠的命中）
+     */
+    public void scan(CharSequence text, HitHandler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = child(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next >= 0 ? next : 0;
+            for (int node = outputs[state] != null ? state : outputLink[state]; node != 0; node = outputLink[node]) {
+                for (Entry entry : outputs[node]) {
+                    if (!handler.onHit(i - entry.word.length() + 1, entry)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 统计各分类的命中次数
+     */
+    public Map<String, Integer> countByCategory(CharSequence text) {
+        Map<String, Integer> counts = new HashMap<>();
+        scan(text, (start, entry) -> {
+            counts.merge(entry.category, 1, Integer::sum);
+            return true;
+        });
+        return counts;
+    }
+
+    /**
+     * 统计指定分类中每个词的命中次数
+     */
+    public Map<String, Integer> countByWord(CharSequence text, String category) {
+        Map<String, Integer> counts = new HashMap<>();
+        scan(text, (start, entry) -> {
+            if (entry.category.equals(category)) {
+                counts.merge(entry.word, 1, Integer::sum);
+            }
+            return true;
+        });
+        return counts;
+    }
+
+    /**
+     * 文本中是否出现指定分类的任意一个词，找到第一个即停止扫描
+     */
+    public boolean containsCategory(CharSequence text, String category) {
+        boolean[] found = {false};
+        scan(text, (start, entry) -> {
+            if (entry.category.equals(category)) {
+                found[0] = true;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * 精确查找词条
+     *
+     * @return 词典中不存在该词或该词不属于指定分类时返回null
+     */
+    public Entry find(String word, String category) {
+        int state = 0;
+        for (int i = 0; i < word.length() && state >= 0; i++) {
+            state = child(state, word.charAt(i));
+        }
+        if (state <= 0 || outputs[state] == null) {
+            return null;
+        }
+        for (Entry entry : outputs[state]) {
+            if (entry.category.equals(category)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 词条数
+     */
+    public int size() {
+        return size;
+    }
+
+    private int child(int node, char c) {
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = childChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return childTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 自动机构建器
+     */
+    public static final class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<List<Entry>> outputs = new ArrayList<>();
+        private final Set<String> added = new HashSet<>();
+        private int size;
+
+        private Builder() {
+            newNode();
+        }
+
+        public Builder add(String category, String word) {
+            return add(category, word, 0);
+        }
+
+        /**
+         * 添加词条，空词和同一分类中重复的词忽略
+         */
+        public Builder add(String category, String word, int value) {
+            if (word == null || word.isEmpty() || !added.add(category + '\u0000' + word)) {
+                return this;
+            }
+            int node = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = newNode();
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (outputs.get(node) == null) {
+                outputs.set(node, new ArrayList<>(1));
+            }
+            outputs.get(node).add(new Entry(word, category, value));
+            size++;
+            return this;
+        }
+
+        public Builder addAll(String category, Iterable<String> words) {
+            for (String word : words) {
+                add(category, word);
+            }
+            return this;
+        }
+
+        public Builder addAll(String category, String... words) {
+            return addAll(category, Arrays.asList(words));
+        }
+
+        public AhoCorasickMatcher build() {
+            return new AhoCorasickMatcher(children, outputs, size);
+        }
+
+        private int newNode() {
+            children.add(new TreeMap<>());
+            outputs.add(null);
+            return children.size() - 1;
+        }
+    }
+}
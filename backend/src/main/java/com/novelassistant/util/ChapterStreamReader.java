@@ -0,0 +1,160 @@
+package com.novelassistant.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+/**
+ * 按章节流式读取小说文本
+ * 逐行读取，遇到章节标题行时输出上一章；单章超过长度上限时在行边界处切分，
+ * 因此内存占用只与章节长度有关，与整本书的大小无关。
+ * 与全文检测章节的处理一致，第一个章节标题之前的前言（书名、简介等）不作为章节输出；
+ * 前言超过长度上限仍未出现章节标题时，按无章节标题的文本分段输出
+ */
+public class ChapterStreamReader implements Closeable {
+
+    // 章节标题行，与HanlpNlpServiceImpl中的章节识别规则保持一致（按行匹配）
+    private static final Pattern HEADING_PATTERN = Pattern.compile(
+        "^(?:第[0-9零一二三四五六七八九十百千万亿]+[章节集卷篇].{0,50}|" +
+        "[【\\[（(][^】\\]）)]*?第[^】\\]）)]*?章[^】\\]）)]*?[】\\]）)].{0,50}|" +
+        "(?:序章|引子|楔子|尾声|终章|番外|后记).{0,50})$"
+    );
+
+    // 超过该长度的行不视为章节标题
+    private static final int MAX_HEADING_LENGTH = 60;
+
+    private final Reader reader;
+    private final int maxChapterLength;
+    private final char[] buffer = new char[8192];
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+
+    private final StringBuilder currentChapter = new StringBuilder();
+    private String pendingLine;
+    private boolean eof = false;
+    private boolean headingSeen = false;
+    private int chaptersReturned = 0;
+    private long charactersRead = 0;
+
+    /**
+     * @param reader 文本输入
+     * @param maxChapterLength 单章最大长度，超过后在行边界处切分
+     */
+    public ChapterStreamReader(Reader reader, int maxChapterLength) {
+        this.reader = reader;
+        this.maxChapterLength = Math.max(1000, maxChapterLength);
+    }
+
+    /**
+     * 读取下一章内容（包含标题行）
+     *
+     * @return 章节内容，读取完毕时返回null
+     */
+    public String nextChapter() throws IOException {
+        currentChapter.setLength(0);
+
+        if (pendingLine != null) {
+            currentChapter.append(pendingLine).append('\n');
+            pendingLine = null;
+        }
+
+        String line;
+        while ((line = readLine()) != null) {
+            boolean heading = isHeading(line);
+
+            // 第一个章节标题之前尚未输出过内容时，丢弃前言
+            if (heading && !headingSeen) {
+                headingSeen = true;
+                if (chaptersReturned == 0) {
+                    currentChapter.setLength(0);
+                }
+            }
+
+            // 遇到新章节标题，或当前章节已超过长度上限时，输出当前章节
+            if ((heading || currentChapter.length() + line.length() + 1 > maxChapterLength)
+                    && hasContent(currentChapter)) {
+                pendingLine = line;
+                chaptersReturned++;
+                return currentChapter.toString();
+            }
+
+            currentChapter.append(line).append('\n');
+        }
+
+        if (hasContent(currentChapter)) {
+            chaptersReturned++;
+            return currentChapter.toString();
+        }
+        return null;
+    }
+
+    /**
+     * 已读取的字符数
+     */
+    public long getCharactersRead() {
+        return charactersRead;
+    }
+
+    /**
+     * 判断一行是否为章节标题
+     */
+    public static boolean isHeading(String line) {
+        String trimmed = line.trim();
+        return !trimmed.isEmpty() && trimmed.length() <= MAX_HEADING_LENGTH
+                && HEADING_PATTERN.matcher(trimmed).matches();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 读取一行（不含换行符），单行超过章节长度上限时强制截断
+     */
+    private String readLine() throws IOException {
+        if (eof) {
+            return null;
+        }
+
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            if (bufferPos >= bufferLimit) {
+                bufferLimit = reader.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferLimit <= 0) {
+                    eof = true;
+                    return line.length() > 0 ? line.toString() : null;
+                }
+                charactersRead += bufferLimit;
+            }
+
+            char c = buffer[bufferPos++];
+            if (c == '\n') {
+                return stripCarriageReturn(line);
+            }
+            line.append(c);
+            if (line.length() >= maxChapterLength) {
+                return stripCarriageReturn(line);
+            }
+        }
+    }
+
+    private static String stripCarriageReturn(StringBuilder line) {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    private static boolean hasContent(StringBuilder text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
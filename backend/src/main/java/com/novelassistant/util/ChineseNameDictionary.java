@@ -28,9 +28,6 @@ public class ChineseNameDictionary {
     // 常见名字字符集合
     private final Set<String> nameCharacters = new HashSet<>();
     
-    // 小说特有人名词典 (小说ID -> 人名集合)
-    private final Map<Long, Set<String>> novelSpecificNames = new HashMap<>();
-    
     // 角色别名映射 (本名 -> 别名集合)
     private final Map<String, Set<String>> characterAliases = new HashMap<>();
 
@@ -150,35 +147,6 @@ public class ChineseNameDictionary {
         return nameCharacters.contains(character);
     }
     
-    /**
-     * 添加小说特有人名
-     * @param novelId 小说ID
-     * @param name 人名
-     */
-    public void addNovelSpecificName(Long novelId, String name) {
-        novelSpecificNames.computeIfAbsent(novelId, k -> new HashSet<>()).add(name);
-        logger.debug("添加小说特有人名: 小说ID={}, 人名={}", novelId, name);
-    }
-    
-    /**
-     * 批量添加小说特有人名
-     * @param novelId 小说ID
-     * @param names 人名集合
-     */
-    public void addNovelSpecificNames(Long novelId, Set<String> names) {
-        novelSpecificNames.computeIfAbsent(novelId, k -> new HashSet<>()).addAll(names);
-        logger.debug("批量添加小说特有人名: 小说ID={}, 人名数量={}", novelId, names.size());
-    }
-    
-    /**
-     * 获取小说特有人名集合
-     * @param novelId 小说ID
-     * @return 人名集合
-     */
-    public Set<String> getNovelSpecificNames(Long novelId) {
-        return novelSpecificNames.getOrDefault(novelId, new HashSet<>());
-    }
-    
     /**
      * 添加角色别名
      * @param realName 本名
@@ -259,12 +227,4 @@ public class ChineseNameDictionary {
         
         return Math.min(1.0, score);
     }
-    
-    /**
-     * 清除小说特有人名
-     * @param novelId 小说ID
-     */
-    public void clearNovelSpecificNames(Long novelId) {
-        novelSpecificNames.remove(novelId);
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.novelassistant.util;
+
+/**
+ * 文本内容哈希工具类
+ * 逐字符计算FNV-1a 64位哈希，不需要为大文本额外分配字节数组
+ */
+public class ContentHashUtil {
+
+    // FNV-1a 64位哈希参数
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ContentHashUtil() {
+    }
+
+    /**
+     * 初始哈希值，用于对多段文本增量计算哈希
+     */
+    public static long initial() {
+        return FNV_OFFSET_BASIS;
+    }
+
+    /**
+     * 在已有哈希值的基础上累加一段文本
+     *
+     * @param hash 当前哈希值
+     * @param text 文本，为null时只累加一个分隔符
+     * @return 新的哈希值
+     */
+    public static long update(long hash, CharSequence text) {
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // 追加分隔符，保证 ["ab","c"] 与 ["a","bc"] 的哈希不同
+        hash ^= 0xFFFF;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * 计算文本的FNV-1a 64位哈希
+     *
+     * @param text 文本
+     * @return 哈希值
+     */
+    public static long fnv1a64(CharSequence text) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 计算文本内容键：长度 + FNV-1a 64位哈希 + String哈希
+     *
+     * @param text 文本
+     * @return 内容键
+     */
+    public static String contentKey(String text) {
+        return text.length() + ":" + Long.toHexString(fnv1a64(text)) + ":" + Integer.toHexString(text.hashCode());
+    }
+}
@@ -0,0 +1,442 @@
+package com.novelassistant.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话扫描器
+ * 对文本从前到后扫描一遍，用一个小状态机识别引号对话（“”、「」、『』和英文双引号）及其说话者，
+ * 输出按位置排序的对话区间。说话者依次从三处确定：
+ * 引号前的提示语（张三说：“……”、张三点点头，“……”），
+ * 引号后的提示语（“……”张三笑道），
+ * 以及引号前50字内最近一次出现的“某人+说/看/笑”等叙述。
+ * 提示语只在当前子句内查找且长度有上限，不做回溯，总耗时与文本长度成正比
+ */
+public final class DialogueScanner {
+
+    /**
+     * 说话者的来源
+     */
+    public enum Attribution {
+        /** 引号前的提示语 */
+        LEADING,
+        /** 引号后的提示语 */
+        TRAILING,
+        /** 引号前的叙述推断 */
+        CONTEXT,
+        /** 未识别出说话者 */
+        NONE
+    }
+
+    /**
+     * 对话区间，位置均为文本中的字符偏移，结束位置不包含
+     */
+    public static final class Span {
+        private final int start;
+        private final int end;
+        private final int contentStart;
+        private final int contentEnd;
+        private final String content;
+        private final int speakerStart;
+        private final int speakerEnd;
+        private final String speaker;
+        private final String listener;
+        private final Attribution attribution;
+
+        Span(String text, int start, int end, int contentStart, int contentEnd,
+             int[] speaker, Attribution attribution) {
+            this.start = start;
+            this.end = end;
+            this.contentStart = contentStart;
+            this.contentEnd = contentEnd;
+            this.content = text.substring(contentStart, contentEnd);
+            this.attribution = attribution;
+            if (speaker != null) {
+                this.speakerStart = speaker[0];
+                this.speakerEnd = speaker[1];
+                this.speaker = text.substring(speaker[0], speaker[1]);
+                this.listener = speaker[2] >= 0 ? text.substring(speaker[2], speaker[3]) : null;
+            } else {
+                this.speakerStart = -1;
+                this.speakerEnd = -1;
+                this.speaker = null;
+                this.listener = null;
+            }
+        }
+
+        /** 开引号位置 */
+        public int getStart() {
+            return start;
+        }
+
+        /** 闭引号之后的位置 */
+        public int getEnd() {
+            return end;
+        }
+
+        public int getContentStart() {
+            return contentStart;
+        }
+
+        public int getContentEnd() {
+            return contentEnd;
+        }
+
+        /** 引号内容（去掉首尾空白） */
+        public String getContent() {
+            return content;
+        }
+
+        /** 说话者在文本中的起始位置，没有说话者时为-1 */
+        public int getSpeakerStart() {
+            return speakerStart;
+        }
+
+        public int getSpeakerEnd() {
+            return speakerEnd;
+        }
+
+        /** 说话者，未识别时为null */
+        public String getSpeaker() {
+            return speaker;
+        }
+
+        /** 听话者（张三对着李四说），没有时为null */
+        public String getListener() {
+            return listener;
+        }
+
+        public Attribution getAttribution() {
+            return attribution;
+        }
+    }
+
+    // 提示语中只看子句末尾的这么多字
+    private static final int MAX_ATTRIBUTION_LENGTH = 20;
+    private static final int MAX_SPEAKER_LENGTH = 10;
+    // 叙述推断：说话者候选与开引号的最大距离，以及候选本身的最大长度
+    private static final int CONTEXT_WINDOW = 50;
+    private static final int MAX_CONTEXT_LENGTH = 10;
+    // 没有提示语的引号内容长度范围，过短或过长的多半是引用的词语或引号缺失
+    private static final int MIN_UNATTRIBUTED_LENGTH = 2;
+    private static final int MAX_UNATTRIBUTED_LENGTH = 100;
+
+    private static final String[] SPEECH_VERBS = {"嘀咕", "说", "道", "问", "答", "喊", "叫", "笑"};
+    private static final String[] GESTURES = {"点点头", "摇摇头", "点头", "摇头", "思考", "沉默", "微笑", "叹气",
+            "皱眉", "惊讶", "大笑", "冷笑", "苦笑", "叹"};
+    private static final String[] MODIFIERS = {"一下", "一声", "了", "笑着", "低声", "大声", "轻声", "小声", "高声", "沉声"};
+    private static final String[] LISTENER_MARKERS = {"对着", "朝着", "冲着", "转向", "看着", "盯着", "对"};
+    // 动作优先于说话动词去掉，避免“冷笑”只去掉“笑”
+    private static final String[][] STRIP_ORDER = {GESTURES, SPEECH_VERBS, MODIFIERS};
+    private static final String CONTEXT_VERBS = "说道问答看笑叹喊";
+
+    private DialogueScanner() {
+    }
+
+    /**
+     * 扫描文本中的所有对话
+     *
+     * @param text 文本
+     * @return 按开引号位置排序的对话区间
+     */
+    public static List<Span> scan(String text) {
+        List<Span> spans = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return spans;
+        }
+        new State(text, spans).run();
+        return spans;
+    }
+
+    /**
+     * 一次扫描的状态
+     */
+    private static final class State {
+        private final String text;
+        private final List<Span> spans;
+
+        // 当前叙述子句的起始位置，没有时为-1
+        private int clauseStart = -1;
+        // 最近结束的叙述子句及其结束符
+        private int lastClauseStart = -1;
+        private int lastClauseEnd = -1;
+        private char lastTerminator;
+        private int lastNonSpace = -1;
+
+        // 最近的叙述推断候选 [start, end)
+        private int contextStart = -1;
+        private int contextEnd = -1;
+
+        // 当前引号
+        private char closer;
+        private int quoteStart = -1;
+        private int[] leading;
+        private int[] context;
+
+        // 等待引号后提示语的对话
+        private int pendingStart = -1;
+        private int pendingEnd;
+        private int[] pendingContext;
+        private boolean pendingPunctuationAllowed;
+
+        State(String text, List<Span> spans) {
+            this.text = text;
+            this.spans = spans;
+        }
+
+        void run() {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (quoteStart >= 0) {
+                    if (c == closer) {
+                        closeQuote(i);
+                    } else if (c == opener(closer) && c != '"') {
+                        // 同一种开引号再次出现：上一段没有闭合（常见于跨段落的长对话），从这里重新开始，保留原说话者
+                        quoteStart = i;
+                    }
+                    continue;
+                }
+
+                char matchingCloser = closerOf(c);
+                if (matchingCloser != 0) {
+                    if (clauseStart >= 0) {
+                        endClause(i, c);
+                    }
+                    openQuote(i, matchingCloser);
+                } else if (Character.isWhitespace(c)) {
+                    if (clauseStart >= 0) {
+                        endClause(i, ' ');
+                    }
+                } else if (isPunctuation(c)) {
+                    if (pendingStart >= 0 && clauseStart < 0) {
+                        if (pendingPunctuationAllowed && isTrailingPunctuation(c)) {
+                            // 闭引号后可以跟一个标点再接提示语：“……”，张三说
+                            pendingPunctuationAllowed = false;
+                        } else {
+                            resolvePending(null);
+                        }
+                    }
+                    endClause(i, c);
+                    lastNonSpace = i;
+                } else {
+                    if (clauseStart < 0) {
+                        clauseStart = i;
+                    }
+                    if (i > clauseStart && CONTEXT_VERBS.indexOf(c) >= 0) {
+                        contextStart = Math.max(clauseStart, i - MAX_CONTEXT_LENGTH);
+                        contextEnd = i;
+                    }
+                    lastNonSpace = i;
+                }
+            }
+            // 文本结束：未闭合的引号丢弃，等待提示语的对话按已有信息输出
+            endClause(length, ' ');
+            if (pendingStart >= 0) {
+                resolvePending(null);
+            }
+        }
+
+        /**
+         * 叙述子句结束
+         */
+        private void endClause(int position, char terminator) {
+            if (pendingStart >= 0 && clauseStart >= 0) {
+                resolvePending(attribution(clauseStart, position, true, false));
+            }
+            if (terminator == ' ') {
+                if (clauseStart >= 0) {
+                    lastClauseStart = clauseStart;
+                    lastClauseEnd = position;
+                    lastTerminator = ' ';
+                }
+            } else {
+                lastClauseStart = clauseStart >= 0 ? clauseStart : position;
+                lastClauseEnd = position;
+                lastTerminator = terminator;
+            }
+            clauseStart = -1;
+        }
+
+        private void openQuote(int position, char quoteCloser) {
+            if (pendingStart >= 0) {
+                resolvePending(null);
+            }
+            leading = null;
+            if (lastClauseEnd >= 0 && lastClauseStart < lastClauseEnd) {
+                if (lastTerminator == ' ' && lastNonSpace == lastClauseEnd - 1) {
+                    // 张三说 “……”
+                    leading = attribution(lastClauseStart, lastClauseEnd, true, true);
+                } else if (lastNonSpace == lastClauseEnd && isColon(lastTerminator)) {
+                    // 张三：“……”
+                    leading = attribution(lastClauseStart, lastClauseEnd, false, true);
+                } else if (lastNonSpace == lastClauseEnd && isComma(lastTerminator)) {
+                    // 张三点点头，“……”
+                    leading = attribution(lastClauseStart, lastClauseEnd, true, true);
+                } else if (lastClauseEnd == position && lastTerminator == text.charAt(position)) {
+                    // 张三说“……”
+                    leading = attribution(lastClauseStart, lastClauseEnd, true, true);
+                }
+            }
+            context = contextEnd >= 0 && position - contextEnd <= CONTEXT_WINDOW
+                    ? attribution(contextStart, contextEnd, false, true) : null;
+            quoteStart = position;
+            closer = quoteCloser;
+            lastNonSpace = position;
+        }
+
+        private void closeQuote(int position) {
+            int start = quoteStart;
+            quoteStart = -1;
+            lastNonSpace = position;
+            lastClauseStart = -1;
+            lastClauseEnd = -1;
+            if (leading != null) {
+                emit(start, position + 1, leading, Attribution.LEADING);
+            } else {
+                pendingStart = start;
+                pendingEnd = position + 1;
+                pendingContext = context;
+                pendingPunctuationAllowed = true;
+            }
+        }
+
+        private void resolvePending(int[] trailing) {
+            int start = pendingStart;
+            pendingStart = -1;
+            if (trailing != null) {
+                emit(start, pendingEnd, trailing, Attribution.TRAILING);
+            } else if (pendingContext != null) {
+                emit(start, pendingEnd, pendingContext, Attribution.CONTEXT);
+            } else {
+                emit(start, pendingEnd, null, Attribution.NONE);
+            }
+        }
+
+        private void emit(int start, int end, int[] speaker, Attribution attribution) {
+            int contentStart = start + 1;
+            int contentEnd = end - 1;
+            while (contentStart < contentEnd && Character.isWhitespace(text.charAt(contentStart))) {
+                contentStart++;
+            }
+            while (contentEnd > contentStart && Character.isWhitespace(text.charAt(contentEnd - 1))) {
+                contentEnd--;
+            }
+            int contentLength = contentEnd - contentStart;
+            boolean explicit = attribution == Attribution.LEADING || attribution == Attribution.TRAILING;
+            if (contentLength == 0 || !explicit
+                    && (contentLength < MIN_UNATTRIBUTED_LENGTH || contentLength > MAX_UNATTRIBUTED_LENGTH)) {
+                return;
+            }
+            spans.add(new Span(text, start, end, contentStart, contentEnd, speaker, attribution));
+        }
+
+        /**
+         * 从提示语子句 [start, end) 中解析说话者
+         *
+         * @param requireMarker 子句必须以说话动词（或动作）结尾
+         * @param allowGesture 点头、叹气等动作也可作为提示语
+         * @return {说话者起, 说话者止, 听话者起, 听话者止}，听话者不存在时为-1；不是提示语时返回null
+         */
+        private int[] attribution(int start, int end, boolean requireMarker, boolean allowGesture) {
+            start = Math.max(start, end - MAX_ATTRIBUTION_LENGTH);
+            if (requireMarker && !endsWithAny(start, end, SPEECH_VERBS)
+                    && !(allowGesture && endsWithAny(start, end, GESTURES))) {
+                return null;
+            }
+
+            // 依次去掉末尾的说话动词、动作和修饰语：张三冷笑了一声道 -> 张三
+            boolean stripped = true;
+            while (stripped && end > start) {
+                stripped = false;
+                for (String[] suffixes : STRIP_ORDER) {
+                    int length = suffixLength(start, end, suffixes);
+                    if (length > 0) {
+                        end -= length;
+                        stripped = true;
+                        break;
+                    }
+                }
+            }
+            if (end <= start) {
+                return null;
+            }
+
+            int listenerStart = -1;
+            int listenerEnd = -1;
+            markers:
+            for (String marker : LISTENER_MARKERS) {
+                for (int index = start + 1; index + marker.length() < end; index++) {
+                    if (text.startsWith(marker, index)) {
+                        listenerStart = index + marker.length();
+                        listenerEnd = end;
+                        end = index;
+                        break markers;
+                    }
+                }
+            }
+            if (end - start > MAX_SPEAKER_LENGTH) {
+                return null;
+            }
+            return new int[]{start, end, listenerStart, listenerEnd};
+        }
+
+        private boolean endsWithAny(int start, int end, String[] suffixes) {
+            return suffixLength(start, end, suffixes) > 0;
+        }
+
+        private int suffixLength(int start, int end, String[] suffixes) {
+            for (String suffix : suffixes) {
+                int length = suffix.length();
+                if (end - start >= length && text.startsWith(suffix, end - length)) {
+                    return length;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static char closerOf(char c) {
+        switch (c) {
+            case '“':
+                return '”';
+            case '「':
+                return '」';
+            case '『':
+                return '』';
+            case '"':
+                return '"';
+            default:
+                return 0;
+        }
+    }
+
+    private static char opener(char closer) {
+        switch (closer) {
+            case '”':
+                return '“';
+            case '」':
+                return '「';
+            case '』':
+                return '『';
+            default:
+                return closer;
+        }
+    }
+
+    private static boolean isPunctuation(char c) {
+        return "，。：！？；、…,.:!?;”」』".indexOf(c) >= 0;
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return "，。！？,.!?".indexOf(c) >= 0;
+    }
+
+    private static boolean isColon(char c) {
+        return c == '：' || c == ':';
+    }
+
+    private static boolean isComma(char c) {
+        return c == '，' || c == ',';
+    }
+}
@@ -0,0 +1,221 @@
+package com.novelassistant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 按总字节数淘汰的磁盘LRU缓存
+ * 每个缓存项是目录中的一个文件，文件名为键的SHA-1；写入先写临时文件再原子替换，
+ * 总大小超过上限时淘汰最久未访问的文件。启动时按文件修改时间重建访问顺序，
+ * 读取时更新文件修改时间，重启后仍保持近似的LRU顺序
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * 缓存内容的写入方
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // 文件名 -> 文件大小，按访问顺序排列
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param directory 缓存目录
+     * @param maxBytes 缓存文件的总字节数上限
+     */
+    public DiskLruCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * 扫描目录重建缓存索引，删除上次未写完的临时文件
+     */
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(files::add);
+        }
+
+        List<Object[]> existing = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (Files.isDirectory(file)) {
+                // 不是本缓存写入的子目录，保留不动
+                continue;
+            }
+            if (!name.endsWith(SUFFIX)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            existing.add(new Object[]{name, Files.size(file), Files.getLastModifiedTime(file).toMillis()});
+        }
+        existing.sort(Comparator.comparingLong(entry -> (Long) entry[2]));
+
+        synchronized (this) {
+            for (Object[] entry : existing) {
+                entries.put((String) entry[0], (Long) entry[1]);
+                totalBytes += (Long) entry[1];
+            }
+            evict(null);
+        }
+        logger.info("磁盘缓存 {} 已加载 {} 个文件，共 {} 字节", directory, entries.size(), totalBytes);
+    }
+
+    /**
+     * 获取缓存文件
+     *
+     * @param key 缓存键
+     * @return 缓存文件路径，不存在时返回null
+     */
+    public Path get(String key) {
+        String name = fileName(key);
+        Path file = directory.resolve(name);
+        synchronized (this) {
+            Long size = entries.get(name);
+            if (size == null) {
+                misses++;
+                return null;
+            }
+            if (!Files.exists(file)) {
+                // 文件已被外部删除
+                entries.remove(name);
+                totalBytes -= size;
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.debug("更新缓存文件访问时间失败: {}", file);
+        }
+        return file;
+    }
+
+    /**
+     * 写入缓存文件，已存在时替换
+     * 内容先写入临时文件，写入过程中不持有锁
+     *
+     * @param key 缓存键
+     * @param writer 内容写入方
+     * @return 缓存文件路径
+     */
+    public Path put(String key, ContentWriter writer) throws IOException {
+        String name = fileName(key);
+        Path file = directory.resolve(name);
+        Path temp = Files.createTempFile(directory, name, ".tmp");
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.writeTo(output);
+            }
+            long size = Files.size(temp);
+            synchronized (this) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(name, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evict(name);
+            }
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 删除缓存文件
+     */
+    public synchronized void remove(String key) throws IOException {
+        String name = fileName(key);
+        Long size = entries.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        Files.deleteIfExists(directory.resolve(name));
+    }
+
+    /**
+     * 淘汰最久未访问的文件直到总大小不超过上限
+     * 正在被读取的文件在Linux上删除后仍可读完；刚写入的文件不淘汰
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions++;
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("删除缓存文件失败: {}", eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", directory.toString());
+        stats.put("entries", entries.size());
+        stats.put("totalBytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
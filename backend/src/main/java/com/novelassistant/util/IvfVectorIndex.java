@@ -0,0 +1,502 @@
+package com.novelassistant.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+/**
+ * 倒排文件（IVF）近似最近邻索引
+ * 向量按最近的聚类中心分到倒排列表中，查询时只扫描与查询向量最接近的nprobe个列表；
+ * 向量以int8标量量化存储（每个向量一个缩放系数），内存占用约为float的1/4。
+ * 索引要求输入为单位长度向量，相似度为内积（即余弦相似度）。
+ * 本类不是线程安全的，由调用方加锁
+ */
+public class IvfVectorIndex {
+
+    private static final int MAGIC = 0x4E414349; // "NACI"
+    private static final int VERSION = 1;
+
+    // 训练聚类中心时每个中心使用的样本数
+    private static final int SAMPLES_PER_CENTROID = 64;
+    private static final int TRAIN_ITERATIONS = 10;
+
+    // 带过滤条件的查询最多扫描nprobe的该倍数个列表，过滤条件很严格时返回少于k个结果，不退化为全量扫描
+    private static final int FILTERED_PROBE_FACTOR = 4;
+
+    private int dimension;
+    // 聚类中心，未训练时为空，所有向量在同一个列表中
+    private float[][] centroids = new float[0][];
+    private List<PostingList> lists = new ArrayList<>();
+    // 向量ID -> 所在列表
+    private final Map<Long, Integer> locations = new HashMap<>();
+    // 最近一次训练时的向量数
+    private int trainedSize;
+
+    public IvfVectorIndex(int dimension) {
+        this.dimension = dimension;
+        lists.add(new PostingList(dimension));
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public int listCount() {
+        return lists.size();
+    }
+
+    public int getTrainedSize() {
+        return trainedSize;
+    }
+
+    public boolean contains(long id) {
+        return locations.containsKey(id);
+    }
+
+    /**
+     * 添加或替换向量
+     *
+     * @param id 向量ID
+     * @param group 分组（用于查询时过滤）
+     * @param vector 单位长度向量
+     */
+    public void add(long id, long group, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        remove(id);
+        int list = nearestCentroid(vector);
+        lists.get(list).add(id, group, vector);
+        locations.put(id, list);
+    }
+
+    /**
+     * 删除向量
+     *
+     * @return 向量存在时返回true
+     */
+    public boolean remove(long id) {
+        Integer list = locations.remove(id);
+        if (list == null) {
+            return false;
+        }
+        lists.get(list).remove(id);
+        return true;
+    }
+
+    /**
+     * 删除分组内的所有向量
+     *
+     * @return 删除的向量数
+     */
+    public int removeGroup(long group) {
+        int removed = 0;
+        for (PostingList list : lists) {
+            for (int i = list.size - 1; i >= 0; i--) {
+                if (list.groups[i] == group) {
+                    locations.remove(list.ids[i]);
+                    list.removeAt(i);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 获取向量（由量化值还原，为近似值）
+     *
+     * @return 向量，不存在时返回null
+     */
+    public float[] getVector(long id) {
+        Integer list = locations.get(id);
+        if (list == null) {
+            return null;
+        }
+        PostingList postings = lists.get(list);
+        int slot = postings.indexOf(id);
+        return slot < 0 ? null : postings.decode(slot);
+    }
+
+    /**
+     * 查询最相似的向量
+     * 先扫描与查询向量最接近的nprobe个列表；满足过滤条件的结果不足k个时继续扫描后续列表，
+     * 最多扫描nprobe * FILTERED_PROBE_FACTOR个列表，因此结果可能少于k个
+     *
+     * @param query 单位长度的查询向量
+     * @param k 返回的结果数
+     * @param nprobe 扫描的列表数
+     * @param groupFilter 分组过滤条件，为null时不过滤
+     * @param excludeId 排除的向量ID（通常为查询向量自身）
+     * @return 按相似度从高到低排序的结果
+     */
+    public List<Hit> search(float[] query, int k, int nprobe, LongPredicate groupFilter, long excludeId) {
+        PriorityQueue<Hit> heap = new PriorityQueue<>(Math.max(1, k), (a, b) -> Double.compare(a.score, b.score));
+        if (k <= 0 || locations.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int[] order = probeOrder(query);
+        int maxProbe = groupFilter == null ? nprobe : nprobe * FILTERED_PROBE_FACTOR;
+        int probed = 0;
+        for (int list : order) {
+            if (probed >= nprobe && (heap.size() >= k || probed >= maxProbe)) {
+                break;
+            }
+            lists.get(list).scan(query, k, groupFilter, excludeId, heap);
+            probed++;
+        }
+
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort((a, b) -> Double.compare(b.score, a.score));
+        return hits;
+    }
+
+    /**
+     * 训练聚类中心并重新分配所有向量
+     * 在采样向量上运行余弦距离的k-means（k-means++初始化），中心数为nlist
+     *
+     * @param nlist 聚类中心数
+     * @param seed 随机种子
+     */
+    public void train(int nlist, long seed) {
+        float[][] sample = sample(nlist, seed);
+        if (sample.length > 0) {
+            assign(trainCentroids(sample, nlist, seed));
+        }
+    }
+
+    /**
+     * 为训练nlist个聚类中心采样向量（蓄水池采样），不修改索引
+     *
+     * @return 采样的向量（由量化值还原），索引为空时返回空数组
+     */
+    public float[][] sample(int nlist, long seed) {
+        int total = size();
+        if (total == 0) {
+            return new float[0][];
+        }
+        nlist = Math.max(1, Math.min(nlist, total));
+        Random random = new Random(seed);
+
+        int sampleSize = (int) Math.min(total, (long) nlist * SAMPLES_PER_CENTROID);
+        float[][] sample = new float[sampleSize][];
+        int seen = 0;
+        for (PostingList list : lists) {
+            for (int i = 0; i < list.size; i++) {
+                if (seen < sampleSize) {
+                    sample[seen] = list.decode(i);
+                } else {
+                    int j = random.nextInt(seen + 1);
+                    if (j < sampleSize) {
+                        sample[j] = list.decode(i);
+                    }
+                }
+                seen++;
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * 在采样向量上训练聚类中心，不访问索引，可在不持有锁时调用
+     */
+    public static float[][] trainCentroids(float[][] sample, int nlist, long seed) {
+        return new KMeans(Math.max(1, Math.min(nlist, sample.length)))
+                .setMetric(KMeans.Metric.COSINE)
+                .setMaxIterations(TRAIN_ITERATIONS)
+                .setSeed(seed)
+                .fit(sample)
+                .getCentroids();
+    }
+
+    /**
+     * 使用新的聚类中心，按中心重新分配所有向量，量化编码直接搬移
+     */
+    public void assign(float[][] newCentroids) {
+        if (newCentroids.length == 0 || newCentroids[0].length != dimension) {
+            throw new IllegalArgumentException("聚类中心与索引维度不匹配");
+        }
+        List<PostingList> newLists = new ArrayList<>(newCentroids.length);
+        for (int i = 0; i < newCentroids.length; i++) {
+            newLists.add(new PostingList(dimension));
+        }
+        centroids = newCentroids;
+        for (PostingList list : lists) {
+            for (int i = 0; i < list.size; i++) {
+                int target = nearestCentroid(list.decode(i));
+                newLists.get(target).copyFrom(list, i);
+                locations.put(list.ids[i], target);
+            }
+        }
+        lists = newLists;
+        trainedSize = size();
+    }
+
+    /**
+     * 写入索引
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(dimension);
+        output.writeInt(trainedSize);
+        output.writeInt(centroids.length);
+        for (float[] centroid : centroids) {
+            for (float value : centroid) {
+                output.writeFloat(value);
+            }
+        }
+        output.writeInt(lists.size());
+        for (PostingList list : lists) {
+            output.writeInt(list.size);
+            for (int i = 0; i < list.size; i++) {
+                output.writeLong(list.ids[i]);
+                output.writeLong(list.groups[i]);
+                output.writeFloat(list.scales[i]);
+            }
+            output.write(list.codes, 0, list.size * dimension);
+        }
+    }
+
+    /**
+     * 读取索引
+     */
+    public static IvfVectorIndex readFrom(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("不是有效的向量索引文件");
+        }
+        int dimension = input.readInt();
+        IvfVectorIndex index = new IvfVectorIndex(dimension);
+        index.trainedSize = input.readInt();
+
+        int centroidCount = input.readInt();
+        index.centroids = new float[centroidCount][dimension];
+        for (float[] centroid : index.centroids) {
+            for (int i = 0; i < dimension; i++) {
+                centroid[i] = input.readFloat();
+            }
+        }
+
+        int listCount = input.readInt();
+        index.lists = new ArrayList<>(listCount);
+        for (int l = 0; l < listCount; l++) {
+            int size = input.readInt();
+            PostingList list = new PostingList(dimension);
+            list.ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                list.ids[i] = input.readLong();
+                list.groups[i] = input.readLong();
+                list.scales[i] = input.readFloat();
+                index.locations.put(list.ids[i], l);
+            }
+            input.readFully(list.codes, 0, size * dimension);
+            list.size = size;
+            index.lists.add(list);
+        }
+        return index;
+    }
+
+    private int nearestCentroid(float[] vector) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < centroids.length; i++) {
+            double score = VectorMath.dot(vector, centroids[i]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按与查询向量的相似度从高到低排列列表
+     */
+    private int[] probeOrder(float[] query) {
+        int count = lists.size();
+        if (centroids.length == 0) {
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            return order;
+        }
+        double[] scores = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = VectorMath.dot(query, centroids[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * 查询结果
+     */
+    public static class Hit {
+        private final long id;
+        private final long group;
+        private final double score;
+
+        Hit(long id, long group, double score) {
+            this.id = id;
+            this.group = group;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getGroup() {
+            return group;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * 倒排列表，按列存放ID、分组、缩放系数和int8编码
+     */
+    private static class PostingList {
+        private final int dimension;
+        private long[] ids = new long[0];
+        private long[] groups = new long[0];
+        private float[] scales = new float[0];
+        private byte[] codes = new byte[0];
+        private int size;
+
+        PostingList(int dimension) {
+            this.dimension = dimension;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (ids.length >= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, Math.max(16, ids.length + (ids.length >> 1)));
+            ids = Arrays.copyOf(ids, newCapacity);
+            groups = Arrays.copyOf(groups, newCapacity);
+            scales = Arrays.copyOf(scales, newCapacity);
+            codes = Arrays.copyOf(codes, newCapacity * dimension);
+        }
+
+        void add(long id, long group, float[] vector) {
+            ensureCapacity(size + 1);
+            float maxAbs = 0;
+            for (float value : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float scale = maxAbs > 0 ? maxAbs / 127f : 1f;
+            int offset = size * dimension;
+            for (int d = 0; d < dimension; d++) {
+                codes[offset + d] = (byte) Math.round(vector[d] / scale);
+            }
+            ids[size] = id;
+            groups[size] = group;
+            scales[size] = scale;
+            size++;
+        }
+
+        void copyFrom(PostingList source, int slot) {
+            ensureCapacity(size + 1);
+            System.arraycopy(source.codes, slot * dimension, codes, size * dimension, dimension);
+            ids[size] = source.ids[slot];
+            groups[size] = source.groups[slot];
+            scales[size] = source.scales[slot];
+            size++;
+        }
+
+        int indexOf(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void remove(long id) {
+            int slot = indexOf(id);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        }
+
+        /**
+         * 用最后一项覆盖被删除的项
+         */
+        void removeAt(int slot) {
+            int last = size - 1;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                groups[slot] = groups[last];
+                scales[slot] = scales[last];
+                System.arraycopy(codes, last * dimension, codes, slot * dimension, dimension);
+            }
+            size--;
+        }
+
+        float[] decode(int slot) {
+            float[] vector = new float[dimension];
+            int offset = slot * dimension;
+            float scale = scales[slot];
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = codes[offset + d] * scale;
+            }
+            return vector;
+        }
+
+        void scan(float[] query, int k, LongPredicate groupFilter, long excludeId, PriorityQueue<Hit> heap) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == excludeId || (groupFilter != null && !groupFilter.test(groups[i]))) {
+                    continue;
+                }
+                double score = scales[i] * dotCode(query, i * dimension);
+                if (heap.size() < k) {
+                    heap.add(new Hit(ids[i], groups[i], score));
+                } else if (score > heap.peek().score) {
+                    heap.poll();
+                    heap.add(new Hit(ids[i], groups[i], score));
+                }
+            }
+        }
+
+        private float dotCode(float[] query, int offset) {
+            int bound = dimension & ~3;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int d = 0;
+            for (; d < bound; d += 4) {
+                s0 += query[d] * codes[offset + d];
+                s1 += query[d + 1] * codes[offset + d + 1];
+                s2 += query[d + 2] * codes[offset + d + 2];
+                s3 += query[d + 3] * codes[offset + d + 3];
+            }
+            float sum = (s0 + s1) + (s2 + s3);
+            for (; d < dimension; d++) {
+                sum += query[d] * codes[offset + d];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.novelassistant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * K-means聚类
+ * 使用k-means++初始化；数据量较小时运行完整的Lloyd迭代，设置了批大小且数据量超过批大小时使用mini-batch更新。
+ * 分配阶段按数据块在公共ForkJoin线程池中并行，迭代在分配不再变化或误差下降低于阈值时提前结束。
+ * 支持欧氏距离和余弦距离（余弦距离要求输入为单位长度向量，中心在每次更新后归一化）
+ */
+public class KMeans {
+
+    /**
+     * 距离度量
+     */
+    public enum Metric {
+        EUCLIDEAN,
+        COSINE
+    }
+
+    // 每个并行任务处理的数据行数
+    private static final int CHUNK_SIZE = 1024;
+    // 计算量（行数 x 中心数 x 维度）低于该值时不并行
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+    // mini-batch连续多少批误差没有改善时停止
+    private static final int MAX_NO_IMPROVEMENT = 10;
+
+    private final int k;
+    private Metric metric = Metric.EUCLIDEAN;
+    private int maxIterations = 100;
+    private double tolerance = 1e-4;
+    private int batchSize = 0;
+    private long seed = 42;
+    private boolean parallel = true;
+
+    public KMeans(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("聚类数必须大于0: " + k);
+        }
+        this.k = k;
+    }
+
+    public KMeans setMetric(Metric metric) {
+        this.metric = metric;
+        return this;
+    }
+
+    /**
+     * 最大迭代次数（mini-batch模式下为最大批次数）
+     */
+    public KMeans setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * 误差相对下降低于该值时视为收敛
+     */
+    public KMeans setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * mini-batch的批大小，为0或不小于数据量时使用完整迭代
+     */
+    public KMeans setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public KMeans setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public KMeans setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 执行聚类
+     *
+     * @param data 数据，每行一个向量，维度必须一致
+     * @return 聚类结果
+     */
+    public Result fit(float[][] data) {
+        int n = data.length;
+        if (n == 0) {
+            return new Result(new int[0], new float[0][], 0.0, 0);
+        }
+        int clusters = Math.min(k, n);
+        Random random = new Random(seed);
+
+        float[][] centroids = initCentroids(data, clusters, random);
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        double[] distances = new double[n];
+
+        int iterations;
+        if (batchSize > 0 && batchSize < n) {
+            iterations = miniBatch(data, centroids, random);
+            assign(data, centroids, labels, distances, null);
+        } else {
+            iterations = lloyd(data, centroids, labels, distances);
+        }
+
+        double inertia = 0;
+        for (double distance : distances) {
+            inertia += distance;
+        }
+        return new Result(labels, centroids, inertia, iterations);
+    }
+
+    /**
+     * k-means++初始化：第一个中心随机选取，之后按到最近中心距离的平方加权抽样
+     */
+    private float[][] initCentroids(float[][] data, int clusters, Random random) {
+        int n = data.length;
+        float[][] centroids = new float[clusters][];
+        centroids[0] = data[random.nextInt(n)].clone();
+
+        double[] minDistances = new double[n];
+        Arrays.fill(minDistances, Double.MAX_VALUE);
+        for (int c = 1; c < clusters; c++) {
+            float[] latest = centroids[c - 1];
+            forEachChunk(n, (long) n * latest.length, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    minDistances[i] = Math.min(minDistances[i], distance(data[i], latest));
+                }
+            });
+
+            double total = 0;
+            for (double distance : minDistances) {
+                total += distance;
+            }
+            int chosen;
+            if (total <= 0) {
+                // 剩余的点都与已有中心重合
+                chosen = random.nextInt(n);
+            } else {
+                double target = random.nextDouble() * total;
+                chosen = n - 1;
+                for (int i = 0; i < n; i++) {
+                    target -= minDistances[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            centroids[c] = data[chosen].clone();
+        }
+        return centroids;
+    }
+
+    /**
+     * 完整的Lloyd迭代
+     *
+     * @return 迭代次数
+     */
+    private int lloyd(float[][] data, float[][] centroids, int[] labels, double[] distances) {
+        int clusters = centroids.length;
+        int dimension = centroids[0].length;
+        double previousInertia = Double.MAX_VALUE;
+
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            float[][] sums = new float[clusters][dimension];
+            int[] counts = new int[clusters];
+            int changed = assign(data, centroids, labels, distances, new Accumulator(sums, counts));
+
+            double inertia = 0;
+            for (double distance : distances) {
+                inertia += distance;
+            }
+
+            // 更新中心，空簇使用离自身中心最远的点重新初始化
+            for (int c = 0; c < clusters; c++) {
+                if (counts[c] == 0) {
+                    int farthest = 0;
+                    for (int i = 1; i < distances.length; i++) {
+                        if (distances[i] > distances[farthest]) {
+                            farthest = i;
+                        }
+                    }
+                    centroids[c] = data[farthest].clone();
+                    distances[farthest] = 0;
+                    changed++;
+                    continue;
+                }
+                float[] sum = sums[c];
+                float scale = 1.0f / counts[c];
+                for (int d = 0; d < dimension; d++) {
+                    sum[d] *= scale;
+                }
+                if (metric == Metric.COSINE) {
+                    VectorMath.normalize(sum);
+                }
+                centroids[c] = sum;
+            }
+
+            if (changed == 0 || previousInertia - inertia <= tolerance * previousInertia) {
+                return iteration;
+            }
+            previousInertia = inertia;
+        }
+        return maxIterations;
+    }
+
+    /**
+     * mini-batch迭代：每批随机抽取batchSize个点，按各中心累计分到的点数设置学习率
+     *
+     * @return 批次数
+     */
+    private int miniBatch(float[][] data, float[][] centroids, Random random) {
+        int n = data.length;
+        int clusters = centroids.length;
+        int dimension = centroids[0].length;
+        long[] counts = new long[clusters];
+
+        float[][] batch = new float[batchSize][];
+        int[] batchLabels = new int[batchSize];
+        double[] batchDistances = new double[batchSize];
+        double smoothedInertia = -1;
+        double bestInertia = Double.MAX_VALUE;
+        int noImprovement = 0;
+
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            for (int i = 0; i < batchSize; i++) {
+                batch[i] = data[random.nextInt(n)];
+            }
+            Arrays.fill(batchLabels, -1);
+            assign(batch, centroids, batchLabels, batchDistances, null);
+
+            double batchInertia = 0;
+            for (int i = 0; i < batchSize; i++) {
+                float[] centroid = centroids[batchLabels[i]];
+                double eta = 1.0 / ++counts[batchLabels[i]];
+                for (int d = 0; d < dimension; d++) {
+                    centroid[d] += (float) (eta * (batch[i][d] - centroid[d]));
+                }
+                batchInertia += batchDistances[i];
+            }
+            if (metric == Metric.COSINE) {
+                for (float[] centroid : centroids) {
+                    VectorMath.normalize(centroid);
+                }
+            }
+
+            // 用指数平滑后的批误差判断收敛
+            batchInertia /= batchSize;
+            smoothedInertia = smoothedInertia < 0 ? batchInertia : smoothedInertia * 0.7 + batchInertia * 0.3;
+            if (smoothedInertia < bestInertia * (1 - tolerance)) {
+                bestInertia = smoothedInertia;
+                noImprovement = 0;
+            } else if (++noImprovement >= MAX_NO_IMPROVEMENT) {
+                return iteration;
+            }
+        }
+        return maxIterations;
+    }
+
+    /**
+     * 将每个点分配到最近的中心，可选地累加各中心的向量和与点数
+     *
+     * @return 分配发生变化的点数
+     */
+    private int assign(float[][] data, float[][] centroids, int[] labels, double[] distances, Accumulator accumulator) {
+        int n = data.length;
+        int clusters = centroids.length;
+        int dimension = centroids[0].length;
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] changedPerChunk = new int[chunks];
+        Accumulator[] partials = accumulator == null ? null : new Accumulator[chunks];
+
+        forEachChunk(n, (long) n * clusters * dimension, (start, end) -> {
+            int chunk = start / CHUNK_SIZE;
+            Accumulator partial = accumulator == null ? null
+                    : new Accumulator(new float[clusters][dimension], new int[clusters]);
+            int changed = 0;
+            for (int i = start; i < end; i++) {
+                int best = 0;
+                double bestDistance = Double.MAX_VALUE;
+                for (int c = 0; c < clusters; c++) {
+                    double distance = distance(data[i], centroids[c]);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = c;
+                    }
+                }
+                if (labels[i] != best) {
+                    labels[i] = best;
+                    changed++;
+                }
+                distances[i] = bestDistance;
+                if (partial != null) {
+                    float[] sum = partial.sums[best];
+                    float[] row = data[i];
+                    for (int d = 0; d < dimension; d++) {
+                        sum[d] += row[d];
+                    }
+                    partial.counts[best]++;
+                }
+            }
+            changedPerChunk[chunk] = changed;
+            if (partials != null) {
+                partials[chunk] = partial;
+            }
+        });
+
+        // 按块顺序合并，结果与是否并行无关
+        if (accumulator != null) {
+            for (Accumulator partial : partials) {
+                for (int c = 0; c < clusters; c++) {
+                    if (partial.counts[c] == 0) {
+                        continue;
+                    }
+                    accumulator.counts[c] += partial.counts[c];
+                    float[] sum = accumulator.sums[c];
+                    float[] partialSum = partial.sums[c];
+                    for (int d = 0; d < dimension; d++) {
+                        sum[d] += partialSum[d];
+                    }
+                }
+            }
+        }
+
+        int changed = 0;
+        for (int count : changedPerChunk) {
+            changed += count;
+        }
+        return changed;
+    }
+
+    /**
+     * 按数据块执行任务，计算量足够大时并行
+     */
+    private void forEachChunk(int n, long work, ChunkTask task) {
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream stream = IntStream.range(0, chunks);
+        if (parallel && chunks > 1 && work >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        stream.forEach(chunk -> task.run(chunk * CHUNK_SIZE, Math.min(n, (chunk + 1) * CHUNK_SIZE)));
+    }
+
+    /**
+     * 欧氏距离的平方；余弦距离为1减去内积
+     */
+    private double distance(float[] a, float[] b) {
+        if (metric == Metric.COSINE) {
+            return Math.max(0.0, 1.0 - VectorMath.dot(a, b));
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int start, int end);
+    }
+
+    private static class Accumulator {
+        private final float[][] sums;
+        private final int[] counts;
+
+        Accumulator(float[][] sums, int[] counts) {
+            this.sums = sums;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * 聚类结果
+     */
+    public static class Result {
+        private final int[] labels;
+        private final float[][] centroids;
+        private final double inertia;
+        private final int iterations;
+
+        Result(int[] labels, float[][] centroids, double inertia, int iterations) {
+            this.labels = labels;
+            this.centroids = centroids;
+            this.inertia = inertia;
+            this.iterations = iterations;
+        }
+
+        /**
+         * 每个点所属的簇
+         */
+        public int[] getLabels() {
+            return labels;
+        }
+
+        public float[][] getCentroids() {
+            return centroids;
+        }
+
+        /**
+         * 各点到所属中心距离之和（欧氏距离为距离平方和）
+         */
+        public double getInertia() {
+            return inertia;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * 转换为簇编号到点下标列表的映射，只包含非空的簇
+         */
+        public Map<Integer, List<Integer>> toClusters() {
+            Map<Integer, List<Integer>> clusters = new HashMap<>();
+            for (int i = 0; i < labels.length; i++) {
+                clusters.computeIfAbsent(labels[i], key -> new ArrayList<>()).add(i);
+            }
+            return clusters;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.novelassistant.util;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NLP词典注册表
+ * 情感词、情节转折词、主题词、关系提示词等词典统一编译为一个Aho-Corasick自动机，
+ * 文本扫描一遍即可得到所有词典的命中。内置词典来自类路径 nlp/lexicon.txt，
+ * 外部词典文件中出现的分类整体替换内置的同名分类；外部文件修改后定期检查并重新编译，
+ * 新自动机构建完成后整体替换，正在进行的扫描不受影响
+ */
+@Component
+public class LexiconRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LexiconRegistry.class);
+
+    private static final String BUILTIN_RESOURCE = "/nlp/lexicon.txt";
+
+    public static final String EMOTION = "emotion";
+    public static final String PLOT_MARKER = "plot-marker";
+    public static final String THEME_PREFIX = "theme:";
+    public static final String MOOD_PREFIX = "mood:";
+    public static final String ACTION = "action";
+    public static final String TIME = "time";
+    public static final String RELATION_ROMANCE = "relation:romance";
+    public static final String RELATION_FAMILY = "relation:family";
+    public static final String RELATION_MENTOR = "relation:mentor";
+    public static final String RELATION_BUSINESS = "relation:business";
+    public static final String RELATION_COMPETITION = "relation:competition";
+    public static final String IMPORTANT_CHAPTER = "important-chapter";
+    public static final String GUIDE_COMPLEX = "guide:complex";
+    public static final String GUIDE_CHILDREN = "guide:children";
+    public static final String GUIDE_YOUTH = "guide:youth";
+    public static final String GUIDE_STREAM = "guide:stream";
+    public static final String GUIDE_REALISTIC = "guide:realistic";
+    public static final String GUIDE_ROMANTIC = "guide:romantic";
+
+    // 外部词典文件，为空时只使用内置词典
+    @Value("${novelassistant.nlp.lexicon.file:}")
+    private String lexiconFile = "";
+
+    private volatile AhoCorasickMatcher matcher;
+    private volatile long loadedFileModified = -1;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 当前词典自动机
+     */
+    public AhoCorasickMatcher matcher() {
+        if (matcher == null) {
+            reload();
+        }
+        return matcher;
+    }
+
+    /**
+     * 查询词条的分值
+     *
+     * @return 词不在该分类中时返回null
+     */
+    public Integer valueOf(String category, String word) {
+        AhoCorasickMatcher.Entry entry = matcher().find(word, category);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * 外部词典文件有变化时重新加载
+     */
+    @Scheduled(fixedDelayString = "${novelassistant.nlp.lexicon.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (lexiconFile == null || lexiconFile.isEmpty()) {
+            return;
+        }
+        if (fileModified() != loadedFileModified) {
+            reload();
+        }
+    }
+
+    /**
+     * 重新编译词典，失败时保留原有自动机
+     */
+    public synchronized void reload() {
+        try {
+            Map<String, List<String[]>> categories = new LinkedHashMap<>();
+            try (InputStream input = LexiconRegistry.class.getResourceAsStream(BUILTIN_RESOURCE)) {
+                if (input == null) {
+                    throw new IOException("类路径中没有内置词典 " + BUILTIN_RESOURCE);
+                }
+                categories.putAll(parse(new InputStreamReader(input, StandardCharsets.UTF_8)));
+            }
+
+            long modified = -1;
+            if (lexiconFile != null && !lexiconFile.isEmpty()) {
+                Path path = Paths.get(lexiconFile);
+                modified = fileModified();
+                if (modified >= 0) {
+                    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        Map<String, List<String[]>> overrides = parse(reader);
+                        categories.putAll(overrides);
+                        logger.info("外部词典 {} 替换分类: {}", lexiconFile, overrides.keySet());
+                    }
+                } else {
+                    logger.warn("外部词典文件不存在: {}", lexiconFile);
+                }
+            }
+
+            AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+            for (Map.Entry<String, List<String[]>> category : categories.entrySet()) {
+                for (String[] entry : category.getValue()) {
+                    builder.add(category.getKey(), entry[0], entry[1] != null ? Integer.parseInt(entry[1]) : 0);
+                }
+            }
+            matcher = builder.build();
+            loadedFileModified = modified;
+            logger.info("NLP词典已加载: {} 个分类，{} 个词条", categories.size(), matcher.size());
+        } catch (Exception e) {
+            if (matcher == null) {
+                throw new IllegalStateException("加载NLP词典失败: " + e.getMessage(), e);
+            }
+            logger.error("重新加载NLP词典失败，继续使用原词典: {}", e.getMessage());
+        }
+    }
+
+    private long fileModified() {
+        try {
+            Path path = Paths.get(lexiconFile);
+            return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 解析词典：每行 分类<TAB>词[<TAB>分值]
+     */
+    private static Map<String, List<String[]>> parse(Reader source) throws IOException {
+        Map<String, List<String[]>> categories = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(source)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length < 2 || fields[1].trim().isEmpty()) {
+                    throw new IOException("词典第 " + lineNumber + " 行格式错误: " + line);
+                }
+                String value = fields.length > 2 ? fields[2].trim() : null;
+                if (value != null) {
+                    try {
+                        Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("词典第 " + lineNumber + " 行分值不是整数: " + line);
+                    }
+                }
+                categories.computeIfAbsent(fields[0].trim(), key -> new ArrayList<>())
+                        .add(new String[]{fields[1].trim(), value});
+            }
+        }
+        return categories;
+    }
+}
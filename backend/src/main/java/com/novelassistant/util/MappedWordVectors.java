@@ -0,0 +1,316 @@
+package com.novelassistant.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * 内存映射的词向量存储
+ * 读取由 {@link WordVectorConverter} 生成的二进制词向量文件，文件以只读方式映射到内存，
+ * 打开时只读取文件头，词表索引和向量都直接在映射区域中查找，不在堆上复制；
+ * 同一主机上的多个JVM映射同一文件时共享操作系统页缓存
+ *
+ * 文件格式（小端序）：
+ * 文件头：魔数、版本、词数、维度、哈希表大小、词表偏移、哈希表偏移、向量偏移
+ * 词表：词数+1个int的UTF-8字节偏移，随后是所有词的UTF-8字节
+ * 哈希表：开放寻址，每项为词序号+1，0表示空
+ * 向量：词数 x 维度 个float，按词序号连续存放
+ */
+public class MappedWordVectors implements Closeable {
+
+    static final int MAGIC = 0x4E415756; // "NAWV"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+
+    // 单个映射区域的最大字节数
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE - 8;
+
+    private final Path path;
+    private final int size;
+    private final int dimension;
+    private final int tableMask;
+    private final long wordsOffset;
+    private final long tableOffset;
+
+    // 文件头、词表和哈希表所在的映射区域
+    private final ByteBuffer index;
+    // 向量按整行分段映射，每段不超过2GB
+    private final FloatBuffer[] vectorSegments;
+    private final int rowsPerSegment;
+
+    private MappedWordVectors(Path path, ByteBuffer index, FloatBuffer[] vectorSegments, int rowsPerSegment) {
+        this.path = path;
+        this.index = index;
+        this.size = index.getInt(8);
+        this.dimension = index.getInt(12);
+        this.tableMask = index.getInt(16) - 1;
+        this.wordsOffset = index.getLong(24);
+        this.tableOffset = index.getLong(32);
+        this.vectorSegments = vectorSegments;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    /**
+     * 打开二进制词向量文件
+     *
+     * @param path 文件路径
+     * @return 词向量存储
+     * @throws IOException 文件不存在或格式错误时抛出
+     */
+    public static MappedWordVectors open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("词向量文件过小: " + path);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("不是有效的二进制词向量文件: " + path);
+            }
+
+            int size = header.getInt(8);
+            int dimension = header.getInt(12);
+            long vectorsOffset = header.getLong(40);
+            long rowBytes = (long) dimension * Float.BYTES;
+            if (size < 0 || dimension <= 0 || vectorsOffset > MAX_SEGMENT_BYTES
+                    || vectorsOffset + rowBytes * size > fileSize) {
+                throw new IOException("词向量文件已损坏: " + path);
+            }
+
+            // 映射在通道关闭后仍然有效
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, vectorsOffset)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            int rowsPerSegment = (int) Math.max(1, Math.min(size, MAX_SEGMENT_BYTES / rowBytes));
+            int segmentCount = size == 0 ? 0 : (size + rowsPerSegment - 1) / rowsPerSegment;
+            FloatBuffer[] segments = new FloatBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long firstRow = (long) i * rowsPerSegment;
+                long rows = Math.min(rowsPerSegment, size - firstRow);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        vectorsOffset + firstRow * rowBytes, rows * rowBytes);
+                segments[i] = segment.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            }
+
+            return new MappedWordVectors(path, index, segments, rowsPerSegment);
+        }
+    }
+
+    /**
+     * 词表大小
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 向量维度
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 判断词是否在词表中
+     */
+    public boolean hasWord(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * 查找词的序号
+     *
+     * @param word 词
+     * @return 词序号，不存在时返回-1
+     */
+    public int indexOf(String word) {
+        if (word == null || word.isEmpty() || size == 0) {
+            return -1;
+        }
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int slot = (int) (slotHash(word) & tableMask);
+        while (true) {
+            int entry = index.getInt((int) (tableOffset + (long) slot * Integer.BYTES));
+            if (entry == 0) {
+                return -1;
+            }
+            if (wordEquals(entry - 1, bytes)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    /**
+     * 获取指定序号的词
+     */
+    public String wordAt(int wordIndex) {
+        int start = wordStart(wordIndex);
+        int end = wordStart(wordIndex + 1);
+        byte[] bytes = new byte[end - start];
+        int base = (int) (wordsOffset + (long) (size + 1) * Integer.BYTES);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = index.get(base + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取指定序号的词向量的只读视图，不复制数据
+     */
+    public FloatBuffer vectorView(int wordIndex) {
+        FloatBuffer segment = vectorSegments[wordIndex / rowsPerSegment];
+        int position = (wordIndex % rowsPerSegment) * dimension;
+        return segment.duplicate().position(position).limit(position + dimension).slice();
+    }
+
+    /**
+     * 获取词向量的副本
+     *
+     * @param word 词
+     * @return 词向量，不存在时返回null
+     */
+    public float[] getVector(String word) {
+        int wordIndex = indexOf(word);
+        if (wordIndex < 0) {
+            return null;
+        }
+        float[] vector = new float[dimension];
+        FloatBuffer segment = vectorSegments[wordIndex / rowsPerSegment];
+        int position = (wordIndex % rowsPerSegment) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = segment.get(position + i);
+        }
+        return vector;
+    }
+
+    /**
+     * 将词向量累加到目标数组中，直接读取映射区域
+     *
+     * @param wordIndex 词序号
+     * @param target 目标数组，长度不小于维度
+     */
+    public void addTo(int wordIndex, double[] target) {
+        FloatBuffer segment = vectorSegments[wordIndex / rowsPerSegment];
+        int position = (wordIndex % rowsPerSegment) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            target[i] += segment.get(position + i);
+        }
+    }
+
+    /**
+     * 将词向量累加到目标数组中，直接读取映射区域
+     *
+     * @param wordIndex 词序号
+     * @param target 目标数组，长度不小于维度
+     */
+    public void addTo(int wordIndex, float[] target) {
+        FloatBuffer segment = vectorSegments[wordIndex / rowsPerSegment];
+        int position = (wordIndex % rowsPerSegment) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            target[i] += segment.get(position + i);
+        }
+    }
+
+    /**
+     * 计算一组词的平均向量，忽略词表中不存在的词
+     *
+     * @param words 词列表
+     * @return 平均向量，没有任何词在词表中时返回null
+     */
+    public double[] meanVector(Collection<String> words) {
+        double[] mean = new double[dimension];
+        int count = 0;
+        for (String word : words) {
+            int wordIndex = indexOf(word);
+            if (wordIndex >= 0) {
+                addTo(wordIndex, mean);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        for (int i = 0; i < dimension; i++) {
+            mean[i] /= count;
+        }
+        return mean;
+    }
+
+    /**
+     * 计算两个词的余弦相似度
+     *
+     * @return 相似度，任一词不在词表中时返回NaN
+     */
+    public double similarity(String word1, String word2) {
+        int first = indexOf(word1);
+        int second = indexOf(word2);
+        if (first < 0 || second < 0) {
+            return Double.NaN;
+        }
+        FloatBuffer a = vectorSegments[first / rowsPerSegment];
+        FloatBuffer b = vectorSegments[second / rowsPerSegment];
+        int positionA = (first % rowsPerSegment) * dimension;
+        int positionB = (second % rowsPerSegment) * dimension;
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < dimension; i++) {
+            float x = a.get(positionA + i);
+            float y = b.get(positionB + i);
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    /**
+     * 映射区域在没有引用后由GC释放，这里不做额外处理
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 哈希表槽位使用的哈希值，写入和读取必须一致
+     */
+    static long slotHash(String word) {
+        long hash = ContentHashUtil.fnv1a64(word);
+        return hash ^ (hash >>> 32);
+    }
+
+    private int wordStart(int wordIndex) {
+        return index.getInt((int) (wordsOffset + (long) wordIndex * Integer.BYTES));
+    }
+
+    private boolean wordEquals(int wordIndex, byte[] bytes) {
+        int start = wordStart(wordIndex);
+        int end = wordStart(wordIndex + 1);
+        if (end - start != bytes.length) {
+            return false;
+        }
+        int base = (int) (wordsOffset + (long) (size + 1) * Integer.BYTES) + start;
+        for (int i = 0; i < bytes.length; i++) {
+            if (index.get(base + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
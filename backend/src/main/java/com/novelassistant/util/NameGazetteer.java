@@ -0,0 +1,99 @@
+package com.novelassistant.util;
+
+import com.hankcs.hanlp.collection.trie.DoubleArrayTrie;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 小说人名词典
+ * 一部小说已确认的人物名编译为HanLP的双数组Trie，对文本做最长匹配即可标出所有已知人名，
+ * 不再需要对每段文本重新做人名识别。构建后不可修改，可在多线程间共享
+ */
+public final class NameGazetteer {
+
+    private final DoubleArrayTrie<Integer> trie;
+    private final String[] names;
+    private final Map<String, Integer> weights;
+
+    private NameGazetteer(Map<String, Integer> weights) {
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        for (String name : weights.keySet()) {
+            sorted.put(name, 0);
+        }
+        names = sorted.keySet().toArray(new String[0]);
+        for (int i = 0; i < names.length; i++) {
+            sorted.put(names[i], i);
+        }
+        trie = new DoubleArrayTrie<>();
+        trie.build(sorted);
+        Map<String, Integer> ranked = new LinkedHashMap<>();
+        weights.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        this.weights = Collections.unmodifiableMap(ranked);
+    }
+
+    /**
+     * 构建人名词典
+     *
+     * @param weights 人名 -> 权重，不能为空
+     */
+    public static NameGazetteer of(Map<String, Integer> weights) {
+        if (weights == null || weights.isEmpty()) {
+            throw new IllegalArgumentException("人名词典不能为空");
+        }
+        return new NameGazetteer(weights);
+    }
+
+    /**
+     * 是否为已知人名
+     */
+    public boolean contains(String name) {
+        return name != null && !name.isEmpty() && trie.exactMatchSearch(name) >= 0;
+    }
+
+    /**
+     * 按最长匹配统计文本中各已知人名的出现次数，匹配互不重叠
+     */
+    public Map<String, Integer> countMatches(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text != null && !text.isEmpty()) {
+            trie.parseLongestText(text, (begin, end, value) -> counts.merge(names[value], 1, Integer::sum));
+        }
+        return counts;
+    }
+
+    /**
+     * 文本中按最长匹配找到的第一个已知人名
+     *
+     * @return 没有时返回null
+     */
+    public String firstMatch(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        String[] found = {null};
+        trie.parseLongestText(text, (begin, end, value) -> {
+            if (found[0] == null) {
+                found[0] = names[value];
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * 人名及权重，按权重从高到低排列
+     */
+    public Map<String, Integer> getWeights() {
+        return weights;
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
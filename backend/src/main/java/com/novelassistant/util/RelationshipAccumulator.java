@@ -0,0 +1,524 @@
+package com.novelassistant.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 人物关系累计结果
+ * 人物名和词语映射为连续的int编号，共现次数、有向对话次数（附带情感值之和）和对话共享词
+ * 分别累计在稀疏计数表中，只存非零的人物对。每章可以独立累计（可并行），再按人物名合并。
+ * 非线程安全，一个实例只在一个线程中累计
+ */
+public final class RelationshipAccumulator {
+
+    // 共享词的键为 说话者(20位) | 被提及者(20位) | 词(22位)，保证键为非负数
+    private static final int CHARACTER_BITS = 20;
+    private static final int WORD_BITS = 22;
+    private static final int MAX_CHARACTERS = 1 << CHARACTER_BITS;
+    private static final int MAX_WORDS = 1 << WORD_BITS;
+
+    // 计算平均情感时0.5的先验权重：只有一条对话时结果为 0.5 * 0.7 + 情感 * 0.3
+    private static final double SENTIMENT_PRIOR_WEIGHT = 7.0 / 3.0;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, Integer> wordIds = new HashMap<>();
+
+    // 无向共现，键为 (较小编号, 较大编号)
+    private final SparseCounter cooccurrences = new SparseCounter();
+    // 有向对话次数，键为 (说话者, 被提及者)，累加值为情感值之和
+    private final SparseCounter interactions = new SparseCounter();
+    private final SparseCounter sharedWords = new SparseCounter();
+
+    /**
+     * 获取人物编号，不存在时分配新编号
+     */
+    public int characterId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    public int characterCount() {
+        return names.size();
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * 累计一段对话
+     * 说话者与对话中提到的每个人物各共现一次；提到的其他人物各记一次有向对话，并累计情感值和关键词
+     *
+     * @param speaker 说话者
+     * @param mentioned 对话中提到的人物
+     * @param sentiment 对话情感值（0-1）
+     * @param keywords 对话关键词
+     */
+    public void addDialogue(String speaker, Collection<String> mentioned, double sentiment,
+                            Collection<String> keywords) {
+        int from = characterId(speaker);
+        if (mentioned == null) {
+            return;
+        }
+        int[] keywordIds = null;
+        for (String name : mentioned) {
+            int to = characterId(name);
+            if (to == from) {
+                continue;
+            }
+            addCooccurrence(from, to, 1);
+            interactions.add(SparseCounter.pack(from, to), 1, sentiment);
+
+            if (keywords != null && from < MAX_CHARACTERS && to < MAX_CHARACTERS) {
+                if (keywordIds == null) {
+                    keywordIds = wordIds(keywords);
+                }
+                for (int word : keywordIds) {
+                    if (word < MAX_WORDS) {
+                        sharedWords.add(sharedWordKey(from, to, word), 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 累计两个人物的共现次数
+     */
+    public void addCooccurrence(int first, int second, int count) {
+        if (first == second) {
+            return;
+        }
+        cooccurrences.add(SparseCounter.pack(Math.min(first, second), Math.max(first, second)), count);
+    }
+
+    /**
+     * 按句子滑动窗口累计叙述中的人物共现
+     * 文本用人物名自动机扫描一遍，人物在某句出现时，与当前句及之前 windowSentences - 1 句中出现过的
+     * 每个其他人物各共现一次，同一句中重复出现只计一次
+     *
+     * @param text 文本
+     * @param characters 人物名
+     * @param windowSentences 窗口包含的句子数
+     */
+    public void addSentenceWindow(String text, Collection<String> characters, int windowSentences) {
+        if (text == null || text.isEmpty() || characters == null || characters.isEmpty()) {
+            return;
+        }
+        AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+        for (String name : characters) {
+            builder.add("character", name, characterId(name));
+        }
+        SentenceWindow sentenceWindow = new SentenceWindow(text, Math.max(1, windowSentences));
+        builder.build().scan(text, sentenceWindow);
+        sentenceWindow.flush();
+    }
+
+    /**
+     * 合并另一份累计结果（如另一章的结果），按人物名和词语对齐编号
+     */
+    public void merge(RelationshipAccumulator other) {
+        if (other == null || other == this) {
+            return;
+        }
+        int[] characterMap = new int[other.names.size()];
+        for (int i = 0; i < characterMap.length; i++) {
+            characterMap[i] = characterId(other.names.get(i));
+        }
+        int[] wordMap = wordIds(other.words);
+
+        other.cooccurrences.forEach((key, count, sum) ->
+                addCooccurrence(characterMap[SparseCounter.high(key)], characterMap[SparseCounter.low(key)], count));
+        other.interactions.forEach((key, count, sum) ->
+                interactions.add(SparseCounter.pack(characterMap[SparseCounter.high(key)],
+                        characterMap[SparseCounter.low(key)]), count, sum));
+        other.sharedWords.forEach((key, count, sum) -> {
+            int from = characterMap[(int) (key >>> (CHARACTER_BITS + WORD_BITS))];
+            int to = characterMap[(int) (key >>> WORD_BITS) & (MAX_CHARACTERS - 1)];
+            int word = wordMap[(int) key & (MAX_WORDS - 1)];
+            if (from < MAX_CHARACTERS && to < MAX_CHARACTERS && word < MAX_WORDS) {
+                sharedWords.add(sharedWordKey(from, to, word), count);
+            }
+        });
+    }
+
+    /**
+     * 导出累计结果，用于随章节保存，之后可由fromSnapshot还原而不必重新分析文本
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setNames(new ArrayList<>(names));
+        snapshot.setWords(new ArrayList<>(words));
+
+        long[][] cooccurrenceEntries = new long[2][cooccurrences.size()];
+        int[] index = {0};
+        cooccurrences.forEach((key, count, sum) -> {
+            cooccurrenceEntries[0][index[0]] = key;
+            cooccurrenceEntries[1][index[0]++] = count;
+        });
+        snapshot.setCooccurrences(cooccurrenceEntries);
+
+        long[][] interactionEntries = new long[3][interactions.size()];
+        index[0] = 0;
+        interactions.forEach((key, count, sum) -> {
+            interactionEntries[0][index[0]] = key;
+            interactionEntries[1][index[0]] = count;
+            interactionEntries[2][index[0]++] = Double.doubleToLongBits(sum);
+        });
+        snapshot.setInteractions(interactionEntries);
+
+        long[][] sharedWordEntries = new long[2][sharedWords.size()];
+        index[0] = 0;
+        sharedWords.forEach((key, count, sum) -> {
+            sharedWordEntries[0][index[0]] = key;
+            sharedWordEntries[1][index[0]++] = count;
+        });
+        snapshot.setSharedWords(sharedWordEntries);
+        return snapshot;
+    }
+
+    /**
+     * 由snapshot导出的结果还原累计结果，人物和词语编号与导出时一致
+     */
+    public static RelationshipAccumulator fromSnapshot(Snapshot snapshot) {
+        RelationshipAccumulator accumulator = new RelationshipAccumulator();
+        if (snapshot == null) {
+            return accumulator;
+        }
+        if (snapshot.getNames() != null) {
+            snapshot.getNames().forEach(accumulator::characterId);
+        }
+        if (snapshot.getWords() != null) {
+            accumulator.wordIds(snapshot.getWords());
+        }
+        long[][] cooccurrenceEntries = snapshot.getCooccurrences();
+        if (cooccurrenceEntries != null) {
+            for (int i = 0; i < cooccurrenceEntries[0].length; i++) {
+                accumulator.cooccurrences.add(cooccurrenceEntries[0][i], (int) cooccurrenceEntries[1][i]);
+            }
+        }
+        long[][] interactionEntries = snapshot.getInteractions();
+        if (interactionEntries != null) {
+            for (int i = 0; i < interactionEntries[0].length; i++) {
+                accumulator.interactions.add(interactionEntries[0][i], (int) interactionEntries[1][i],
+                        Double.longBitsToDouble(interactionEntries[2][i]));
+            }
+        }
+        long[][] sharedWordEntries = snapshot.getSharedWords();
+        if (sharedWordEntries != null) {
+            for (int i = 0; i < sharedWordEntries[0].length; i++) {
+                accumulator.sharedWords.add(sharedWordEntries[0][i], (int) sharedWordEntries[1][i]);
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * 两个人物的共现次数
+     */
+    public int cooccurrences(int first, int second) {
+        return cooccurrences.count(SparseCounter.pack(Math.min(first, second), Math.max(first, second)));
+    }
+
+    /**
+     * from在对话中提到to的次数
+     */
+    public int interactions(int from, int to) {
+        return interactions.count(SparseCounter.pack(from, to));
+    }
+
+    /**
+     * from提到to的对话的平均情感值，以0.5为先验，没有对话时为0.5
+     */
+    public double sentiment(int from, int to) {
+        long key = SparseCounter.pack(from, to);
+        int count = interactions.count(key);
+        return (0.5 * SENTIMENT_PRIOR_WEIGHT + interactions.sum(key)) / (SENTIMENT_PRIOR_WEIGHT + count);
+    }
+
+    /**
+     * 有共现或对话的人物对
+     *
+     * @return 无向人物对的键（见SparseCounter.pack，较小编号在高位）
+     */
+    public long[] pairs() {
+        SparseCounter pairs = new SparseCounter(cooccurrences.size() + interactions.size());
+        cooccurrences.forEach((key, count, sum) -> pairs.add(key, 1));
+        interactions.forEach((key, count, sum) -> {
+            int from = SparseCounter.high(key);
+            int to = SparseCounter.low(key);
+            pairs.add(SparseCounter.pack(Math.min(from, to), Math.max(from, to)), 1);
+        });
+        long[] result = new long[pairs.size()];
+        int[] index = {0};
+        pairs.forEach((key, count, sum) -> result[index[0]++] = key);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * 每个人物对（不分方向）的对话共享词，按出现次数从多到少排列
+     *
+     * @return 无向人物对的键 -> 共享词
+     */
+    public Map<Long, Set<String>> sharedWordsByPair() {
+        Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+        sharedWords.forEach((key, count, sum) -> {
+            int from = (int) (key >>> (CHARACTER_BITS + WORD_BITS));
+            int to = (int) (key >>> WORD_BITS) & (MAX_CHARACTERS - 1);
+            int word = (int) key & (MAX_WORDS - 1);
+            long pair = SparseCounter.pack(Math.min(from, to), Math.max(from, to));
+            counts.computeIfAbsent(pair, k -> new HashMap<>()).merge(word, count, Integer::sum);
+        });
+
+        Map<Long, Set<String>> result = new HashMap<>();
+        counts.forEach((pair, wordCounts) -> {
+            Set<String> sorted = new LinkedHashSet<>();
+            wordCounts.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> sorted.add(words.get(entry.getKey())));
+            result.put(pair, sorted);
+        });
+        return result;
+    }
+
+    /**
+     * 按共现图计算人物重要性（PageRank）
+     * 共现图按行压缩存储，每轮迭代耗时与非零共现数成正比
+     *
+     * @return 按人物编号排列的重要性得分
+     */
+    public double[] importance(int iterations, double dampingFactor) {
+        int n = names.size();
+        int[] degree = new int[n];
+        cooccurrences.forEach((key, count, sum) -> {
+            degree[SparseCounter.high(key)]++;
+            degree[SparseCounter.low(key)]++;
+        });
+        int[] rowStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            rowStart[i + 1] = rowStart[i] + degree[i];
+        }
+        int[] columns = new int[rowStart[n]];
+        int[] weights = new int[rowStart[n]];
+        int[] fill = Arrays.copyOf(rowStart, n);
+        double[] outWeight = new double[n];
+        cooccurrences.forEach((key, count, sum) -> {
+            int a = SparseCounter.high(key);
+            int b = SparseCounter.low(key);
+            columns[fill[a]] = b;
+            weights[fill[a]++] = count;
+            columns[fill[b]] = a;
+            weights[fill[b]++] = count;
+            outWeight[a] += count;
+            outWeight[b] += count;
+        });
+
+        double[] importance = new double[n];
+        Arrays.fill(importance, 1.0);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double[] next = new double[n];
+            for (int i = 0; i < n; i++) {
+                if (outWeight[i] == 0) {
+                    continue;
+                }
+                double share = importance[i] / outWeight[i];
+                for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+                    next[columns[e]] += share * weights[e];
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                next[i] = (1 - dampingFactor) + dampingFactor * next[i];
+            }
+            importance = next;
+        }
+        return importance;
+    }
+
+    /**
+     * 句子窗口共现的扫描状态
+     * 自动机按结束位置回调命中，相互重叠的命中只保留最靠左、最长的一个（“张三丰”中不再计“张三”）
+     */
+    private final class SentenceWindow implements AhoCorasickMatcher.HitHandler {
+        private final String text;
+        private final int window;
+        // 窗口内每句出现的人物，按句子序号取模循环使用
+        private final int[][] sentenceCharacters;
+        private final int[] sentenceSizes;
+        private final int[] sentenceNumbers;
+        // 每个人物最近出现的句子序号，以及最近一次参与计数的标记，用于去重
+        private final int[] seenInSentence;
+        private final int[] countedFor;
+        private int stamp;
+        private int cursor;
+        private int sentence;
+
+        private int pendingStart = -1;
+        private int pendingEnd;
+        private int pendingId;
+
+        SentenceWindow(String text, int window) {
+            this.text = text;
+            this.window = window;
+            sentenceCharacters = new int[window][8];
+            sentenceSizes = new int[window];
+            sentenceNumbers = new int[window];
+            Arrays.fill(sentenceNumbers, -1);
+            seenInSentence = new int[names.size()];
+            Arrays.fill(seenInSentence, -1);
+            countedFor = new int[names.size()];
+        }
+
+        @Override
+        public boolean onHit(int start, AhoCorasickMatcher.Entry entry) {
+            if (pendingStart >= 0 && start <= pendingStart) {
+                // 从同一位置或更靠左开始的更长的名字
+                pendingStart = start;
+                pendingEnd = start + entry.getWord().length();
+                pendingId = entry.getValue();
+            } else if (pendingStart < 0 || start >= pendingEnd) {
+                flush();
+                pendingStart = start;
+                pendingEnd = start + entry.getWord().length();
+                pendingId = entry.getValue();
+            }
+            return true;
+        }
+
+        void flush() {
+            if (pendingStart < 0) {
+                return;
+            }
+            int start = pendingStart;
+            int id = pendingId;
+            pendingStart = -1;
+
+            // 推进到命中位置，统计经过的句子边界
+            for (; cursor < start; cursor++) {
+                if (isSentenceEnd(text.charAt(cursor))) {
+                    sentence++;
+                }
+            }
+            if (seenInSentence[id] == sentence) {
+                return;
+            }
+            seenInSentence[id] = sentence;
+
+            int marker = ++stamp;
+            countedFor[id] = marker;
+            for (int k = 0; k < window && sentence - k >= 0; k++) {
+                int number = sentence - k;
+                int slot = number % window;
+                if (sentenceNumbers[slot] != number) {
+                    continue;
+                }
+                for (int j = 0; j < sentenceSizes[slot]; j++) {
+                    int other = sentenceCharacters[slot][j];
+                    if (countedFor[other] != marker) {
+                        countedFor[other] = marker;
+                        addCooccurrence(id, other, 1);
+                    }
+                }
+            }
+
+            int slot = sentence % window;
+            if (sentenceNumbers[slot] != sentence) {
+                sentenceNumbers[slot] = sentence;
+                sentenceSizes[slot] = 0;
+            }
+            if (sentenceSizes[slot] == sentenceCharacters[slot].length) {
+                sentenceCharacters[slot] = Arrays.copyOf(sentenceCharacters[slot], sentenceSizes[slot] * 2);
+            }
+            sentenceCharacters[slot][sentenceSizes[slot]++] = id;
+        }
+    }
+
+    private int[] wordIds(Collection<String> values) {
+        int[] ids = new int[values.size()];
+        int i = 0;
+        for (String word : values) {
+            Integer id = wordIds.get(word);
+            if (id == null) {
+                id = words.size();
+                words.add(word);
+                wordIds.put(word, id);
+            }
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    private static long sharedWordKey(int from, int to, int word) {
+        return ((long) from << (CHARACTER_BITS + WORD_BITS)) | ((long) to << WORD_BITS) | word;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '。' || c == '！' || c == '？' || c == '!' || c == '?' || c == '\n';
+    }
+
+    /**
+     * 累计结果的可序列化形式
+     * 人物名和词语按编号顺序保存；各计数表按列保存为 {键, 次数[, 情感值之和的位表示]}
+     */
+    public static final class Snapshot {
+        private List<String> names;
+        private List<String> words;
+        private long[][] cooccurrences;
+        private long[][] interactions;
+        private long[][] sharedWords;
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public void setNames(List<String> names) {
+            this.names = names;
+        }
+
+        public List<String> getWords() {
+            return words;
+        }
+
+        public void setWords(List<String> words) {
+            this.words = words;
+        }
+
+        public long[][] getCooccurrences() {
+            return cooccurrences;
+        }
+
+        public void setCooccurrences(long[][] cooccurrences) {
+            this.cooccurrences = cooccurrences;
+        }
+
+        public long[][] getInteractions() {
+            return interactions;
+        }
+
+        public void setInteractions(long[][] interactions) {
+            this.interactions = interactions;
+        }
+
+        public long[][] getSharedWords() {
+            return sharedWords;
+        }
+
+        public void setSharedWords(long[][] sharedWords) {
+            this.sharedWords = sharedWords;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.novelassistant.util;
+
+import com.hankcs.hanlp.HanLP;
+import com.hankcs.hanlp.seg.common.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HanLP分词结果缓存
+ * 以文本内容哈希为键缓存分词结果，按缓存中的词项总数限制容量（LRU淘汰），
+ * 使同一份文本在关键词、人物、情感等多个NLP方法中只分词一次
+ */
+@Component
+public class SegmentationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentationCache.class);
+
+    // 缓存中允许保留的最大词项总数
+    @Value("${novelassistant.nlp.segment-cache.max-terms:2000000}")
+    private long maxTerms = 2_000_000L;
+
+    // 短于此长度的文本直接分词，不进入缓存
+    @Value("${novelassistant.nlp.segment-cache.min-text-length:200}")
+    private int minTextLength = 200;
+
+    // 按访问顺序排列，最久未使用的条目在最前
+    private final LinkedHashMap<String, List<Term>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalTerms = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    public SegmentationCache() {
+    }
+
+    /**
+     * @param maxTerms 缓存中允许保留的最大词项总数
+     * @param minTextLength 进入缓存的最短文本长度
+     */
+    SegmentationCache(long maxTerms, int minTextLength) {
+        this.maxTerms = maxTerms;
+        this.minTextLength = minTextLength;
+    }
+
+    /**
+     * 对文本分词，命中缓存时直接返回已有结果
+     * 返回的列表均为只读视图，缓存的结果在多个调用方之间共享，调用方不应修改其中的Term
+     *
+     * @param text 待分词文本
+     * @return 分词结果
+     */
+    public List<Term> segment(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (text.length() < minTextLength) {
+            return Collections.unmodifiableList(HanLP.segment(text));
+        }
+
+        String key = ContentHashUtil.contentKey(text);
+
+        synchronized (this) {
+            List<Term> cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+
+        // 分词在锁外进行，避免阻塞其他线程
+        List<Term> terms = Collections.unmodifiableList(HanLP.segment(text));
+
+        if (terms.size() > maxTerms) {
+            logger.debug("分词结果词项数 {} 超过缓存上限 {}，不缓存", terms.size(), maxTerms);
+            return terms;
+        }
+
+        synchronized (this) {
+            List<Term> previous = entries.put(key, terms);
+            if (previous != null) {
+                totalTerms -= previous.size();
+            }
+            totalTerms += terms.size();
+            evictIfNecessary();
+        }
+
+        return terms;
+    }
+
+    /**
+     * 移除一段文本的分词结果，文本内容被修改后调用
+     *
+     * @param text 原文本
+     */
+    public void evict(String text) {
+        if (text == null || text.length() < minTextLength) {
+            return;
+        }
+        String key = ContentHashUtil.contentKey(text);
+        synchronized (this) {
+            List<Term> removed = entries.remove(key);
+            if (removed != null) {
+                totalTerms -= removed.size();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，管理员清理系统缓存时调用
+     * 多个导入任务共用同一个缓存，导入结束或删除小说时不清空，由词项总数上限按LRU淘汰
+     */
+    public synchronized void clear() {
+        logger.debug("清空分词缓存，条目数: {}, 词项数: {}, 命中: {}, 未命中: {}",
+                entries.size(), totalTerms, hitCount, missCount);
+        entries.clear();
+        totalTerms = 0;
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 包含条目数、词项数、命中与未命中次数的统计
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("terms", totalTerms);
+        stats.put("maxTerms", maxTerms);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        return stats;
+    }
+
+    /**
+     * 按LRU顺序淘汰条目，直到词项总数不超过上限
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, List<Term>>> iterator = entries.entrySet().iterator();
+        while (totalTerms > maxTerms && iterator.hasNext()) {
+            Map.Entry<String, List<Term>> eldest = iterator.next();
+            totalTerms -= eldest.getValue().size();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.novelassistant.util;
+
+import java.util.Arrays;
+
+/**
+ * 以long为键的稀疏计数表
+ * 开放寻址哈希表，键、计数和累加值分别存放在基本类型数组中，不为每个条目创建对象。
+ * 键由调用方把两个非负int打包得到（见pack），用作稀疏矩阵时每个非零元素只占一个槽位。
+ * 非线程安全
+ */
+public final class SparseCounter {
+
+    /**
+     * 条目访问器
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, int count, double sum);
+    }
+
+    private static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] counts;
+    private double[] sums;
+    private int size;
+    private int resizeThreshold;
+
+    public SparseCounter() {
+        this(16);
+    }
+
+    public SparseCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        allocate(capacity);
+    }
+
+    /**
+     * 把两个非负int打包为一个键
+     */
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int low(long key) {
+        return (int) key;
+    }
+
+    /**
+     * 累加计数和值
+     *
+     * @param key 非负键
+     */
+    public void add(long key, int count, double sum) {
+        if (key < 0) {
+            throw new IllegalArgumentException("键必须为非负数: " + key);
+        }
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            counts[slot] = count;
+            sums[slot] = sum;
+            if (size > resizeThreshold) {
+                allocateAndRehash(keys.length * 2);
+            }
+            return;
+        }
+        counts[slot] += count;
+        sums[slot] += sum;
+    }
+
+    public void add(long key, int count) {
+        add(key, count, 0);
+    }
+
+    public int count(long key) {
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public double sum(long key) {
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? 0 : sums[slot];
+    }
+
+    public boolean contains(long key) {
+        return key >= 0 && keys[slot(key)] != EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有条目，顺序不确定
+     */
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(keys[i], counts[i], sums[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[capacity];
+        sums = new double[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        double[] oldSums = sums;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                sums[slot] = oldSums[i];
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.novelassistant.util;
 
 import com.novelassistant.entity.User;
 import com.novelassistant.repository.UserRepository;
+import com.novelassistant.security.services.UserDetailsImpl;
 import com.novelassistant.service.SystemLogService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
@@ -168,6 +169,10 @@ public class SystemLogAspect {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             if (authentication != null && authentication.isAuthenticated() && 
                     !"anonymousUser".equals(authentication.getPrincipal())) {
+                // JWT认证的主体已包含用户ID，无需再查询数据库
+                if (authentication.getPrincipal() instanceof UserDetailsImpl) {
+                    return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+                }
                 String username = authentication.getName();
                 
                 // 通过用户名从数据库查找用户ID
@@ -0,0 +1,67 @@
+package com.novelassistant.util;
+
+/**
+ * 稠密向量运算工具类
+ * 点积使用4路独立累加器展开循环，减少浮点加法的依赖链，便于JIT生成流水化/向量化的代码
+ */
+public class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * 计算两个向量的点积
+     *
+     * @param a 向量a
+     * @param b 向量b，长度与a相同
+     * @return 点积
+     */
+    public static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        int bound = length & ~3;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        double sum = (s0 + s1) + (s2 + s3);
+        for (; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 计算两个向量的余弦相似度
+     *
+     * @return 余弦相似度，任一向量为零向量时返回0
+     */
+    public static double cosine(float[] a, float[] b) {
+        double normA = dot(a, a);
+        double normB = dot(b, b);
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        return dot(a, b) / Math.sqrt(normA * normB);
+    }
+
+    /**
+     * 将向量原地归一化为单位长度，归一化后的向量之间余弦相似度等于点积
+     *
+     * @param vector 向量
+     * @return 归一化前的向量长度
+     */
+    public static double normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        if (norm > 0) {
+            float scale = (float) (1.0 / norm);
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return norm;
+    }
+}
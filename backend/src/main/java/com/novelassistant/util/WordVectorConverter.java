@@ -0,0 +1,204 @@
+package com.novelassistant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 词向量格式转换工具
+ * 先用 {@link WordVectorCleaner} 清理文本格式的词向量文件，再转换为可内存映射的二进制格式，
+ * 由 {@link MappedWordVectors} 读取
+ */
+public class WordVectorConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WordVectorConverter.class);
+
+    private WordVectorConverter() {
+    }
+
+    /**
+     * 将文本格式的词向量文件转换为二进制格式
+     * 重复出现的词只保留第一次出现的向量；输出先写入临时文件，完成后再替换目标文件
+     *
+     * @param textFile 文本格式的词向量文件（word2vec文本格式，首行为"词数 维度"）
+     * @param binaryFile 输出的二进制文件
+     * @return 转换的词向量数量
+     * @throws IOException 读写文件失败时抛出
+     */
+    public static int convert(Path textFile, Path binaryFile) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Path parent = binaryFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path cleanedFile = Files.createTempFile(parent, "word-vectors-cleaned", ".txt");
+        Path vectorFile = Files.createTempFile(parent, "word-vectors-data", ".tmp");
+        Path outputFile = Files.createTempFile(parent, "word-vectors", ".tmp");
+        try {
+            // 1. 清理格式错误、维度不一致的行
+            int cleaned = WordVectorCleaner.cleanWordVectorFile(textFile.toString(), cleanedFile.toString());
+            if (cleaned == 0) {
+                throw new IOException("词向量文件中没有有效的向量: " + textFile);
+            }
+
+            // 2. 逐行解析，向量直接写入临时文件，内存中只保留词表
+            List<String> words = new ArrayList<>();
+            int dimension = writeVectors(cleanedFile, vectorFile, words);
+
+            // 3. 写入文件头、词表、哈希表，再追加向量数据
+            writeBinary(outputFile, vectorFile, words, dimension);
+            Files.move(outputFile, binaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            logger.info("词向量转换完成: {} -> {}，词数: {}，维度: {}，耗时: {} 秒", textFile, binaryFile,
+                    words.size(), dimension, (System.currentTimeMillis() - startTime) / 1000.0);
+            return words.size();
+        } finally {
+            Files.deleteIfExists(cleanedFile);
+            Files.deleteIfExists(vectorFile);
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    /**
+     * 解析清理后的文本文件，将向量按小端序float写入数据文件
+     *
+     * @return 向量维度
+     */
+    private static int writeVectors(Path cleanedFile, Path vectorFile, List<String> words) throws IOException {
+        Set<String> seen = new HashSet<>();
+        int dimension = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(cleanedFile, StandardCharsets.UTF_8);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(vectorFile), 1 << 16)) {
+
+            String header = reader.readLine();
+            if (header != null) {
+                String[] parts = header.trim().split("\\s+");
+                if (parts.length == 2) {
+                    dimension = Integer.parseInt(parts[1]);
+                }
+            }
+
+            ByteBuffer row = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int firstSpace = line.indexOf(' ');
+                String word = line.substring(0, firstSpace);
+                String[] values = line.substring(firstSpace + 1).trim().split("\\s+");
+                if (dimension == 0) {
+                    dimension = values.length;
+                }
+                if (values.length != dimension || !seen.add(word)) {
+                    continue;
+                }
+
+                if (row == null) {
+                    row = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                row.clear();
+                for (String value : values) {
+                    row.putFloat(Float.parseFloat(value));
+                }
+                output.write(row.array(), 0, row.position());
+                words.add(word);
+            }
+        }
+        return dimension;
+    }
+
+    /**
+     * 写入二进制文件
+     */
+    private static void writeBinary(Path outputFile, Path vectorFile, List<String> words, int dimension) throws IOException {
+        int size = words.size();
+        int tableSize = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+
+        // 词表：偏移数组 + UTF-8字节
+        int[] wordOffsets = new int[size + 1];
+        ByteArrayOutputStream wordBytes = new ByteArrayOutputStream();
+        for (int i = 0; i < size; i++) {
+            byte[] bytes = words.get(i).getBytes(StandardCharsets.UTF_8);
+            wordBytes.write(bytes, 0, bytes.length);
+            wordOffsets[i + 1] = wordBytes.size();
+        }
+
+        // 开放寻址哈希表，存放词序号+1
+        int[] table = new int[tableSize];
+        for (int i = 0; i < size; i++) {
+            int slot = (int) (MappedWordVectors.slotHash(words.get(i)) & (tableSize - 1));
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = i + 1;
+        }
+
+        long wordsOffset = MappedWordVectors.HEADER_SIZE;
+        long tableOffset = align(wordsOffset + (long) (size + 1) * Integer.BYTES + wordBytes.size());
+        long vectorsOffset = align(tableOffset + (long) tableSize * Integer.BYTES);
+
+        ByteBuffer index = ByteBuffer.allocate((int) vectorsOffset).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(MappedWordVectors.MAGIC)
+             .putInt(MappedWordVectors.VERSION)
+             .putInt(size)
+             .putInt(dimension)
+             .putInt(tableSize)
+             .putInt(0)
+             .putLong(wordsOffset)
+             .putLong(tableOffset)
+             .putLong(vectorsOffset);
+        for (int offset : wordOffsets) {
+            index.putInt(offset);
+        }
+        index.put(wordBytes.toByteArray());
+        index.position((int) tableOffset);
+        for (int entry : table) {
+            index.putInt(entry);
+        }
+        index.position(0);
+
+        try (FileChannel output = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel vectors = FileChannel.open(vectorFile, StandardOpenOption.READ)) {
+            while (index.hasRemaining()) {
+                output.write(index);
+            }
+            long position = 0;
+            long total = vectors.size();
+            while (position < total) {
+                position += vectors.transferTo(position, total - position, output);
+            }
+            output.force(true);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * 主方法，可以直接运行此工具类进行格式转换
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法: java com.novelassistant.util.WordVectorConverter <文本词向量文件> <输出二进制文件>");
+            return;
+        }
+
+        int count = convert(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("转换完成，共 " + count + " 个词向量。");
+    }
+}
@@ -0,0 +1,113 @@
+package com.novelassistant.service.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 章节页面磁盘缓存测试
+ */
+public class ChapterPageCacheTest {
+
+    private Path directory;
+    private ChapterPageCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("chapter-cache");
+        cache = new ChapterPageCache(directory, 1024 * 1024);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        String url = "https://www.biq03.cc/book/1/1.html";
+        String content = "第一章 开始\n\n" + "正文".repeat(50000);
+        cache.put(url, "\"abc\"", "Mon, 01 Jan 2024 00:00:00 GMT", content);
+
+        ChapterPageCache.Entry entry = cache.get(url);
+        assertNotNull(entry);
+        assertEquals("\"abc\"", entry.getEtag());
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", entry.getLastModified());
+        assertEquals(content, entry.getContent(), "超过64KB的内容应完整保存");
+
+        assertNull(cache.get("https://www.biq03.cc/book/1/2.html"));
+    }
+
+    @Test
+    public void testOverwriteAndMissingValidators() throws IOException {
+        String url = "https://www.biq03.cc/book/1/1.html";
+        cache.put(url, "\"v1\"", null, "旧内容");
+        cache.put(url, null, null, "新内容");
+
+        ChapterPageCache.Entry entry = cache.get(url);
+        assertEquals("新内容", entry.getContent());
+        assertNull(entry.getEtag());
+        assertNull(entry.getLastModified());
+
+        cache.remove(url);
+        assertNull(cache.get(url));
+    }
+
+    @Test
+    public void testCorruptedEntryIsIgnored() throws IOException {
+        String url = "https://www.biq03.cc/book/1/1.html";
+        cache.put(url, "\"v1\"", null, "章节内容");
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Path file = paths.filter(path -> path.toString().endsWith(".bin")).findFirst().orElseThrow();
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length / 2));
+        }
+
+        assertNull(cache.get(url), "不完整的缓存文件应按未缓存处理");
+    }
+
+    @Test
+    public void testCorruptedLengthIsRejected() throws IOException {
+        String url = "https://www.biq03.cc/book/1/1.html";
+        cache.put(url, null, null, "章节内容");
+        Path file;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            file = paths.filter(path -> path.toString().endsWith(".bin")).findFirst().orElseThrow();
+        }
+        // 按文件格式写入一个远大于文件本身的内容长度
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(file))) {
+            output.writeInt(0x4E414350);
+            output.writeInt(2);
+            output.writeUTF(url);
+            output.writeBoolean(false);
+            output.writeBoolean(false);
+            output.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertNull(cache.get(url), "内容长度与文件大小不符时应按未缓存处理，而不是分配超大数组");
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBeyondLimit() throws IOException {
+        ChapterPageCache small = new ChapterPageCache(directory.resolve("small"), 10 * 1024);
+        String chapter = "正".repeat(1500);
+        for (int i = 1; i <= 5; i++) {
+            small.put("https://www.biq03.cc/book/1/" + i + ".html", null, null, chapter + i);
+        }
+
+        assertNull(small.get("https://www.biq03.cc/book/1/1.html"), "超出总大小上限时应淘汰最早的章节");
+        assertNotNull(small.get("https://www.biq03.cc/book/1/5.html"));
+        assertTrue(((Number) small.getStats().get("totalBytes")).longValue() <= 10 * 1024);
+    }
+}
@@ -0,0 +1,151 @@
+package com.novelassistant.service.crawler;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发章节抓取器测试，使用本地HTTP服务模拟章节页面
+ */
+public class ConcurrentChapterFetcherTest {
+
+    private static final int CHAPTER_COUNT = 20;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Map<Integer, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/chapter/", exchange -> {
+            int number = Integer.parseInt(exchange.getRequestURI().getPath().substring("/chapter/".length()));
+            int attempt = requestCounts.computeIfAbsent(number, key -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // 随机延迟，让后面的章节可能先完成
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5, 40));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            // 第5章第一次请求失败，第7章总是失败
+            int status = (number == 5 && attempt == 1) || number == 7 ? 500 : 200;
+            byte[] body = ("<html><body><div id=\"chaptercontent\">第" + number + "章内容</div></body></html>")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFetchInOrderWithRetry() throws Exception {
+        ConcurrentChapterFetcher fetcher = new ConcurrentChapterFetcher(executor,
+                new HostRateLimiter(1000, 10), 4, 3, 10);
+
+        List<Integer> indexes = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        int delivered = fetcher.fetchInOrder(chapterUrls(), 0, this::fetchPage, (index, content) -> {
+            indexes.add(index);
+            contents.add(content);
+        });
+
+        assertEquals(CHAPTER_COUNT, delivered);
+        for (int i = 0; i < CHAPTER_COUNT; i++) {
+            assertEquals(i, indexes.get(i), "章节应按顺序交付");
+        }
+        assertEquals("第5章内容", contents.get(4), "第一次失败的章节应重试成功");
+        assertNull(contents.get(6), "重试后仍失败的章节内容应为null");
+        assertEquals(3, requestCounts.get(7).get());
+        assertTrue(maxInFlight.get() <= 4, "同时进行中的请求数不应超过窗口大小: " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "请求应并发执行");
+    }
+
+    @Test
+    public void testResumeFromIndex() throws Exception {
+        ConcurrentChapterFetcher fetcher = new ConcurrentChapterFetcher(executor,
+                new HostRateLimiter(1000, 10), 4, 1, 0);
+
+        List<Integer> indexes = new ArrayList<>();
+        int delivered = fetcher.fetchInOrder(chapterUrls(), 15, this::fetchPage, (index, content) -> indexes.add(index));
+
+        assertEquals(5, delivered);
+        assertEquals(List.of(15, 16, 17, 18, 19), indexes);
+        assertNull(requestCounts.get(1), "起始下标之前的章节不应请求");
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        // 每秒20个请求，突发2个：20个章节至少需要 (20 - 2) / 20 秒
+        ConcurrentChapterFetcher fetcher = new ConcurrentChapterFetcher(executor,
+                new HostRateLimiter(20, 2), 8, 1, 0);
+
+        long startTime = System.nanoTime();
+        fetcher.fetchInOrder(chapterUrls(), 0, this::fetchPage, (index, content) -> { });
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertTrue(elapsedMs >= 850, "请求速率应受令牌桶限制，实际耗时: " + elapsedMs + "ms");
+    }
+
+    @Test
+    public void testConsumerFailureStopsFetching() {
+        ConcurrentChapterFetcher fetcher = new ConcurrentChapterFetcher(executor,
+                new HostRateLimiter(1000, 10), 2, 1, 0);
+
+        assertThrows(IllegalStateException.class, () ->
+                fetcher.fetchInOrder(chapterUrls(), 0, this::fetchPage, (index, content) -> {
+                    if (index == 3) {
+                        throw new IllegalStateException("停止");
+                    }
+                }));
+        assertTrue(requestCounts.size() < CHAPTER_COUNT, "接收方失败后不应继续抓取所有章节");
+    }
+
+    private List<String> chapterUrls() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 1; i <= CHAPTER_COUNT; i++) {
+            urls.add(baseUrl + "/chapter/" + i);
+        }
+        return urls;
+    }
+
+    private String fetchPage(String url) throws IOException {
+        return Jsoup.connect(url).timeout(5000).get().selectFirst("div#chaptercontent").text();
+    }
+}
@@ -0,0 +1,82 @@
+package com.novelassistant.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.novelassistant.entity.NovelGazetteer;
+import com.novelassistant.repository.NovelGazetteerRepository;
+import com.novelassistant.util.NameGazetteer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 人名词典服务测试：补充时与已保存的人名合并，超过上限时丢弃权重最低的
+ */
+public class NameGazetteerServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private NovelGazetteerRepository repository;
+    private NameGazetteerServiceImpl service;
+
+    // 模拟数据库中novel_gazetteers的一行
+    private NovelGazetteer stored;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(NovelGazetteerRepository.class);
+        when(repository.findByNovelId(1L)).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(repository.upsert(eq(1L), anyInt(), anyString())).thenAnswer(invocation -> {
+            stored = new NovelGazetteer(1L);
+            stored.setNameCount(invocation.getArgument(1));
+            stored.setNamesJson(invocation.getArgument(2));
+            return 1;
+        });
+
+        service = new NameGazetteerServiceImpl();
+        ReflectionTestUtils.setField(service, "gazetteerRepository", repository);
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    }
+
+    @Test
+    public void testSeedMergesWithStoredNames() throws Exception {
+        service.seed(1L, List.of("张三", "李四", "主角", "王"));
+        service.seed(1L, List.of("王五", "李四"));
+
+        Map<String, Integer> weights = storedWeights();
+        // 第一次排第一的张三保留，李四取两次中较高的权重，无效的人名不写入
+        assertEquals(Map.of("张三", 200, "李四", 199, "王五", 200), weights);
+        assertEquals(3, stored.getNameCount());
+
+        NameGazetteer gazetteer = service.get(1L);
+        assertTrue(gazetteer.contains("张三"));
+        assertTrue(gazetteer.contains("王五"));
+    }
+
+    @Test
+    public void testSeedTrimsLowestWeightsBeyondMaxNames() throws Exception {
+        ReflectionTestUtils.setField(service, "maxNames", 3);
+        service.seed(1L, List.of("张三", "李四", "王五"));
+        service.seed(1L, List.of("赵六"));
+
+        Map<String, Integer> weights = storedWeights();
+        assertEquals(3, weights.size());
+        assertEquals(Map.of("张三", 200, "赵六", 200, "李四", 199), weights);
+        assertFalse(service.get(1L).contains("王五"));
+    }
+
+    private Map<String, Integer> storedWeights() throws Exception {
+        return objectMapper.readValue(stored.getNamesJson(), new TypeReference<Map<String, Integer>>() {});
+    }
+}
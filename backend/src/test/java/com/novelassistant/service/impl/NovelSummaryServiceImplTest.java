@@ -0,0 +1,175 @@
+package com.novelassistant.service.impl;
+
+import com.novelassistant.model.HierarchicalSummary;
+import com.novelassistant.model.HierarchicalSummary.Node;
+import com.novelassistant.repository.ChapterRepository;
+import com.novelassistant.repository.visualization.EmotionalDataRepository;
+import com.novelassistant.util.ApplicationContextProvider;
+import com.novelassistant.util.ChineseNameDictionary;
+import com.novelassistant.util.LexiconRegistry;
+import com.novelassistant.util.SegmentationCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分层摘要测试：层级划分、章节摘要解析和摘要句子顺序
+ */
+public class NovelSummaryServiceImplTest {
+
+    private static final String[] NAMES = {"张三", "李四", "王五"};
+
+    private AnnotationConfigApplicationContext context;
+    private HanlpNlpServiceImpl nlpService;
+
+    @BeforeEach
+    public void setUp() {
+        // 人物识别通过ApplicationContextProvider获取姓名词典
+        context = new AnnotationConfigApplicationContext(ChineseNameDictionary.class);
+        new ApplicationContextProvider().setApplicationContext(context);
+        nlpService = new HanlpNlpServiceImpl(null, new SegmentationCache(), new LexiconRegistry(), null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testLevelSizesAndChapterRanges() {
+        List<Object[]> outline = new ArrayList<>();
+        for (int chapter = 1; chapter <= 25; chapter++) {
+            String name = NAMES[chapter % NAMES.length];
+            outline.add(new Object[]{chapter, "第" + chapter + "章",
+                    "【日常】" + name + "在第" + chapter + "章里赶路。 主要角色：" + name});
+        }
+        ChapterRepository chapterRepository = mock(ChapterRepository.class);
+        when(chapterRepository.findOutlineByNovelId(anyLong(), any(Pageable.class))).thenReturn(outline);
+        EmotionalDataRepository emotionalDataRepository = mock(EmotionalDataRepository.class);
+        when(emotionalDataRepository.findByNovelIdOrderByChapterNumberAsc(anyLong())).thenReturn(Collections.emptyList());
+
+        NovelSummaryServiceImpl service = new NovelSummaryServiceImpl();
+        ReflectionTestUtils.setField(service, "chapterRepository", chapterRepository);
+        ReflectionTestUtils.setField(service, "emotionalDataRepository", emotionalDataRepository);
+        ReflectionTestUtils.setField(service, "nlpService", nlpService);
+        ReflectionTestUtils.setField(service, "arcSize", 3);
+
+        HierarchicalSummary summary = service.summarize(1L, List.of("张三", "赵六"));
+        List<List<Node>> levels = summary.getLevels();
+
+        // 25章 -> 9个情节段 -> 3个节点，不超过一组后停止合并
+        assertEquals(3, levels.size());
+        assertEquals(25, levels.get(0).size());
+        assertEquals(9, levels.get(1).size());
+        assertEquals(3, levels.get(2).size());
+        assertSame(levels.get(1), summary.getArcs());
+
+        assertRange(levels.get(1).get(0), 1, 3);
+        assertRange(levels.get(1).get(8), 25, 25);
+        assertRange(levels.get(2).get(0), 1, 9);
+        assertRange(levels.get(2).get(1), 10, 18);
+        assertRange(levels.get(2).get(2), 19, 25);
+
+        // 每一级都按顺序连续覆盖全部章节
+        for (List<Node> level : levels) {
+            int next = 1;
+            for (Node node : level) {
+                assertEquals(next, node.getStartChapter());
+                assertTrue(node.getEndChapter() >= node.getStartChapter());
+                next = node.getEndChapter() + 1;
+            }
+            assertEquals(26, next);
+        }
+
+        // 章节节点的摘要已去掉类型标记和人物说明
+        assertEquals("张三在第3章里赶路。", levels.get(0).get(2).getSummary());
+
+        assertArrayEquals(new int[]{3, 24, 8}, summary.getCharacterAppearances().get("张三"));
+        assertFalse(summary.getCharacterAppearances().containsKey("赵六"));
+        assertNotNull(summary.getOverallSummary());
+        assertTrue(summary.getPlotProgressionSummary().contains("阶段1（1-3）"));
+    }
+
+    @Test
+    public void testParseGeneratedSummary() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("张三提着长剑走进城门，李四在茶楼上远远地望着他。")
+                    .append("王五告诉张三，城里的守卫已经换了第").append(i + 1).append("批。")
+                    .append("夜色渐深，张三和李四在客栈里商量明天的行动。");
+        }
+        String generated = nlpService.generateSummary(text.toString(), 300);
+        assertTrue(generated.contains(" 主要角色："), generated);
+
+        NovelSummaryServiceImpl.ChapterDigest digest = NovelSummaryServiceImpl.ChapterDigest.parse(7, generated, 0.8, true);
+
+        assertEquals(7, digest.chapterNumber);
+        assertFalse(digest.text.isEmpty());
+        assertFalse(digest.text.contains("【"), digest.text);
+        assertFalse(digest.text.contains("主要角色"), digest.text);
+        assertFalse(digest.text.contains("关键词"), digest.text);
+        assertFalse(digest.text.contains("本章氛围"), digest.text);
+        assertTrue(generated.contains(digest.text));
+        assertFalse(digest.characters.isEmpty());
+        assertTrue(digest.characters.contains("张三"), digest.characters.toString());
+        for (String character : digest.characters) {
+            assertTrue(generated.contains(character));
+            assertFalse(character.contains(" "));
+        }
+        assertNotNull(digest.sentenceMentioning("张三"));
+
+        // generateSummary附加的各部分
+        NovelSummaryServiceImpl.ChapterDigest decorated = NovelSummaryServiceImpl.ChapterDigest.parse(1,
+                "【战斗】张三拔剑。李四后退。 本章氛围紧张压抑。 主要角色：张三、李四 关键词：剑、城", 0.2, false);
+        assertEquals("张三拔剑。李四后退。", decorated.text);
+        assertEquals(List.of("张三", "李四"), decorated.characters);
+        assertEquals("李四后退。", decorated.sentenceMentioning("李四"));
+        assertNull(decorated.sentenceMentioning("王五"));
+    }
+
+    @Test
+    public void testSummarizeSentencesKeepsOrder() {
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            sentences.add(NAMES[i % NAMES.length] + "在第" + (i + 1) + "天到达了" + (i % 2 == 0 ? "北方的城池" : "南方的村庄"));
+        }
+
+        String summary = nlpService.summarizeSentences(sentences, 200);
+
+        assertTrue(summary.length() <= 200);
+        int previous = -1;
+        int selected = 0;
+        for (String sentence : summary.split("。")) {
+            if (sentence.isEmpty()) {
+                continue;
+            }
+            int index = sentences.indexOf(sentence);
+            assertTrue(index >= 0, sentence);
+            assertTrue(index > previous, "摘要句子未按原文顺序排列: " + summary);
+            previous = index;
+            selected++;
+        }
+        assertTrue(selected >= 2, summary);
+
+        // 不超过长度上限时原样拼接
+        assertEquals("张三出发。李四到了！", nlpService.summarizeSentences(List.of("张三出发", "【插图】", "李四到了！"), 200));
+    }
+
+    private static void assertRange(Node node, int start, int end) {
+        assertEquals(start, node.getStartChapter());
+        assertEquals(end, node.getEndChapter());
+    }
+}
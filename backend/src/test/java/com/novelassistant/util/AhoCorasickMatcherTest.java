@@ -0,0 +1,76 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Aho-Corasick多模式匹配测试
+ */
+public class AhoCorasickMatcherTest {
+
+    @Test
+    public void testReportsOverlappingHitsWithOffsets() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.builder()
+                .add("theme", "探险")
+                .add("theme", "探险家")
+                .add("emotion", "险", -1)
+                .add("emotion", "高兴", 2)
+                .build();
+
+        List<String> hits = new ArrayList<>();
+        matcher.scan("他是探险家，很高兴", (start, entry) -> {
+            hits.add(start + ":" + entry.getWord() + ":" + entry.getCategory());
+            return true;
+        });
+
+        assertEquals(List.of("2:探险:theme", "3:险:emotion", "2:探险家:theme", "7:高兴:emotion"), hits);
+    }
+
+    @Test
+    public void testCountsAndLookup() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.builder()
+                .addAll("plot", "突然", "然而", "却")
+                .add("emotion", "高兴", 2)
+                .add("emotion", "高兴", 3)
+                .build();
+
+        String text = "突然下起雨，然而他却很高兴。突然";
+        Map<String, Integer> byCategory = matcher.countByCategory(text);
+        assertEquals(4, byCategory.get("plot"));
+        assertEquals(1, byCategory.get("emotion"));
+        assertEquals(2, matcher.countByWord(text, "plot").get("突然"));
+
+        assertTrue(matcher.containsCategory(text, "emotion"));
+        assertFalse(matcher.containsCategory("阴天", "plot"));
+
+        assertEquals(2, matcher.find("高兴", "emotion").getValue(), "同一分类中重复的词以先添加的为准");
+        assertNull(matcher.find("高", "emotion"));
+        assertNull(matcher.find("高兴", "plot"));
+        assertEquals(4, matcher.size());
+    }
+
+    @Test
+    public void testMatchesSameResultsAsIndexOf() {
+        String[] words = {"他", "他们", "们的", "的", "战斗", "斗争", "争夺", "夺"};
+        AhoCorasickMatcher.Builder builder = AhoCorasickMatcher.builder();
+        for (String word : words) {
+            builder.add("w", word);
+        }
+        AhoCorasickMatcher matcher = builder.build();
+
+        String text = "他们的战斗争夺了他的一切，他们斗争到最后";
+        Map<String, Integer> counts = matcher.countByWord(text, "w");
+        for (String word : words) {
+            int expected = 0;
+            for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+                expected++;
+            }
+            assertEquals(expected, counts.getOrDefault(word, 0).intValue(), word);
+        }
+    }
+}
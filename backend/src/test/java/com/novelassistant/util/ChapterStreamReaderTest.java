@@ -0,0 +1,73 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按章节流式读取测试
+ */
+public class ChapterStreamReaderTest {
+
+    private static List<String> readAll(String text, int maxChapterLength) throws Exception {
+        List<String> chapters = new ArrayList<>();
+        try (ChapterStreamReader reader = new ChapterStreamReader(new StringReader(text), maxChapterLength)) {
+            String chapter;
+            while ((chapter = reader.nextChapter()) != null) {
+                chapters.add(chapter);
+            }
+        }
+        return chapters;
+    }
+
+    @Test
+    public void testSplitsOnHeadingsAndDropsPreamble() throws Exception {
+        String text = "某某小说\r\n作者：张三\r\n简介：一个少年的故事。\r\n\r\n"
+                + "第一章 出山\r\n张三下山了。\r\n"
+                + "第二章 入城\r\n张三进了城。\r\n"
+                + "番外 旧事\r\n很久以前。";
+
+        List<String> chapters = readAll(text, 1000);
+
+        // 第一个章节标题之前的前言不作为章节，与全文检测章节时一致
+        assertEquals(List.of(
+                "第一章 出山\n张三下山了。\n",
+                "第二章 入城\n张三进了城。\n",
+                "番外 旧事\n很久以前。\n"), chapters);
+    }
+
+    @Test
+    public void testTextWithoutHeadingsIsSplitAtLineBoundaries() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 80; i++) {
+            text.append("这一行没有章节标题，只是普通的正文内容，用来凑够长度。").append(i).append('\n');
+        }
+
+        List<String> chapters = readAll(text.toString(), 1000);
+
+        assertTrue(chapters.size() > 1);
+        assertEquals(text.toString(), String.join("", chapters));
+        for (String chapter : chapters) {
+            assertTrue(chapter.length() <= 1000);
+            assertTrue(chapter.endsWith("\n"));
+        }
+    }
+
+    @Test
+    public void testLongPreambleIsKeptAsText() throws Exception {
+        StringBuilder preamble = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            preamble.append("前言部分很长，超过了单章长度上限，按无标题文本分段输出。").append('\n');
+        }
+        String text = preamble + "第一章 开始\n正文。\n";
+
+        List<String> chapters = readAll(text, 1000);
+
+        assertEquals("第一章 开始\n正文。\n", chapters.get(chapters.size() - 1));
+        assertEquals(text, String.join("", chapters));
+    }
+}
@@ -0,0 +1,65 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对话扫描器测试
+ */
+public class DialogueScannerTest {
+
+    @Test
+    public void testResolvesSpeakersFromLeadingAndTrailingAttribution() {
+        String text = "张三说：“你好啊。”李四点点头，“好久不见。”“最近怎么样？”王五笑道。"
+                + "“走吧”，赵六对着钱七说。孙八冷笑了一声道：「不行」";
+        List<DialogueScanner.Span> spans = DialogueScanner.scan(text);
+
+        assertEquals(5, spans.size());
+        assertSpan(text, spans.get(0), "你好啊。", "张三", DialogueScanner.Attribution.LEADING);
+        assertSpan(text, spans.get(1), "好久不见。", "李四", DialogueScanner.Attribution.LEADING);
+        assertSpan(text, spans.get(2), "最近怎么样？", "王五", DialogueScanner.Attribution.TRAILING);
+        assertSpan(text, spans.get(3), "走吧", "赵六", DialogueScanner.Attribution.TRAILING);
+        assertEquals("钱七", spans.get(3).getListener());
+        assertSpan(text, spans.get(4), "不行", "孙八", DialogueScanner.Attribution.LEADING);
+    }
+
+    @Test
+    public void testFallsBackToContextAndSkipsQuotedTerms() {
+        String text = "他看着她，眼里满是期待。“你终于来了”\n书上写着“神”字。";
+        List<DialogueScanner.Span> spans = DialogueScanner.scan(text);
+
+        assertEquals(1, spans.size());
+        assertSpan(text, spans.get(0), "你终于来了", "他", DialogueScanner.Attribution.CONTEXT);
+
+        String english = "窗外下着雨。\"英文引号\"";
+        spans = DialogueScanner.scan(english);
+        assertEquals(1, spans.size());
+        assertSpan(english, spans.get(0), "英文引号", null, DialogueScanner.Attribution.NONE);
+        assertEquals(-1, spans.get(0).getSpeakerStart());
+    }
+
+    @Test
+    public void testUnclosedQuoteRestartsAtNextOpeningQuote() {
+        String text = "张三说：“第一段还没有说完\n“第二段才结束。”";
+        List<DialogueScanner.Span> spans = DialogueScanner.scan(text);
+
+        assertEquals(1, spans.size());
+        assertSpan(text, spans.get(0), "第二段才结束。", "张三", DialogueScanner.Attribution.LEADING);
+        assertEquals(text.lastIndexOf('“'), spans.get(0).getStart());
+        assertEquals(text.length(), spans.get(0).getEnd());
+    }
+
+    private static void assertSpan(String text, DialogueScanner.Span span, String content, String speaker,
+                                   DialogueScanner.Attribution attribution) {
+        assertEquals(content, span.getContent());
+        assertEquals(content, text.substring(span.getContentStart(), span.getContentEnd()));
+        assertEquals(speaker, span.getSpeaker());
+        if (speaker != null) {
+            assertEquals(speaker, text.substring(span.getSpeakerStart(), span.getSpeakerEnd()));
+        }
+        assertEquals(attribution, span.getAttribution());
+    }
+}
@@ -0,0 +1,81 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 磁盘LRU缓存测试
+ */
+public class DiskLruCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("disk-lru");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        DiskLruCache cache = new DiskLruCache(directory, 250);
+        cache.put("a", output -> output.write(new byte[100]));
+        cache.put("b", output -> output.write(new byte[100]));
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", output -> output.write(new byte[100]));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"), "最久未访问的文件应被淘汰");
+        assertNotNull(cache.get("c"));
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(200L, stats.get("totalBytes"));
+        assertEquals(1L, stats.get("evictions"));
+    }
+
+    @Test
+    public void testOversizedEntryIsKeptAndIndexSurvivesRestart() throws IOException {
+        DiskLruCache cache = new DiskLruCache(directory, 50);
+        cache.put("small", output -> output.write(new byte[10]));
+        Path large = cache.put("large", output -> output.write(new byte[100]));
+
+        assertTrue(Files.exists(large), "刚写入的文件即使超过上限也不淘汰");
+        assertNull(cache.get("small"));
+
+        Files.write(directory.resolve("leftover.tmp"), new byte[]{1});
+        DiskLruCache reopened = new DiskLruCache(directory, 500);
+        assertEquals(large, reopened.get("large"));
+        assertEquals(1, reopened.getStats().get("entries"));
+        assertFalse(Files.exists(directory.resolve("leftover.tmp")), "未写完的临时文件应在启动时删除");
+    }
+
+    @Test
+    public void testFailedWriteLeavesNoEntry() throws IOException {
+        DiskLruCache cache = new DiskLruCache(directory, 500);
+        assertThrows(IOException.class, () -> cache.put("broken", output -> {
+            output.write(new byte[10]);
+            throw new IOException("渲染失败");
+        }));
+
+        assertNull(cache.get("broken"));
+        try (Stream<Path> paths = Files.list(directory)) {
+            assertEquals(0, paths.count());
+        }
+    }
+}
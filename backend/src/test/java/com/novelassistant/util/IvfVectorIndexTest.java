@@ -0,0 +1,143 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IVF向量索引测试
+ */
+public class IvfVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int SIZE = 4000;
+    private static final int K = 10;
+
+    @Test
+    public void testRecallAgainstBruteForce() {
+        Random random = new Random(42);
+        float[][] vectors = clusteredVectors(random, SIZE, 40);
+        IvfVectorIndex index = new IvfVectorIndex(DIMENSION);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, i % 7, vectors[i]);
+        }
+        index.train(64, 7);
+        assertEquals(64, index.listCount());
+
+        double recall = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            int queryId = random.nextInt(SIZE);
+            Set<Long> expected = bruteForce(vectors, vectors[queryId], queryId);
+            Set<Long> actual = index.search(vectors[queryId], K, 8, null, queryId).stream()
+                    .map(IvfVectorIndex.Hit::getId)
+                    .collect(Collectors.toSet());
+            expected.retainAll(actual);
+            recall += (double) expected.size() / K;
+        }
+        // int8量化加上只扫描8/64个列表，召回率应不低于90%
+        assertTrue(recall / queries >= 0.9, "recall@10 = " + recall / queries);
+    }
+
+    @Test
+    public void testFilteredSearchOnlyReturnsMatchingGroups() {
+        Random random = new Random(7);
+        float[][] vectors = clusteredVectors(random, SIZE, 40);
+        IvfVectorIndex index = new IvfVectorIndex(DIMENSION);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, i % 7, vectors[i]);
+        }
+        index.train(64, 7);
+
+        // 过滤条件很严格时扫描的列表数有上限，结果可以少于k个，但必须都满足条件
+        List<IvfVectorIndex.Hit> hits = index.search(vectors[0], K, 2, group -> group == 3, 0);
+        assertTrue(hits.size() <= K);
+        assertTrue(hits.stream().allMatch(hit -> hit.getGroup() == 3));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+        }
+    }
+
+    @Test
+    public void testRoundTripKeepsSearchResults() throws Exception {
+        Random random = new Random(3);
+        float[][] vectors = clusteredVectors(random, 500, 10);
+        IvfVectorIndex index = new IvfVectorIndex(DIMENSION);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, 1, vectors[i]);
+        }
+        index.train(16, 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        IvfVectorIndex restored = IvfVectorIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(index.size(), restored.size());
+        assertEquals(index.listCount(), restored.listCount());
+        List<Long> before = index.search(vectors[5], K, 4, null, 5).stream().map(IvfVectorIndex.Hit::getId).collect(Collectors.toList());
+        List<Long> after = restored.search(vectors[5], K, 4, null, 5).stream().map(IvfVectorIndex.Hit::getId).collect(Collectors.toList());
+        assertEquals(before, after);
+    }
+
+    private static Set<Long> bruteForce(float[][] vectors, float[] query, int excludeId) {
+        return IntStream.range(0, vectors.length)
+                .filter(i -> i != excludeId)
+                .boxed()
+                .sorted((a, b) -> Double.compare(VectorMath.dot(query, vectors[b]), VectorMath.dot(query, vectors[a])))
+                .limit(K)
+                .map(Integer::longValue)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * 生成围绕若干中心分布的单位向量
+     */
+    private static float[][] clusteredVectors(Random random, int size, int clusters) {
+        float[][] centers = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centers[c] = randomUnit(random, 1.0);
+        }
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            float[] noise = randomUnit(random, 0.4);
+            float[] center = centers[random.nextInt(clusters)];
+            float[] vector = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = center[d] + noise[d];
+            }
+            vectors[i] = normalize(vector);
+        }
+        return vectors;
+    }
+
+    private static float[] randomUnit(Random random, double length) {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        float[] unit = normalize(vector);
+        for (int d = 0; d < DIMENSION; d++) {
+            unit[d] *= (float) length;
+        }
+        return unit;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(VectorMath.dot(vector, vector));
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] /= (float) norm;
+        }
+        return vector;
+    }
+}
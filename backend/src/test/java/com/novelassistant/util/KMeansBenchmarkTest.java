@@ -0,0 +1,126 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K-means聚类性能测试
+ * 生成带簇结构的单位长度向量（模拟章节文档向量），在1万、2万、5万个向量上比较串行、
+ * 不同线程数的并行和mini-batch的耗时与误差。耗时较长，默认不执行：
+ * mvn test -Dtest=KMeansBenchmarkTest -Dkmeans.benchmark=true
+ * 可选 -Dkmeans.benchmark.sizes=10000,20000,50000 指定向量数
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "kmeans.benchmark", matches = "true")
+public class KMeansBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(KMeansBenchmarkTest.class);
+
+    private static final int DIMENSION = 300;
+    private static final int K = 16;
+
+    @Test
+    public void benchmarkScaling() throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> threadCounts = new TreeSet<>();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(processors);
+
+        // 预热JIT
+        new KMeans(K).setMetric(KMeans.Metric.COSINE).fit(generate(2000, DIMENSION, K, 1));
+
+        logger.info("维度: {}，簇数: {}，可用处理器: {}，线程数: {}", DIMENSION, K, processors, threadCounts);
+        for (String size : System.getProperty("kmeans.benchmark.sizes", "10000,20000,50000").split(",")) {
+            int n = Integer.parseInt(size.trim());
+            float[][] data = generate(n, DIMENSION, K, n);
+
+            Timing serial = run("串行", n, 1, data, new KMeans(K).setMetric(KMeans.Metric.COSINE).setParallel(false));
+            Timing fastest = serial;
+            for (int threads : threadCounts) {
+                Timing parallel = run("并行", n, threads, data, new KMeans(K).setMetric(KMeans.Metric.COSINE));
+                // 同一种子下并行与串行的分配结果一致
+                assertEquals(serial.inertia, parallel.inertia, serial.inertia * 1e-4);
+                if (parallel.millis < fastest.millis) {
+                    fastest = parallel;
+                }
+            }
+            Timing miniBatch = run("mini-batch", n, processors, data, new KMeans(K).setMetric(KMeans.Metric.COSINE)
+                    .setBatchSize(1024).setMaxIterations(500));
+
+            logger.info("{} 个向量: 并行最快加速比 {}，mini-batch加速比 {}，mini-batch误差比 {}", n,
+                    String.format("%.2f", serial.millis / fastest.millis),
+                    String.format("%.2f", serial.millis / miniBatch.millis),
+                    String.format("%.3f", miniBatch.inertia / serial.inertia));
+
+            assertTrue(miniBatch.inertia <= serial.inertia * 1.10,
+                    "mini-batch误差 " + miniBatch.inertia + "，完整k-means误差 " + serial.inertia);
+            if (processors > 1) {
+                assertTrue(fastest.millis < serial.millis,
+                        n + " 个向量并行耗时 " + fastest.millis + "ms，未快于串行 " + serial.millis + "ms");
+            }
+        }
+    }
+
+    /**
+     * 在指定线程数的ForkJoin线程池中执行聚类，并行分配使用调用方所在的线程池
+     */
+    private static Timing run(String name, int n, int threads, float[][] data, KMeans kMeans) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long startTime = System.nanoTime();
+            KMeans.Result result = pool.submit(() -> kMeans.fit(data)).get();
+            double millis = (System.nanoTime() - startTime) / 1e6;
+            logger.info("{} 个向量 [{}，{} 线程]: 耗时 {} ms，迭代 {} 次，平均误差 {}",
+                    n, name, threads, String.format("%.1f", millis), result.getIterations(),
+                    String.format("%.4f", result.getInertia() / n));
+            return new Timing(millis, result.getInertia());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 在k个随机方向附近生成单位长度向量
+     */
+    private static float[][] generate(int n, int dimension, int k, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[k][dimension];
+        for (float[] center : centers) {
+            for (int d = 0; d < dimension; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+            VectorMath.normalize(center);
+        }
+
+        float[][] data = new float[n][dimension];
+        for (int i = 0; i < n; i++) {
+            float[] center = centers[random.nextInt(k)];
+            for (int d = 0; d < dimension; d++) {
+                data[i][d] = center[d] + (float) (random.nextGaussian() * 0.05);
+            }
+            VectorMath.normalize(data[i]);
+        }
+        return data;
+    }
+
+    private static class Timing {
+        private final double millis;
+        private final double inertia;
+
+        Timing(double millis, double inertia) {
+            this.millis = millis;
+            this.inertia = inertia;
+        }
+    }
+}
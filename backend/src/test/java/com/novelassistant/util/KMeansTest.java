@@ -0,0 +1,72 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K-means聚类测试
+ * 用带簇结构的单位长度向量（模拟章节文档向量）比较串行、并行和mini-batch三种方式的结果
+ */
+public class KMeansTest {
+
+    private static final int DIMENSION = 64;
+    private static final int K = 8;
+    private static final int N = 6000;
+
+    @Test
+    public void testParallelMatchesSerial() {
+        float[][] data = generate(N, DIMENSION, K, 7);
+
+        KMeans.Result serial = new KMeans(K).setMetric(KMeans.Metric.COSINE).setParallel(false).fit(data);
+        KMeans.Result parallel = new KMeans(K).setMetric(KMeans.Metric.COSINE).fit(data);
+
+        assertArrayEquals(serial.getLabels(), parallel.getLabels());
+        assertEquals(serial.getInertia(), parallel.getInertia(), serial.getInertia() * 1e-4);
+    }
+
+    @Test
+    public void testMiniBatchInertiaCloseToFullKMeans() {
+        float[][] data = generate(N, DIMENSION, K, 11);
+
+        KMeans.Result full = new KMeans(K).setMetric(KMeans.Metric.COSINE).fit(data);
+        KMeans.Result miniBatch = new KMeans(K).setMetric(KMeans.Metric.COSINE)
+                .setBatchSize(1024).setMaxIterations(500).fit(data);
+
+        // mini-batch的误差与完整k-means相差不超过10%
+        assertTrue(miniBatch.getInertia() <= full.getInertia() * 1.10,
+                "mini-batch误差 " + miniBatch.getInertia() + "，完整k-means误差 " + full.getInertia());
+
+        assertEquals(N, miniBatch.getLabels().length);
+        for (int label : miniBatch.getLabels()) {
+            assertTrue(label >= 0 && label < K);
+        }
+        assertEquals(K, miniBatch.getCentroids().length);
+    }
+
+    /**
+     * 在k个随机方向附近生成单位长度向量
+     */
+    private static float[][] generate(int n, int dimension, int k, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[k][dimension];
+        for (float[] center : centers) {
+            for (int d = 0; d < dimension; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+            VectorMath.normalize(center);
+        }
+
+        float[][] data = new float[n][dimension];
+        for (int i = 0; i < n; i++) {
+            float[] center = centers[random.nextInt(k)];
+            for (int d = 0; d < dimension; d++) {
+                data[i][d] = center[d] + (float) (random.nextGaussian() * 0.05);
+            }
+            VectorMath.normalize(data[i]);
+        }
+        return data;
+    }
+}
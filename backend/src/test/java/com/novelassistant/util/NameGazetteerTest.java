@@ -0,0 +1,38 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 小说人名词典测试
+ */
+public class NameGazetteerTest {
+
+    @Test
+    public void testCountsLongestNonOverlappingMatches() {
+        NameGazetteer gazetteer = NameGazetteer.of(Map.of("张三", 5, "张三丰", 9, "李四", 3));
+
+        Map<String, Integer> counts = gazetteer.countMatches("张三丰对李四说，张三不在。李四点头。");
+        assertEquals(1, counts.get("张三丰"));
+        assertEquals(1, counts.get("张三"));
+        assertEquals(2, counts.get("李四"));
+        assertTrue(gazetteer.countMatches("王五来了").isEmpty());
+    }
+
+    @Test
+    public void testLookupAndRanking() {
+        NameGazetteer gazetteer = NameGazetteer.of(Map.of("张三", 5, "张三丰", 9, "李四", 3));
+
+        assertTrue(gazetteer.contains("张三丰"));
+        assertFalse(gazetteer.contains("张"));
+        assertEquals("张三丰", gazetteer.firstMatch("只见张三丰冷笑"));
+        assertNull(gazetteer.firstMatch("那人冷笑"));
+        assertEquals(List.of("张三丰", "张三", "李四"), new ArrayList<>(gazetteer.getWeights().keySet()));
+        assertEquals(3, gazetteer.size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.novelassistant.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 人物关系累计测试
+ */
+public class RelationshipAccumulatorTest {
+
+    @Test
+    public void testCountsSentenceWindowCooccurrence() {
+        RelationshipAccumulator accumulator = new RelationshipAccumulator();
+        List<String> names = Arrays.asList("张三", "张三丰", "李四", "王五");
+        // 窗口为2句：张三丰与李四相邻两句共现，与王五相隔两句不共现；“张三丰”中不计“张三”
+        accumulator.addSentenceWindow("张三丰出门。李四跟着他，李四很高兴。天黑了。王五来了。", names, 2);
+
+        int zhangSanFeng = accumulator.characterId("张三丰");
+        int liSi = accumulator.characterId("李四");
+        int wangWu = accumulator.characterId("王五");
+        int zhangSan = accumulator.characterId("张三");
+        assertEquals(1, accumulator.cooccurrences(zhangSanFeng, liSi));
+        assertEquals(1, accumulator.cooccurrences(liSi, zhangSanFeng));
+        assertEquals(0, accumulator.cooccurrences(zhangSanFeng, wangWu));
+        assertEquals(0, accumulator.cooccurrences(zhangSan, zhangSanFeng));
+    }
+
+    @Test
+    public void testMergeMatchesSingleAccumulation() {
+        RelationshipAccumulator whole = new RelationshipAccumulator();
+        whole.addDialogue("张三", Arrays.asList("李四"), 0.9, Arrays.asList("师父", "剑法"));
+        whole.addDialogue("李四", Arrays.asList("张三", "王五"), 0.3, Arrays.asList("剑法"));
+        whole.addDialogue("张三", Arrays.asList("李四"), 0.7, Arrays.asList("剑法"));
+
+        RelationshipAccumulator first = new RelationshipAccumulator();
+        first.addDialogue("张三", Arrays.asList("李四"), 0.9, Arrays.asList("师父", "剑法"));
+        RelationshipAccumulator second = new RelationshipAccumulator();
+        // 第二章中人物和词语的编号顺序与第一章不同
+        second.addDialogue("李四", Arrays.asList("张三", "王五"), 0.3, Arrays.asList("剑法"));
+        second.addDialogue("张三", Arrays.asList("李四"), 0.7, Arrays.asList("剑法"));
+        first.merge(second);
+
+        for (RelationshipAccumulator accumulator : Arrays.asList(whole, first)) {
+            int zhangSan = accumulator.characterId("张三");
+            int liSi = accumulator.characterId("李四");
+            int wangWu = accumulator.characterId("王五");
+            assertEquals(3, accumulator.characterCount());
+            assertEquals(2, accumulator.interactions(zhangSan, liSi));
+            assertEquals(1, accumulator.interactions(liSi, zhangSan));
+            assertEquals(3, accumulator.cooccurrences(zhangSan, liSi));
+            assertEquals(1, accumulator.cooccurrences(liSi, wangWu));
+            assertEquals((0.5 * 7 / 3 + 1.6) / (7.0 / 3 + 2), accumulator.sentiment(zhangSan, liSi), 1e-9);
+            assertEquals(0.5, accumulator.sentiment(wangWu, zhangSan), 1e-9);
+
+            long pair = SparseCounter.pack(Math.min(zhangSan, liSi), Math.max(zhangSan, liSi));
+            Set<String> words = accumulator.sharedWordsByPair().get(pair);
+            assertEquals(Arrays.asList("剑法", "师父"), List.copyOf(words));
+            assertEquals(2, accumulator.pairs().length);
+        }
+    }
+
+    @Test
+    public void testImportanceFavoursConnectedCharacters() {
+        RelationshipAccumulator accumulator = new RelationshipAccumulator();
+        int hub = accumulator.characterId("主角");
+        for (int i = 0; i < 300; i++) {
+            int other = accumulator.characterId("配角" + i);
+            accumulator.addCooccurrence(hub, other, 1 + i % 3);
+            if (i > 0) {
+                accumulator.addCooccurrence(other, accumulator.characterId("配角" + (i - 1)), 1);
+            }
+        }
+        int isolated = accumulator.characterId("路人");
+
+        double[] importance = accumulator.importance(10, 0.85);
+        for (int id = 0; id < importance.length; id++) {
+            if (id != hub) {
+                assertTrue(importance[hub] > importance[id]);
+            }
+        }
+        assertEquals(0.15, importance[isolated], 1e-9);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        RelationshipAccumulator original = new RelationshipAccumulator();
+        original.addDialogue("张三", Arrays.asList("李四"), 0.9, Arrays.asList("师父", "剑法"));
+        original.addDialogue("李四", Arrays.asList("张三", "王五"), 0.3, Arrays.asList("剑法"));
+        original.addSentenceWindow("张三出门。王五跟着他。", Arrays.asList("张三", "王五"), 2);
+
+        // 随章节以JSON保存后还原
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = objectMapper.writeValueAsString(original.snapshot());
+        RelationshipAccumulator restored = RelationshipAccumulator.fromSnapshot(
+                objectMapper.readValue(json, RelationshipAccumulator.Snapshot.class));
+
+        int zhangSan = restored.characterId("张三");
+        int liSi = restored.characterId("李四");
+        int wangWu = restored.characterId("王五");
+        assertEquals(original.characterCount(), restored.characterCount());
+        assertEquals(original.cooccurrences(zhangSan, wangWu), restored.cooccurrences(zhangSan, wangWu));
+        assertEquals(1, restored.interactions(zhangSan, liSi));
+        assertEquals(original.sentiment(liSi, wangWu), restored.sentiment(liSi, wangWu), 1e-12);
+        assertEquals(original.sharedWordsByPair(), restored.sharedWordsByPair());
+        assertArrayEquals(original.pairs(), restored.pairs());
+    }
+}
@@ -0,0 +1,86 @@
+package com.novelassistant.util;
+
+import com.hankcs.hanlp.seg.common.Term;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分词缓存测试
+ */
+public class SegmentationCacheTest {
+
+    private static String text(String sentence, int repeat) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < repeat; i++) {
+            builder.append(sentence);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        SegmentationCache cache = new SegmentationCache(100000, 10);
+        String text = text("张三走进了客栈，向掌柜要了一壶酒。", 5);
+
+        List<Term> first = cache.segment(text);
+        List<Term> second = cache.segment(text);
+        assertSame(first, second);
+        assertEquals(1L, cache.getStatistics().get("hits"));
+        assertEquals(1L, cache.getStatistics().get("misses"));
+
+        // 短文本不进入缓存
+        cache.segment("张三来了");
+        assertEquals(1L, cache.getStatistics().get("entries"));
+
+        cache.evict(text);
+        assertEquals(0L, cache.getStatistics().get("entries"));
+        assertNotSame(first, cache.segment(text));
+        assertEquals(2L, cache.getStatistics().get("misses"));
+
+        cache.clear();
+        assertEquals(0L, cache.getStatistics().get("entries"));
+        assertEquals(0L, cache.getStatistics().get("terms"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBeyondTermLimit() {
+        String first = text("张三走进了客栈，向掌柜要了一壶酒。", 5);
+        String second = text("李四骑马出城，沿着官道一路向北。", 5);
+        String third = text("王五在山中练剑，直到天色渐暗。", 5);
+        SegmentationCache sizing = new SegmentationCache(100000, 10);
+        long a = sizing.segment(first).size();
+        long b = sizing.segment(second).size();
+        long c = sizing.segment(third).size();
+
+        // 容量够任意两段文本，放不下三段
+        SegmentationCache cache = new SegmentationCache(Math.max(a + b, Math.max(a + c, b + c)), 10);
+        cache.segment(first);
+        cache.segment(second);
+        cache.segment(first);
+        cache.segment(third);
+
+        Map<String, Long> stats = cache.getStatistics();
+        assertEquals(2L, stats.get("entries"));
+        assertTrue(stats.get("terms") <= stats.get("maxTerms"));
+
+        // 最久未使用的second已被淘汰，first仍在缓存中
+        cache.segment(first);
+        assertEquals(2L, cache.getStatistics().get("hits"));
+        cache.segment(second);
+        assertEquals(4L, cache.getStatistics().get("misses"));
+    }
+
+    @Test
+    public void testResultsAreReadOnly() {
+        SegmentationCache cache = new SegmentationCache(100000, 10);
+        List<Term> cached = cache.segment(text("张三走进了客栈，向掌柜要了一壶酒。", 5));
+        List<Term> direct = cache.segment("张三来了");
+
+        assertThrows(UnsupportedOperationException.class, () -> cached.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> direct.clear());
+    }
+}
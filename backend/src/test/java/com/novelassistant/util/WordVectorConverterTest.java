@@ -0,0 +1,63 @@
+package com.novelassistant.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 词向量格式转换测试：文本格式转换为二进制后由MappedWordVectors读取
+ */
+public class WordVectorConverterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTextToBinaryRoundTrip() throws Exception {
+        Path textFile = tempDir.resolve("vectors.txt");
+        Files.write(textFile, List.of(
+                "5 3",
+                "张三 0.5 -1.25 2",
+                "李四 1 0 0",
+                "王五 -0.75 3.5 0.125",
+                "张三 9 9 9",
+                "错误 1 2"
+        ), StandardCharsets.UTF_8);
+        Path binaryFile = tempDir.resolve("vectors.bin");
+
+        int converted = WordVectorConverter.convert(textFile, binaryFile);
+        assertEquals(3, converted);
+
+        MappedWordVectors vectors = MappedWordVectors.open(binaryFile);
+        assertEquals(3, vectors.size());
+        assertEquals(3, vectors.dimension());
+
+        // 重复的词保留第一次出现的向量，维度不一致的行被丢弃
+        assertArrayEquals(new float[]{0.5f, -1.25f, 2f}, vectors.getVector("张三"));
+        assertArrayEquals(new float[]{1f, 0f, 0f}, vectors.getVector("李四"));
+        assertArrayEquals(new float[]{-0.75f, 3.5f, 0.125f}, vectors.getVector("王五"));
+        assertFalse(vectors.hasWord("错误"));
+        assertNull(vectors.getVector("赵六"));
+
+        for (int i = 0; i < vectors.size(); i++) {
+            assertEquals(i, vectors.indexOf(vectors.wordAt(i)));
+        }
+
+        assertEquals(1.0, vectors.similarity("李四", "李四"), 1e-9);
+        assertEquals(0.5 / Math.sqrt(0.25 + 1.5625 + 4), vectors.similarity("张三", "李四"), 1e-6);
+        double[] mean = vectors.meanVector(Arrays.asList("李四", "王五", "赵六"));
+        assertArrayEquals(new double[]{0.125, 1.75, 0.0625}, mean, 1e-9);
+
+        // 转换过程中的临时文件都已删除
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+}